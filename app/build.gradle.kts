@@ -15,6 +15,13 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Endpoints do banco e da Cloud Function; para o servidor local (cloud/standIn):
+        // ./gradlew installDebug -Psyncro.dbUrl=http://10.0.2.2:8090 -Psyncro.functionUrl=http://10.0.2.2:8091/getTursoToken
+        val dbUrl = project.findProperty("syncro.dbUrl") as String? ?: "link do seu turso db"
+        val functionUrl = project.findProperty("syncro.functionUrl") as String? ?: "link aqui do cloud function"
+        buildConfigField("String", "DB_URL", "\"$dbUrl\"")
+        buildConfigField("String", "CLOUD_FUNCTION_URL", "\"$functionUrl\"")
     }
 
     buildTypes {
@@ -32,6 +39,7 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 
 }
@@ -190,6 +190,8 @@ public abstract class BaseActivity extends AppCompatActivity implements Navigati
 
         // Verifica o item de sair
         else if (id == R.id.nav_sair) {
+            // Fecha o banco e o token do usuário antes de sair, para a próxima conta não herdá-los
+            DatabaseManager.shutdown();
             if (autenticacao != null) {
                 autenticacao.signOut();
             }
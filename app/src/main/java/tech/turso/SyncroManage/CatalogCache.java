@@ -0,0 +1,391 @@
+package tech.turso.SyncroManage;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * Cache em memória do catálogo (estoque e serviços), por usuário.
+ * A primeira listagem carrega a tabela inteira; a partir daí as escritas dos
+ * DAOs atualizam o cache item a item, e as telas que só leem o catálogo
+ * (formulário de venda, estoque, serviços) não voltam ao banco.
+ * Após cada sincronização o catálogo do usuário atual é relido do banco. Sem
+ * réplica local não há sincronização: com o banco remoto acessível, o catálogo
+ * carregado há mais de VALIDADE_REMOTO_MS é relido na próxima listagem, para
+ * mostrar alterações feitas em outros aparelhos.
+ *
+ * Os itens são copiados na entrada e na saída, de modo que alterações feitas
+ * pelas telas nos objetos recebidos não afetam o cache.
+ */
+public final class CatalogCache {
+    private static final String TAG = "CatalogCache";
+
+    private static final String SELECT_ESTOQUE =
+            "SELECT id_estoque, id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade " +
+                    "FROM estoque WHERE id_usuario = ?";
+    private static final String SELECT_SERVICOS =
+            "SELECT id_servico, id_usuario, nome, custo_unitario, valor_unitario " +
+                    "FROM servicos WHERE id_usuario = ?";
+
+    // Mesma ordem das listagens dos DAOs (ORDER BY nome)
+    private static final Comparator<Estoque> ORDEM_ESTOQUE =
+            Comparator.comparing(Estoque::getNome_produto, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+    private static final Comparator<Servico> ORDEM_SERVICOS =
+            Comparator.comparing(Servico::getNome, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    // Validade do catálogo lido do banco remoto (sem sincronização que o reconcilie)
+    private static final long VALIDADE_REMOTO_MS = 60000;
+
+    private static final Map<String, Catalogo> porUsuario = new HashMap<>();
+
+    private CatalogCache() {
+    }
+
+    /**
+     * Itens de uma tabela do catálogo, indexados pelo ID
+     */
+    private static final class Tabela<T> {
+        final Map<Integer, T> itens = new HashMap<>();
+        final ToIntFunction<T> id;
+        final Function<T, T> copia;
+        final Comparator<T> ordem;
+        boolean carregada = false;
+        long carregadaEm = 0;      // SystemClock.elapsedRealtime() da última carga do banco
+        long versao = 0;           // Incrementada a cada escrita (mesmo antes da carga), para descartar cargas concorrentes
+        List<T> snapshot = null;  // Lista ordenada, refeita apenas após alterações
+
+        Tabela(ToIntFunction<T> id, Function<T, T> copia, Comparator<T> ordem) {
+            this.id = id;
+            this.copia = copia;
+            this.ordem = ordem;
+        }
+
+        void substituir(List<T> lista) {
+            itens.clear();
+            for (T item : lista) {
+                itens.put(id.applyAsInt(item), copia.apply(item));
+            }
+            carregada = true;
+            carregadaEm = SystemClock.elapsedRealtime();
+            alterada();
+        }
+
+        /**
+         * Carregada e ainda válida: no banco remoto, a carga expira após VALIDADE_REMOTO_MS
+         */
+        boolean utilizavel() {
+            return carregada && (SystemClock.elapsedRealtime() - carregadaEm < VALIDADE_REMOTO_MS
+                    || !DatabaseManager.isRemoteCatalogSource());
+        }
+
+        void alterada() {
+            versao++;
+            snapshot = null;
+        }
+
+        List<T> copiar() {
+            if (snapshot == null) {
+                List<T> ordenada = new ArrayList<>(itens.values());
+                Collections.sort(ordenada, ordem);
+                snapshot = ordenada;
+            }
+            List<T> resultado = new ArrayList<>(snapshot.size());
+            for (T item : snapshot) {
+                resultado.add(copia.apply(item));
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Catálogo de um usuário
+     */
+    private static final class Catalogo {
+        final Tabela<Estoque> estoque = new Tabela<>(Estoque::getId_estoque, CatalogCache::copiar, ORDEM_ESTOQUE);
+        final Tabela<Servico> servicos = new Tabela<>(Servico::getId_servico, CatalogCache::copiar, ORDEM_SERVICOS);
+    }
+
+    private static Catalogo catalogo(String userId) {
+        Catalogo catalogo = porUsuario.get(userId);
+        if (catalogo == null) {
+            catalogo = new Catalogo();
+            porUsuario.put(userId, catalogo);
+        }
+        return catalogo;
+    }
+
+    // --- ESTOQUE ---
+
+    /**
+     * Obtém o estoque do usuário, ordenado por nome
+     * @return Cópia da lista em cache ou null se o estoque ainda não foi carregado
+     */
+    @Nullable
+    public static synchronized List<Estoque> getEstoque(String userId) {
+        Catalogo catalogo = porUsuario.get(userId);
+        if (catalogo == null || !catalogo.estoque.utilizavel()) {
+            return null;
+        }
+        return catalogo.estoque.copiar();
+    }
+
+    /**
+     * Versão atual do estoque em cache; deve ser lida antes de consultar o banco
+     * e repassada a {@link #putEstoque(String, List, long)}
+     */
+    public static synchronized long getVersaoEstoque(String userId) {
+        return catalogo(userId).estoque.versao;
+    }
+
+    /**
+     * Armazena o estoque lido do banco, desde que nenhuma escrita tenha
+     * alterado o cache desde o início da leitura
+     * @param versaoLida Valor de {@link #getVersaoEstoque(String)} obtido antes da consulta
+     */
+    public static synchronized void putEstoque(String userId, List<Estoque> lista, long versaoLida) {
+        Tabela<Estoque> tabela = catalogo(userId).estoque;
+        if (tabela.versao != versaoLida) {
+            Log.d(TAG, "Estoque alterado durante a leitura; carga descartada");
+            return;
+        }
+        tabela.substituir(lista);
+    }
+
+    /**
+     * Insere ou substitui um item de estoque em cache
+     */
+    public static synchronized void upsertEstoque(String userId, Estoque item) {
+        Tabela<Estoque> tabela = catalogo(userId).estoque;
+        if (tabela.carregada) {
+            Estoque copia = copiar(item);
+            copia.setId_usuario(userId);
+            tabela.itens.put(copia.getId_estoque(), copia);
+        }
+        tabela.alterada();
+    }
+
+    /**
+     * Remove um item de estoque do cache
+     */
+    public static synchronized void removeEstoque(String userId, int idEstoque) {
+        Tabela<Estoque> tabela = catalogo(userId).estoque;
+        tabela.itens.remove(idEstoque);
+        tabela.alterada();
+    }
+
+    /**
+     * Define a quantidade de um item de estoque em cache
+     */
+    public static synchronized void setQuantidade(String userId, int idEstoque, int quantidade) {
+        Tabela<Estoque> tabela = catalogo(userId).estoque;
+        Estoque item = tabela.itens.get(idEstoque);
+        if (item != null) {
+            item.setQuantidade(quantidade);
+        }
+        tabela.alterada();
+    }
+
+    /**
+     * Soma uma variação à quantidade do produto com o nome informado,
+     * espelhando as baixas e estornos de estoque feitos pelas vendas
+     * @param delta Variação (negativa para baixa)
+     */
+    public static synchronized void ajustarQuantidade(String userId, String nomeProduto, int delta) {
+        Tabela<Estoque> tabela = catalogo(userId).estoque;
+        if (delta == 0) return;
+        for (Estoque item : tabela.itens.values()) {
+            if (item.getNome_produto() != null && item.getNome_produto().equals(nomeProduto)) {
+                item.setQuantidade(item.getQuantidade() + delta);
+            }
+        }
+        tabela.alterada();
+    }
+
+    /**
+     * Verifica no cache se há quantidade suficiente do produto. Usado nas vendas
+     * offline, quando o banco não pode ser consultado.
+     * @return true se houver quantidade suficiente ou se o estoque ainda não foi carregado
+     */
+    public static synchronized boolean temQuantidade(String userId, String nomeProduto, int quantidade) {
+        Catalogo catalogo = porUsuario.get(userId);
+        if (catalogo == null || !catalogo.estoque.carregada) {
+            return true;
+        }
+        for (Estoque item : catalogo.estoque.itens.values()) {
+            if (item.getNome_produto() != null && item.getNome_produto().equals(nomeProduto)) {
+                return item.getQuantidade() >= quantidade;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Descarta o estoque em cache do usuário; a próxima listagem relê do banco.
+     * Usado após alterações em massa, mais baratas de reler do que de espelhar.
+     */
+    public static synchronized void invalidarEstoque(String userId) {
+        Tabela<Estoque> tabela = catalogo(userId).estoque;
+        tabela.itens.clear();
+        tabela.carregada = false;
+        tabela.alterada();
+    }
+
+    // --- SERVIÇOS ---
+
+    /**
+     * Obtém os serviços do usuário, ordenados por nome
+     * @return Cópia da lista em cache ou null se os serviços ainda não foram carregados
+     */
+    @Nullable
+    public static synchronized List<Servico> getServicos(String userId) {
+        Catalogo catalogo = porUsuario.get(userId);
+        if (catalogo == null || !catalogo.servicos.utilizavel()) {
+            return null;
+        }
+        return catalogo.servicos.copiar();
+    }
+
+    /**
+     * Versão atual dos serviços em cache; deve ser lida antes de consultar o banco
+     * e repassada a {@link #putServicos(String, List, long)}
+     */
+    public static synchronized long getVersaoServicos(String userId) {
+        return catalogo(userId).servicos.versao;
+    }
+
+    /**
+     * Armazena os serviços lidos do banco, desde que nenhuma escrita tenha
+     * alterado o cache desde o início da leitura
+     * @param versaoLida Valor de {@link #getVersaoServicos(String)} obtido antes da consulta
+     */
+    public static synchronized void putServicos(String userId, List<Servico> lista, long versaoLida) {
+        Tabela<Servico> tabela = catalogo(userId).servicos;
+        if (tabela.versao != versaoLida) {
+            Log.d(TAG, "Serviços alterados durante a leitura; carga descartada");
+            return;
+        }
+        tabela.substituir(lista);
+    }
+
+    /**
+     * Insere ou substitui um serviço em cache
+     */
+    public static synchronized void upsertServico(String userId, Servico servico) {
+        Tabela<Servico> tabela = catalogo(userId).servicos;
+        if (tabela.carregada) {
+            Servico copia = copiar(servico);
+            copia.setId_usuario(userId);
+            tabela.itens.put(copia.getId_servico(), copia);
+        }
+        tabela.alterada();
+    }
+
+    /**
+     * Remove um serviço do cache
+     */
+    public static synchronized void removeServico(String userId, int idServico) {
+        Tabela<Servico> tabela = catalogo(userId).servicos;
+        tabela.itens.remove(idServico);
+        tabela.alterada();
+    }
+
+    // --- CARGA E RECONCILIAÇÃO ---
+
+    /**
+     * Lê o estoque do usuário do banco e atualiza o cache
+     * @return Lista lida, ordenada por nome
+     */
+    static List<Estoque> carregarEstoque(ConnectionLease conn, String userId) {
+        long versao = getVersaoEstoque(userId);
+        List<Estoque> lista = new ArrayList<>();
+        try (Rows rows = conn.prepare(SELECT_ESTOQUE).bindText(1, userId).query()) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                lista.add(new Estoque(((Number) row[0]).intValue(), (String) row[1], (String) row[2],
+                        ((Number) row[3]).doubleValue(), ((Number) row[4]).doubleValue(),
+                        ((Number) row[5]).intValue()));
+            }
+        }
+        putEstoque(userId, lista, versao);
+        Collections.sort(lista, ORDEM_ESTOQUE);
+        return lista;
+    }
+
+    /**
+     * Lê os serviços do usuário do banco e atualiza o cache
+     * @return Lista lida, ordenada por nome
+     */
+    static List<Servico> carregarServicos(ConnectionLease conn, String userId) {
+        long versao = getVersaoServicos(userId);
+        List<Servico> lista = new ArrayList<>();
+        try (Rows rows = conn.prepare(SELECT_SERVICOS).bindText(1, userId).query()) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                lista.add(new Servico(((Number) row[0]).intValue(), (String) row[1], (String) row[2],
+                        ((Number) row[3]).doubleValue(), ((Number) row[4]).doubleValue()));
+            }
+        }
+        putServicos(userId, lista, versao);
+        Collections.sort(lista, ORDEM_SERVICOS);
+        return lista;
+    }
+
+    /**
+     * Reconcilia o cache com o banco após uma sincronização: relê as tabelas já
+     * carregadas do usuário atual e descarta os catálogos dos demais usuários
+     * @param userId Usuário atual, ou null se não houver usuário autenticado
+     */
+    static void reconciliar(ConnectionLease conn, @Nullable String userId) {
+        boolean estoqueCarregado;
+        boolean servicosCarregados;
+        synchronized (CatalogCache.class) {
+            Iterator<Map.Entry<String, Catalogo>> it = porUsuario.entrySet().iterator();
+            while (it.hasNext()) {
+                if (!it.next().getKey().equals(userId)) {
+                    it.remove();
+                }
+            }
+            Catalogo atual = userId != null ? porUsuario.get(userId) : null;
+            estoqueCarregado = atual != null && atual.estoque.carregada;
+            servicosCarregados = atual != null && atual.servicos.carregada;
+        }
+
+        if (estoqueCarregado) {
+            carregarEstoque(conn, userId);
+        }
+        if (servicosCarregados) {
+            carregarServicos(conn, userId);
+        }
+        Log.d(TAG, "Catálogo reconciliado após sincronização");
+    }
+
+    /**
+     * Descarta todo o catálogo em cache (troca de banco ou de usuário)
+     */
+    public static synchronized void invalidateAll() {
+        porUsuario.clear();
+    }
+
+    private static Estoque copiar(Estoque item) {
+        return new Estoque(item.getId_estoque(), item.getId_usuario(), item.getNome_produto(),
+                item.getCusto_unitario(), item.getValor_unitario(), item.getQuantidade());
+    }
+
+    private static Servico copiar(Servico servico) {
+        return new Servico(servico.getId_servico(), servico.getId_usuario(), servico.getNome(),
+                servico.getCusto_unitario(), servico.getValor_unitario());
+    }
+}
@@ -0,0 +1,150 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import tech.turso.libsql.Connection;
+import tech.turso.libsql.Rows;
+
+import java.util.Locale;
+
+/**
+ * Empréstimo exclusivo de uma conexão do {@link ConnectionPool}.
+ * Deve ser usado com try-with-resources: ao fechar, a conexão volta ao pool
+ * em vez de ser encerrada. Transações deixadas abertas são desfeitas antes
+ * da devolução, para que o próximo usuário receba uma conexão limpa.
+ */
+public class ConnectionLease implements AutoCloseable {
+    private static final String TAG = "ConnectionLease";
+
+    private final ConnectionPool pool;
+    private final ConnectionPool.PooledConnection pooled;
+    private final long leasedAt;
+    private boolean inTransaction = false;
+    private boolean suspect = false;
+    private boolean discard = false;
+    private boolean closed = false;
+
+    ConnectionLease(ConnectionPool pool, ConnectionPool.PooledConnection pooled) {
+        this.pool = pool;
+        this.pooled = pooled;
+        this.leasedAt = System.nanoTime();
+    }
+
+    /**
+     * Executa uma consulta na conexão emprestada
+     * @param sql Consulta SQL
+     * @return Linhas resultantes (devem ser fechadas pelo chamador)
+     */
+    public Rows query(String sql) {
+        checkOpen();
+        try {
+            return pooled.connection.query(sql);
+        } catch (RuntimeException e) {
+            suspect = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Prepara um comando com parâmetros posicionais ({@code ?}), reaproveitando
+     * a divisão do texto nos marcadores mantida no cache da conexão
+     * @param sql Texto SQL com marcadores de parâmetro
+     * @return Comando pronto para receber os binds
+     */
+    public SqlStatement prepare(String sql) {
+        checkOpen();
+        return new SqlStatement(this, pool.lookupStatement(pooled, sql));
+    }
+
+    /**
+     * Executa um comando na conexão emprestada, acompanhando o estado de transação
+     * @param sql Comando SQL
+     */
+    public void execute(String sql) {
+        checkOpen();
+        try {
+            pooled.connection.execute(sql);
+        } catch (RuntimeException e) {
+            suspect = true;
+            throw e;
+        }
+        trackTransaction(sql);
+    }
+
+    /**
+     * Acesso direto à conexão nativa, para recursos não cobertos pelo empréstimo
+     * @return Conexão libsql subjacente
+     */
+    public Connection getConnection() {
+        checkOpen();
+        return pooled.connection;
+    }
+
+    /**
+     * Marca a conexão como inválida; ela será descartada em vez de devolvida ao pool
+     */
+    public void invalidate() {
+        discard = true;
+    }
+
+    /**
+     * Tempo decorrido desde o empréstimo, em milissegundos
+     */
+    public long getElapsedMs() {
+        return (System.nanoTime() - leasedAt) / 1_000_000L;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        boolean reusable = !discard;
+        if (reusable && inTransaction) {
+            Log.w(TAG, "Conexão devolvida com transação aberta; executando ROLLBACK");
+            try {
+                pooled.connection.execute("ROLLBACK");
+                inTransaction = false;
+            } catch (Exception e) {
+                Log.e(TAG, "Erro no rollback ao devolver conexão: " + e.getMessage(), e);
+                reusable = false;
+            }
+        }
+
+        // Erros de SQL não invalidam a conexão se ela ainda responde
+        if (reusable && suspect) {
+            reusable = pool.isHealthy(pooled);
+        }
+
+        pool.release(pooled, reusable, System.nanoTime() - leasedAt);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Conexão já devolvida ao pool");
+        }
+    }
+
+    /**
+     * Acompanha BEGIN, COMMIT/END e ROLLBACK pelas palavras do comando. ROLLBACK TO
+     * volta a um savepoint e mantém a transação externa aberta.
+     */
+    private void trackTransaction(String sql) {
+        String[] palavras = sql.trim().split("[\\s;]+", 4);
+        String comando = palavras[0].toUpperCase(Locale.ROOT);
+        if (comando.equals("BEGIN")) {
+            inTransaction = true;
+        } else if (comando.equals("COMMIT") || comando.equals("END")) {
+            inTransaction = false;
+        } else if (comando.equals("ROLLBACK")) {
+            // ROLLBACK [TRANSACTION] TO [SAVEPOINT] nome
+            int i = 1;
+            if (i < palavras.length && palavras[i].equalsIgnoreCase("TRANSACTION")) {
+                i++;
+            }
+            if (i >= palavras.length || !palavras[i].equalsIgnoreCase("TO")) {
+                inTransaction = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tech.turso.libsql.Connection;
+import tech.turso.libsql.Database;
+import tech.turso.libsql.Rows;
+
+/**
+ * Pool de conexões reutilizáveis sobre uma instância de {@link Database}
+ * (réplica embarcada ou banco remoto). Evita o custo de abrir uma conexão
+ * por consulta, descarta conexões ociosas por muito tempo e revalida as
+ * conexões após sincronização ou renovação do token.
+ * Ao trocar de banco, o pool anterior pode fechar também o {@link Database}, o que
+ * só acontece depois que o último empréstimo em andamento for devolvido.
+ * A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class ConnectionPool {
+    private static final String TAG = "ConnectionPool";
+
+    // Empréstimos mais longos que isso são registrados no log
+    private static final long SLOW_LEASE_MS = 2000;
+
+    // Comandos SQL analisados mantidos por conexão
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private final Database database;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long acquireTimeoutMs;
+    private final String initStatement;
+    private final Semaphore permits;
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+
+    // Incrementado quando as conexões existentes precisam ser revalidadas
+    private final AtomicInteger healthEpoch = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    // Empréstimos em andamento (incluindo aquisições ainda em curso)
+    private final AtomicInteger emprestadas = new AtomicInteger();
+    // Fechamento do banco pedido por closeWithDatabase e ainda não feito
+    private volatile boolean fecharBanco = false;
+    private final AtomicBoolean bancoFechado = new AtomicBoolean();
+    private volatile Runnable aoFecharBanco;
+
+    // Métricas
+    private final AtomicLong totalLeases = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong totalAcquireNanos = new AtomicLong();
+    private final AtomicLong totalHoldNanos = new AtomicLong();
+    private final AtomicLong maxHoldNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    /**
+     * Conexão mantida pelo pool e seus metadados
+     */
+    static class PooledConnection {
+        final Connection connection;
+        final SqlStatement.Cache statements = new SqlStatement.Cache(STATEMENT_CACHE_SIZE);
+        int epoch;
+        long lastUsedAt;
+
+        PooledConnection(Connection connection, int epoch) {
+            this.connection = connection;
+            this.epoch = epoch;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+    }
+
+    ConnectionPool(Database database, int maxSize, long idleTimeoutMs, long acquireTimeoutMs) {
+        this(database, maxSize, idleTimeoutMs, acquireTimeoutMs, null);
+    }
+
+    /**
+     * @param initStatement Comando executado em cada conexão nova (ex.: PRAGMA), ou null
+     */
+    ConnectionPool(Database database, int maxSize, long idleTimeoutMs, long acquireTimeoutMs, String initStatement) {
+        this.database = database;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.initStatement = initStatement;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Empresta uma conexão, reutilizando uma ociosa quando possível
+     * @return Empréstimo que deve ser fechado após o uso
+     * @throws IllegalStateException se o pool estiver fechado ou o tempo de espera se esgotar
+     */
+    public ConnectionLease acquire() {
+        // Contado antes de conferir o fechamento: closeWithDatabase vê este empréstimo
+        // ou este empréstimo vê o pool fechado, nunca nenhum dos dois
+        emprestadas.incrementAndGet();
+        if (closed) {
+            liberarEmprestimo();
+            throw new IllegalStateException("Pool de conexões fechado");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                liberarEmprestimo();
+                throw new IllegalStateException("Tempo esgotado aguardando conexão disponível (" + maxSize + " em uso)");
+            }
+        } catch (InterruptedException e) {
+            liberarEmprestimo();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando conexão", e);
+        }
+
+        try {
+            evictIdle();
+            PooledConnection pooled = takeHealthyIdle();
+            if (pooled == null) {
+                Connection connection = database.connect();
+                if (initStatement != null) {
+                    try {
+                        connection.execute(initStatement);
+                    } catch (RuntimeException e) {
+                        connection.close();
+                        throw e;
+                    }
+                }
+                pooled = new PooledConnection(connection, healthEpoch.get());
+                created.incrementAndGet();
+            } else {
+                reused.incrementAndGet();
+            }
+            totalLeases.incrementAndGet();
+            totalAcquireNanos.addAndGet(System.nanoTime() - start);
+            return new ConnectionLease(this, pooled);
+        } catch (RuntimeException e) {
+            permits.release();
+            liberarEmprestimo();
+            throw e;
+        }
+    }
+
+    /**
+     * Devolve uma conexão ao pool (chamado por {@link ConnectionLease#close()})
+     */
+    void release(PooledConnection pooled, boolean reusable, long holdNanos) {
+        totalHoldNanos.addAndGet(holdNanos);
+        long maxAtual;
+        do {
+            maxAtual = maxHoldNanos.get();
+        } while (holdNanos > maxAtual && !maxHoldNanos.compareAndSet(maxAtual, holdNanos));
+
+        long holdMs = TimeUnit.NANOSECONDS.toMillis(holdNanos);
+        if (holdMs > SLOW_LEASE_MS) {
+            Log.w(TAG, "Conexão mantida por " + holdMs + "ms");
+        }
+
+        try {
+            if (reusable && !closed) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.push(pooled);
+                }
+            } else {
+                discarded.incrementAndGet();
+                closeQuietly(pooled);
+            }
+        } finally {
+            permits.release();
+            liberarEmprestimo();
+        }
+    }
+
+    /**
+     * Obtém um comando analisado do cache da conexão (chamado por {@link ConnectionLease#prepare(String)})
+     */
+    SqlStatement.Template lookupStatement(PooledConnection pooled, String sql) {
+        long missesAntes = pooled.statements.getMisses();
+        SqlStatement.Template template = pooled.statements.get(sql);
+        if (pooled.statements.getMisses() == missesAntes) {
+            statementHits.incrementAndGet();
+        } else {
+            statementMisses.incrementAndGet();
+        }
+        return template;
+    }
+
+    /**
+     * Solicita a revalidação das conexões existentes antes do próximo uso.
+     * Deve ser chamado após sincronização da réplica ou renovação do token.
+     */
+    public void requestHealthCheck() {
+        int epoch = healthEpoch.incrementAndGet();
+        Log.d(TAG, "Conexões ociosas serão revalidadas (época " + epoch + ")");
+    }
+
+    /**
+     * Fecha as conexões ociosas há mais tempo que o limite configurado
+     */
+    public void evictIdle() {
+        long limite = System.currentTimeMillis() - idleTimeoutMs;
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (pooled.lastUsedAt < limite) {
+                    it.remove();
+                    evicted.incrementAndGet();
+                    closeQuietly(pooled);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fecha o pool e todas as conexões ociosas. Conexões emprestadas são
+     * fechadas quando devolvidas.
+     */
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            for (PooledConnection pooled : idle) {
+                closeQuietly(pooled);
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * Fecha o pool e também o banco subjacente, assim que não houver empréstimos em
+     * andamento. Usado ao trocar de banco: consultas que ainda usam o pool anterior
+     * terminam normalmente antes de o banco nativo ser liberado.
+     * @param aoFechar Executado depois de fechar o banco (na thread que devolveu o
+     *                 último empréstimo), ou null
+     */
+    public void closeWithDatabase(Runnable aoFechar) {
+        aoFecharBanco = aoFechar;
+        fecharBanco = true;
+        close();
+        if (emprestadas.get() == 0) {
+            fecharBancoSeLivre();
+        } else {
+            Log.d(TAG, "Banco anterior será fechado após " + emprestadas.get() + " empréstimos em andamento");
+        }
+    }
+
+    /**
+     * Banco sobre o qual o pool abre as conexões
+     */
+    Database getDatabase() {
+        return database;
+    }
+
+    private void liberarEmprestimo() {
+        if (emprestadas.decrementAndGet() == 0 && fecharBanco) {
+            fecharBancoSeLivre();
+        }
+    }
+
+    private void fecharBancoSeLivre() {
+        if (emprestadas.get() != 0 || !bancoFechado.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            database.close();
+            Log.d(TAG, "Banco anterior fechado");
+        } catch (Exception e) {
+            Log.w(TAG, "Erro ao fechar banco anterior: " + e.getMessage());
+        }
+        Runnable aoFechar = aoFecharBanco;
+        if (aoFechar != null) {
+            aoFechar.run();
+        }
+    }
+
+    /**
+     * Verifica se a conexão ainda responde a uma consulta trivial
+     */
+    boolean isHealthy(PooledConnection pooled) {
+        try (Rows rows = pooled.connection.query("SELECT 1")) {
+            return rows.nextRow() != null;
+        } catch (Exception e) {
+            Log.w(TAG, "Conexão falhou na verificação de saúde: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retorna um resumo textual das métricas do pool
+     */
+    public String getMetricsSummary() {
+        long leases = totalLeases.get();
+        int ociosas;
+        synchronized (idle) {
+            ociosas = idle.size();
+        }
+        return String.format(Locale.US,
+                "empréstimos=%d, em uso=%d/%d, ociosas=%d, criadas=%d, reutilizadas=%d, expiradas=%d, descartadas=%d, " +
+                        "espera média=%.2fms, uso médio=%.1fms, uso máx=%dms, cache de comandos=%d/%d",
+                leases, maxSize - permits.availablePermits(), maxSize, ociosas,
+                created.get(), reused.get(), evicted.get(), discarded.get(),
+                leases == 0 ? 0 : totalAcquireNanos.get() / (double) leases / 1_000_000.0,
+                leases == 0 ? 0 : totalHoldNanos.get() / (double) leases / 1_000_000.0,
+                TimeUnit.NANOSECONDS.toMillis(maxHoldNanos.get()),
+                statementHits.get(), statementHits.get() + statementMisses.get());
+    }
+
+    private PooledConnection takeHealthyIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.poll();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            int epochAtual = healthEpoch.get();
+            if (pooled.epoch == epochAtual) {
+                return pooled;
+            }
+            // Conexão anterior a uma sincronização ou troca de token: valida antes de reutilizar
+            if (isHealthy(pooled)) {
+                pooled.epoch = epochAtual;
+                return pooled;
+            }
+            discarded.incrementAndGet();
+            closeQuietly(pooled);
+        }
+    }
+
+    private void closeQuietly(PooledConnection pooled) {
+        try {
+            pooled.connection.close();
+        } catch (Exception e) {
+            Log.w(TAG, "Erro ao fechar conexão: " + e.getMessage());
+        }
+    }
+}
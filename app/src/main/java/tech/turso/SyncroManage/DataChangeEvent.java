@@ -0,0 +1,147 @@
+package tech.turso.SyncroManage;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alterações de dados acumuladas em uma janela de notificação.
+ * Informa, por tabela, quais operações ocorreram e quais IDs foram afetados,
+ * para que cada tela recarregue apenas o que exibe.
+ * Instâncias entregues aos listeners são imutáveis.
+ */
+public final class DataChangeEvent {
+
+    /**
+     * Tabelas observáveis
+     */
+    public enum Tabela {
+        ESTOQUE,
+        SERVICOS,
+        VENDAS
+    }
+
+    /**
+     * Tipos de alteração
+     */
+    public enum Operacao {
+        INSERCAO,
+        ATUALIZACAO,
+        EXCLUSAO,
+        SINCRONIZACAO  // Alteração externa; qualquer linha pode ter mudado
+    }
+
+    /**
+     * Alterações de uma tabela dentro do evento
+     */
+    public static final class Alteracao {
+        private final EnumSet<Operacao> operacoes = EnumSet.noneOf(Operacao.class);
+        private final Set<Integer> ids = new HashSet<>();
+        private boolean todas = false;
+
+        /**
+         * Operações ocorridas na tabela
+         */
+        public Set<Operacao> getOperacoes() {
+            return Collections.unmodifiableSet(operacoes);
+        }
+
+        /**
+         * IDs das linhas afetadas; vazio quando {@link #isTodas()} é true
+         */
+        public Set<Integer> getIds() {
+            return todas ? Collections.<Integer>emptySet() : Collections.unmodifiableSet(ids);
+        }
+
+        /**
+         * Indica que qualquer linha da tabela pode ter mudado (ex.: sincronização)
+         */
+        public boolean isTodas() {
+            return todas;
+        }
+
+        void registrar(Operacao operacao, int... idsAfetados) {
+            operacoes.add(operacao);
+            if (operacao == Operacao.SINCRONIZACAO || idsAfetados == null || idsAfetados.length == 0) {
+                todas = true;
+                ids.clear();
+            } else if (!todas) {
+                for (int id : idsAfetados) {
+                    ids.add(id);
+                }
+            }
+        }
+    }
+
+    private final Map<Tabela, Alteracao> alteracoes = new EnumMap<>(Tabela.class);
+
+    DataChangeEvent() {
+    }
+
+    /**
+     * Acumula uma alteração no evento (uso do notificador, antes da entrega)
+     */
+    void registrar(Tabela tabela, Operacao operacao, int... ids) {
+        Alteracao alteracao = alteracoes.get(tabela);
+        if (alteracao == null) {
+            alteracao = new Alteracao();
+            alteracoes.put(tabela, alteracao);
+        }
+        alteracao.registrar(operacao, ids);
+    }
+
+    /**
+     * Verifica se a tabela foi alterada
+     */
+    public boolean afeta(Tabela tabela) {
+        return alteracoes.containsKey(tabela);
+    }
+
+    /**
+     * Verifica se alguma das tabelas foi alterada
+     */
+    public boolean afetaAlguma(Set<Tabela> tabelas) {
+        for (Tabela tabela : tabelas) {
+            if (alteracoes.containsKey(tabela)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Alterações de uma tabela
+     * @return Alterações ou null se a tabela não foi alterada
+     */
+    public Alteracao getAlteracao(Tabela tabela) {
+        return alteracoes.get(tabela);
+    }
+
+    /**
+     * Tabelas alteradas
+     */
+    public Set<Tabela> getTabelas() {
+        return Collections.unmodifiableSet(alteracoes.keySet());
+    }
+
+    boolean isVazio() {
+        return alteracoes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DataChangeEvent{");
+        boolean primeiro = true;
+        for (Map.Entry<Tabela, Alteracao> entry : alteracoes.entrySet()) {
+            if (!primeiro) sb.append(", ");
+            primeiro = false;
+            Alteracao a = entry.getValue();
+            sb.append(entry.getKey()).append('=').append(a.operacoes)
+                    .append(a.todas ? "[todas]" : a.ids.toString());
+        }
+        return sb.append('}').toString();
+    }
+}
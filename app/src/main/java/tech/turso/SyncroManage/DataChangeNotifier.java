@@ -0,0 +1,133 @@
+package tech.turso.SyncroManage;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registro de listeners de alteração de dados com entrega agrupada.
+ * Alterações publicadas em sequência (por exemplo, uma venda que também
+ * baixa o estoque) são acumuladas em um único {@link DataChangeEvent} e
+ * entregues na thread principal após um curto intervalo sem novas alterações.
+ * Cada listener recebe o evento apenas se ele afetar alguma das tabelas
+ * em que se inscreveu. A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class DataChangeNotifier {
+    private static final String TAG = "DataChangeNotifier";
+
+    // Intervalo sem novas alterações antes da entrega
+    private static final long DEBOUNCE_MS = 150;
+    // Atraso máximo desde a primeira alteração pendente, mesmo com publicações contínuas
+    private static final long MAX_ATRASO_MS = 600;
+
+    /**
+     * Listener com as tabelas de interesse
+     */
+    private static final class Inscricao {
+        final DatabaseManager.DataChangeListener listener;
+        final Set<DataChangeEvent.Tabela> tabelas;
+
+        Inscricao(DatabaseManager.DataChangeListener listener, Set<DataChangeEvent.Tabela> tabelas) {
+            this.listener = listener;
+            this.tabelas = tabelas;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Inscricao> inscricoes = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable entrega = this::entregar;
+
+    // Evento em acumulação; protegido por "this"
+    private DataChangeEvent pendente = null;
+    private long primeiraPendenteEm = 0;
+
+    /**
+     * Inscreve um listener para as tabelas informadas.
+     * Reinscrever o mesmo listener substitui as tabelas anteriores.
+     * @param tabelas Tabelas de interesse; sem tabelas, o listener recebe todas
+     */
+    public void adicionar(DatabaseManager.DataChangeListener listener, DataChangeEvent.Tabela... tabelas) {
+        if (listener == null) return;
+        Set<DataChangeEvent.Tabela> interesse = tabelas == null || tabelas.length == 0
+                ? EnumSet.allOf(DataChangeEvent.Tabela.class)
+                : EnumSet.of(tabelas[0], tabelas);
+        remover(listener);
+        inscricoes.add(new Inscricao(listener, interesse));
+        Log.d(TAG, "Listener inscrito: " + listener.getClass().getSimpleName() + " " + interesse);
+    }
+
+    /**
+     * Remove a inscrição do listener
+     */
+    public void remover(DatabaseManager.DataChangeListener listener) {
+        if (listener == null) return;
+        for (Inscricao inscricao : inscricoes) {
+            if (inscricao.listener == listener) {
+                inscricoes.remove(inscricao);
+            }
+        }
+    }
+
+    /**
+     * Indica se há algum listener inscrito (alguma tela exibindo dados)
+     */
+    public boolean temInscricoes() {
+        return !inscricoes.isEmpty();
+    }
+
+    /**
+     * Remove todas as inscrições
+     */
+    public void limpar() {
+        inscricoes.clear();
+        synchronized (this) {
+            pendente = null;
+        }
+        mainHandler.removeCallbacks(entrega);
+    }
+
+    /**
+     * Publica uma alteração. Pode ser chamado de qualquer thread.
+     * @param ids IDs afetados; sem IDs, considera-se que qualquer linha pode ter mudado
+     */
+    public void publicar(DataChangeEvent.Tabela tabela, DataChangeEvent.Operacao operacao, int... ids) {
+        long agora = SystemClock.uptimeMillis();
+        long entregarEm;
+        synchronized (this) {
+            if (pendente == null) {
+                pendente = new DataChangeEvent();
+                primeiraPendenteEm = agora;
+            }
+            pendente.registrar(tabela, operacao, ids);
+            entregarEm = Math.min(agora + DEBOUNCE_MS, primeiraPendenteEm + MAX_ATRASO_MS);
+        }
+        mainHandler.removeCallbacks(entrega);
+        mainHandler.postAtTime(entrega, entregarEm);
+    }
+
+    private void entregar() {
+        DataChangeEvent evento;
+        synchronized (this) {
+            evento = pendente;
+            pendente = null;
+        }
+        if (evento == null || evento.isVazio()) return;
+
+        int entregues = 0;
+        for (Inscricao inscricao : inscricoes) {
+            if (!evento.afetaAlguma(inscricao.tabelas)) continue;
+            try {
+                inscricao.listener.onDataChanged(evento);
+                entregues++;
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao notificar listener: " + e.getMessage(), e);
+            }
+        }
+        Log.d(TAG, "Entregue " + evento + " a " + entregues + " de " + inscricoes.size() + " listeners");
+    }
+}
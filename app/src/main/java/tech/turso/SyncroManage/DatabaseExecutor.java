@@ -0,0 +1,216 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor compartilhado para todas as operações de banco de dados.
+ * Substitui os pools individuais dos DAOs por um único pool limitado, com
+ * filas de prioridade (leitura interativa > escrita > sincronização > exportação),
+ * evitando a criação descontrolada de threads e a disputa pelo banco libsql.
+ * A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class DatabaseExecutor {
+    private static final String TAG = "DatabaseExecutor";
+
+    // Limites do pool: poucas threads, pois todas disputam o mesmo banco
+    private static final int MAX_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    // Acima desta espera uma tarefa é registrada no log como lenta
+    private static final long SLOW_WAIT_MS = 500;
+
+    /**
+     * Prioridades das tarefas. A ordem de declaração define a ordem de execução.
+     */
+    public enum Prioridade {
+        LEITURA,     // Consultas disparadas pela interface
+        ESCRITA,     // Inserções, atualizações e exclusões
+        SYNC,        // Sincronização da réplica e manutenção
+        EXPORTACAO   // Relatórios e geração de arquivos
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Métricas por prioridade, indexadas pelo ordinal
+    private final AtomicInteger[] pendentes = new AtomicInteger[Prioridade.values().length];
+    private final AtomicLong[] concluidas = new AtomicLong[Prioridade.values().length];
+    private final AtomicLong[] esperaTotalNanos = new AtomicLong[Prioridade.values().length];
+    private final AtomicLong[] esperaMaximaNanos = new AtomicLong[Prioridade.values().length];
+
+    DatabaseExecutor() {
+        for (int i = 0; i < pendentes.length; i++) {
+            pendentes[i] = new AtomicInteger();
+            concluidas[i] = new AtomicLong();
+            esperaTotalNanos[i] = new AtomicLong();
+            esperaMaximaNanos[i] = new AtomicLong();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "syncro-db-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+
+        // Com fila ilimitada o pool só cresce até o core size, por isso core == max
+        pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Agenda uma tarefa na fila da prioridade informada.
+     * @param prioridade Prioridade da tarefa
+     * @param task Tarefa a ser executada
+     */
+    public void execute(Prioridade prioridade, Runnable task) {
+        pool.execute(new TarefaPriorizada<Void>(prioridade, task, null));
+    }
+
+    /**
+     * Agenda uma tarefa com retorno na fila da prioridade informada.
+     * @param prioridade Prioridade da tarefa
+     * @param task Tarefa a ser executada
+     * @return Future com o resultado da tarefa
+     */
+    public <T> Future<T> submit(Prioridade prioridade, Callable<T> task) {
+        TarefaPriorizada<T> tarefa = new TarefaPriorizada<>(prioridade, task);
+        pool.execute(tarefa);
+        return tarefa;
+    }
+
+    /**
+     * Número de tarefas aguardando execução na prioridade informada.
+     */
+    public int getQueueDepth(Prioridade prioridade) {
+        return pendentes[prioridade.ordinal()].get();
+    }
+
+    /**
+     * Tempo médio de espera na fila (ms) das tarefas já iniciadas na prioridade informada.
+     */
+    public double getAverageWaitMs(Prioridade prioridade) {
+        long total = concluidas[prioridade.ordinal()].get();
+        if (total == 0) return 0;
+        return esperaTotalNanos[prioridade.ordinal()].get() / (double) total / 1_000_000.0;
+    }
+
+    /**
+     * Maior tempo de espera na fila (ms) observado na prioridade informada.
+     */
+    public long getMaxWaitMs(Prioridade prioridade) {
+        return TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos[prioridade.ordinal()].get());
+    }
+
+    /**
+     * Número de threads executando tarefas no momento.
+     */
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * Retorna um resumo textual das métricas, útil para logs e depuração.
+     */
+    public String getMetricsSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("threads ativas=").append(pool.getActiveCount()).append('/').append(MAX_THREADS);
+        for (Prioridade p : Prioridade.values()) {
+            sb.append(String.format(Locale.US, " | %s: fila=%d, concluídas=%d, espera média=%.1fms, máx=%dms",
+                    p.name(), getQueueDepth(p), concluidas[p.ordinal()].get(),
+                    getAverageWaitMs(p), getMaxWaitMs(p)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Zera as métricas acumuladas (as filas não são afetadas).
+     */
+    public void resetMetrics() {
+        for (int i = 0; i < concluidas.length; i++) {
+            concluidas[i].set(0);
+            esperaTotalNanos[i].set(0);
+            esperaMaximaNanos[i].set(0);
+        }
+    }
+
+    private void registrarInicio(Prioridade prioridade, long enfileiradoEm) {
+        int idx = prioridade.ordinal();
+        long espera = System.nanoTime() - enfileiradoEm;
+        pendentes[idx].decrementAndGet();
+        concluidas[idx].incrementAndGet();
+        esperaTotalNanos[idx].addAndGet(espera);
+
+        long maxAtual;
+        do {
+            maxAtual = esperaMaximaNanos[idx].get();
+        } while (espera > maxAtual && !esperaMaximaNanos[idx].compareAndSet(maxAtual, espera));
+
+        long esperaMs = TimeUnit.NANOSECONDS.toMillis(espera);
+        if (esperaMs > SLOW_WAIT_MS) {
+            Log.w(TAG, "Tarefa " + prioridade + " aguardou " + esperaMs + "ms na fila (" +
+                    getQueueDepth(prioridade) + " pendentes)");
+        }
+    }
+
+    /**
+     * Tarefa ordenada por prioridade e, dentro da mesma prioridade, por ordem de chegada.
+     */
+    private class TarefaPriorizada<T> extends FutureTask<T> implements Comparable<TarefaPriorizada<?>> {
+        private final Prioridade prioridade;
+        private final long seq;
+        private final long enfileiradoEm;
+
+        TarefaPriorizada(Prioridade prioridade, Callable<T> callable) {
+            super(callable);
+            this.prioridade = prioridade;
+            this.seq = sequence.incrementAndGet();
+            this.enfileiradoEm = System.nanoTime();
+            pendentes[prioridade.ordinal()].incrementAndGet();
+        }
+
+        TarefaPriorizada(Prioridade prioridade, Runnable runnable, T result) {
+            super(runnable, result);
+            this.prioridade = prioridade;
+            this.seq = sequence.incrementAndGet();
+            this.enfileiradoEm = System.nanoTime();
+            pendentes[prioridade.ordinal()].incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            registrarInicio(prioridade, enfileiradoEm);
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            // Exceções de tarefas sem retorno seriam engolidas pelo FutureTask
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (Exception e) {
+                    Log.e(TAG, "Erro não tratado em tarefa " + prioridade, e);
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(TarefaPriorizada<?> other) {
+            int cmp = Integer.compare(prioridade.ordinal(), other.prioridade.ordinal());
+            return cmp != 0 ? cmp : Long.compare(seq, other.seq);
+        }
+    }
+}
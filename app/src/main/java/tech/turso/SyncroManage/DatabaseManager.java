@@ -1,6 +1,8 @@
 package tech.turso.SyncroManage;
 
 import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -14,9 +16,6 @@ import com.google.firebase.auth.FirebaseUser;
 // Imports para iText 7
 
 import okhttp3.*;
-import org.json.JSONException;
-import org.json.JSONObject;
-import tech.turso.libsql.Connection;
 import tech.turso.libsql.Database;
 import tech.turso.libsql.Libsql;
 import tech.turso.libsql.Rows;
@@ -24,13 +23,15 @@ import tech.turso.libsql.EmbeddedReplicaDatabase;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
 /**
  * Gerenciador de banco de dados para a aplicação SyncroManage.
@@ -40,26 +41,42 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DatabaseManager {
     private static final String TAG = "DatabaseManager";
 
-    // Constantes para URL e endpoints
-    private static final String DB_URL = "link do seu turso db";
-    private static final String CLOUD_FUNCTION_URL = "link aqui do cloud function";
+    // Endpoints definidos no build (propriedades syncro.dbUrl e syncro.functionUrl) e
+    // substituíveis antes da inicialização; dbUrl é o banco compartilhado, usado sem rota por usuário
+    private static volatile String dbUrl = BuildConfig.DB_URL;
+    private static volatile String cloudFunctionUrl = BuildConfig.CLOUD_FUNCTION_URL;
 
     // Nome do arquivo para a réplica local
     private static final String LOCAL_DB_FILENAME = "syncromanage_local.db";
 
+    // Nome do arquivo da fila de escritas feitas sem conexão
+    private static final String OUTBOX_DB_FILENAME = "syncromanage_outbox.db";
+
     // Constantes para controle de timeout e tentativas
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final int RETRY_DELAY_MS = 1000;
     private static final int CONNECTION_TIMEOUT_MS = 10000;
-    private static final int SYNC_INTERVAL_MS = 300000; // 5 minutos
+
+    // Constantes do pool de conexões
+    private static final int POOL_MAX_CONNECTIONS = 6;
+    private static final long POOL_IDLE_TIMEOUT_MS = 60000;
+
+    // Acima deste tamanho (banco + WAL) a cópia da réplica atrasaria a abertura
+    // mais do que esperar o token; a leitura antecipada não é usada
+    private static final long LEITURA_ANTECIPADA_MAX_BYTES = 16L * 1024 * 1024;
 
     // Estado da inicialização e do token
     private static boolean isInitialized = false;
     private static int currentRetryAttempt = 0;
     private static final AtomicBoolean isInitializing = new AtomicBoolean(false);
-    private static String tursoToken = null;
-    private static long tokenExpiryTime = 0; // Timestamp em milissegundos quando o token expira
-    private static boolean useLocalReplication = false;
+    // Réplica local ligada por padrão: permite abrir sem rede e ler antes da sincronização
+    private static boolean useLocalReplication = true;
+    // Banco aberto só com openLocal (sem servidor): escritas vão direto para o arquivo
+    private static volatile boolean localOnlyDatabase = false;
+    // Réplica aberta só para leitura na partida, aguardando token para ser reaberta e sincronizada
+    private static volatile boolean awaitingReplica = false;
+    // URL do banco aberto no momento (compartilhado ou do usuário)
+    private static volatile String openedDbUrl = null;
 
     // Contexto da aplicação
     private static Context appContext;
@@ -70,14 +87,66 @@ public class DatabaseManager {
     // Instâncias do banco de dados
     private static Database db;
     private static EmbeddedReplicaDatabase embeddedDb;
+    // Cópia da réplica aberta na leitura antecipada e o banco aberto sobre ela
+    private static Database staleDb;
+    private static File staleCopy;
+
+    // Pool de conexões sobre a instância atual do banco
+    private static volatile ConnectionPool connectionPool;
+
+    // Esquema validado uma vez por época (reabertura, sincronização ou migração)
+    private static final SchemaCache schemaCache = new SchemaCache();
+
+    // Migrações de esquema aplicadas ao abrir o banco
+    private static final SchemaMigrator schemaMigrator = new SchemaMigrator(SchemaMigrations.todas());
+    private static volatile SchemaMigrator.Resultado ultimaMigracao = null;
 
-    // Handler para sincronização periódica
-    private static Handler syncHandler;
-    private static Runnable syncRunnable;
-    private static boolean autoSyncEnabled = false;
+    // Preenchimentos em lotes das migrações, feitos em fatias na fila de sincronização
+    private static final long PREENCHIMENTO_FATIA_MS = 2000;
+    private static volatile boolean preenchimentoPendente = false;
+    private static final AtomicBoolean preenchimentoAgendado = new AtomicBoolean(false);
 
-    // Executor para operações assíncronas
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
+    // Duração, volume e falhas das sincronizações e latência do token
+    private static final SyncMetrics syncMetrics = new SyncMetrics();
+
+    // Token Turso com renovação única por vez e antecipada; conexões abertas são revalidadas a cada novo token
+    private static final TokenManager tokenManager = new TokenManager(cloudFunctionUrl, syncMetrics,
+            r -> DatabaseManager.mainHandler.post(r), DatabaseManager::onTokenUpdated);
+
+    // Fila persistente das escritas feitas sem conexão, reenviada ao sincronizar
+    private static final WriteOutbox writeOutbox = new WriteOutbox();
+
+    // Agendador das sincronizações da réplica local (periódica adaptativa e após escritas)
+    private static final SyncScheduler syncScheduler = new SyncScheduler(new SyncScheduler.Ambiente() {
+        @Override
+        public boolean podeSincronizar() {
+            return isInitialized && !localOnlyDatabase
+                    && (embeddedDb != null || awaitingReplica || writeOutbox.temPendentes());
+        }
+
+        @Override
+        public boolean isOnline() {
+            return isNetworkAvailable();
+        }
+
+        @Override
+        public boolean isOcioso() {
+            return !dataNotifier.temInscricoes();
+        }
+
+        @Override
+        public boolean aguardandoReplica() {
+            return isInitialized && awaitingReplica;
+        }
+
+        @Override
+        public void sincronizar(SyncCallback callback) {
+            flushOutboxAndSync(callback);
+        }
+    });
+
+    // Executor compartilhado e priorizado para todas as operações de banco (DAOs inclusive)
+    private static final DatabaseExecutor dbExecutor = new DatabaseExecutor();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // Interface para listener de estado da conexão
@@ -87,7 +156,7 @@ public class DatabaseManager {
 
     // Interface para listener de alterações nos dados
     public interface DataChangeListener {
-        void onDataChanged();
+        void onDataChanged(DataChangeEvent evento);
     }
 
     // Interface para callback de inicialização
@@ -113,18 +182,16 @@ public class DatabaseManager {
     // Lista de listeners registrados
     private static final List<ConnectionStateListener> stateListeners = new ArrayList<>();
 
-    // Lista de listeners de alteração de dados
-    private static final List<DataChangeListener> dataListeners = new ArrayList<>();
+    // Registro de listeners de alteração de dados, com entrega agrupada por tabela
+    private static final DataChangeNotifier dataNotifier = new DataChangeNotifier();
 
     /**
-     * Adiciona um listener para alterações nos dados
+     * Adiciona um listener para alterações nos dados das tabelas informadas
      * @param listener Listener a ser adicionado
+     * @param tabelas Tabelas exibidas pela tela; sem tabelas, recebe alterações de todas
      */
-    public static void addDataChangeListener(DataChangeListener listener) {
-        if (listener != null && !dataListeners.contains(listener)) {
-            Log.d(TAG, "Adicionando DataChangeListener: " + listener.getClass().getSimpleName());
-            dataListeners.add(listener);
-        }
+    public static void addDataChangeListener(DataChangeListener listener, DataChangeEvent.Tabela... tabelas) {
+        dataNotifier.adicionar(listener, tabelas);
     }
 
     /**
@@ -132,39 +199,25 @@ public class DatabaseManager {
      * @param listener Listener a ser removido
      */
     public static void removeDataChangeListener(DataChangeListener listener) {
-        if (listener != null && dataListeners.contains(listener)) {
-            Log.d(TAG, "Removendo DataChangeListener: " + listener.getClass().getSimpleName());
-            dataListeners.remove(listener);
-        }
+        dataNotifier.remover(listener);
     }
 
     /**
-     * Notifica todos os listeners sobre alterações nos dados
+     * Publica uma alteração de dados. Alterações próximas são agrupadas em um
+     * único evento, entregue na thread principal apenas aos listeners da tabela.
+     * @param tabela Tabela alterada
+     * @param operacao Tipo de alteração
+     * @param ids IDs afetados; sem IDs, qualquer linha da tabela pode ter mudado
      */
-    public static void notifyDataChanged() {
-        Log.d(TAG, "Notificando alterações de dados para " + dataListeners.size() + " listeners");
-
-        // Garantir que a notificação ocorra na thread principal
-        if (Looper.myLooper() == Looper.getMainLooper()) {
-            // Já estamos na thread principal
-            for (DataChangeListener listener : new ArrayList<>(dataListeners)) {
-                try {
-                    listener.onDataChanged();
-                } catch (Exception e) {
-                    Log.e(TAG, "Erro ao notificar listener: " + e.getMessage(), e);
-                }
-            }
-        } else {
-            // Precisamos mudar para a thread principal
-            mainHandler.post(() -> {
-                for (DataChangeListener listener : new ArrayList<>(dataListeners)) {
-                    try {
-                        listener.onDataChanged();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Erro ao notificar listener: " + e.getMessage(), e);
-                    }
-                }
-            });
+    public static void notifyDataChanged(DataChangeEvent.Tabela tabela, DataChangeEvent.Operacao operacao, int... ids) {
+        if (tabela == DataChangeEvent.Tabela.VENDAS && operacao == DataChangeEvent.Operacao.SINCRONIZACAO) {
+            // Vendas vindas do servidor podem ser de qualquer período
+            RelatorioCache.invalidateAll();
+        }
+        dataNotifier.publicar(tabela, operacao, ids);
+        if (operacao != DataChangeEvent.Operacao.SINCRONIZACAO) {
+            // Escrita local: agenda o envio/atualização da réplica em breve
+            syncScheduler.registrarEscrita();
         }
     }
 
@@ -176,6 +229,16 @@ public class DatabaseManager {
         return isInitialized;
     }
 
+    /**
+     * Verifica se o banco aberto pertence ao usuário: o token atual (e a rota do
+     * banco que ele define) foi obtido para esse UID
+     * @param uid UID do usuário Firebase
+     * @return true se inicializado com o token do usuário
+     */
+    public static boolean isInitializedFor(@Nullable String uid) {
+        return isInitialized && uid != null && uid.equals(tokenManager.getUid());
+    }
+
     /**
      * Verifica se o DatabaseManager está em processo de inicialização
      * @return true se está inicializando, false caso contrário
@@ -200,17 +263,157 @@ public class DatabaseManager {
         useLocalReplication = useLocal;
     }
 
+    /**
+     * Indica se o banco pode ser aberto sem rede: a replicação local está ativa e a
+     * réplica do usuário atual já foi sincronizada alguma vez
+     * @param context Contexto da aplicação
+     * @return true se a inicialização pode ler a réplica local
+     */
+    public static boolean hasLocalReplica(Context context) {
+        if (appContext == null && context != null) {
+            appContext = context.getApplicationContext();
+        }
+        return useLocalReplication && appContext != null && hasSyncedReplica();
+    }
+
+    /**
+     * Substitui os endpoints definidos no build, por exemplo para apontar testes e
+     * medições para o servidor local (cloud/standIn). Deve ser chamado antes da inicialização.
+     * @param databaseUrl URL do banco compartilhado
+     * @param functionUrl URL da função que troca o token Firebase pelo token Turso
+     * @throws IllegalStateException se o banco já estiver inicializado ou inicializando
+     */
+    public static void setEndpoints(String databaseUrl, String functionUrl) {
+        if (isInitialized || isInitializing.get()) {
+            throw new IllegalStateException("Endpoints só podem ser alterados antes da inicialização");
+        }
+        dbUrl = databaseUrl;
+        cloudFunctionUrl = functionUrl;
+        tokenManager.setUrl(functionUrl);
+        Log.i(TAG, "Endpoints configurados: banco=" + databaseUrl + ", função=" + functionUrl);
+    }
+
     /**
      * Habilita ou desabilita sincronização automática
      * @param enabled true para habilitar
      */
     public static void setAutoSync(boolean enabled) {
-        autoSyncEnabled = enabled;
-        if (enabled && syncHandler != null && syncRunnable != null) {
-            syncHandler.post(syncRunnable);
-        } else if (!enabled && syncHandler != null && syncRunnable != null) {
-            syncHandler.removeCallbacks(syncRunnable);
+        syncScheduler.setPeriodica(enabled);
+    }
+
+    /**
+     * Estado do agendador de sincronização (próxima e última execução, falhas, intervalo atual)
+     */
+    public static SyncScheduler.Estado getSyncState() {
+        return syncScheduler.getEstado();
+    }
+
+    /**
+     * Métricas das sincronizações (duração, volume, atraso da réplica, falhas) e do token
+     * @return Métricas acumuladas desde a abertura do aplicativo
+     */
+    public static SyncMetrics getSyncMetrics() {
+        return syncMetrics;
+    }
+
+    /**
+     * Grava as métricas de sincronização, o estado do agendador e do pool em um
+     * arquivo de texto, para diagnóstico em campo
+     * @param arquivo Arquivo de destino; null usa sync_metrics.txt na pasta de arquivos do app
+     * @return Arquivo gravado
+     * @throws IOException se o arquivo não puder ser gravado
+     */
+    public static File dumpSyncMetrics(@Nullable File arquivo) throws IOException {
+        if (arquivo == null) {
+            if (appContext == null) {
+                throw new IOException("Contexto da aplicação indisponível");
+            }
+            arquivo = new File(appContext.getFilesDir(), "sync_metrics.txt");
         }
+        List<String> extras = new ArrayList<>();
+        extras.add("Modo: " + (embeddedDb != null ? "réplica local" : localOnlyDatabase ? "somente local" : "remoto"));
+        extras.add("Agendador: " + syncScheduler.getEstado());
+        extras.add("Fila de escritas: " + writeOutbox.getPendentes() + " pendentes");
+        ConnectionPool pool = connectionPool;
+        if (pool != null) {
+            extras.add("Pool: " + pool.getMetricsSummary());
+        }
+        extras.add("Executor: " + dbExecutor.getMetricsSummary());
+        syncMetrics.exportar(arquivo, extras);
+        Log.i(TAG, "Métricas de sincronização gravadas em " + arquivo.getAbsolutePath());
+        return arquivo;
+    }
+
+    /**
+     * Indica se o catálogo em cache vem do banco remoto sem réplica local: nesse modo
+     * nenhuma sincronização o reconcilia, então o {@link CatalogCache} expira as cargas.
+     * Sem rede a carga é mantida, pois o banco não pode ser relido.
+     */
+    static boolean isRemoteCatalogSource() {
+        return isInitialized && embeddedDb == null && !localOnlyDatabase && !awaitingReplica
+                && isNetworkAvailable();
+    }
+
+    /**
+     * Fila de escritas feitas sem conexão
+     * @return Fila de escritas
+     */
+    public static WriteOutbox getWriteOutbox() {
+        return writeOutbox;
+    }
+
+    /**
+     * Indica se as escritas devem ir para a fila em vez do banco: o banco depende
+     * do servidor (remoto ou réplica) e não há rede no momento, ou a réplica ainda
+     * está aberta só para leitura aguardando a primeira sincronização
+     * @return true se a escrita deve ser enfileirada
+     */
+    public static boolean shouldQueueWrites() {
+        return isInitialized && !localOnlyDatabase && writeOutbox.isAberta()
+                && (awaitingReplica || !isNetworkAvailable() || migracaoIncompleta());
+    }
+
+    /**
+     * A última migração falhou: os DAOs gravam colunas e tabelas que podem não existir,
+     * então as escritas vão para a fila, reenviada depois que a migração for concluída
+     */
+    private static boolean migracaoIncompleta() {
+        SchemaMigrator.Resultado migracao = ultimaMigracao;
+        return migracao != null && !migracao.sucesso;
+    }
+
+    /**
+     * Indica se uma escrita que falhou antes do COMMIT pode ir para a fila: além dos
+     * casos de {@link #shouldQueueWrites()}, o servidor não respondeu (tempo esgotado,
+     * conexão recusada ou interrompida, erro HTTP 5xx) mesmo com o aparelho conectado.
+     * Erros do próprio comando (restrições, SQL inválido) não são enfileirados, pois
+     * falhariam de novo ao reenviar a fila.
+     * @param erro Exceção lançada pela tentativa online
+     * @return true se a escrita deve ser enfileirada
+     */
+    public static boolean shouldQueueWrites(Throwable erro) {
+        if (shouldQueueWrites()) {
+            return true;
+        }
+        return isInitialized && !localOnlyDatabase && writeOutbox.isAberta() && isFalhaDeComunicacao(erro);
+    }
+
+    // Mensagens do libsql/hrana e do OkHttp para falhas de transporte
+    private static final Pattern FALHA_DE_COMUNICACAO = Pattern.compile(
+            "timeout|timed out|tempo esgotado|connection|conex[aã]o|network|socket|broken pipe|unreachable|" +
+                    "error sending request|dns|stream (error|closed)|(http|status)\\D{0,20}5\\d\\d");
+
+    private static boolean isFalhaDeComunicacao(Throwable erro) {
+        for (Throwable t = erro; t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                return true;
+            }
+            String mensagem = t.getMessage();
+            if (mensagem != null && FALHA_DE_COMUNICACAO.matcher(mensagem.toLowerCase(Locale.ROOT)).find()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -218,18 +421,18 @@ public class DatabaseManager {
      * @return true se o serviço está disponível
      */
     public static boolean verifyServiceAvailability() {
-        OkHttpClient client = new OkHttpClient.Builder()
+        // Mesmo pool de conexões do cliente compartilhado, com tempos limite menores
+        OkHttpClient client = TokenManager.httpClient().newBuilder()
                 .connectTimeout(5, TimeUnit.SECONDS)
                 .readTimeout(5, TimeUnit.SECONDS)
                 .build();
 
         Request request = new Request.Builder()
-                .url(CLOUD_FUNCTION_URL)
+                .url(cloudFunctionUrl)
                 .method("OPTIONS", null)
                 .build();
 
-        try {
-            Response response = client.newCall(request).execute();
+        try (Response response = client.newCall(request).execute()) {
             boolean isAvailable = response.isSuccessful() ||
                     response.code() == 204 ||
                     response.code() == 401 ||
@@ -272,8 +475,21 @@ public class DatabaseManager {
         // Notifica mudança de estado para "conectando"
         notifyStateChange(false, "Conectando ao banco de dados...");
 
-        // Executa a inicialização em uma thread separada
-        executor.execute(() -> {
+        // Com uma réplica já sincronizada, as telas leem dela sem esperar token e rede
+        if (useLocalReplication && appContext != null && !tokenManager.isValido() && canReadReplicaEarly()) {
+            dbExecutor.execute(DatabaseExecutor.Prioridade.LEITURA, () -> openStaleReplica(callback));
+            return;
+        }
+
+        connectWithToken(callback);
+    }
+
+    /**
+     * Obtém o token Turso e abre o banco (réplica ou remoto); sem token, tenta o banco local
+     */
+    private static void connectWithToken(InitCallback callback) {
+        // Executa a inicialização no executor compartilhado, com prioridade de leitura interativa
+        dbExecutor.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             try {
                 // Obter token Turso
                 refreshTursoToken((token, success, errorMessage) -> {
@@ -296,16 +512,251 @@ public class DatabaseManager {
         });
     }
 
+    /**
+     * Indica se a réplica local pode ser lida antes do token: já foi sincronizada
+     * e é pequena o bastante para ser copiada sem atrasar a abertura
+     */
+    private static boolean canReadReplicaEarly() {
+        if (!hasSyncedReplica()) {
+            return false;
+        }
+        long tamanho = SyncMetrics.tamanhoArquivos(replicaFile(currentDbUrl()));
+        if (tamanho > LEITURA_ANTECIPADA_MAX_BYTES) {
+            Log.i(TAG, "Réplica com " + (tamanho / 1024) + " KB: aguardando token em vez de copiá-la");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Indica se a réplica local já foi sincronizada alguma vez (o libsql mantém
+     * o arquivo -info com o último frame replicado ao lado do banco)
+     */
+    private static boolean hasSyncedReplica() {
+        File dbFile = replicaFile(currentDbUrl());
+        return dbFile.exists() && new File(dbFile.getPath() + "-info").exists();
+    }
+
+    /**
+     * Abre uma cópia da réplica local como banco somente leitura, sem esperar o token.
+     * As telas carregam os dados locais enquanto o token é obtido e a réplica é reaberta
+     * e sincronizada em segundo plano; escritas feitas nesse intervalo vão para a fila.
+     * A cópia evita uma conexão SQLite comum no arquivo da réplica, que poderia fazer
+     * checkpoint do WAL do qual depende o controle de frames do libsql.
+     */
+    private static void openStaleReplica(InitCallback callback) {
+        File copia = null;
+        try {
+            String url = currentDbUrl();
+            File dbFile = replicaFile(url);
+            Log.i(TAG, "Abrindo cópia da réplica local para leitura antes da sincronização: " + dbFile.getAbsolutePath());
+            awaitingReplica = true;
+            openedDbUrl = url;
+            localOnlyDatabase = false;
+            embeddedDb = null;
+            long inicioCopia = StartupMetrics.agora();
+            copia = copiarReplicaParaLeitura(dbFile);
+            StartupMetrics.registrarFase("copia_replica", inicioCopia);
+            db = Libsql.openLocal(copia.getAbsolutePath());
+            staleDb = db;
+            staleCopy = copia;
+            resetConnectionPool();
+            openWriteOutbox();
+
+            try (ConnectionLease conn = leaseConnection();
+                 Rows rows = conn.query("SELECT COUNT(*) FROM sqlite_master")) {
+                if (rows.nextRow() == null) {
+                    throw new IllegalStateException("Réplica local sem esquema");
+                }
+            }
+
+            isInitialized = true;
+            isInitializing.set(false);
+            currentRetryAttempt = 0;
+
+            // A primeira rodada obtém o token, reabre a réplica e sincroniza
+            syncScheduler.iniciar();
+            syncScheduler.sincronizarAgora();
+
+            notifyStateChange(true, "Dados locais carregados; sincronizando em segundo plano");
+            mainHandler.post(() -> callback.onComplete(true, "Banco de dados local aberto; sincronização em andamento"));
+        } catch (Exception e) {
+            Log.w(TAG, "Leitura antecipada da réplica indisponível: " + e.getMessage() + ". Aguardando token.");
+            awaitingReplica = false;
+            Database anterior = db;
+            ConnectionPool poolAnterior = connectionPool;
+            db = null;
+            resetConnectionPool();
+            // Banco sem pool (falha antes de criá-lo) é fechado aqui; com pool, ao devolver os empréstimos
+            if (anterior != null && (poolAnterior == null || poolAnterior.getDatabase() != anterior)) {
+                closeDatabaseQuietly(anterior);
+            }
+            if (copia != null && copia != staleCopy) {
+                apagarCopiaLeitura(copia);
+            }
+            connectWithToken(callback);
+        }
+    }
+
+    /**
+     * Reabre o banco com o token atual: troca o banco somente leitura da partida pela
+     * réplica sincronizável, ou passa para o banco da nova rota do usuário. Aplica as
+     * migrações e segue para o reenvio da fila e a sincronização.
+     */
+    private static void reopenDatabase(@Nullable SyncCallback callback) {
+        refreshTursoToken((token, success, errorMessage) -> {
+            if (!success || token == null) {
+                String errorMsg = "Não foi possível abrir a réplica: falha ao obter token";
+                Log.w(TAG, errorMsg + ": " + errorMessage);
+                syncMetrics.registrarSincronizacao(System.currentTimeMillis(), 0, false, -1, errorMsg);
+                if (callback != null) {
+                    callback.onSyncComplete(false, errorMsg);
+                }
+                return;
+            }
+
+            dbExecutor.execute(DatabaseExecutor.Prioridade.SYNC, () -> {
+                dbLock.lock();
+                try {
+                    String url = currentDbUrl();
+                    if (awaitingReplica || !url.equals(openedDbUrl)) {
+                        Database anterior = db;
+                        if (useLocalReplication && appContext != null) {
+                            EmbeddedReplicaDatabase replica = (EmbeddedReplicaDatabase) Libsql.openEmbeddedReplica(
+                                    replicaFile(url).getAbsolutePath(), url, token);
+                            embeddedDb = replica;
+                            db = replica;
+                        } else {
+                            db = Libsql.openRemote(url, token);
+                            embeddedDb = null;
+                        }
+                        awaitingReplica = false;
+                        openedDbUrl = url;
+                        // O banco anterior é fechado quando as consultas em andamento nele terminarem
+                        resetConnectionPool();
+                        Log.i(TAG, "Banco reaberto" + (url.equals(dbUrl) ? "" : " (banco do usuário)"));
+
+                        try (ConnectionLease conn = leaseConnection()) {
+                            migrateSchema(conn);
+                        }
+                        notifyStateChange(true, "Conexão estabelecida com sucesso");
+                    }
+                } catch (Exception e) {
+                    String errorMsg = "Erro ao reabrir réplica local: " + e.getMessage();
+                    Log.e(TAG, errorMsg, e);
+                    if (callback != null) {
+                        mainHandler.post(() -> callback.onSyncComplete(false, errorMsg));
+                    }
+                    return;
+                } finally {
+                    dbLock.unlock();
+                }
+                flushOutboxAndSync(callback);
+            });
+        });
+    }
+
+    /**
+     * URL do banco do usuário atual. Com token, vale a rota informada pela Cloud
+     * Function (sem rota, o banco compartilhado); antes do token, a última rota guardada.
+     */
+    private static String currentDbUrl() {
+        if (tokenManager.getToken() != null) {
+            String url = tokenManager.getDbUrl();
+            return url != null ? url : dbUrl;
+        }
+        if (appContext == null) return dbUrl;
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        return TenantRouter.urlPara(appContext, user != null ? user.getUid() : null, dbUrl);
+    }
+
+    /**
+     * Arquivo da réplica local do banco; o banco compartilhado mantém o arquivo original
+     */
+    private static File replicaFile(@Nullable String url) {
+        return appContext.getDatabasePath(TenantRouter.arquivoReplica(url, dbUrl, LOCAL_DB_FILENAME));
+    }
+
+    /**
+     * Chamado a cada novo token: revalida as conexões, guarda a rota do usuário e,
+     * se a rota mudou com o banco aberto, antecipa a sincronização que reabre o banco
+     */
+    private static void onTokenUpdated() {
+        ConnectionPool pool = connectionPool;
+        if (pool != null) {
+            pool.requestHealthCheck();
+        }
+        if (appContext != null) {
+            TenantRouter.lembrar(appContext, tokenManager.getUid(), tokenManager.getDbUrl());
+        }
+        String aberto = openedDbUrl;
+        if (isInitialized && aberto != null && !aberto.equals(currentDbUrl())) {
+            Log.i(TAG, "Rota do banco do usuário mudou; reabrindo na próxima sincronização");
+            syncScheduler.sincronizarAgora();
+        }
+    }
+
+    /**
+     * Copia o arquivo da réplica (e o WAL, se houver) para o cache, para a leitura antecipada
+     */
+    private static File copiarReplicaParaLeitura(File dbFile) throws IOException {
+        File copia = new File(appContext.getCacheDir(), dbFile.getName() + ".leitura");
+        apagarCopiaLeitura(copia);
+        Files.copy(dbFile.toPath(), copia.toPath());
+        File wal = new File(dbFile.getPath() + "-wal");
+        if (wal.exists()) {
+            Files.copy(wal.toPath(), new File(copia.getPath() + "-wal").toPath());
+        }
+        return copia;
+    }
+
+    private static void apagarCopiaLeitura(File copia) {
+        for (String sufixo : new String[]{"", "-wal", "-shm"}) {
+            File arquivo = new File(copia.getPath() + sufixo);
+            if (arquivo.exists() && !arquivo.delete()) {
+                Log.w(TAG, "Não foi possível apagar " + arquivo.getName());
+            }
+        }
+    }
+
+    private static void closeDatabaseQuietly(@Nullable Database database) {
+        if (database == null) return;
+        try {
+            database.close();
+        } catch (Exception e) {
+            Log.w(TAG, "Erro ao fechar banco anterior: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Identifica o conteúdo replicado: o arquivo -info do libsql muda a cada frame
+     * recebido; sem ele, usa o tamanho do banco e do WAL
+     */
+    private static String replicaFingerprint(File dbFile) {
+        File info = new File(dbFile.getPath() + "-info");
+        if (info.exists()) {
+            try {
+                return new String(Files.readAllBytes(info.toPath()), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                Log.w(TAG, "Erro ao ler metadados da réplica: " + e.getMessage());
+            }
+        }
+        return String.valueOf(SyncMetrics.tamanhoArquivos(dbFile));
+    }
+
     /**
      * Inicializa o banco de dados local
      */
     private static void initializeLocalDatabase(InitCallback callback) {
-        executor.execute(() -> {
+        dbExecutor.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             try {
                 Log.i(TAG, "Tentando inicializar banco de dados local");
+                awaitingReplica = false;
+                openedDbUrl = null;
 
                 // Verifica se o arquivo do banco de dados existe
-                File dbFile = appContext.getDatabasePath(LOCAL_DB_FILENAME);
+                String url = currentDbUrl();
+                File dbFile = replicaFile(url);
                 boolean dbExists = dbFile.exists();
 
                 if (!dbExists) {
@@ -320,25 +771,30 @@ public class DatabaseManager {
                 }
 
                 // Somente prossegue se houver um token válido para a réplica local
-                if (tursoToken == null) {
+                if (tokenManager.getToken() == null) {
                     // Modo completamente offline (sem réplica)
                     Log.i(TAG, "Inicializando em modo completamente offline");
                     embeddedDb = null;
+                    localOnlyDatabase = true;
                     // Usa o método openLocal para abrir um banco de dados local
                     db = Libsql.openLocal(dbFile.getAbsolutePath());
+                    resetConnectionPool();
                 } else {
                     // Modo réplica local
                     Log.i(TAG, "Inicializando como réplica local com sincronização");
                     // Usa o método openEmbeddedReplica para abrir uma réplica local
                     embeddedDb = (EmbeddedReplicaDatabase) Libsql.openEmbeddedReplica(
                             dbFile.getAbsolutePath(),
-                            DB_URL,
-                            tursoToken);
+                            url,
+                            tokenManager.getToken());
                     db = embeddedDb;
+                    localOnlyDatabase = false;
+                    resetConnectionPool();
+                    openWriteOutbox();
                 }
 
-                // Teste de conexão local
-                try (Connection conn = db.connect()) {
+                // Teste de conexão local (também aquece o pool)
+                try (ConnectionLease conn = leaseConnection()) {
                     conn.execute("CREATE TABLE IF NOT EXISTS test (a INTEGER)");
                     conn.execute("INSERT INTO test VALUES (1)");
                     try (Rows rows = conn.query("SELECT COUNT(*) FROM test")) {
@@ -346,14 +802,19 @@ public class DatabaseManager {
                         if (row != null) {
                             Log.i(TAG, "Tabela 'test' OK, count: " + row[0]);
 
+                            migrateSchema(conn);
+
                             // Sucesso na inicialização
                             isInitialized = true;
                             isInitializing.set(false);
                             currentRetryAttempt = 0;
 
-                            // Configura sincronização periódica se for réplica local
+                            // Inicia o agendador de sincronização se for réplica local
                             if (embeddedDb != null) {
-                                setupPeriodicSync();
+                                syncScheduler.iniciar();
+                                if (writeOutbox.temPendentes()) {
+                                    syncScheduler.sincronizarAgora();
+                                }
                             }
 
                             notifyStateChange(true, "Conexão local estabelecida com sucesso");
@@ -370,34 +831,14 @@ public class DatabaseManager {
     }
 
     /**
-     * Configura sincronização periódica para o banco de dados local
+     * Verifica se há rede disponível para sincronizar
      */
-    private static void setupPeriodicSync() {
-        if (syncHandler == null) {
-            syncHandler = new Handler(Looper.getMainLooper());
-        }
-
-        if (syncRunnable == null) {
-            syncRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    // Executa sincronização se estiver habilitada
-                    if (autoSyncEnabled && embeddedDb != null) {
-                        syncDatabase(null);
-                    }
-
-                    // Agenda próxima execução
-                    if (autoSyncEnabled) {
-                        syncHandler.postDelayed(this, SYNC_INTERVAL_MS);
-                    }
-                }
-            };
-
-            // Inicia ciclo de sincronização se auto-sincronização estiver habilitada
-            if (autoSyncEnabled) {
-                syncHandler.post(syncRunnable);
-            }
-        }
+    static boolean isNetworkAvailable() {
+        if (appContext == null) return true;
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return true;
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
     }
 
     /**
@@ -434,8 +875,7 @@ public class DatabaseManager {
         }
 
         // Verifica se o token é válido para sincronização
-        long currentTime = System.currentTimeMillis();
-        if (tursoToken == null || tokenExpiryTime <= currentTime) {
+        if (!tokenManager.isValido()) {
             // Token inválido ou expirado, tentar atualizar
             refreshTursoToken((token, success, errorMessage) -> {
                 if (success && token != null) {
@@ -444,6 +884,7 @@ public class DatabaseManager {
                 } else {
                     String errorMsg = "Não foi possível sincronizar: falha ao obter token";
                     Log.e(TAG, errorMsg + ": " + errorMessage);
+                    syncMetrics.registrarSincronizacao(System.currentTimeMillis(), 0, false, -1, errorMsg);
                     if (callback != null) {
                         mainHandler.post(() -> callback.onSyncComplete(false, errorMsg));
                     }
@@ -459,19 +900,59 @@ public class DatabaseManager {
      * Executa a sincronização do banco de dados local com o remoto
      */
     private static void performSync(@Nullable SyncCallback callback) {
-        executor.execute(() -> {
+        dbExecutor.execute(DatabaseExecutor.Prioridade.SYNC, () -> {
             // Adquire lock para evitar operações concorrentes durante a sincronização
             dbLock.lock();
+            long inicio = System.currentTimeMillis();
+            long inicioNanos = System.nanoTime();
             try {
                 Log.i(TAG, "Iniciando sincronização do banco de dados local");
 
+                // O binding não informa os frames replicados; mede a variação do arquivo local
+                File dbFile = appContext != null ? replicaFile(openedDbUrl) : null;
+                long tamanhoAntes = dbFile != null ? SyncMetrics.tamanhoArquivos(dbFile) : -1;
+                String replicaAntes = dbFile != null ? replicaFingerprint(dbFile) : null;
+
                 // Executa a sincronização nativa
                 embeddedDb.sync();
 
-                Log.i(TAG, "Sincronização concluída com sucesso");
+                long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos);
+                long bytes = dbFile != null ? Math.abs(SyncMetrics.tamanhoArquivos(dbFile) - tamanhoAntes) : -1;
+                syncMetrics.registrarSincronizacao(inicio, duracaoMs, true, bytes, null);
+                Log.i(TAG, "Sincronização concluída com sucesso em " + duracaoMs + "ms (" + bytes + " bytes)");
 
-                // Notifica mudanças nos dados após sincronização
-                notifyDataChanged();
+                // Conexões abertas antes da sincronização são revalidadas no próximo uso
+                ConnectionPool pool = connectionPool;
+                if (pool != null) {
+                    pool.requestHealthCheck();
+                    pool.evictIdle();
+                }
+
+                // A sincronização pode trazer alterações de esquema feitas no servidor
+                schemaCache.invalidate("sincronização");
+
+                // Retoma migrações que falharam na abertura (ex.: réplica sem acesso ao servidor)
+                SchemaMigrator.Resultado migracao = ultimaMigracao;
+                if (migracao != null && !migracao.sucesso) {
+                    try (ConnectionLease conn = leaseConnection()) {
+                        migrateSchema(conn);
+                    }
+                } else {
+                    agendarPreenchimentos();
+                }
+
+                // As telas só recarregam se a sincronização trouxe dados novos
+                if (replicaAntes == null || !replicaAntes.equals(replicaFingerprint(dbFile))) {
+                    // Reconcilia o catálogo em memória com o que veio do servidor
+                    reconcileCatalogCache();
+
+                    // Notifica mudanças nos dados após sincronização
+                    for (DataChangeEvent.Tabela tabela : DataChangeEvent.Tabela.values()) {
+                        notifyDataChanged(tabela, DataChangeEvent.Operacao.SINCRONIZACAO);
+                    }
+                } else {
+                    Log.d(TAG, "Sincronização sem dados novos; telas mantidas");
+                }
 
                 if (callback != null) {
                     mainHandler.post(() -> callback.onSyncComplete(true, "Sincronização concluída com sucesso"));
@@ -479,6 +960,8 @@ public class DatabaseManager {
             } catch (Exception e) {
                 String errorMsg = "Erro durante sincronização: " + e.getMessage();
                 Log.e(TAG, errorMsg, e);
+                syncMetrics.registrarSincronizacao(inicio,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos), false, -1, errorMsg);
                 if (callback != null) {
                     mainHandler.post(() -> callback.onSyncComplete(false, errorMsg));
                 }
@@ -488,16 +971,105 @@ public class DatabaseManager {
         });
     }
 
+    /**
+     * Reenvia as escritas feitas sem conexão e, havendo réplica local, sincroniza em seguida
+     * @param callback Callback opcional; informa falha se restarem operações na fila
+     */
+    private static void flushOutboxAndSync(@Nullable SyncCallback callback) {
+        if (awaitingReplica || (openedDbUrl != null && tokenManager.getToken() != null
+                && !currentDbUrl().equals(openedDbUrl))) {
+            reopenDatabase(callback);
+            return;
+        }
+        if (!writeOutbox.temPendentes()) {
+            if (embeddedDb != null) {
+                syncDatabase(callback);
+            } else if (callback != null) {
+                mainHandler.post(() -> callback.onSyncComplete(true, "Nenhuma operação pendente"));
+            }
+            return;
+        }
+
+        dbExecutor.execute(DatabaseExecutor.Prioridade.SYNC, () -> {
+            int enviadas = 0;
+            String erro = null;
+            try (ConnectionLease conn = leaseConnection()) {
+                // A tabela de operações aplicadas vem das migrações; sem ela o reenvio não é idempotente
+                SchemaMigrator.Resultado migracao = ultimaMigracao;
+                if (migracao != null && !migracao.sucesso) {
+                    migrateSchema(conn);
+                }
+                migracao = ultimaMigracao;
+                if (migracao != null && !migracao.sucesso) {
+                    erro = "migração de esquema pendente: " + migracao.mensagem;
+                } else {
+                    // Com banco por usuário, só as operações do dono do banco aberto vão para ele
+                    enviadas = writeOutbox.reenviar(conn, dbUrl.equals(openedDbUrl) ? null : tokenManager.getUid());
+                    agendarPreenchimentos();
+                }
+            } catch (Exception e) {
+                erro = e.getMessage();
+            }
+            if (erro != null) {
+                Log.w(TAG, "Falha ao reenviar fila de escritas: " + erro);
+            }
+
+            if (embeddedDb != null) {
+                // A sincronização traz as escritas reenviadas para a réplica e notifica as telas
+                final String erroFila = erro;
+                syncDatabase((success, message) -> {
+                    if (callback == null) return;
+                    if (success && writeOutbox.temPendentes()) {
+                        callback.onSyncComplete(false, writeOutbox.getPendentes() + " operações ainda na fila" +
+                                (erroFila != null ? ": " + erroFila : ""));
+                    } else {
+                        callback.onSyncComplete(success, message);
+                    }
+                });
+                return;
+            }
+
+            if (enviadas > 0) {
+                reconcileCatalogCache();
+                for (DataChangeEvent.Tabela tabela : DataChangeEvent.Tabela.values()) {
+                    notifyDataChanged(tabela, DataChangeEvent.Operacao.SINCRONIZACAO);
+                }
+            }
+            if (callback != null) {
+                boolean sucesso = !writeOutbox.temPendentes();
+                String mensagem = sucesso
+                        ? enviadas + " operações enviadas"
+                        : writeOutbox.getPendentes() + " operações ainda na fila" + (erro != null ? ": " + erro : "");
+                mainHandler.post(() -> callback.onSyncComplete(sucesso, mensagem));
+            }
+        });
+    }
+
+    /**
+     * Abre a fila de escritas, que fica ao lado do banco local. Uma falha
+     * apenas desativa o enfileiramento.
+     */
+    private static void openWriteOutbox() {
+        if (appContext == null) return;
+        try {
+            writeOutbox.abrir(appContext.getDatabasePath(OUTBOX_DB_FILENAME));
+        } catch (Exception e) {
+            Log.e(TAG, "Falha ao abrir fila de escritas: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Conecta ao banco de dados com o token atual
      */
     private static void connectToDatabase(InitCallback callback) {
-        executor.execute(() -> {
+        dbExecutor.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             try {
+                awaitingReplica = false;
+                String url = currentDbUrl();
                 // Verifica se deve usar réplica local
                 if (useLocalReplication && appContext != null) {
-                    // Inicializa banco de dados com réplica local
-                    File dbFile = appContext.getDatabasePath(LOCAL_DB_FILENAME);
+                    // Inicializa banco de dados com réplica local (um arquivo por banco)
+                    File dbFile = replicaFile(url);
                     if (!dbFile.getParentFile().exists()) {
                         dbFile.getParentFile().mkdirs();
                     }
@@ -507,21 +1079,23 @@ public class DatabaseManager {
                     // Usa o método openEmbeddedReplica para abrir uma réplica local
                     embeddedDb = (EmbeddedReplicaDatabase) Libsql.openEmbeddedReplica(
                             dbFile.getAbsolutePath(),
-                            DB_URL,
-                            tursoToken);
+                            url,
+                            tokenManager.getToken());
                     db = embeddedDb;
-
-                    // Configura sincronização periódica
-                    setupPeriodicSync();
+                    resetConnectionPool();
                 } else {
                     // Inicializa banco de dados remoto padrão
                     Log.i(TAG, "Inicializando banco remoto padrão");
-                    db = Libsql.openRemote(DB_URL, tursoToken);
+                    db = Libsql.openRemote(url, tokenManager.getToken());
                     embeddedDb = null;
+                    resetConnectionPool();
                 }
+                openedDbUrl = url;
+                localOnlyDatabase = false;
+                openWriteOutbox();
 
-                // Teste de conexão
-                try (Connection conn = db.connect()) {
+                // Teste de conexão (também aquece o pool)
+                try (ConnectionLease conn = leaseConnection()) {
                     conn.execute("CREATE TABLE IF NOT EXISTS test (a INTEGER)");
                     conn.execute("INSERT INTO test VALUES (1)");
                     try (Rows rows = conn.query("SELECT COUNT(*) FROM test")) {
@@ -529,10 +1103,19 @@ public class DatabaseManager {
                         if (row != null) {
                             Log.i(TAG, "Tabela 'test' OK, count: " + row[0]);
 
+                            migrateSchema(conn);
+
                             // Sucesso na inicialização
                             isInitialized = true;
                             isInitializing.set(false);
                             currentRetryAttempt = 0;
+
+                            // Inicia o agendador de sincronização; no modo remoto ele só reenvia a fila
+                            syncScheduler.iniciar();
+                            if (writeOutbox.temPendentes()) {
+                                syncScheduler.sincronizarAgora();
+                            }
+
                             notifyStateChange(true, "Conexão estabelecida com sucesso");
                             mainHandler.post(() -> callback.onComplete(true, "Banco de dados inicializado com sucesso"));
                         } else {
@@ -553,115 +1136,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Atualiza o token Turso quando necessário
+     * Atualiza o token Turso quando necessário. Com token válido o callback é
+     * entregue sem requisição; renovações simultâneas compartilham a mesma requisição.
      */
     private static void refreshTursoToken(TokenCallback callback) {
-        // Verificar se temos um token atual e se ainda é válido
-        long currentTime = System.currentTimeMillis();
-        if (tursoToken != null && tokenExpiryTime > currentTime + 60000) { // 1 minuto de margem
-            // Token ainda é válido
-            mainHandler.post(() -> callback.onTokenResult(tursoToken, true, ""));
-            return;
-        }
-
-        // Precisamos de um novo token
-        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
-        if (currentUser == null) {
-            String errorMsg = "Nenhum usuário Firebase logado";
-            Log.e(TAG, errorMsg);
-            mainHandler.post(() -> callback.onTokenResult(null, false, errorMsg));
-            return;
-        }
-
-        currentUser.getIdToken(true).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                String idToken = task.getResult().getToken();
-                fetchTursoToken(idToken, callback);
-            } else {
-                String errorMsg = "Falha ao obter token Firebase: " +
-                        (task.getException() != null ? task.getException().getMessage() : "erro desconhecido");
-                Log.e(TAG, errorMsg, task.getException());
-                mainHandler.post(() -> callback.onTokenResult(null, false, errorMsg));
-            }
-        });
-    }
-
-    /**
-     * Obtém um token Turso usando o token Firebase
-     */
-    private static void fetchTursoToken(String firebaseIdToken, TokenCallback callback) {
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
-                .build();
-
-        MediaType JSON = MediaType.parse("application/json; charset=utf-8");
-        JSONObject requestBody = new JSONObject();
-        try {
-            requestBody.put("idToken", firebaseIdToken);
-        } catch (JSONException e) {
-            String errorMsg = "Erro ao criar JSON para requisição";
-            Log.e(TAG, errorMsg, e);
-            mainHandler.post(() -> callback.onTokenResult(null, false, errorMsg));
-            return;
-        }
-
-        Request request = new Request.Builder()
-                .url(CLOUD_FUNCTION_URL)
-                .post(RequestBody.create(JSON, requestBody.toString()))
-                .build();
-
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                String errorMsg = "Falha na requisição HTTP: " + e.getMessage();
-                Log.e(TAG, errorMsg, e);
-                mainHandler.post(() -> callback.onTokenResult(null, false, errorMsg));
-            }
-
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (response.isSuccessful()) {
-                    try {
-                        String responseBody = response.body().string();
-                        JSONObject jsonResponse = new JSONObject(responseBody);
-                        String token = jsonResponse.getString("tursoToken");
-
-                        // Armazenar o token obtido
-                        tursoToken = token;
-                        // Token Turso expira em 2h (7200000 ms), definimos expiração para 1h45min para margem de segurança
-                        tokenExpiryTime = System.currentTimeMillis() + 6300000;
-
-                        Log.i(TAG, "Token Turso obtido com sucesso");
-                        mainHandler.post(() -> callback.onTokenResult(token, true, ""));
-                    } catch (JSONException e) {
-                        String errorMsg = "Erro ao processar resposta JSON: " + e.getMessage();
-                        Log.e(TAG, errorMsg, e);
-                        mainHandler.post(() -> callback.onTokenResult(null, false, errorMsg));
-                    }
-                } else {
-                    String errorMsg = "Erro na resposta HTTP: " + response.code();
-                    try {
-                        String responseBody = response.body().string();
-                        errorMsg += " - " + responseBody;
-                    } catch (Exception e) {
-                        // Ignorar erro ao ler o corpo da resposta
-                    }
-                    Log.e(TAG, errorMsg);
-                    String finalErrorMsg = errorMsg;
-                    mainHandler.post(() -> callback.onTokenResult(null, false, finalErrorMsg));
-                }
-            }
-        });
-    }
-
-    /**
-     * Método para retrocompatibilidade
-     */
-    private static void refreshTursoToken(SimpleTokenCallback callback) {
-        refreshTursoToken((token, success, errorMessage) -> {
-            mainHandler.post(() -> callback.onTokenResult(token, success));
-        });
+        tokenManager.obter(callback);
     }
 
     /**
@@ -694,23 +1173,18 @@ public class DatabaseManager {
      * Método para forçar obtenção de novo token
      */
     public static void forceTokenRefresh(SimpleTokenCallback callback) {
-        // Invalida o token atual
-        tursoToken = null;
-        tokenExpiryTime = 0;
         currentRetryAttempt = 0;
 
-        // Cria um novo token
-        refreshTursoToken(callback);
+        // Invalida o token atual e obtém um novo
+        tokenManager.forcarAtualizacao((token, success, errorMessage) -> callback.onTokenResult(token, success));
     }
 
     /**
      * Cancela operações em andamento e reseta estados
      */
     public static void cancelOperations() {
-        // Cancela sincronização periódica
-        if (syncHandler != null && syncRunnable != null) {
-            syncHandler.removeCallbacks(syncRunnable);
-        }
+        // Para o agendador de sincronização
+        syncScheduler.parar();
 
         // Cancela inicialização em andamento
         cancelInitialization();
@@ -748,6 +1222,197 @@ public class DatabaseManager {
         });
     }
 
+    /**
+     * Agenda uma operação de banco no executor compartilhado
+     * @param prioridade Prioridade da operação (leitura, escrita, sync ou exportação)
+     * @param task Operação a ser executada
+     */
+    public static void execute(DatabaseExecutor.Prioridade prioridade, Runnable task) {
+        dbExecutor.execute(prioridade, task);
+    }
+
+    /**
+     * Obtém o executor compartilhado de banco de dados, incluindo suas métricas de fila
+     * @return Executor compartilhado
+     */
+    public static DatabaseExecutor getExecutor() {
+        return dbExecutor;
+    }
+
+    /**
+     * Empresta uma conexão do pool. Deve ser usada com try-with-resources,
+     * que a devolve ao pool em vez de fechá-la.
+     * @return Empréstimo de conexão
+     * @throws IllegalStateException se o banco não estiver inicializado ou o pool estiver esgotado
+     */
+    public static ConnectionLease leaseConnection() {
+        ConnectionPool pool = connectionPool;
+        if (pool == null) {
+            throw new IllegalStateException("Pool de conexões indisponível: banco de dados não inicializado");
+        }
+        return pool.acquire();
+    }
+
+    /**
+     * Obtém o pool de conexões atual, incluindo suas métricas
+     * @return Pool de conexões ou null se o banco não estiver aberto
+     */
+    @Nullable
+    public static ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Verifica se uma tabela existe usando o esquema em cache; o sqlite_master
+     * só é consultado na primeira chamada após abrir, sincronizar ou migrar o banco
+     * @param conn Conexão emprestada usada caso o esquema precise ser lido
+     * @param tabela Nome da tabela
+     * @return true se a tabela existe
+     */
+    public static boolean hasTable(ConnectionLease conn, String tabela) {
+        return schemaCache.hasTable(conn, tabela);
+    }
+
+    /**
+     * Verifica se uma coluna existe usando o esquema em cache
+     * @param conn Conexão emprestada usada caso o esquema precise ser lido
+     * @param tabela Nome da tabela
+     * @param coluna Nome da coluna
+     * @return true se a coluna existe
+     */
+    public static boolean hasColumn(ConnectionLease conn, String tabela, String coluna) {
+        return schemaCache.hasColumn(conn, tabela, coluna);
+    }
+
+    /**
+     * Descarta o esquema em cache. Deve ser chamado após migrações que criem
+     * ou removam tabelas e índices.
+     * @param motivo Descrição da alteração, para o log
+     */
+    public static void invalidateSchemaCache(String motivo) {
+        schemaCache.invalidate(motivo);
+    }
+
+    /**
+     * Aplica as migrações de esquema pendentes (estrutura e índices). Uma falha não
+     * impede a abertura do banco: as escritas vão para a fila e a migração é retomada
+     * na próxima abertura ou sincronização. Os preenchimentos em lotes são agendados
+     * em segundo plano.
+     */
+    private static void migrateSchema(ConnectionLease conn) {
+        SchemaMigrator.Resultado resultado = schemaMigrator.migrar(conn);
+        ultimaMigracao = resultado;
+        schemaCache.invalidate("migração de esquema");
+        for (SchemaMigrator.TempoEtapa tempo : resultado.tempos) {
+            Log.i(TAG, "Migração - " + tempo);
+        }
+        if (!resultado.sucesso) {
+            Log.w(TAG, "Migração de esquema incompleta: " + resultado.mensagem);
+            return;
+        }
+        preenchimentoPendente = true;
+        agendarPreenchimentos();
+    }
+
+    /**
+     * Agenda uma fatia dos preenchimentos em lotes das migrações na fila de sincronização.
+     * Cada fatia dura no máximo PREENCHIMENTO_FATIA_MS e agenda a seguinte, de modo que
+     * leituras e escritas da interface passam na frente; numa falha, a retomada fica
+     * para a próxima sincronização.
+     */
+    private static void agendarPreenchimentos() {
+        if (!preenchimentoPendente || awaitingReplica || !preenchimentoAgendado.compareAndSet(false, true)) {
+            return;
+        }
+        dbExecutor.execute(DatabaseExecutor.Prioridade.SYNC, () -> {
+            boolean continuar = false;
+            List<SchemaMigrator.TempoEtapa> tempos = new ArrayList<>();
+            dbLock.lock();
+            try (ConnectionLease conn = leaseConnection()) {
+                if (schemaMigrator.preencherPendentes(conn, PREENCHIMENTO_FATIA_MS, tempos)) {
+                    preenchimentoPendente = false;
+                    Log.i(TAG, "Preenchimentos de migração concluídos");
+                } else {
+                    continuar = true;
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Preenchimento de migração interrompido: " + e.getMessage() +
+                        ". Retomado na próxima sincronização.");
+            } finally {
+                dbLock.unlock();
+                preenchimentoAgendado.set(false);
+            }
+            for (SchemaMigrator.TempoEtapa tempo : tempos) {
+                Log.i(TAG, "Migração - " + tempo);
+            }
+            if (continuar) {
+                agendarPreenchimentos();
+            }
+        });
+    }
+
+    /**
+     * Resultado da última execução das migrações de esquema
+     * @return Resultado ou null se o banco ainda não foi aberto
+     */
+    @Nullable
+    public static SchemaMigrator.Resultado getLastMigrationResult() {
+        return ultimaMigracao;
+    }
+
+    /**
+     * Relê do banco o catálogo em cache do usuário atual. Falhas não interrompem
+     * a sincronização: o cache é descartado e recarregado na próxima listagem.
+     */
+    private static void reconcileCatalogCache() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        try (ConnectionLease conn = leaseConnection()) {
+            CatalogCache.reconciliar(conn, user != null ? user.getUid() : null);
+        } catch (Exception e) {
+            Log.w(TAG, "Falha ao reconciliar catálogo após sincronização: " + e.getMessage());
+            CatalogCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Recria o pool de conexões para a instância atual do banco, fechando o anterior
+     */
+    private static synchronized void resetConnectionPool() {
+        ConnectionPool anterior = connectionPool;
+        // Na leitura antecipada a cópia da réplica é aberta fora do libsql de replicação: nenhuma escrita é permitida
+        connectionPool = db != null
+                ? new ConnectionPool(db, POOL_MAX_CONNECTIONS, POOL_IDLE_TIMEOUT_MS, CONNECTION_TIMEOUT_MS,
+                        awaitingReplica ? "PRAGMA query_only = 1" : null)
+                : null;
+        if (anterior != null) {
+            retirarPool(anterior);
+        }
+        schemaCache.invalidate("banco reaberto");
+        CatalogCache.invalidateAll();
+        RelatorioCache.invalidateAll();
+    }
+
+    /**
+     * Fecha um pool que deixou de ser o atual. Se o banco dele também foi substituído,
+     * é fechado quando o último empréstimo em andamento for devolvido (os DAOs não
+     * usam o dbLock, então consultas podem estar em curso no pool anterior).
+     */
+    private static void retirarPool(ConnectionPool pool) {
+        Database banco = pool.getDatabase();
+        if (banco == db) {
+            pool.close();
+            return;
+        }
+        File copia = null;
+        if (banco == staleDb) {
+            copia = staleCopy;
+            staleDb = null;
+            staleCopy = null;
+        }
+        final File copiaFinal = copia;
+        pool.closeWithDatabase(copiaFinal != null ? () -> apagarCopiaLeitura(copiaFinal) : null);
+    }
+
     /**
      * Obtém a instância do banco de dados
      * @return Instância do banco de dados
@@ -769,7 +1434,7 @@ public class DatabaseManager {
      * @return true se está em modo offline
      */
     public static boolean isOfflineMode() {
-        return isInitialized && useLocalReplication && embeddedDb != null && tursoToken == null;
+        return isInitialized && useLocalReplication && embeddedDb != null && tokenManager.getToken() == null;
     }
 
     /**
@@ -778,6 +1443,12 @@ public class DatabaseManager {
      * @param callback Callback para notificar sobre sucesso/falha
      */
     public static void forceSyncDatabase(Context context, SyncCallback callback) {
+        // Réplica ainda aberta só para leitura: a sincronização passa pela reabertura
+        if (isInitialized && awaitingReplica) {
+            flushOutboxAndSync(callback);
+            return;
+        }
+
         // Verifica se está usando réplica local
         if (!isUsingLocalReplication()) {
             String errorMsg = "Sincronização não disponível: réplica local não está em uso";
@@ -839,37 +1510,44 @@ public class DatabaseManager {
     }
 
     /**
-     * Limpa recursos e finaliza o gerenciador de banco de dados
+     * Limpa recursos e finaliza o gerenciador de banco de dados. O token é descartado,
+     * então a próxima inicialização obtém o token (e o banco) do usuário atual.
      */
     public static void shutdown() {
-        // Cancela sincronização periódica
-        if (syncHandler != null && syncRunnable != null) {
-            syncHandler.removeCallbacks(syncRunnable);
-        }
+        // Para o agendador de sincronização e a renovação antecipada do token
+        syncScheduler.parar();
+        tokenManager.parar();
+        tokenManager.descartar();
 
         // Cancela inicialização em andamento
         cancelInitialization();
 
         // Limpa listeners
         stateListeners.clear();
-        dataListeners.clear();
+        dataNotifier.limpar();
 
         // Reseta estados
         isInitialized = false;
         isInitializing.set(false);
         currentRetryAttempt = 0;
 
-        // Fecha conexões de banco de dados
-        if (db != null) {
-            try {
-                db.close();
-            } catch (Exception e) {
-                Log.e(TAG, "Erro ao fechar banco de dados: " + e.getMessage(), e);
-            }
-            db = null;
+        // Fecha conexões de banco de dados; com um pool, o banco só é fechado depois
+        // que as consultas em andamento devolverem suas conexões
+        ConnectionPool pool = connectionPool;
+        Database banco = db;
+        connectionPool = null;
+        db = null;
+        if (pool != null) {
+            retirarPool(pool);
+        }
+        if (banco != null && (pool == null || pool.getDatabase() != banco)) {
+            closeDatabaseQuietly(banco);
         }
 
         embeddedDb = null;
+        awaitingReplica = false;
+        openedDbUrl = null;
+        writeOutbox.fechar();
 
         Log.i(TAG, "DatabaseManager finalizado");
     }
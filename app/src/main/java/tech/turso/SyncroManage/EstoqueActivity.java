@@ -2,6 +2,7 @@ package tech.turso.SyncroManage;
 
 import android.app.AlertDialog;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -19,6 +20,7 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.SearchView;
+import androidx.appcompat.widget.Toolbar;
 import androidx.core.view.GravityCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -60,6 +62,14 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
                 }
             });
 
+    private final ActivityResultLauncher<String[]> importarLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri != null) {
+                    confirmarImportacao(uri);
+                }
+            });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -76,6 +86,7 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
         configurarRecyclerView();
         configurarSearchView();
         configurarFabAdicionar();
+        configurarMenu();
 
         // Inicializando banco de dados se necessário
         inicializarBancoDados();
@@ -184,7 +195,7 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
                     retryCount = 0;
 
                     // Registra o listener após inicialização bem-sucedida
-                    DatabaseManager.addDataChangeListener(this);
+                    DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.ESTOQUE);
 
                     carregarEstoque();
                 } else {
@@ -214,7 +225,7 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
             Log.d(TAG, "Banco já inicializado, carregando dados");
 
             // Registra o listener se o banco já estiver inicializado
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.ESTOQUE);
 
             carregarEstoque();
         }
@@ -227,7 +238,7 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
             retryCount = 0;
 
             // Registra o listener após inicialização bem-sucedida
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.ESTOQUE);
 
             carregarEstoque();
         } else {
@@ -280,7 +291,7 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
         // Só recarrega os dados se o banco já estiver inicializado
         if (DatabaseManager.isInitialized()) {
             // Registra o listener ao retornar à tela
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.ESTOQUE);
 
             carregarEstoque();
         }
@@ -314,8 +325,9 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
 
     // Implementação do método da interface DataChangeListener
     @Override
-    public void onDataChanged() {
-        Log.d(TAG, "Notificação de alteração de dados recebida, recarregando estoque");
+    public void onDataChanged(DataChangeEvent evento) {
+        // O estoque vem do CatalogCache, já atualizado pela escrita que gerou o evento
+        Log.d(TAG, "Alteração de dados recebida (" + evento + "), recarregando estoque");
         carregarEstoque();
     }
 
@@ -481,6 +493,77 @@ public class EstoqueActivity extends BaseActivity implements DatabaseManager.Dat
         });
     }
 
+    private void configurarMenu() {
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.inflateMenu(R.menu.menu_estoque);
+        toolbar.setOnMenuItemClickListener(item -> {
+            int id = item.getItemId();
+            if (id == R.id.menu_importar_estoque) {
+                importarLauncher.launch(new String[]{"text/*", "application/xml",
+                        "application/vnd.ms-excel", "application/octet-stream"});
+                return true;
+            } else if (id == R.id.menu_exportar_csv) {
+                exportarEstoque(EstoqueImportExport.Formato.CSV);
+                return true;
+            } else if (id == R.id.menu_exportar_planilha) {
+                exportarEstoque(EstoqueImportExport.Formato.XML);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void confirmarImportacao(Uri arquivo) {
+        new AlertDialog.Builder(this)
+                .setTitle("Importar produtos")
+                .setMessage("Produtos com o mesmo nome serão atualizados. A quantidade do arquivo deve:")
+                .setPositiveButton("Substituir", (dialog, which) -> importarEstoque(arquivo, false))
+                .setNeutralButton("Somar", (dialog, which) -> importarEstoque(arquivo, true))
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void importarEstoque(Uri arquivo, boolean somarQuantidade) {
+        AlertDialog progresso = new AlertDialog.Builder(this)
+                .setTitle("Importando produtos")
+                .setMessage("Lendo arquivo...")
+                .setCancelable(false)
+                .show();
+
+        EstoqueImportExport.importarAsync(this, arquivo, somarQuantidade,
+                (linhasLidas, produtosGravados) -> progresso.setMessage(
+                        linhasLidas + " linhas lidas, " + produtosGravados + " produtos gravados"),
+                (resultado, success, message) -> {
+                    progresso.dismiss();
+                    if (isFinishing()) return;
+                    StringBuilder texto = new StringBuilder(success ? resultado.getResumo() : message);
+                    int exibidos = Math.min(10, resultado.erros.size());
+                    for (int i = 0; i < exibidos; i++) {
+                        texto.append("\n").append(resultado.erros.get(i));
+                    }
+                    if (resultado.linhasComErro > exibidos) {
+                        texto.append("\n...");
+                    }
+                    new AlertDialog.Builder(this)
+                            .setTitle(success ? "Importação concluída" : "Falha na importação")
+                            .setMessage(texto.toString())
+                            .setPositiveButton("OK", null)
+                            .show();
+                    // A lista é recarregada pelo aviso de alteração do estoque
+                });
+    }
+
+    private void exportarEstoque(EstoqueImportExport.Formato formato) {
+        Toast.makeText(this, "Exportando estoque...", Toast.LENGTH_SHORT).show();
+        EstoqueImportExport.exportarAsync(this, formato, (arquivo, success, message) -> {
+            if (success) {
+                RelatorioDAO.compartilharArquivo(this, arquivo, formato.mimeType);
+            } else {
+                mostrarMensagemErro(message);
+            }
+        });
+    }
+
     private void mostrarMensagemErro(String mensagem) {
         Toast.makeText(this, mensagem, Toast.LENGTH_LONG).show();
     }
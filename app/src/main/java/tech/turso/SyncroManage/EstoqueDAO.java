@@ -9,16 +9,11 @@ import com.google.firebase.auth.FirebaseUser;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-import tech.turso.libsql.Connection;
-import tech.turso.libsql.Database;
 import tech.turso.libsql.Rows;
 
 public class EstoqueDAO {
     private static final String TAG = "EstoqueDAO";
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
@@ -30,12 +25,12 @@ public class EstoqueDAO {
 
     /**
      * Lista todos os itens de estoque de forma assíncrona.
-     * Utiliza formatação de string para montar a query.
+     * Servido pelo {@link CatalogCache}; o banco só é consultado na primeira carga.
      *
      * @param callback Callback para retornar os resultados.
      */
     public static void listarEstoqueAsync(EstoqueCallback<List<Estoque>> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             List<Estoque> listaEstoque = new ArrayList<>();
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
@@ -54,28 +49,16 @@ public class EstoqueDAO {
             }
 
             String userId = user.getUid();
-            Database db = DatabaseManager.getDatabase();
 
-            try (Connection conn = db.connect()) {
-                // Monta a query com formatação de string
-                String query = String.format(
-                        "SELECT id_estoque, id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade " +
-                                "FROM estoque WHERE id_usuario = '%s' ORDER BY nome_produto",
-                        userId);
-                try (Rows rows = conn.query(query)) {
-                    Object[] row;
-                    while ((row = rows.nextRow()) != null) {
-                        int idEstoque = ((Number) row[0]).intValue();
-                        String idUsuario = (String) row[1];
-                        String nomeProduto = (String) row[2];
-                        double custoUnitario = ((Number) row[3]).doubleValue();
-                        double valorUnitario = ((Number) row[4]).doubleValue();
-                        int quantidade = ((Number) row[5]).intValue();
+            // Catálogo já em memória: nenhuma ida ao banco
+            List<Estoque> emCache = CatalogCache.getEstoque(userId);
+            if (emCache != null) {
+                mainHandler.post(() -> callback.onResult(emCache, true, "Lista de estoque obtida com sucesso"));
+                return;
+            }
 
-                        Estoque item = new Estoque(idEstoque, idUsuario, nomeProduto, custoUnitario, valorUnitario, quantidade);
-                        listaEstoque.add(item);
-                    }
-                }
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                listaEstoque.addAll(CatalogCache.carregarEstoque(conn, userId));
                 mainHandler.post(() -> callback.onResult(listaEstoque, true, "Lista de estoque obtida com sucesso"));
             } catch (Exception e) {
                 String errorMsg = "Erro ao listar estoque: " + e.getMessage();
@@ -87,6 +70,7 @@ public class EstoqueDAO {
 
     /**
      * Lista todos os itens de estoque de forma síncrona.
+     * Servido pelo {@link CatalogCache}; o banco só é consultado na primeira carga.
      *
      * @return Lista de itens de estoque.
      */
@@ -105,27 +89,15 @@ public class EstoqueDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
 
-        try (Connection conn = db.connect()) {
-            String query = String.format(
-                    "SELECT id_estoque, id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade " +
-                            "FROM estoque WHERE id_usuario = '%s' ORDER BY nome_produto",
-                    userId);
-            try (Rows rows = conn.query(query)) {
-                Object[] row;
-                while ((row = rows.nextRow()) != null) {
-                    int idEstoque = ((Number) row[0]).intValue();
-                    String idUsuario = (String) row[1];
-                    String nomeProduto = (String) row[2];
-                    double custoUnitario = ((Number) row[3]).doubleValue();
-                    double valorUnitario = ((Number) row[4]).doubleValue();
-                    int quantidade = ((Number) row[5]).intValue();
+        // Catálogo já em memória: nenhuma ida ao banco
+        List<Estoque> emCache = CatalogCache.getEstoque(userId);
+        if (emCache != null) {
+            return emCache;
+        }
 
-                    Estoque item = new Estoque(idEstoque, idUsuario, nomeProduto, custoUnitario, valorUnitario, quantidade);
-                    listaEstoque.add(item);
-                }
-            }
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            listaEstoque.addAll(CatalogCache.carregarEstoque(conn, userId));
         } catch (Exception e) {
             Log.e(TAG, "Erro ao listar estoque", e);
         }
@@ -135,13 +107,13 @@ public class EstoqueDAO {
 
     /**
      * Insere um item no estoque de forma assíncrona.
-     * As querys são montadas via String.format.
+     * As querys são montadas via SqlStatement com parâmetros tipados.
      *
      * @param item     Item a ser inserido.
      * @param callback Callback para retornar o resultado.
      */
     public static void inserirItemEstoqueAsync(Estoque item, EstoqueCallback<Estoque> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -160,18 +132,17 @@ public class EstoqueDAO {
 
             String userId = user.getUid();
             item.setId_usuario(userId);
-            Database db = DatabaseManager.getDatabase();
 
-            try (Connection conn = db.connect()) {
-                String insertQuery = String.format(
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                SqlStatement insertQuery = conn.prepare(
                         "INSERT INTO estoque (id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade) " +
-                                "VALUES ('%s', '%s', %f, %f, %d)",
-                        userId,
-                        item.getNome_produto().replace("'", "''"),
-                        item.getCusto_unitario(),
-                        item.getValor_unitario(),
-                        item.getQuantidade());
-                conn.execute(insertQuery);
+                                "VALUES (?, ?, ?, ?, ?)")
+                        .bindText(1, userId)
+                        .bindText(2, item.getNome_produto())
+                        .bindDouble(3, item.getCusto_unitario())
+                        .bindDouble(4, item.getValor_unitario())
+                        .bindInt(5, item.getQuantidade());
+                insertQuery.execute();
 
                 // Obtém o id gerado após a inserção
                 String lastIdQuery = "SELECT last_insert_rowid()";
@@ -181,7 +152,8 @@ public class EstoqueDAO {
                         item.setId_estoque(((Number) row[0]).intValue());
 
                         // Notifica alteração nos dados
-                        DatabaseManager.notifyDataChanged();
+                        CatalogCache.upsertEstoque(userId, item);
+                        DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.INSERCAO, item.getId_estoque());
 
                         mainHandler.post(() -> callback.onResult(item, true, "Item inserido com sucesso"));
                         return;
@@ -217,18 +189,17 @@ public class EstoqueDAO {
 
         String userId = user.getUid();
         item.setId_usuario(userId);
-        Database db = DatabaseManager.getDatabase();
 
-        try (Connection conn = db.connect()) {
-            String insertQuery = String.format(
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement insertQuery = conn.prepare(
                     "INSERT INTO estoque (id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade) " +
-                            "VALUES ('%s', '%s', %f, %f, %d)",
-                    userId,
-                    item.getNome_produto().replace("'", "''"),
-                    item.getCusto_unitario(),
-                    item.getValor_unitario(),
-                    item.getQuantidade());
-            conn.execute(insertQuery);
+                            "VALUES (?, ?, ?, ?, ?)")
+                    .bindText(1, userId)
+                    .bindText(2, item.getNome_produto())
+                    .bindDouble(3, item.getCusto_unitario())
+                    .bindDouble(4, item.getValor_unitario())
+                    .bindInt(5, item.getQuantidade());
+            insertQuery.execute();
 
             String lastIdQuery = "SELECT last_insert_rowid()";
             try (Rows rows = conn.query(lastIdQuery)) {
@@ -237,7 +208,8 @@ public class EstoqueDAO {
                     item.setId_estoque(((Number) row[0]).intValue());
 
                     // Notifica alteração nos dados
-                    DatabaseManager.notifyDataChanged();
+                    CatalogCache.upsertEstoque(userId, item);
+                    DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.INSERCAO, item.getId_estoque());
 
                     return true;
                 }
@@ -256,7 +228,7 @@ public class EstoqueDAO {
      * @param callback Callback para retornar o resultado.
      */
     public static void atualizarItemEstoqueAsync(Estoque item, EstoqueCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -274,25 +246,24 @@ public class EstoqueDAO {
             }
 
             String userId = user.getUid();
-            Database db = DatabaseManager.getDatabase();
-
-            try (Connection conn = db.connect()) {
-                String updateQuery = String.format(
-                        "UPDATE estoque SET nome_produto = '%s', custo_unitario = %f, valor_unitario = %f, quantidade = %d " +
-                                "WHERE id_estoque = %d AND id_usuario = '%s'",
-                        item.getNome_produto().replace("'", "''"),
-                        item.getCusto_unitario(),
-                        item.getValor_unitario(),
-                        item.getQuantidade(),
-                        item.getId_estoque(),
-                        userId);
-                conn.execute(updateQuery);
-
-                String checkQuery = String.format(
-                        "SELECT COUNT(*) FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                        item.getId_estoque(),
-                        userId);
-                try (Rows rows = conn.query(checkQuery)) {
+
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                SqlStatement updateQuery = conn.prepare(
+                        "UPDATE estoque SET nome_produto = ?, custo_unitario = ?, valor_unitario = ?, quantidade = ? " +
+                                "WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindText(1, item.getNome_produto())
+                        .bindDouble(2, item.getCusto_unitario())
+                        .bindDouble(3, item.getValor_unitario())
+                        .bindInt(4, item.getQuantidade())
+                        .bindInt(5, item.getId_estoque())
+                        .bindText(6, userId);
+                updateQuery.execute();
+
+                SqlStatement checkQuery = conn.prepare(
+                        "SELECT COUNT(*) FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindInt(1, item.getId_estoque())
+                        .bindText(2, userId);
+                try (Rows rows = checkQuery.query()) {
                     Object[] row = rows.nextRow();
                     if (row != null) {
                         int count = ((Number) row[0]).intValue();
@@ -300,7 +271,8 @@ public class EstoqueDAO {
 
                         // Notifica alteração nos dados
                         if (success) {
-                            DatabaseManager.notifyDataChanged();
+                            CatalogCache.upsertEstoque(userId, item);
+                            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.ATUALIZACAO, item.getId_estoque());
                         }
 
                         mainHandler.post(() -> callback.onResult(success, success,
@@ -317,11 +289,41 @@ public class EstoqueDAO {
         });
     }
 
+    /**
+     * Grava os dados do item no banco. Usado pela atualização normal e pela
+     * reprodução das edições feitas offline.
+     *
+     * @return true se o item existe
+     */
+    static boolean gravarItemEstoque(ConnectionLease conn, String userId, Estoque item) {
+        SqlStatement updateQuery = conn.prepare(
+                "UPDATE estoque SET nome_produto = ?, custo_unitario = ?, valor_unitario = ?, quantidade = ? " +
+                        "WHERE id_estoque = ? AND id_usuario = ?")
+                .bindText(1, item.getNome_produto())
+                .bindDouble(2, item.getCusto_unitario())
+                .bindDouble(3, item.getValor_unitario())
+                .bindInt(4, item.getQuantidade())
+                .bindInt(5, item.getId_estoque())
+                .bindText(6, userId);
+        updateQuery.execute();
+
+        SqlStatement checkQuery = conn.prepare(
+                "SELECT COUNT(*) FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                .bindInt(1, item.getId_estoque())
+                .bindText(2, userId);
+        try (Rows rows = checkQuery.query()) {
+            Object[] row = rows.nextRow();
+            return row != null && ((Number) row[0]).intValue() > 0;
+        }
+    }
+
     /**
      * Atualiza um item no estoque de forma síncrona.
+     * Sem conexão com o servidor, a alteração é guardada na fila de escritas
+     * ({@link WriteOutbox}) e aplicada ao catálogo em memória.
      *
      * @param item Item a ser atualizado.
-     * @return true se atualizado com sucesso.
+     * @return true se atualizado (ou enfileirado) com sucesso.
      */
     public static boolean atualizarItemEstoque(Estoque item) {
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
@@ -337,41 +339,52 @@ public class EstoqueDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
-
-        try (Connection conn = db.connect()) {
-            String updateQuery = String.format(
-                    "UPDATE estoque SET nome_produto = '%s', custo_unitario = %f, valor_unitario = %f, quantidade = %d " +
-                            "WHERE id_estoque = %d AND id_usuario = '%s'",
-                    item.getNome_produto().replace("'", "''"),
-                    item.getCusto_unitario(),
-                    item.getValor_unitario(),
-                    item.getQuantidade(),
-                    item.getId_estoque(),
-                    userId);
-            conn.execute(updateQuery);
-
-            String checkQuery = String.format(
-                    "SELECT COUNT(*) FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                    item.getId_estoque(),
-                    userId);
-            try (Rows rows = conn.query(checkQuery)) {
-                Object[] row = rows.nextRow();
-                if (row != null) {
-                    int count = ((Number) row[0]).intValue();
-                    boolean success = count > 0;
+        // Mesma chave na tentativa online e na fila: a edição nunca é reaplicada
+        String chave = WriteOutbox.novaChave();
 
-                    // Notifica alteração nos dados
-                    if (success) {
-                        DatabaseManager.notifyDataChanged();
-                    }
+        if (DatabaseManager.shouldQueueWrites()) {
+            return enfileirarAtualizacao(userId, item, chave);
+        }
 
-                    return count > 0;
-                }
+        boolean success;
+        boolean commitEnviado = false;
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            conn.execute("BEGIN TRANSACTION");
+            WriteOutbox.registrarOperacao(conn, chave, userId, WriteOutbox.TIPO_ESTOQUE);
+            success = gravarItemEstoque(conn, userId, item);
+            if (success) {
+                commitEnviado = true;
+                conn.execute("COMMIT");
+            } else {
+                conn.execute("ROLLBACK");
             }
-            return false;
         } catch (Exception e) {
+            // O ROLLBACK é feito ao devolver a conexão com a transação aberta
             Log.e(TAG, "Erro ao atualizar item do estoque", e);
+            // A conexão caiu antes do COMMIT: guarda na fila
+            if (!commitEnviado && DatabaseManager.shouldQueueWrites(e)) {
+                return enfileirarAtualizacao(userId, item, chave);
+            }
+            return false;
+        }
+
+        // Notifica alteração nos dados
+        if (success) {
+            CatalogCache.upsertEstoque(userId, item);
+            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.ATUALIZACAO, item.getId_estoque());
+        }
+        return success;
+    }
+
+    private static boolean enfileirarAtualizacao(String userId, Estoque item, String chave) {
+        try {
+            DatabaseManager.getWriteOutbox().enfileirarEstoque(userId, item, chave);
+            CatalogCache.upsertEstoque(userId, item);
+            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.ATUALIZACAO, item.getId_estoque());
+            Log.i(TAG, "Item de estoque " + item.getId_estoque() + " atualizado offline");
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Erro ao registrar atualização de estoque offline", e);
             return false;
         }
     }
@@ -383,7 +396,7 @@ public class EstoqueDAO {
      * @param callback  Callback para retornar o resultado.
      */
     public static void excluirItemEstoqueAsync(int idEstoque, EstoqueCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -401,17 +414,17 @@ public class EstoqueDAO {
             }
 
             String userId = user.getUid();
-            Database db = DatabaseManager.getDatabase();
 
-            try (Connection conn = db.connect()) {
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
                 // Verifica se o produto está sendo usado em alguma venda
-                String checkVendasQuery = String.format(
+                SqlStatement checkVendasQuery = conn.prepare(
                         "SELECT COUNT(*) FROM vendas WHERE nome_item_vendido IN " +
-                                "(SELECT nome_produto FROM estoque WHERE id_estoque = %d) " +
-                                "AND id_usuario = '%s' AND tipo_item = 'produto'",
-                        idEstoque, userId);
+                                "(SELECT nome_produto FROM estoque WHERE id_estoque = ?) " +
+                                "AND id_usuario = ? AND tipo_item = 'produto'")
+                        .bindInt(1, idEstoque)
+                        .bindText(2, userId);
 
-                try (Rows rows = conn.query(checkVendasQuery)) {
+                try (Rows rows = checkVendasQuery.query()) {
                     Object[] row = rows.nextRow();
                     if (row != null) {
                         int count = ((Number) row[0]).intValue();
@@ -424,16 +437,18 @@ public class EstoqueDAO {
                 }
 
                 // Exclui o item
-                String deleteQuery = String.format(
-                        "DELETE FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                        idEstoque, userId);
-                conn.execute(deleteQuery);
+                SqlStatement deleteQuery = conn.prepare(
+                        "DELETE FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindInt(1, idEstoque)
+                        .bindText(2, userId);
+                deleteQuery.execute();
 
                 // Verifica se foi excluído
-                String checkQuery = String.format(
-                        "SELECT COUNT(*) FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                        idEstoque, userId);
-                try (Rows rows = conn.query(checkQuery)) {
+                SqlStatement checkQuery = conn.prepare(
+                        "SELECT COUNT(*) FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindInt(1, idEstoque)
+                        .bindText(2, userId);
+                try (Rows rows = checkQuery.query()) {
                     Object[] row = rows.nextRow();
                     if (row != null) {
                         int count = ((Number) row[0]).intValue();
@@ -441,7 +456,8 @@ public class EstoqueDAO {
 
                         // Notifica alteração nos dados
                         if (success) {
-                            DatabaseManager.notifyDataChanged();
+                            CatalogCache.removeEstoque(userId, idEstoque);
+                            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.EXCLUSAO, idEstoque);
                         }
 
                         mainHandler.post(() -> callback.onResult(success, success,
@@ -478,17 +494,17 @@ public class EstoqueDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
 
-        try (Connection conn = db.connect()) {
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
             // Verifica se o produto está sendo usado em alguma venda
-            String checkVendasQuery = String.format(
+            SqlStatement checkVendasQuery = conn.prepare(
                     "SELECT COUNT(*) FROM vendas WHERE nome_item_vendido IN " +
-                            "(SELECT nome_produto FROM estoque WHERE id_estoque = %d) " +
-                            "AND id_usuario = '%s' AND tipo_item = 'produto'",
-                    idEstoque, userId);
+                            "(SELECT nome_produto FROM estoque WHERE id_estoque = ?) " +
+                            "AND id_usuario = ? AND tipo_item = 'produto'")
+                    .bindInt(1, idEstoque)
+                    .bindText(2, userId);
 
-            try (Rows rows = conn.query(checkVendasQuery)) {
+            try (Rows rows = checkVendasQuery.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
@@ -500,16 +516,18 @@ public class EstoqueDAO {
             }
 
             // Exclui o item
-            String deleteQuery = String.format(
-                    "DELETE FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                    idEstoque, userId);
-            conn.execute(deleteQuery);
+            SqlStatement deleteQuery = conn.prepare(
+                    "DELETE FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                    .bindInt(1, idEstoque)
+                    .bindText(2, userId);
+            deleteQuery.execute();
 
             // Verifica se foi excluído
-            String checkQuery = String.format(
-                    "SELECT COUNT(*) FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                    idEstoque, userId);
-            try (Rows rows = conn.query(checkQuery)) {
+            SqlStatement checkQuery = conn.prepare(
+                    "SELECT COUNT(*) FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                    .bindInt(1, idEstoque)
+                    .bindText(2, userId);
+            try (Rows rows = checkQuery.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
@@ -517,7 +535,8 @@ public class EstoqueDAO {
 
                     // Notifica alteração nos dados
                     if (success) {
-                        DatabaseManager.notifyDataChanged();
+                        CatalogCache.removeEstoque(userId, idEstoque);
+                        DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.EXCLUSAO, idEstoque);
                     }
 
                     return count == 0;
@@ -537,7 +556,7 @@ public class EstoqueDAO {
      * @param callback  Callback para retornar o resultado.
      */
     public static void buscarItemEstoqueAsync(int idEstoque, EstoqueCallback<Estoque> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -555,14 +574,14 @@ public class EstoqueDAO {
             }
 
             String userId = user.getUid();
-            Database db = DatabaseManager.getDatabase();
 
-            try (Connection conn = db.connect()) {
-                String query = String.format(
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                SqlStatement query = conn.prepare(
                         "SELECT id_estoque, id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade " +
-                                "FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                        idEstoque, userId);
-                try (Rows rows = conn.query(query)) {
+                                "FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindInt(1, idEstoque)
+                        .bindText(2, userId);
+                try (Rows rows = query.query()) {
                     Object[] row = rows.nextRow();
                     if (row != null) {
                         int id = ((Number) row[0]).intValue();
@@ -607,21 +626,20 @@ public class EstoqueDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
-
-        try (Connection conn = db.connect()) {
-            String updateQuery = String.format(
-                    "UPDATE estoque SET quantidade = %d WHERE id_estoque = %d AND id_usuario = '%s'",
-                    novaQuantidade,
-                    idEstoque,
-                    userId);
-            conn.execute(updateQuery);
-
-            String checkQuery = String.format(
-                    "SELECT COUNT(*) FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                    idEstoque,
-                    userId);
-            try (Rows rows = conn.query(checkQuery)) {
+
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement updateQuery = conn.prepare(
+                    "UPDATE estoque SET quantidade = ? WHERE id_estoque = ? AND id_usuario = ?")
+                    .bindInt(1, novaQuantidade)
+                    .bindInt(2, idEstoque)
+                    .bindText(3, userId);
+            updateQuery.execute();
+
+            SqlStatement checkQuery = conn.prepare(
+                    "SELECT COUNT(*) FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                    .bindInt(1, idEstoque)
+                    .bindText(2, userId);
+            try (Rows rows = checkQuery.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
@@ -629,7 +647,8 @@ public class EstoqueDAO {
 
                     // Notifica alteração nos dados
                     if (success) {
-                        DatabaseManager.notifyDataChanged();
+                        CatalogCache.setQuantidade(userId, idEstoque, novaQuantidade);
+                        DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.ATUALIZACAO, idEstoque);
                     }
 
                     return count > 0;
@@ -662,14 +681,13 @@ public class EstoqueDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
-
-        try (Connection conn = db.connect()) {
-            String query = String.format(
-                    "SELECT COUNT(*) FROM estoque WHERE nome_produto = '%s' AND id_usuario = '%s'",
-                    nomeProduto.replace("'", "''"),
-                    userId);
-            try (Rows rows = conn.query(query)) {
+
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement query = conn.prepare(
+                    "SELECT COUNT(*) FROM estoque WHERE nome_produto = ? AND id_usuario = ?")
+                    .bindText(1, nomeProduto)
+                    .bindText(2, userId);
+            try (Rows rows = query.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
@@ -690,7 +708,7 @@ public class EstoqueDAO {
      * @param callback Callback para retornar o resultado.
      */
     public static void verificarProdutoExistenteAsync(String nomeProduto, EstoqueCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -708,14 +726,13 @@ public class EstoqueDAO {
             }
 
             String userId = user.getUid();
-            Database db = DatabaseManager.getDatabase();
-
-            try (Connection conn = db.connect()) {
-                String query = String.format(
-                        "SELECT COUNT(*) FROM estoque WHERE nome_produto = '%s' AND id_usuario = '%s'",
-                        nomeProduto.replace("'", "''"),
-                        userId);
-                try (Rows rows = conn.query(query)) {
+
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                SqlStatement query = conn.prepare(
+                        "SELECT COUNT(*) FROM estoque WHERE nome_produto = ? AND id_usuario = ?")
+                        .bindText(1, nomeProduto)
+                        .bindText(2, userId);
+                try (Rows rows = query.query()) {
                     Object[] row = rows.nextRow();
                     if (row != null) {
                         int count = ((Number) row[0]).intValue();
@@ -742,7 +759,7 @@ public class EstoqueDAO {
      * @param callback Callback para retornar o resultado.
      */
     public static void atualizarQuantidadeAsync(int idEstoque, int novaQuantidade, EstoqueCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -760,21 +777,20 @@ public class EstoqueDAO {
             }
 
             String userId = user.getUid();
-            Database db = DatabaseManager.getDatabase();
-
-            try (Connection conn = db.connect()) {
-                String updateQuery = String.format(
-                        "UPDATE estoque SET quantidade = %d WHERE id_estoque = %d AND id_usuario = '%s'",
-                        novaQuantidade,
-                        idEstoque,
-                        userId);
-                conn.execute(updateQuery);
-
-                String checkQuery = String.format(
-                        "SELECT COUNT(*) FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                        idEstoque,
-                        userId);
-                try (Rows rows = conn.query(checkQuery)) {
+
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                SqlStatement updateQuery = conn.prepare(
+                        "UPDATE estoque SET quantidade = ? WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindInt(1, novaQuantidade)
+                        .bindInt(2, idEstoque)
+                        .bindText(3, userId);
+                updateQuery.execute();
+
+                SqlStatement checkQuery = conn.prepare(
+                        "SELECT COUNT(*) FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                        .bindInt(1, idEstoque)
+                        .bindText(2, userId);
+                try (Rows rows = checkQuery.query()) {
                     Object[] row = rows.nextRow();
                     if (row != null) {
                         int count = ((Number) row[0]).intValue();
@@ -782,7 +798,8 @@ public class EstoqueDAO {
 
                         // Notifica alteração nos dados
                         if (success) {
-                            DatabaseManager.notifyDataChanged();
+                            CatalogCache.setQuantidade(userId, idEstoque, novaQuantidade);
+                            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.ATUALIZACAO, idEstoque);
                         }
 
                         mainHandler.post(() -> callback.onResult(success, success,
@@ -819,14 +836,14 @@ public class EstoqueDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
 
-        try (Connection conn = db.connect()) {
-            String query = String.format(
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement query = conn.prepare(
                     "SELECT id_estoque, id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade " +
-                            "FROM estoque WHERE id_estoque = %d AND id_usuario = '%s'",
-                    idEstoque, userId);
-            try (Rows rows = conn.query(query)) {
+                            "FROM estoque WHERE id_estoque = ? AND id_usuario = ?")
+                    .bindInt(1, idEstoque)
+                    .bindText(2, userId);
+            try (Rows rows = query.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int id = ((Number) row[0]).intValue();
@@ -0,0 +1,772 @@
+package tech.turso.SyncroManage;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.Xml;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * Importação e exportação do estoque em massa, em CSV ou no formato XML Spreadsheet
+ * já usado pelos relatórios.
+ * <ul>
+ *     <li>O arquivo é lido em fluxo, uma linha por vez; nunca fica inteiro em memória.</li>
+ *     <li>As linhas são gravadas em blocos de {@value #TAMANHO_BLOCO}, cada bloco em uma
+ *     transação com dois comandos em conjunto: atualiza os produtos que já existem e
+ *     insere os novos, casando por (id_usuario, nome_produto) no índice
+ *     idx_estoque_usuario_nome. O índice não é único, por isso não há ON CONFLICT.</li>
+ *     <li>Linhas inválidas são relatadas com o número da linha e não interrompem a importação.</li>
+ *     <li>Células vazias mantêm o valor atual do produto (ou zero, para produtos novos).</li>
+ * </ul>
+ */
+public final class EstoqueImportExport {
+    private static final String TAG = "EstoqueImportExport";
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Linhas gravadas por transação
+    static final int TAMANHO_BLOCO = 500;
+    // Produtos lidos por consulta na exportação
+    private static final int PAGINA_EXPORTACAO = 1000;
+    // Erros guardados no resultado (os demais são apenas contados)
+    private static final int MAX_ERROS = 200;
+
+    private static final String[] TITULOS = {"nome_produto", "custo_unitario", "valor_unitario", "quantidade"};
+
+    private static final int COL_NOME = 0;
+    private static final int COL_CUSTO = 1;
+    private static final int COL_VALOR = 2;
+    private static final int COL_QUANTIDADE = 3;
+
+    public enum Formato {
+        CSV("estoque.csv", "text/csv"),
+        XML("estoque.xml", "application/vnd.ms-excel");
+
+        public final String arquivo;
+        public final String mimeType;
+
+        Formato(String arquivo, String mimeType) {
+            this.arquivo = arquivo;
+            this.mimeType = mimeType;
+        }
+    }
+
+    /**
+     * Progresso da importação, entregue na thread principal após cada bloco gravado
+     */
+    public interface ProgressoCallback {
+        void onProgresso(int linhasLidas, int produtosGravados);
+    }
+
+    /**
+     * Linha do arquivo que não pôde ser importada
+     */
+    public static final class ErroLinha {
+        public final int linha;
+        public final String mensagem;
+
+        ErroLinha(int linha, String mensagem) {
+            this.linha = linha;
+            this.mensagem = mensagem;
+        }
+
+        @Override
+        public String toString() {
+            return "Linha " + linha + ": " + mensagem;
+        }
+    }
+
+    /**
+     * Resultado de uma importação
+     */
+    public static final class Resultado {
+        public int linhasLidas = 0;
+        public int inseridos = 0;
+        public int atualizados = 0;
+        public int linhasComErro = 0;
+        public long duracaoMs = 0;
+        public final List<ErroLinha> erros = new ArrayList<>();
+
+        void erro(int linha, String mensagem) {
+            linhasComErro++;
+            if (erros.size() < MAX_ERROS) {
+                erros.add(new ErroLinha(linha, mensagem));
+            }
+        }
+
+        public String getResumo() {
+            return String.format(Locale.getDefault(),
+                    "%d linhas lidas: %d produtos novos, %d atualizados, %d linhas com erro (%d ms)",
+                    linhasLidas, inseridos, atualizados, linhasComErro, duracaoMs);
+        }
+    }
+
+    /**
+     * Linha válida do arquivo; valores null mantêm o valor atual do produto
+     */
+    private static final class Linha {
+        final String nome;
+        final Double custo;
+        final Double valor;
+        final Integer quantidade;
+
+        Linha(String nome, Double custo, Double valor, Integer quantidade) {
+            this.nome = nome;
+            this.custo = custo;
+            this.valor = valor;
+            this.quantidade = quantidade;
+        }
+
+        /**
+         * Junta uma linha repetida do mesmo produto na entrada de mercadoria: as
+         * quantidades são somadas e custo e valor ficam com os da linha mais recente
+         */
+        Linha somar(Linha seguinte) {
+            Integer soma = quantidade == null ? seguinte.quantidade
+                    : seguinte.quantidade == null ? quantidade
+                    : Integer.valueOf(quantidade + seguinte.quantidade);
+            return new Linha(nome,
+                    seguinte.custo != null ? seguinte.custo : custo,
+                    seguinte.valor != null ? seguinte.valor : valor,
+                    soma);
+        }
+    }
+
+    private EstoqueImportExport() {
+    }
+
+    // --- IMPORTAÇÃO ---
+
+    /**
+     * Importa produtos de um arquivo CSV (separado por ';' ou ',') ou XML Spreadsheet.
+     * O formato é detectado pelo conteúdo. A primeira linha pode trazer os nomes das
+     * colunas (nome, custo, valor, quantidade, em qualquer ordem); sem cabeçalho, as
+     * colunas são lidas nessa ordem.
+     *
+     * @param context Contexto usado para abrir o arquivo
+     * @param arquivo Arquivo escolhido pelo usuário
+     * @param somarQuantidade true para somar a quantidade do arquivo ao estoque atual
+     *                        (entrada de mercadoria); false para substituí-la
+     * @param progresso Progresso após cada bloco gravado (pode ser null)
+     * @param callback Resultado final; falha se nada pôde ser lido ou o banco recusou um bloco
+     */
+    public static void importarAsync(Context context, Uri arquivo, boolean somarQuantidade,
+                                     ProgressoCallback progresso, EstoqueDAO.EstoqueCallback<Resultado> callback) {
+        Context appContext = context.getApplicationContext();
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
+            Resultado resultado = new Resultado();
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                mainHandler.post(() -> callback.onResult(resultado, false, "Usuário não autenticado"));
+                return;
+            }
+            if (!DatabaseManager.isInitialized()) {
+                mainHandler.post(() -> callback.onResult(resultado, false, "DatabaseManager não inicializado"));
+                return;
+            }
+            if (DatabaseManager.shouldQueueWrites()) {
+                // Milhares de produtos não vão para a fila de escritas offline
+                mainHandler.post(() -> callback.onResult(resultado, false,
+                        "A importação em massa precisa de conexão com o servidor"));
+                return;
+            }
+
+            String userId = user.getUid();
+            long inicio = System.nanoTime();
+            boolean success = false;
+            String message;
+            try (InputStream entrada = appContext.getContentResolver().openInputStream(arquivo);
+                 ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                if (entrada == null) {
+                    throw new IOException("Arquivo não encontrado");
+                }
+                try (LeitorPlanilha leitor = abrirLeitor(entrada)) {
+                    importar(conn, userId, leitor, somarQuantidade, resultado, progresso);
+                }
+                success = true;
+                message = "";
+            } catch (Exception e) {
+                message = "Erro na importação: " + e.getMessage();
+                Log.e(TAG, message, e);
+            } finally {
+                resultado.duracaoMs = (System.nanoTime() - inicio) / 1000000;
+                if (resultado.inseridos + resultado.atualizados > 0) {
+                    // O catálogo em cache é relido na próxima listagem, em uma única consulta
+                    CatalogCache.invalidarEstoque(userId);
+                    DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE,
+                            resultado.inseridos > 0 ? DataChangeEvent.Operacao.INSERCAO : DataChangeEvent.Operacao.ATUALIZACAO);
+                }
+            }
+            if (success) {
+                message = resultado.getResumo();
+                Log.i(TAG, "Importação concluída: " + message);
+            }
+            final boolean finalSuccess = success;
+            final String finalMessage = message;
+            mainHandler.post(() -> callback.onResult(resultado, finalSuccess, finalMessage));
+        });
+    }
+
+    /**
+     * Lê todas as linhas e grava em blocos. Um erro do banco interrompe a importação;
+     * os blocos já confirmados permanecem gravados.
+     */
+    static void importar(ConnectionLease conn, String userId, LeitorPlanilha leitor, boolean somarQuantidade,
+                         Resultado resultado, ProgressoCallback progresso) throws IOException {
+        int[] colunas = null;
+        // Uma linha por nome no bloco: nomes repetidos no mesmo bloco não geram duplicatas.
+        // Ao substituir vale a última linha; ao somar, as quantidades das repetidas são somadas.
+        Map<String, Linha> bloco = new LinkedHashMap<>();
+        String[] celulas;
+        while ((celulas = leitor.proxima()) != null) {
+            if (vazia(celulas)) continue;
+            if (colunas == null) {
+                colunas = mapearCabecalho(celulas);
+                if (colunas != null) continue;
+                colunas = new int[]{0, 1, 2, 3};
+            }
+            resultado.linhasLidas++;
+            try {
+                Linha linha = lerLinha(celulas, colunas);
+                Linha anterior = somarQuantidade ? bloco.get(linha.nome) : null;
+                bloco.put(linha.nome, anterior != null ? anterior.somar(linha) : linha);
+            } catch (IllegalArgumentException e) {
+                resultado.erro(leitor.linhaAtual(), e.getMessage());
+            }
+            if (bloco.size() >= TAMANHO_BLOCO) {
+                gravarBloco(conn, userId, bloco, somarQuantidade, resultado);
+                notificarProgresso(progresso, resultado);
+            }
+        }
+        if (!bloco.isEmpty()) {
+            gravarBloco(conn, userId, bloco, somarQuantidade, resultado);
+            notificarProgresso(progresso, resultado);
+        }
+    }
+
+    private static void notificarProgresso(ProgressoCallback progresso, Resultado resultado) {
+        if (progresso == null) return;
+        int lidas = resultado.linhasLidas;
+        int gravados = resultado.inseridos + resultado.atualizados;
+        mainHandler.post(() -> progresso.onProgresso(lidas, gravados));
+    }
+
+    /**
+     * Grava um bloco em uma transação: UPDATE ... FROM dos produtos existentes e
+     * INSERT ... SELECT dos que ainda não existem, ambos sobre a mesma lista VALUES
+     */
+    private static void gravarBloco(ConnectionLease conn, String userId, Map<String, Linha> bloco,
+                                    boolean somarQuantidade, Resultado resultado) {
+        List<Linha> linhas = new ArrayList<>(bloco.values());
+        bloco.clear();
+
+        StringBuilder valores = new StringBuilder("WITH novos(nome, custo, valor, qtd) AS (VALUES ");
+        for (int i = 0; i < linhas.size(); i++) {
+            valores.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        valores.append(") ");
+
+        String update = valores +
+                "UPDATE estoque SET " +
+                "custo_unitario = COALESCE(novos.custo, estoque.custo_unitario), " +
+                "valor_unitario = COALESCE(novos.valor, estoque.valor_unitario), " +
+                (somarQuantidade
+                        ? "quantidade = estoque.quantidade + COALESCE(novos.qtd, 0) "
+                        : "quantidade = COALESCE(novos.qtd, estoque.quantidade) ") +
+                "FROM novos WHERE estoque.id_usuario = ? AND estoque.nome_produto = novos.nome";
+        String insert = valores +
+                "INSERT INTO estoque (id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade) " +
+                "SELECT ?, nome, COALESCE(custo, 0), COALESCE(valor, 0), COALESCE(qtd, 0) FROM novos " +
+                "WHERE NOT EXISTS (SELECT 1 FROM estoque e WHERE e.id_usuario = ? AND e.nome_produto = novos.nome)";
+
+        int posUsuario = linhas.size() * 4 + 1;
+        conn.execute("BEGIN TRANSACTION");
+        try {
+            bindLinhas(conn.prepare(update), linhas).bindText(posUsuario, userId).execute();
+            int atualizados = alteradas(conn);
+            bindLinhas(conn.prepare(insert), linhas)
+                    .bindText(posUsuario, userId)
+                    .bindText(posUsuario + 1, userId)
+                    .execute();
+            int inseridos = alteradas(conn);
+            conn.execute("COMMIT");
+            resultado.atualizados += atualizados;
+            resultado.inseridos += inseridos;
+        } catch (RuntimeException e) {
+            try { conn.execute("ROLLBACK"); } catch (Exception re) { Log.e(TAG, "Erro no rollback", re); }
+            throw e;
+        }
+    }
+
+    private static SqlStatement bindLinhas(SqlStatement statement, List<Linha> linhas) {
+        int p = 1;
+        for (Linha linha : linhas) {
+            statement.bindText(p++, linha.nome);
+            if (linha.custo != null) statement.bindDouble(p++, linha.custo); else statement.bindNull(p++);
+            if (linha.valor != null) statement.bindDouble(p++, linha.valor); else statement.bindNull(p++);
+            statement.bindInteger(p++, linha.quantidade);
+        }
+        return statement;
+    }
+
+    private static int alteradas(ConnectionLease conn) {
+        try (Rows rows = conn.query("SELECT changes()")) {
+            Object[] row = rows.nextRow();
+            return row != null ? ((Number) row[0]).intValue() : 0;
+        }
+    }
+
+    /**
+     * Posições das colunas a partir do cabeçalho
+     * @return Posições (nome, custo, valor, quantidade; -1 = ausente), ou null se a
+     *         linha não é um cabeçalho
+     */
+    private static int[] mapearCabecalho(String[] celulas) {
+        int[] colunas = {-1, -1, -1, -1};
+        for (int i = 0; i < celulas.length; i++) {
+            String nome = normalizar(celulas[i]);
+            int coluna;
+            switch (nome) {
+                case "nome": case "nomeproduto": case "produto": case "descricao": case "item":
+                    coluna = COL_NOME;
+                    break;
+                case "custo": case "custounitario": case "precocusto": case "valorcusto":
+                    coluna = COL_CUSTO;
+                    break;
+                case "valor": case "valorunitario": case "preco": case "precovenda": case "valorvenda":
+                    coluna = COL_VALOR;
+                    break;
+                case "quantidade": case "qtd": case "qtde": case "estoque":
+                    coluna = COL_QUANTIDADE;
+                    break;
+                default:
+                    continue;
+            }
+            if (colunas[coluna] < 0) {
+                colunas[coluna] = i;
+            }
+        }
+        return colunas[COL_NOME] >= 0 ? colunas : null;
+    }
+
+    private static Linha lerLinha(String[] celulas, int[] colunas) {
+        String nome = celula(celulas, colunas[COL_NOME]);
+        if (nome == null) {
+            throw new IllegalArgumentException("Nome do produto vazio");
+        }
+        Double custo = lerNumero(celula(celulas, colunas[COL_CUSTO]), "custo");
+        Double valor = lerNumero(celula(celulas, colunas[COL_VALOR]), "valor");
+        Double quantidade = lerNumero(celula(celulas, colunas[COL_QUANTIDADE]), "quantidade");
+        if (quantidade != null && quantidade != Math.rint(quantidade)) {
+            throw new IllegalArgumentException("Quantidade deve ser um número inteiro: " + quantidade);
+        }
+        return new Linha(nome, custo, valor, quantidade != null ? quantidade.intValue() : null);
+    }
+
+    private static String celula(String[] celulas, int posicao) {
+        if (posicao < 0 || posicao >= celulas.length || celulas[posicao] == null) return null;
+        String valor = celulas[posicao].trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    /**
+     * Número em formato brasileiro (1.234,56) ou internacional (1234.56), com ou sem "R$"
+     */
+    static Double lerNumero(String texto, String coluna) {
+        if (texto == null) return null;
+        String s = texto.replace("R$", "").replace("\u00A0", "").replace(" ", "");
+        if (s.isEmpty()) return null;
+        int virgula = s.lastIndexOf(',');
+        int ponto = s.lastIndexOf('.');
+        if (virgula >= 0 && ponto >= 0) {
+            // O último separador é o decimal
+            s = virgula > ponto ? s.replace(".", "").replace(',', '.') : s.replace(",", "");
+        } else if (virgula >= 0) {
+            s = s.replace(',', '.');
+        }
+        double valor;
+        try {
+            valor = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido em " + coluna + ": '" + texto + "'");
+        }
+        if (valor < 0 || Double.isNaN(valor) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("Valor inválido em " + coluna + ": '" + texto + "'");
+        }
+        return valor;
+    }
+
+    private static boolean vazia(String[] celulas) {
+        for (String celula : celulas) {
+            if (celula != null && !celula.trim().isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private static String normalizar(String texto) {
+        if (texto == null) return "";
+        String semAcento = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return semAcento.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    // --- LEITURA DOS ARQUIVOS ---
+
+    /**
+     * Fonte de linhas de uma planilha, lida em fluxo
+     */
+    interface LeitorPlanilha extends Closeable {
+        /**
+         * Próxima linha como textos das células
+         * @return Células, ou null no fim do arquivo
+         */
+        String[] proxima() throws IOException;
+
+        /**
+         * Número (a partir de 1) da linha do arquivo em que começa a última linha lida
+         */
+        int linhaAtual();
+    }
+
+    /**
+     * Detecta o formato pelo primeiro caractere significativo: '&lt;' indica XML
+     */
+    static LeitorPlanilha abrirLeitor(InputStream entrada) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(entrada, 64 * 1024);
+        in.mark(64);
+        int c;
+        do {
+            c = in.read();
+        } while (c == 0xEF || c == 0xBB || c == 0xBF || (c >= 0 && Character.isWhitespace(c)));
+        in.reset();
+        if (c == '<') {
+            return new LeitorXml(in);
+        }
+        return new LeitorCsv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024));
+    }
+
+    /**
+     * CSV com aspas (RFC 4180), separador ';' ou ',' detectado pela primeira linha
+     */
+    static final class LeitorCsv implements LeitorPlanilha {
+        private final BufferedReader in;
+        private char separador = 0;
+        private int linha = 0;
+        private int inicioUltima = 0;
+
+        LeitorCsv(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public String[] proxima() throws IOException {
+            if (separador == 0) {
+                separador = detectarSeparador();
+            }
+            List<String> campos = new ArrayList<>();
+            StringBuilder atual = new StringBuilder();
+            boolean aspas = false;
+            boolean lido = false;
+            inicioUltima = linha + 1;
+            int c;
+            while ((c = in.read()) != -1) {
+                lido = true;
+                if (c == '\uFEFF' && linha == 0 && atual.length() == 0 && campos.isEmpty()) {
+                    continue;
+                }
+                if (aspas) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int seguinte = in.read();
+                        if (seguinte == '"') {
+                            atual.append('"');
+                        } else {
+                            aspas = false;
+                            if (seguinte != -1) in.reset();
+                        }
+                    } else {
+                        if (c == '\n') linha++;
+                        atual.append((char) c);
+                    }
+                } else if (c == '"') {
+                    aspas = true;
+                } else if (c == separador) {
+                    campos.add(atual.toString());
+                    atual.setLength(0);
+                } else if (c == '\n') {
+                    linha++;
+                    campos.add(atual.toString());
+                    return campos.toArray(new String[0]);
+                } else if (c != '\r') {
+                    atual.append((char) c);
+                }
+            }
+            if (!lido) {
+                return null;
+            }
+            linha++;
+            campos.add(atual.toString());
+            return campos.toArray(new String[0]);
+        }
+
+        private char detectarSeparador() throws IOException {
+            in.mark(64 * 1024);
+            String primeira = in.readLine();
+            in.reset();
+            if (primeira == null) return ';';
+            int pontoEVirgula = 0;
+            int virgulas = 0;
+            boolean aspas = false;
+            for (int i = 0; i < primeira.length(); i++) {
+                char c = primeira.charAt(i);
+                if (c == '"') aspas = !aspas;
+                else if (!aspas && c == ';') pontoEVirgula++;
+                else if (!aspas && c == ',') virgulas++;
+            }
+            return virgulas > pontoEVirgula ? ',' : ';';
+        }
+
+        @Override
+        public int linhaAtual() {
+            return inicioUltima;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Primeira planilha de um arquivo XML Spreadsheet (Row/Cell/Data), lida com XmlPullParser
+     */
+    static final class LeitorXml implements LeitorPlanilha {
+        private final InputStream in;
+        private final XmlPullParser parser;
+        private boolean fim = false;
+        private int linha = 0;
+
+        LeitorXml(InputStream in) throws IOException {
+            this.in = in;
+            this.parser = Xml.newPullParser();
+            try {
+                parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+                parser.setInput(in, null);
+            } catch (XmlPullParserException e) {
+                throw new IOException("Planilha XML inválida: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String[] proxima() throws IOException {
+            if (fim) return null;
+            try {
+                int evento;
+                while ((evento = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                    if (evento == XmlPullParser.START_TAG && "Row".equals(local(parser.getName()))) {
+                        linha = parser.getLineNumber();
+                        return lerRow();
+                    }
+                    if (evento == XmlPullParser.END_TAG && "Worksheet".equals(local(parser.getName()))) {
+                        break;
+                    }
+                }
+                fim = true;
+                return null;
+            } catch (XmlPullParserException e) {
+                throw new IOException("Planilha XML inválida na linha " + parser.getLineNumber() + ": " + e.getMessage(), e);
+            }
+        }
+
+        private String[] lerRow() throws XmlPullParserException, IOException {
+            List<String> celulas = new ArrayList<>();
+            int evento;
+            while ((evento = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                String nome = local(parser.getName());
+                if (evento == XmlPullParser.END_TAG && "Row".equals(nome)) {
+                    break;
+                }
+                if (evento == XmlPullParser.START_TAG && "Cell".equals(nome)) {
+                    // ss:Index pula células vazias omitidas pelo Excel (índice a partir de 1)
+                    String indice = atributo("Index");
+                    if (indice != null) {
+                        int posicao = Integer.parseInt(indice.trim()) - 1;
+                        while (celulas.size() < posicao) celulas.add(null);
+                    }
+                    celulas.add(null);
+                } else if (evento == XmlPullParser.START_TAG && "Data".equals(nome) && !celulas.isEmpty()) {
+                    celulas.set(celulas.size() - 1, parser.nextText());
+                }
+            }
+            return celulas.toArray(new String[0]);
+        }
+
+        private String atributo(String nomeLocal) {
+            for (int i = 0; i < parser.getAttributeCount(); i++) {
+                if (nomeLocal.equals(local(parser.getAttributeName(i)))) {
+                    return parser.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        private static String local(String nome) {
+            if (nome == null) return null;
+            int dois = nome.indexOf(':');
+            return dois >= 0 ? nome.substring(dois + 1) : nome;
+        }
+
+        @Override
+        public int linhaAtual() {
+            return linha;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // --- EXPORTAÇÃO ---
+
+    /**
+     * Exporta o estoque do usuário, ordenado por nome, em páginas lidas pelo índice
+     * (id_usuario, nome_produto) e gravadas direto no arquivo
+     *
+     * @param context Contexto da aplicação
+     * @param formato CSV (separador ';' e vírgula decimal, como o Excel em português) ou XML Spreadsheet
+     * @param callback Arquivo gerado em getExternalFilesDir
+     */
+    public static void exportarAsync(Context context, Formato formato, EstoqueDAO.EstoqueCallback<File> callback) {
+        File destino = new File(context.getExternalFilesDir(null), formato.arquivo);
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.EXPORTACAO, () -> {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                mainHandler.post(() -> callback.onResult(null, false, "Usuário não autenticado"));
+                return;
+            }
+            if (!DatabaseManager.isInitialized()) {
+                mainHandler.post(() -> callback.onResult(null, false, "DatabaseManager não inicializado"));
+                return;
+            }
+
+            long inicio = System.nanoTime();
+            try (ConnectionLease conn = DatabaseManager.leaseConnection();
+                 Writer out = formato == Formato.CSV
+                         ? new BufferedWriter(new OutputStreamWriter(
+                                 new FileOutputStream(destino), StandardCharsets.UTF_8), 64 * 1024)
+                         : RelatorioDAO.abrirPlanilha(destino, "Estoque", TITULOS)) {
+                int total = exportar(conn, user.getUid(), formato, out);
+                String message = total + " produtos exportados em " + (System.nanoTime() - inicio) / 1000000 + " ms";
+                Log.i(TAG, message);
+                mainHandler.post(() -> callback.onResult(destino, true, message));
+            } catch (Exception e) {
+                String errorMsg = "Erro ao exportar estoque: " + e.getMessage();
+                Log.e(TAG, errorMsg, e);
+                mainHandler.post(() -> callback.onResult(null, false, errorMsg));
+            }
+        });
+    }
+
+    /**
+     * Grava o estoque do usuário no formato pedido. No formato XML o início da
+     * planilha já foi escrito por {@link RelatorioDAO#abrirPlanilha}.
+     * @return Número de produtos exportados
+     */
+    static int exportar(ConnectionLease conn, String userId, Formato formato, Writer out) throws IOException {
+        if (formato == Formato.CSV) {
+            out.write('\uFEFF'); // BOM: o Excel reconhece o arquivo como UTF-8
+            out.write(String.join(";", TITULOS));
+            out.write("\r\n");
+        }
+
+        int total = 0;
+        String ultimoNome = null;
+        int ultimoId = 0;
+        while (true) {
+            SqlStatement pagina = ultimoNome == null
+                    ? conn.prepare("SELECT id_estoque, nome_produto, custo_unitario, valor_unitario, quantidade " +
+                            "FROM estoque WHERE id_usuario = ? ORDER BY nome_produto, id_estoque LIMIT ?")
+                    .bindText(1, userId)
+                    .bindInt(2, PAGINA_EXPORTACAO)
+                    : conn.prepare("SELECT id_estoque, nome_produto, custo_unitario, valor_unitario, quantidade " +
+                            "FROM estoque WHERE id_usuario = ? " +
+                            "AND (nome_produto > ? OR (nome_produto = ? AND id_estoque > ?)) " +
+                            "ORDER BY nome_produto, id_estoque LIMIT ?")
+                    .bindText(1, userId)
+                    .bindText(2, ultimoNome)
+                    .bindText(3, ultimoNome)
+                    .bindInt(4, ultimoId)
+                    .bindInt(5, PAGINA_EXPORTACAO);
+            int lidos = 0;
+            try (Rows rows = pagina.query()) {
+                Object[] row;
+                while ((row = rows.nextRow()) != null) {
+                    lidos++;
+                    ultimoId = ((Number) row[0]).intValue();
+                    ultimoNome = (String) row[1];
+                    double custo = ((Number) row[2]).doubleValue();
+                    double valor = ((Number) row[3]).doubleValue();
+                    int quantidade = ((Number) row[4]).intValue();
+                    if (formato == Formato.CSV) {
+                        out.write(csv(ultimoNome));
+                        out.write(';');
+                        out.write(RelatorioDAO.formatarNumero(custo).replace('.', ','));
+                        out.write(';');
+                        out.write(RelatorioDAO.formatarNumero(valor).replace('.', ','));
+                        out.write(';');
+                        out.write(Integer.toString(quantidade));
+                        out.write("\r\n");
+                    } else {
+                        out.write("<Row>");
+                        RelatorioDAO.celulaTexto(out, ultimoNome);
+                        RelatorioDAO.celulaNumero(out, custo);
+                        RelatorioDAO.celulaNumero(out, valor);
+                        RelatorioDAO.celulaNumero(out, quantidade);
+                        out.write("</Row>\n");
+                    }
+                }
+            }
+            total += lidos;
+            if (lidos < PAGINA_EXPORTACAO) break;
+        }
+
+        if (formato == Formato.XML) {
+            RelatorioDAO.fecharPlanilha(out);
+        }
+        return total;
+    }
+
+    private static String csv(String texto) {
+        if (texto.indexOf(';') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
@@ -65,9 +65,13 @@ public class FormVendaActivity extends BaseActivity {
     private AutoCompleteTextView actvMetodoPagamento;
     private TextView tvValorTotalVenda;
 
-    private MaterialButton btnSalvarVenda, btnCancelarVenda;
+    private MaterialButton btnSalvarVenda, btnCancelarVenda, btnAdicionarCarrinho;
+    private TextView tvItensCarrinho;
     private View progressBarFormVenda;
 
+    // Itens já adicionados ao pedido (carrinho); registrados juntos ao salvar
+    private final List<Venda> itensCarrinho = new ArrayList<>();
+
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
     private final Handler handler = new Handler(Looper.getMainLooper());
     private final NumberFormat formatoMoeda = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
@@ -152,10 +156,14 @@ public class FormVendaActivity extends BaseActivity {
 
         btnSalvarVenda = findViewById(R.id.btn_salvar_venda);
         btnCancelarVenda = findViewById(R.id.btn_cancelar_venda);
+        btnAdicionarCarrinho = findViewById(R.id.btn_adicionar_carrinho);
+        tvItensCarrinho = findViewById(R.id.tv_itens_carrinho);
         progressBarFormVenda = findViewById(R.id.progress_bar_form_venda);
     }
 
     private void setupInitialVisibility() {
+        // A edição altera uma única venda; o carrinho é só para vendas novas
+        btnAdicionarCarrinho.setVisibility(isEditMode ? View.GONE : View.VISIBLE);
         if (isEditMode && vendaParaEditar != null) {
             if ("produto".equals(vendaParaEditar.getTipo_item())) {
                 alternarVisibilidadeCampos("produto");
@@ -222,6 +230,7 @@ public class FormVendaActivity extends BaseActivity {
         etDataHoraVenda.setOnClickListener(v -> mostrarDateTimePicker());
 
         btnSalvarVenda.setOnClickListener(v -> salvarVenda());
+        btnAdicionarCarrinho.setOnClickListener(v -> adicionarAoCarrinho());
         btnCancelarVenda.setOnClickListener(v -> {
             setResult(RESULT_CANCELED);
             finish();
@@ -375,10 +384,64 @@ public class FormVendaActivity extends BaseActivity {
             valor = 0;
             qtd = 0;
         }
-        tvValorTotalVenda.setText(formatoMoeda.format(valor * qtd));
+        double totalCarrinho = 0;
+        for (Venda item : itensCarrinho) {
+            totalCarrinho += item.getValor_total_venda();
+        }
+        tvValorTotalVenda.setText(formatoMoeda.format(totalCarrinho + valor * qtd));
     }
 
-    private void salvarVenda() {
+    /**
+     * Adiciona o item preenchido ao carrinho e limpa os campos para o próximo
+     */
+    private void adicionarAoCarrinho() {
+        Venda item = montarItemDoFormulario();
+        if (item == null) return;
+        itensCarrinho.add(item);
+        limparCamposItemEspecifico();
+        atualizarCarrinho();
+        calcularValorTotal();
+    }
+
+    private void atualizarCarrinho() {
+        if (itensCarrinho.isEmpty()) {
+            tvItensCarrinho.setVisibility(View.GONE);
+            btnSalvarVenda.setText("Salvar Venda");
+            return;
+        }
+        StringBuilder texto = new StringBuilder("Carrinho:");
+        for (Venda item : itensCarrinho) {
+            texto.append("\n").append(item.getQuantidade()).append("x ").append(item.getNome_item_vendido())
+                    .append(" - ").append(formatoMoeda.format(item.getValor_total_venda()));
+        }
+        tvItensCarrinho.setText(texto);
+        tvItensCarrinho.setVisibility(View.VISIBLE);
+        btnSalvarVenda.setText("Finalizar Pedido");
+    }
+
+    /**
+     * Quantidade de um produto já reservada pelos itens do carrinho
+     */
+    private int quantidadeNoCarrinho(String nomeProduto) {
+        int total = 0;
+        for (Venda item : itensCarrinho) {
+            if ("produto".equals(item.getTipo_item()) && item.getNome_item_vendido().equals(nomeProduto)) {
+                total += item.getQuantidade();
+            }
+        }
+        return total;
+    }
+
+    private boolean itemPreenchido() {
+        return radioProduto.isChecked() ? produtoSelecionado != null : servicoSelecionado != null;
+    }
+
+    /**
+     * Monta a venda do item preenchido no formulário; data e forma de pagamento
+     * são do pedido e preenchidas ao salvar
+     * @return Venda, ou null se o item estiver incompleto (o motivo é exibido)
+     */
+    private Venda montarItemDoFormulario() {
         String tipoItem;
         String nomeItemVendido;
         double valorUnitarioVendido;
@@ -389,53 +452,75 @@ public class FormVendaActivity extends BaseActivity {
             tipoItem = "produto";
             if (produtoSelecionado == null || actvProduto.getText().toString().isEmpty()) {
                 Toast.makeText(this, "Selecione um produto", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
             nomeItemVendido = produtoSelecionado.getNome_produto();
             valorUnitarioVendido = produtoSelecionado.getValor_unitario();
             if (etQuantidadeProduto.getText().toString().isEmpty()) {
                 Toast.makeText(this, "Informe a quantidade", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
             try {
                 quantidadeVendida = Integer.parseInt(etQuantidadeProduto.getText().toString());
                 if (quantidadeVendida <= 0) {
                     Toast.makeText(this, "A quantidade deve ser maior que zero", Toast.LENGTH_SHORT).show();
-                    return;
+                    return null;
                 }
-                if (quantidadeVendida > produtoSelecionado.getQuantidade()) {
+                if (quantidadeVendida + quantidadeNoCarrinho(nomeItemVendido) > produtoSelecionado.getQuantidade()) {
                     Toast.makeText(this, "Quantidade indisponível em estoque", Toast.LENGTH_SHORT).show();
-                    return;
+                    return null;
                 }
             } catch (NumberFormatException e) {
                 Toast.makeText(this, "Quantidade inválida", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
         } else {
             tipoItem = "servico";
             if (servicoSelecionado == null || actvServico.getText().toString().isEmpty()) {
                 Toast.makeText(this, "Selecione um serviço", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
             nomeItemVendido = servicoSelecionado.getNome();
             idServicoVendido = servicoSelecionado.getId_servico();
             valorUnitarioVendido = servicoSelecionado.getValor_unitario();
             if (etQuantidadeServico.getText().toString().isEmpty()) {
                 Toast.makeText(this, "Informe a quantidade", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
             try {
                 quantidadeVendida = Integer.parseInt(etQuantidadeServico.getText().toString());
                 if (quantidadeVendida <= 0) {
                     Toast.makeText(this, "A quantidade deve ser maior que zero", Toast.LENGTH_SHORT).show();
-                    return;
+                    return null;
                 }
             } catch (NumberFormatException e) {
                 Toast.makeText(this, "Quantidade inválida", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
         }
 
+        return new Venda(
+                0, // ID será gerado pelo banco
+                "", // ID do usuário será preenchido pelo DAO
+                tipoItem,
+                idServicoVendido,
+                nomeItemVendido,
+                valorUnitarioVendido,
+                quantidadeVendida,
+                valorUnitarioVendido * quantidadeVendida,
+                null,
+                null
+        );
+    }
+
+    private void salvarVenda() {
+        // Com itens no carrinho, o item do formulário só entra no pedido se estiver preenchido
+        Venda item = null;
+        if (isEditMode || itensCarrinho.isEmpty() || itemPreenchido()) {
+            item = montarItemDoFormulario();
+            if (item == null) return;
+        }
+
         if (etDataHoraVenda.getText().toString().isEmpty()) {
             Toast.makeText(this, "Informe a data e hora da venda", Toast.LENGTH_SHORT).show();
             return;
@@ -459,32 +544,15 @@ public class FormVendaActivity extends BaseActivity {
         }
         String metodoPagamento = actvMetodoPagamento.getText().toString();
 
-        double valorTotalVenda = valorUnitarioVendido * quantidadeVendida;
-
-        Venda venda;
         if (isEditMode) {
-            venda = vendaParaEditar;
-            venda.setTipo_item(tipoItem);
-            venda.setId_servico_vendido(idServicoVendido);
-            venda.setNome_item_vendido(nomeItemVendido);
-            venda.setValor_unitario_vendido(valorUnitarioVendido);
-            venda.setQuantidade(quantidadeVendida);
-            venda.setValor_total_venda(valorTotalVenda);
-            venda.setData_hora_venda(dataHoraVenda);
-            venda.setMetodo_pagamento(metodoPagamento);
-        } else {
-            venda = new Venda(
-                    0, // ID será gerado pelo banco
-                    "", // ID do usuário será preenchido pelo DAO
-                    tipoItem,
-                    idServicoVendido,
-                    nomeItemVendido,
-                    valorUnitarioVendido,
-                    quantidadeVendida,
-                    valorTotalVenda,
-                    dataHoraVenda,
-                    metodoPagamento
-            );
+            vendaParaEditar.setTipo_item(item.getTipo_item());
+            vendaParaEditar.setId_servico_vendido(item.getId_servico_vendido());
+            vendaParaEditar.setNome_item_vendido(item.getNome_item_vendido());
+            vendaParaEditar.setValor_unitario_vendido(item.getValor_unitario_vendido());
+            vendaParaEditar.setQuantidade(item.getQuantidade());
+            vendaParaEditar.setValor_total_venda(item.getValor_total_venda());
+            vendaParaEditar.setData_hora_venda(dataHoraVenda);
+            vendaParaEditar.setMetodo_pagamento(metodoPagamento);
         }
 
         progressBarFormVenda.setVisibility(View.VISIBLE);
@@ -493,7 +561,7 @@ public class FormVendaActivity extends BaseActivity {
 
         // Usando os métodos assíncronos do VendaDAO com callbacks
         if (isEditMode) {
-            VendaDAO.atualizarVendaAsync(venda, new VendaDAO.VendaCallback<Boolean>() {
+            VendaDAO.atualizarVendaAsync(vendaParaEditar, new VendaDAO.VendaCallback<Boolean>() {
                 @Override
                 public void onResult(Boolean result, boolean success, String message) {
                     handler.post(() -> {
@@ -518,18 +586,26 @@ public class FormVendaActivity extends BaseActivity {
                 }
             });
         } else {
-            VendaDAO.inserirVendaAsync(venda, new VendaDAO.VendaCallback<Boolean>() {
+            // Todos os itens em uma única transação, com uma única atualização das telas
+            VendaDAO.Pedido pedido = new VendaDAO.Pedido(dataHoraVenda, metodoPagamento);
+            for (Venda itemCarrinho : itensCarrinho) {
+                pedido.adicionar(itemCarrinho);
+            }
+            if (item != null) {
+                pedido.adicionar(item);
+            }
+            VendaDAO.inserirPedidoAsync(pedido, new VendaDAO.VendaCallback<VendaDAO.Pedido>() {
                 @Override
-                public void onResult(Boolean result, boolean success, String message) {
+                public void onResult(VendaDAO.Pedido result, boolean success, String message) {
                     handler.post(() -> {
                         progressBarFormVenda.setVisibility(View.GONE);
                         btnSalvarVenda.setEnabled(true);
                         btnCancelarVenda.setEnabled(true);
 
-                        if (success && result != null && result) {
-                            Log.d(TAG, "Venda inserida com sucesso: " + message);
+                        if (success) {
+                            Log.d(TAG, "Pedido inserido com sucesso: " + message);
                             Toast.makeText(FormVendaActivity.this,
-                                    "Venda salva com sucesso!",
+                                    result.itens.size() > 1 ? "Pedido salvo com sucesso!" : "Venda salva com sucesso!",
                                     Toast.LENGTH_SHORT).show();
                             setResult(RESULT_OK);
                             finish();
@@ -195,7 +195,7 @@ public class Home extends BaseActivity implements DatabaseManager.DataChangeList
                     retryCount = 0;
 
                     // Registra o listener após inicialização bem-sucedida
-                    DatabaseManager.addDataChangeListener(this);
+                    DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS, DataChangeEvent.Tabela.ESTOQUE);
 
                     carregarDados();
                 } else {
@@ -225,7 +225,7 @@ public class Home extends BaseActivity implements DatabaseManager.DataChangeList
             Log.d(TAG, "Banco já inicializado, carregando dados");
 
             // Registra o listener se o banco já estiver inicializado
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS, DataChangeEvent.Tabela.ESTOQUE);
 
             carregarDados();
         }
@@ -237,7 +237,7 @@ public class Home extends BaseActivity implements DatabaseManager.DataChangeList
             Log.i(TAG, "Banco de dados inicializado com sucesso");
 
             // Registra o listener após inicialização bem-sucedida
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS, DataChangeEvent.Tabela.ESTOQUE);
 
             carregarDados();
         } else {
@@ -295,9 +295,15 @@ public class Home extends BaseActivity implements DatabaseManager.DataChangeList
 
     // Implementação do método da interface DataChangeListener
     @Override
-    public void onDataChanged() {
-        Log.d(TAG, "Notificação de alteração de dados recebida, recarregando dados da Home");
-        carregarDados();
+    public void onDataChanged(DataChangeEvent evento) {
+        Log.d(TAG, "Alteração de dados recebida (" + evento + ")");
+        if (evento.afeta(DataChangeEvent.Tabela.VENDAS)) {
+            // Vendas mudam o resumo, os itens em alta e (pela baixa) o estoque
+            carregarDados();
+        } else {
+            // Apenas o estoque mudou: recarrega só a lista de estoque baixo
+            carregarProdutosEstoqueBaixo();
+        }
     }
 
     private void carregarDados() {
@@ -359,6 +365,9 @@ public class Home extends BaseActivity implements DatabaseManager.DataChangeList
                 // Concluir carregamento
                 textoResultado.setVisibility(View.GONE);
                 mostrarLoading(false);
+
+                // Fim da abertura do aplicativo (ignorado fora dela)
+                StartupMetrics.marcarInterativo(Home.this);
             }
         });
     }
@@ -407,7 +416,7 @@ public class Home extends BaseActivity implements DatabaseManager.DataChangeList
 
         // Registra o listener ao retornar à tela
         if (DatabaseManager.isInitialized()) {
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS, DataChangeEvent.Tabela.ESTOQUE);
             carregarDados();
         } else {
             verificarAutenticacaoEInicializarBanco();
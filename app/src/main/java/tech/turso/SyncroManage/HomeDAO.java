@@ -5,8 +5,6 @@ import android.util.Log;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import tech.turso.libsql.Connection;
-import tech.turso.libsql.Database;
 import tech.turso.libsql.Rows;
 
 import java.text.SimpleDateFormat;
@@ -75,8 +73,28 @@ public class HomeDAO {
         void onResult(T data, boolean success, String message);
     }
 
+    // Totais do dia e do mês a partir do resumo diário (uma linha por dia, tipo e método de pagamento)
+    private static final String RESUMO_HOJE =
+            "SELECT SUM(total_vendas) as total_vendas, SUM(receita) as receita " +
+                    "FROM vendas_diarias WHERE id_usuario = ? AND dia = ?";
+    private static final String RESUMO_MES =
+            "SELECT SUM(total_vendas) as total_vendas, SUM(receita) as receita " +
+                    "FROM vendas_diarias WHERE id_usuario = ? AND dia >= ?";
+
+    // Mesmos totais direto das vendas, pelo índice (id_usuario, data_hora_venda)
+    private static final String VENDAS_HOJE =
+            "SELECT COUNT(*) as total_vendas, SUM(valor_total_venda) as receita FROM vendas " +
+                    "WHERE id_usuario = ? AND data_hora_venda >= ? AND data_hora_venda < date(?, '+1 day')";
+    private static final String VENDAS_MES =
+            "SELECT COUNT(*) as total_vendas, SUM(valor_total_venda) as receita FROM vendas " +
+                    "WHERE id_usuario = ? AND data_hora_venda >= ?";
+
     /**
-     * Obtém o resumo financeiro: vendas do dia e do mês
+     * Obtém o resumo financeiro: vendas do dia e do mês.
+     * Lê a tabela de resumo diário (vendas_diarias), somando uma linha por dia,
+     * tipo e método de pagamento em vez de percorrer todas as vendas do período.
+     * Enquanto o resumo não existe ou o preenchimento da migração não terminou,
+     * soma as vendas do período diretamente.
      */
     public static void getResumoFinanceiro(HomeDataCallback<ResumoFinanceiro> callback) {
         try {
@@ -87,25 +105,32 @@ public class HomeDAO {
             }
 
             String userId = currentUser.getUid();
-            Database db = DatabaseManager.getDatabase();
 
-            // Executa em uma thread separada
-            new Thread(() -> {
-                try (Connection conn = db.connect()) {
+            // Executa no executor compartilhado de banco de dados
+            DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
+                try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
                     // Data de hoje e primeiro dia do mês para filtros
                     String dataHoje = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
                     Calendar cal = Calendar.getInstance();
                     cal.set(Calendar.DAY_OF_MONTH, 1);
                     String primeiroDiaMes = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(cal.getTime());
 
-                    // Consultar vendas de hoje - Concatenação direta dos parâmetros na string SQL
-                    String queryHoje = "SELECT COUNT(*) as total_vendas, SUM(valor_total_venda) as receita " +
-                            "FROM vendas WHERE id_usuario = '" + userId + "' AND date(data_hora_venda) = '" + dataHoje + "'";
+                    boolean usarResumo = VendasDiariasDAO.disponivel(conn);
+
+                    // Consultar vendas de hoje
+                    SqlStatement queryHoje = usarResumo
+                            ? conn.prepare(RESUMO_HOJE)
+                                    .bindText(1, userId)
+                                    .bindText(2, dataHoje)
+                            : conn.prepare(VENDAS_HOJE)
+                                    .bindText(1, userId)
+                                    .bindText(2, dataHoje)
+                                    .bindText(3, dataHoje);
 
                     double vendasHoje = 0;
                     double receitaHoje = 0;
 
-                    try (Rows rowsHoje = conn.query(queryHoje)) {
+                    try (Rows rowsHoje = queryHoje.query()) {
                         Object[] row = rowsHoje.nextRow();
                         if (row != null) {
                             vendasHoje = row[0] != null ? Double.parseDouble(row[0].toString()) : 0;
@@ -113,14 +138,15 @@ public class HomeDAO {
                         }
                     }
 
-                    // Consultar vendas do mês - Concatenação direta dos parâmetros na string SQL
-                    String queryMes = "SELECT COUNT(*) as total_vendas, SUM(valor_total_venda) as receita " +
-                            "FROM vendas WHERE id_usuario = '" + userId + "' AND date(data_hora_venda) >= '" + primeiroDiaMes + "'";
+                    // Consultar vendas do mês
+                    SqlStatement queryMes = conn.prepare(usarResumo ? RESUMO_MES : VENDAS_MES)
+                            .bindText(1, userId)
+                            .bindText(2, primeiroDiaMes);
 
                     double vendasMes = 0;
                     double receitaMes = 0;
 
-                    try (Rows rowsMes = conn.query(queryMes)) {
+                    try (Rows rowsMes = queryMes.query()) {
                         Object[] row = rowsMes.nextRow();
                         if (row != null) {
                             vendasMes = row[0] != null ? Double.parseDouble(row[0].toString()) : 0;
@@ -139,7 +165,7 @@ public class HomeDAO {
                     android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
                     mainHandler.post(() -> callback.onResult(new ResumoFinanceiro(0, 0, 0, 0), false, e.getMessage()));
                 }
-            }).start();
+            });
 
         } catch (Exception e) {
             Log.e(TAG, "Erro ao preparar query de resumo financeiro", e);
@@ -159,26 +185,27 @@ public class HomeDAO {
             }
 
             String userId = currentUser.getUid();
-            Database db = DatabaseManager.getDatabase();
 
-            // Executa em uma thread separada
-            new Thread(() -> {
-                try (Connection conn = db.connect()) {
+            // Executa no executor compartilhado de banco de dados
+            DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
+                try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
                     // Consulta os 5 produtos mais vendidos nos últimos 30 dias
                     Calendar cal = Calendar.getInstance();
                     cal.add(Calendar.DAY_OF_MONTH, -30);
                     String data30DiasAtras = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(cal.getTime());
 
-                    // Concatenação direta dos parâmetros na string SQL
-                    String query = "SELECT nome_item_vendido, tipo_item, SUM(quantidade) as qtd_total, " +
-                            "SUM(valor_total_venda) as valor_total FROM vendas " +
-                            "WHERE id_usuario = '" + userId + "' AND data_hora_venda >= '" + data30DiasAtras + "' " +
-                            "GROUP BY nome_item_vendido, tipo_item " +
-                            "ORDER BY qtd_total DESC LIMIT 5";
+                    SqlStatement query = conn.prepare(
+                            "SELECT nome_item_vendido, tipo_item, SUM(quantidade) as qtd_total, " +
+                                    "SUM(valor_total_venda) as valor_total FROM vendas " +
+                                    "WHERE id_usuario = ? AND data_hora_venda >= ? " +
+                                    "GROUP BY nome_item_vendido, tipo_item " +
+                                    "ORDER BY qtd_total DESC LIMIT 5")
+                            .bindText(1, userId)
+                            .bindText(2, data30DiasAtras);
 
                     List<ItemEmAlta> itensEmAlta = new ArrayList<>();
 
-                    try (Rows rows = conn.query(query)) {
+                    try (Rows rows = query.query()) {
                         Object[] row;
                         while ((row = rows.nextRow()) != null) {
                             String nome = row[0] != null ? row[0].toString() : "";
@@ -200,7 +227,7 @@ public class HomeDAO {
                     android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
                     mainHandler.post(() -> callback.onResult(new ArrayList<>(), false, e.getMessage()));
                 }
-            }).start();
+            });
 
         } catch (Exception e) {
             Log.e(TAG, "Erro ao preparar query de itens em alta", e);
@@ -220,20 +247,20 @@ public class HomeDAO {
             }
 
             String userId = currentUser.getUid();
-            Database db = DatabaseManager.getDatabase();
 
-            // Executa em uma thread separada
-            new Thread(() -> {
-                try (Connection conn = db.connect()) {
+            // Executa no executor compartilhado de banco de dados
+            DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
+                try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
                     // Consulta produtos com menos de 5 unidades em estoque
-                    // Concatenação direta dos parâmetros na string SQL
-                    String query = "SELECT id_estoque, nome_produto, quantidade, valor_unitario " +
-                            "FROM estoque WHERE id_usuario = '" + userId + "' AND quantidade < 5 " +
-                            "ORDER BY quantidade ASC";
+                    SqlStatement query = conn.prepare(
+                            "SELECT id_estoque, nome_produto, quantidade, valor_unitario " +
+                                    "FROM estoque WHERE id_usuario = ? AND quantidade < 5 " +
+                                    "ORDER BY quantidade ASC")
+                            .bindText(1, userId);
 
                     List<EstoqueBaixo> produtosEstoqueBaixo = new ArrayList<>();
 
-                    try (Rows rows = conn.query(query)) {
+                    try (Rows rows = query.query()) {
                         Object[] row;
                         while ((row = rows.nextRow()) != null) {
                             int idEstoque = row[0] != null ? Integer.parseInt(row[0].toString()) : 0;
@@ -255,7 +282,7 @@ public class HomeDAO {
                     android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
                     mainHandler.post(() -> callback.onResult(new ArrayList<>(), false, e.getMessage()));
                 }
-            }).start();
+            });
 
         } catch (Exception e) {
             Log.e(TAG, "Erro ao preparar query de produtos com estoque baixo", e);
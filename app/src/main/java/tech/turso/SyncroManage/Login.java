@@ -148,6 +148,17 @@ public class Login extends BaseActivity {
             return;
         }
 
+        // Banco já aberto durante a splash com o token deste usuário: não há por que renovar de novo
+        if (DatabaseManager.isInitializedFor(user.getUid())) {
+            startActivity(new Intent(Login.this, Home.class));
+            finish();
+            return;
+        }
+        // Banco aberto para outra conta: fecha antes de obter o token do novo usuário
+        if (DatabaseManager.isInitialized()) {
+            DatabaseManager.shutdown();
+        }
+
         isProcessingLogin = true;
         mostrarProgressDialog("Obtendo acesso ao banco de dados...");
 
@@ -9,7 +9,6 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.NumberFormat;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -18,13 +17,13 @@ import java.util.Locale;
 public class RelatorioAdapter extends RecyclerView.Adapter<RelatorioAdapter.RelatorioViewHolder> {
 
     private static final NumberFormat CURRENCY_FORMAT = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
-    private List<String[]> dados;
+    private RelatorioVendas dados;
 
-    public RelatorioAdapter(List<String[]> dados) {
+    public RelatorioAdapter(RelatorioVendas dados) {
         this.dados = dados;
     }
 
-    public void atualizarDados(List<String[]> novosDados) {
+    public void atualizarDados(RelatorioVendas novosDados) {
         this.dados = novosDados;
         notifyDataSetChanged();
     }
@@ -39,8 +38,7 @@ public class RelatorioAdapter extends RecyclerView.Adapter<RelatorioAdapter.Rela
 
     @Override
     public void onBindViewHolder(@NonNull RelatorioViewHolder holder, int position) {
-        String[] item = dados.get(position);
-        holder.bind(item);
+        holder.bind(dados, position);
     }
 
     @Override
@@ -67,32 +65,18 @@ public class RelatorioAdapter extends RecyclerView.Adapter<RelatorioAdapter.Rela
         }
 
         /**
-         * Método para vincular dados ao ViewHolder com otimizações
+         * Vincula uma linha do relatório; os valores só são formatados aqui
          */
-        public void bind(String[] item) {
-            // Configuração básica
-            tvMes.setText(item[0]);          // Mês
-            tvTipo.setText(item[1]);         // Tipo
-            tvItem.setText(item[2]);         // Item
-            tvQuantidade.setText(item[3]);   // Quantidade
-            tvMetodo.setText(item[5]);       // Método de pagamento
+        public void bind(RelatorioVendas dados, int linha) {
+            tvMes.setText(dados.getMes(linha));
+            tvTipo.setText(dados.getTipo(linha));
+            tvItem.setText(dados.getItem(linha));
+            tvQuantidade.setText(String.valueOf(dados.getQuantidade(linha)));
+            tvMetodo.setText(dados.getMetodoPagamento(linha));
 
-            // Formatação otimizada de valores monetários
-            tvValor.setText(formatarValorMonetario(item[4]));
-            tvCusto.setText(formatarValorMonetario(item[6]));
-            tvLucro.setText(formatarValorMonetario(item[7]));
-        }
-
-        /**
-         * Formata valor monetário usando o formatador estático
-         */
-        private String formatarValorMonetario(String valor) {
-            try {
-                double valorDouble = Double.parseDouble(valor);
-                return CURRENCY_FORMAT.format(valorDouble);
-            } catch (NumberFormatException e) {
-                return "R$ " + valor;
-            }
+            tvValor.setText(CURRENCY_FORMAT.format(dados.getValorTotal(linha)));
+            tvCusto.setText(CURRENCY_FORMAT.format(dados.getCustoUnitario(linha)));
+            tvLucro.setText(CURRENCY_FORMAT.format(dados.getLucro(linha)));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache em memória dos relatórios de vendas, por (usuário, data inicial, data final).
+ * <ul>
+ *     <li>Uma venda gravada, alterada ou excluída descarta apenas os relatórios cujo
+ *     período contém a data da venda; relatórios de outros períodos continuam válidos.</li>
+ *     <li>Cada usuário tem uma versão dos dados de vendas, incrementada a cada escrita.
+ *     Um relatório só é guardado se a versão não mudou desde o início da sua consulta,
+ *     para que uma escrita concorrente não deixe no cache um resultado antigo.</li>
+ *     <li>Sincronizações (dados de datas desconhecidas) e a troca de banco descartam tudo.</li>
+ *     <li>O espaço ocupado é estimado por relatório; acima do limite os menos usados saem primeiro.</li>
+ * </ul>
+ * Os relatórios guardados são compartilhados e não podem ser alterados por quem os recebe.
+ */
+public final class RelatorioCache {
+    private static final String TAG = "RelatorioCache";
+
+    // Limite de memória: 1/32 do heap do aplicativo, no máximo 4 MB
+    private static final long LIMITE_BYTES = Math.min(4L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
+
+    /**
+     * Relatório guardado e o período que ele cobre
+     */
+    private static final class Entrada {
+        final String userId;
+        final String dataInicio;
+        final String dataFim;
+        final RelatorioVendas relatorio;
+        final long bytes;
+
+        Entrada(String userId, String dataInicio, String dataFim, RelatorioVendas relatorio) {
+            this.userId = userId;
+            this.dataInicio = dataInicio;
+            this.dataFim = dataFim;
+            this.relatorio = relatorio;
+            this.bytes = relatorio.estimarBytes();
+        }
+
+        /**
+         * Compara só a data (yyyy-MM-dd): a consulta inclui o último dia inteiro,
+         * inclusive vendas com hora
+         */
+        boolean contem(String dataHoraVenda) {
+            if (dataHoraVenda == null || dataHoraVenda.length() < 10) return true;
+            String data = dataHoraVenda.substring(0, 10);
+            return data.compareTo(dataInicio.substring(0, Math.min(10, dataInicio.length()))) >= 0
+                    && data.compareTo(dataFim.substring(0, Math.min(10, dataFim.length()))) <= 0;
+        }
+    }
+
+    // Ordem de acesso: o primeiro é o usado há mais tempo
+    private static final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Map<String, Long> versoes = new HashMap<>();
+    // Incrementada a cada descarte total; soma-se à versão de todos os usuários
+    private static long geracao = 0;
+    private static long bytesUsados = 0;
+
+    private RelatorioCache() {
+    }
+
+    private static String chave(String userId, String dataInicio, String dataFim) {
+        return userId + '\n' + dataInicio + '\n' + dataFim;
+    }
+
+    /**
+     * Versão atual dos dados de vendas do usuário; deve ser lida antes da consulta
+     * e repassada a {@link #put(String, String, String, RelatorioVendas, long)}
+     */
+    public static synchronized long getVersao(String userId) {
+        Long versao = versoes.get(userId);
+        return geracao + (versao != null ? versao : 0);
+    }
+
+    /**
+     * Relatório guardado para o período
+     * @return Relatório ou null se não está no cache
+     */
+    @Nullable
+    public static synchronized RelatorioVendas get(String userId, String dataInicio, String dataFim) {
+        Entrada entrada = entradas.get(chave(userId, dataInicio, dataFim));
+        return entrada != null ? entrada.relatorio : null;
+    }
+
+    /**
+     * Guarda o relatório, desde que nenhuma venda do usuário tenha sido alterada
+     * desde o início da consulta
+     * @param versaoLida Valor de {@link #getVersao(String)} obtido antes da consulta
+     */
+    public static synchronized void put(String userId, String dataInicio, String dataFim,
+                                        RelatorioVendas relatorio, long versaoLida) {
+        if (getVersao(userId) != versaoLida) {
+            Log.d(TAG, "Vendas alteradas durante a consulta; relatório não guardado");
+            return;
+        }
+        Entrada nova = new Entrada(userId, dataInicio, dataFim, relatorio);
+        if (nova.bytes > LIMITE_BYTES) {
+            Log.d(TAG, "Relatório grande demais para o cache (" + nova.bytes + " bytes)");
+            return;
+        }
+        Entrada anterior = entradas.put(chave(userId, dataInicio, dataFim), nova);
+        if (anterior != null) {
+            bytesUsados -= anterior.bytes;
+        }
+        bytesUsados += nova.bytes;
+
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (bytesUsados > LIMITE_BYTES && it.hasNext()) {
+            Entrada antiga = it.next();
+            it.remove();
+            bytesUsados -= antiga.bytes;
+        }
+    }
+
+    /**
+     * Registra vendas gravadas, alteradas ou excluídas: descarta os relatórios do
+     * usuário cujo período contém alguma das datas
+     * @param datasHoraVenda data_hora_venda das vendas afetadas (antes e depois, numa alteração)
+     */
+    public static synchronized void vendasAlteradas(String userId, String... datasHoraVenda) {
+        Long versao = versoes.get(userId);
+        versoes.put(userId, (versao != null ? versao : 0) + 1);
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (!entrada.userId.equals(userId)) continue;
+            for (String dataHora : datasHoraVenda) {
+                if (entrada.contem(dataHora)) {
+                    it.remove();
+                    bytesUsados -= entrada.bytes;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta todos os relatórios (sincronização ou troca de banco)
+     */
+    public static synchronized void invalidateAll() {
+        entradas.clear();
+        bytesUsados = 0;
+        // Consultas em andamento não guardam resultados anteriores ao descarte
+        geracao++;
+    }
+}
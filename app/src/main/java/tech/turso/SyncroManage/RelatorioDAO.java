@@ -30,20 +30,25 @@ import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 
-import tech.turso.libsql.Connection;
-import tech.turso.libsql.Database;
 import tech.turso.libsql.Rows;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Classe DAO para operações relacionadas a relatórios.
@@ -51,7 +56,6 @@ import java.util.concurrent.Executors;
  */
 public class RelatorioDAO {
     private static final String TAG = "RelatorioDAO";
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
@@ -61,93 +65,178 @@ public class RelatorioDAO {
         void onResult(T data, boolean success, String message);
     }
 
+    /**
+     * Interface para o progresso das exportações longas, medido em meses do período
+     * (as linhas vêm ordenadas por mês).
+     */
+    public interface ProgressoCallback {
+        void onProgresso(int mesesConcluidos, int totalMeses);
+    }
+
+    // Linhas do PDF acumuladas antes de cada flush da tabela
+    private static final int LINHAS_POR_FLUSH = 100;
+
     /**
      * Obtém relatório de vendas agrupado por período.
+     * O resultado fica no {@link RelatorioCache} até que uma venda do período seja alterada.
      *
      * @param dataInicio Data inicial no formato YYYY-MM-DD
      * @param dataFim Data final no formato YYYY-MM-DD
-     * @return Lista de arrays de strings com os dados do relatório
+     * @return Relatório com as linhas e os totais (vazio se não houver vendas no período);
+     *         compartilhado com o cache, não deve ser alterado
+     * @throws IllegalStateException Se o usuário não está autenticado ou o banco não está inicializado
      */
-    public static List<String[]> getRelatorioVendasAgrupado(String dataInicio, String dataFim) {
-        List<String[]> resultado = new ArrayList<>();
-
+    public static RelatorioVendas getRelatorioVendasAgrupado(String dataInicio, String dataFim) {
         // Verifica se o usuário está autenticado
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
         if (user == null) {
-            Log.e(TAG, "Usuário não autenticado");
-            return criarRelatorioVazio();
+            throw new IllegalStateException("Usuário não autenticado");
         }
 
         // Verifica se o banco de dados está inicializado
         if (!DatabaseManager.isInitialized()) {
-            Log.e(TAG, "DatabaseManager não inicializado");
-            return criarRelatorioVazio();
+            throw new IllegalStateException("DatabaseManager não inicializado");
         }
 
-        // Obtém a instância do banco de dados
-        Database db = DatabaseManager.getDatabase();
-
-        try (Connection conn = db.connect()) {
-            // Query: retorna os dados agrupados de vendas no período
-            String query = String.format(
-                    "SELECT strftime('%%m/%%Y', v.data_hora_venda) AS mes, " +
-                            "v.tipo_item AS tipo, " +
-                            "v.nome_item_vendido AS item, " +
-                            "SUM(v.quantidade) AS totalQuantidade, " +
-                            "SUM(v.valor_total_venda) AS totalValor, " +
-                            "v.metodo_pagamento AS forma_pagamento, " +
-                            "COALESCE((SELECT custo_unitario FROM estoque e WHERE e.nome_produto = v.nome_item_vendido LIMIT 1), " +
-                            "         (SELECT custo_unitario FROM servicos s WHERE s.nome = v.nome_item_vendido LIMIT 1), 0) AS custo_unitario " +
-                            "FROM vendas v " +
-                            "WHERE v.data_hora_venda BETWEEN '%s' AND '%s' " +
-                            "AND v.id_usuario = '%s' " +
-                            "GROUP BY mes, v.tipo_item, v.nome_item_vendido, v.metodo_pagamento " +
-                            "ORDER BY mes ASC",
-                    dataInicio, dataFim, user.getUid()
-            );
+        // Sem vendas alteradas no período desde a última consulta, o resultado é reaproveitado
+        String userId = user.getUid();
+        RelatorioVendas emCache = RelatorioCache.get(userId, dataInicio, dataFim);
+        if (emCache != null) {
+            Log.d(TAG, "Relatório do período servido do cache");
+            return emCache;
+        }
+        long versaoLida = RelatorioCache.getVersao(userId);
+
+        RelatorioVendas relatorio = new RelatorioVendas();
+        try (ConnectionLease conn = DatabaseManager.leaseConnection();
+             Rows rows = consultarVendasAgrupadas(conn, userId, dataInicio, dataFim)) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                relatorio.adicionar(
+                        row[0] != null ? row[0].toString() : "",
+                        row[1] != null ? row[1].toString() : "",
+                        row[2] != null ? row[2].toString() : "",
+                        row[5] != null ? row[5].toString() : "",
+                        row[3] != null ? ((Number) row[3]).longValue() : 0,
+                        row[4] != null ? ((Number) row[4]).doubleValue() : 0,
+                        row[6] != null ? ((Number) row[6]).doubleValue() : 0);
+            }
+        }
+        relatorio.concluir();
+        if (relatorio.isEmpty()) {
+            Log.i(TAG, "Nenhum dado encontrado para o período");
+        }
+        RelatorioCache.put(userId, dataInicio, dataFim, relatorio, versaoLida);
+        return relatorio;
+    }
 
-            try (Rows rows = conn.query(query)) {
-                boolean dadosEncontrados = false;
-                Object[] row;
-                while ((row = rows.nextRow()) != null) {
-                    dadosEncontrados = true;
-                    String mes = row[0] != null ? row[0].toString() : "";
-                    String tipo = row[1] != null ? row[1].toString() : "";
-                    String item = row[2] != null ? row[2].toString() : "";
-                    String totalQtd = row[3] != null ? row[3].toString() : "0";
-                    String totalValor = row[4] != null ? row[4].toString() : "0";
-                    String formaPagamento = row[5] != null ? row[5].toString() : "";
-                    String custoUnit = row[6] != null ? row[6].toString() : "0";
-
-                    double qtd = 0, totVal = 0, custoUn = 0;
-                    try {
-                        qtd = Double.parseDouble(totalQtd);
-                        totVal = Double.parseDouble(totalValor);
-                        custoUn = Double.parseDouble(custoUnit);
-                    } catch(Exception ex) {
-                        Log.w(TAG, "Erro ao converter valores numéricos: " + ex.getMessage());
-                    }
+    /**
+     * Consulta de vendas agrupadas por mês, tipo, item e forma de pagamento.
+     * Colunas: mês, tipo, item, quantidade, valor total, forma de pagamento e custo total.
+     * O custo vem de cada venda (registrado no momento da venda), então o lucro
+     * não muda quando o preço de custo do catálogo é alterado depois.
+     * Os meses inteiros do período são lidos do resumo mensal ({@link VendasMensalDAO});
+     * a tabela vendas só é lida nos meses incompletos do início e do fim.
+     */
+    private static Rows consultarVendasAgrupadas(ConnectionLease conn, String userId, String dataInicio, String dataFim) {
+        List<String> parametros = new ArrayList<>();
+        String origem = montarOrigemAgrupada(conn, userId, dataInicio, dataFim, parametros);
+        return preparar(conn,
+                "SELECT strftime('%m/%Y', ano_mes || '-01') AS mes, tipo, item, " +
+                        "SUM(qtd) AS totalQuantidade, SUM(valor) AS totalValor, metodo AS forma_pagamento, " +
+                        "SUM(custo) AS custo_total " +
+                        "FROM (" + origem + ") " +
+                        "GROUP BY ano_mes, tipo, item, metodo " +
+                        "ORDER BY ano_mes ASC",
+                parametros)
+                .query();
+    }
 
-                    double lucro = totVal - (qtd * custoUn);
-                    String lucroStr = String.format("%.2f", lucro);
+    /**
+     * Monta a união das partes do período, todas no formato
+     * (ano_mes, tipo, item, metodo, qtd, valor, custo), com ano_mes em yyyy-MM:
+     * <ul>
+     *     <li>meses inteiros: linhas do resumo mensal, sem calcular o mês de cada venda;</li>
+     *     <li>dias soltos no início e no fim: vendas agrupadas, filtradas pelo índice
+     *     (id_usuario, data_hora_venda).</li>
+     * </ul>
+     * O dia final é incluído inteiro, inclusive vendas com hora.
+     *
+     * @param parametros Recebe os valores dos parâmetros, na ordem da consulta
+     */
+    private static String montarOrigemAgrupada(ConnectionLease conn, String userId, String dataInicio,
+                                               String dataFim, List<String> parametros) {
+        SimpleDateFormat formato = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        formato.setLenient(false);
+        Calendar cal = Calendar.getInstance();
+        String fimExclusivo;
+        String inicioMesesInteiros;
+        String fimMesesInteiros;
+        try {
+            // Primeiro dia depois do período
+            cal.setTime(formato.parse(dataFim));
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            fimExclusivo = formato.format(cal.getTime());
+            // Início do mês em que o período termina: os meses inteiros vão até ele
+            cal.set(Calendar.DAY_OF_MONTH, 1);
+            fimMesesInteiros = formato.format(cal.getTime());
+
+            // Primeiro mês inteiro: o próprio mês se o período começa no dia 1, senão o seguinte
+            cal.setTime(formato.parse(dataInicio));
+            if (cal.get(Calendar.DAY_OF_MONTH) != 1) {
+                cal.set(Calendar.DAY_OF_MONTH, 1);
+                cal.add(Calendar.MONTH, 1);
+            }
+            inicioMesesInteiros = formato.format(cal.getTime());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Período inválido: " + dataInicio + " a " + dataFim, e);
+        }
 
-                    // Array com 8 campos
-                    String[] linha = new String[] { mes, tipo, item, totalQtd, totalValor, formaPagamento, custoUnit, lucroStr };
-                    resultado.add(linha);
-                }
+        boolean usarResumo = inicioMesesInteiros.compareTo(fimMesesInteiros) < 0
+                && VendasMensalDAO.disponivel(conn);
+        if (!usarResumo) {
+            return agruparVendas(userId, dataInicio, fimExclusivo, parametros);
+        }
 
-                // Se não encontrou nenhum dado, criar um relatório vazio
-                if (!dadosEncontrados) {
-                    Log.i(TAG, "Nenhum dado encontrado para o período. Criando registros zerados para relatório.");
-                    return criarRelatorioVazio();
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Erro ao consultar vendas agrupadas: " + e.getMessage(), e);
-            return criarRelatorioVazio();
+        Log.d(TAG, "Relatório com meses inteiros de " + inicioMesesInteiros + " a " + fimMesesInteiros +
+                " lidos do resumo mensal");
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT mes AS ano_mes, tipo_item AS tipo, nome_item AS item, metodo_pagamento AS metodo, ")
+                .append("quantidade AS qtd, receita AS valor, custo FROM ").append(VendasMensalDAO.TABELA)
+                .append(" WHERE id_usuario = ? AND mes >= ? AND mes < ?");
+        parametros.add(userId);
+        parametros.add(inicioMesesInteiros.substring(0, 7));
+        parametros.add(fimMesesInteiros.substring(0, 7));
+        if (dataInicio.compareTo(inicioMesesInteiros) < 0) {
+            sql.append(" UNION ALL ").append(agruparVendas(userId, dataInicio, inicioMesesInteiros, parametros));
+        }
+        if (fimMesesInteiros.compareTo(fimExclusivo) < 0) {
+            sql.append(" UNION ALL ").append(agruparVendas(userId, fimMesesInteiros, fimExclusivo, parametros));
         }
+        return sql.toString();
+    }
 
-        return resultado;
+    /**
+     * Vendas agrupadas de um intervalo de datas [inicio, fim)
+     */
+    private static String agruparVendas(String userId, String inicio, String fimExclusivo, List<String> parametros) {
+        parametros.add(userId);
+        parametros.add(inicio);
+        parametros.add(fimExclusivo);
+        return "SELECT strftime('%Y-%m', data_hora_venda) AS ano_mes, tipo_item AS tipo, " +
+                "nome_item_vendido AS item, COALESCE(metodo_pagamento, '') AS metodo, " +
+                "SUM(quantidade) AS qtd, SUM(valor_total_venda) AS valor, " +
+                "SUM(quantidade * COALESCE(custo_unitario_vendido, 0)) AS custo " +
+                "FROM vendas WHERE id_usuario = ? AND data_hora_venda >= ? AND data_hora_venda < ? " +
+                "GROUP BY ano_mes, tipo, item, metodo";
+    }
+
+    private static SqlStatement preparar(ConnectionLease conn, String sql, List<String> parametros) {
+        SqlStatement stmt = conn.prepare(sql);
+        for (int i = 0; i < parametros.size(); i++) {
+            stmt.bindText(i + 1, parametros.get(i));
+        }
+        return stmt;
     }
 
     /**
@@ -157,142 +246,213 @@ public class RelatorioDAO {
      * @param dataFim Data final no formato YYYY-MM-DD
      * @param callback Callback para retornar os resultados
      */
-    public static void getRelatorioVendasAgrupadoAsync(String dataInicio, String dataFim, RelatorioCallback<List<String[]>> callback) {
-        executor.execute(() -> {
-            List<String[]> resultado = getRelatorioVendasAgrupado(dataInicio, dataFim);
-            mainHandler.post(() -> callback.onResult(resultado, true, "Relatório gerado com sucesso"));
+    public static void getRelatorioVendasAgrupadoAsync(String dataInicio, String dataFim, RelatorioCallback<RelatorioVendas> callback) {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
+            try {
+                RelatorioVendas resultado = getRelatorioVendasAgrupado(dataInicio, dataFim);
+                mainHandler.post(() -> callback.onResult(resultado, true, "Relatório gerado com sucesso"));
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao consultar vendas agrupadas: " + e.getMessage(), e);
+                String errorMsg = e.getMessage();
+                mainHandler.post(() -> callback.onResult(null, false, errorMsg));
+            }
         });
     }
 
     /**
-     * Cria um relatório vazio para casos onde não há dados ou ocorreu erro.
+     * Exporta o relatório do período direto da consulta para um arquivo Excel
+     * (XML Spreadsheet). Cada linha lida do cursor é escrita e descartada, então a
+     * memória usada não depende do tamanho do relatório.
      *
-     * @return Lista com duas linhas representando um produto e um serviço zerados
+     * @param context Contexto da aplicação
+     * @param dataInicio Data inicial no formato YYYY-MM-DD
+     * @param dataFim Data final no formato YYYY-MM-DD
+     * @return Arquivo Excel gerado
+     * @throws IOException Se o arquivo não puder ser gravado
      */
-    private static List<String[]> criarRelatorioVazio() {
-        List<String[]> resultado = new ArrayList<>();
-
-        // Obtenha o mês atual para exibir no relatório vazio
-        SimpleDateFormat formatoMes = new SimpleDateFormat("MM/yyyy");
-        String mesAtual = formatoMes.format(new Date());
-
-        // Crie duas linhas representando um produto e um serviço zerados
-        // para permitir que o relatório seja gerado
-        String[] linhaProduto = new String[] {
-                mesAtual,        // Mês atual
-                "produto",       // Tipo
-                "Sem dados",     // Item
-                "0",             // Quantidade
-                "0.00",          // Total Valor
-                "N/A",           // Método de pagamento
-                "0.00",          // Custo unitário
-                "0.00"           // Lucro
-        };
-
-        String[] linhaServico = new String[] {
-                mesAtual,        // Mês atual
-                "servico",       // Tipo
-                "Sem dados",     // Item
-                "0",             // Quantidade
-                "0.00",          // Total Valor
-                "N/A",           // Método de pagamento
-                "0.00",          // Custo unitário
-                "0.00"           // Lucro
-        };
-
-        resultado.add(linhaProduto);
-        resultado.add(linhaServico);
-
-        return resultado;
+    public static File exportarExcel(Context context, String dataInicio, String dataFim) throws IOException {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            throw new IOException("Usuário não autenticado");
+        }
+        if (!DatabaseManager.isInitialized()) {
+            throw new IOException("DatabaseManager não inicializado");
+        }
+
+        File arquivoExcel = new File(context.getExternalFilesDir(null), "relatorio_vendas.xml");
+        int linhas = 0;
+        try (ConnectionLease conn = DatabaseManager.leaseConnection();
+             Rows rows = consultarVendasAgrupadas(conn, user.getUid(), dataInicio, dataFim);
+             Writer out = abrirPlanilha(arquivoExcel, "Relatorio", TITULOS_EXCEL)) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                double qtd = row[3] != null ? ((Number) row[3]).doubleValue() : 0;
+                double totalValor = row[4] != null ? ((Number) row[4]).doubleValue() : 0;
+                double custoTotal = row[6] != null ? ((Number) row[6]).doubleValue() : 0;
+
+                out.write("<Row>");
+                celulaTexto(out, row[0]);
+                celulaTexto(out, row[1]);
+                celulaTexto(out, row[2]);
+                celulaNumero(out, qtd);
+                celulaNumero(out, totalValor);
+                celulaTexto(out, row[5]);
+                celulaNumero(out, qtd > 0 ? custoTotal / qtd : 0);
+                celulaNumero(out, totalValor - custoTotal);
+                out.write("</Row>\n");
+                linhas++;
+            }
+            fecharPlanilha(out);
+        }
+        Log.i(TAG, "Arquivo Excel gerado com sucesso (" + linhas + " linhas)");
+        return arquivoExcel;
     }
 
     /**
-     * Exporta os dados do relatório para um arquivo Excel.
-     * Essa implementação gera um arquivo XML Spreadsheet (formato aceito pelo Excel).
+     * Exporta o relatório do período para um arquivo Excel de forma assíncrona.
      *
      * @param context Contexto da aplicação
-     * @param dados Lista de arrays de strings com os dados do relatório
-     * @return Arquivo Excel gerado ou null em caso de erro
+     * @param dataInicio Data inicial no formato YYYY-MM-DD
+     * @param dataFim Data final no formato YYYY-MM-DD
+     * @param callback Callback para retornar o resultado
      */
-    public static File exportarExcel(Context context, List<String[]> dados) {
-        File diretorio = context.getExternalFilesDir(null);
-        // Usaremos a extensão .xml para indicar o formato de planilha
-        File arquivoExcel = new File(diretorio, "relatorio_vendas.xml");
-
-        StringBuilder sb = new StringBuilder();
-        sb.append("<?xml version=\"1.0\"?>\n");
-        sb.append("<?mso-application progid=\"Excel.Sheet\"?>\n");
-        sb.append("<Workbook xmlns=\"urn:schemas-microsoft-com:office:spreadsheet\"\n");
-        sb.append(" xmlns:o=\"urn:schemas-microsoft-com:office:office\"\n");
-        sb.append(" xmlns:x=\"urn:schemas-microsoft-com:office:excel\"\n");
-        sb.append(" xmlns:ss=\"urn:schemas-microsoft-com:office:spreadsheet\">\n");
-        sb.append("<Worksheet ss:Name=\"Relatorio\">\n");
-        sb.append("<Table>\n");
-
-        // Cabeçalho
-        String[] headers = {"Mês", "Tipo", "Item", "Quantidade", "Total Valor", "Método", "Custo Unitário", "Lucro"};
-        sb.append("<Row>\n");
-        for (String header : headers) {
-            sb.append("<Cell><Data ss:Type=\"String\">").append(header).append("</Data></Cell>\n");
-        }
-        sb.append("</Row>\n");
+    public static void exportarExcelAsync(Context context, String dataInicio, String dataFim, RelatorioCallback<File> callback) {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.EXPORTACAO, () -> {
+            try {
+                File arquivo = exportarExcel(context, dataInicio, dataFim);
+                mainHandler.post(() -> callback.onResult(arquivo, true, "Excel gerado com sucesso"));
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao gerar arquivo Excel", e);
+                String errorMsg = "Erro ao gerar Excel: " + e.getMessage();
+                mainHandler.post(() -> callback.onResult(null, false, errorMsg));
+            }
+        });
+    }
+
+    // --- XML SPREADSHEET ---
 
-        // Linhas de dados
-        for (String[] linha : dados) {
-            sb.append("<Row>\n");
-            for (String valor : linha) {
-                sb.append("<Cell><Data ss:Type=\"String\">").append(valor != null ? valor : "").append("</Data></Cell>\n");
+    private static final String[] TITULOS_EXCEL =
+            {"Mês", "Tipo", "Item", "Quantidade", "Total Valor", "Método", "Custo Unitário", "Lucro"};
+
+    /**
+     * Cria o arquivo e escreve o início de uma planilha XML Spreadsheet com a linha de títulos
+     * @return Writer com buffer, posicionado para receber as linhas de dados
+     */
+    static Writer abrirPlanilha(File arquivo, String nomePlanilha, String[] titulos) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(arquivo), StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            out.write("<?xml version=\"1.0\"?>\n");
+            out.write("<?mso-application progid=\"Excel.Sheet\"?>\n");
+            out.write("<Workbook xmlns=\"urn:schemas-microsoft-com:office:spreadsheet\"\n");
+            out.write(" xmlns:o=\"urn:schemas-microsoft-com:office:office\"\n");
+            out.write(" xmlns:x=\"urn:schemas-microsoft-com:office:excel\"\n");
+            out.write(" xmlns:ss=\"urn:schemas-microsoft-com:office:spreadsheet\">\n");
+            out.write("<Worksheet ss:Name=\"" + escaparXml(nomePlanilha) + "\">\n");
+            out.write("<Table>\n<Row>");
+            for (String titulo : titulos) {
+                celulaTexto(out, titulo);
             }
-            sb.append("</Row>\n");
+            out.write("</Row>\n");
+            return out;
+        } catch (IOException e) {
+            out.close();
+            throw e;
         }
+    }
 
-        sb.append("</Table>\n");
-        sb.append("</Worksheet>\n");
-        sb.append("</Workbook>\n");
+    /**
+     * Fecha as marcações abertas por {@link #abrirPlanilha(File, String, String[])}
+     */
+    static void fecharPlanilha(Writer out) throws IOException {
+        out.write("</Table>\n</Worksheet>\n</Workbook>\n");
+    }
 
-        try (FileWriter writer = new FileWriter(arquivoExcel)) {
-            writer.write(sb.toString());
-            writer.flush();
-            Log.i(TAG, "Arquivo Excel gerado com sucesso!");
-            return arquivoExcel;
-        } catch (IOException e) {
-            Log.e(TAG, "Erro ao gerar arquivo Excel", e);
-            Toast.makeText(context, "Erro ao gerar Excel: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            return null;
+    static void celulaTexto(Writer out, Object valor) throws IOException {
+        out.write("<Cell><Data ss:Type=\"String\">");
+        if (valor != null) {
+            out.write(escaparXml(valor.toString()));
         }
+        out.write("</Data></Cell>");
+    }
+
+    static void celulaNumero(Writer out, double valor) throws IOException {
+        out.write("<Cell><Data ss:Type=\"Number\">");
+        out.write(formatarNumero(valor));
+        out.write("</Data></Cell>");
     }
 
     /**
-     * Exporta os dados do relatório para um arquivo Excel de forma assíncrona.
-     *
-     * @param context Contexto da aplicação
-     * @param dados Lista de arrays de strings com os dados do relatório
-     * @param callback Callback para retornar o resultado
+     * Número sem notação científica nem zeros supérfluos ("12.5", "3")
      */
-    public static void exportarExcelAsync(Context context, List<String[]> dados, RelatorioCallback<File> callback) {
-        executor.execute(() -> {
-            File arquivo = exportarExcel(context, dados);
-            mainHandler.post(() -> callback.onResult(arquivo, arquivo != null,
-                    arquivo != null ? "Excel gerado com sucesso" : "Erro ao gerar Excel"));
-        });
+    static String formatarNumero(double valor) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) return "0";
+        return BigDecimal.valueOf(valor).stripTrailingZeros().toPlainString();
+    }
+
+    static String escaparXml(String texto) {
+        StringBuilder sb = null;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            String troca;
+            switch (c) {
+                case '&': troca = "&amp;"; break;
+                case '<': troca = "&lt;"; break;
+                case '>': troca = "&gt;"; break;
+                case '"': troca = "&quot;"; break;
+                default: troca = null;
+            }
+            if (troca != null && sb == null) {
+                sb = new StringBuilder(texto.length() + 16).append(texto, 0, i);
+            }
+            if (sb != null) {
+                if (troca != null) sb.append(troca); else sb.append(c);
+            }
+        }
+        return sb != null ? sb.toString() : texto;
     }
 
     /**
-     * Método para exportar os dados do relatório para um arquivo PDF usando iText 7.
+     * Exporta o relatório do período para um arquivo PDF usando iText 7.
      * O PDF apresenta uma tabela com 8 colunas e, ao final, exibe os totais bruto e líquido.
+     * <p>
+     * As linhas vêm direto da consulta e a tabela é criada no modo de tabela grande do
+     * iText: a cada {@value #LINHAS_POR_FLUSH} linhas o trecho pronto é diagramado,
+     * gravado no arquivo e liberado, então a memória não cresce com o relatório.
      *
      * @param context Contexto da aplicação
-     * @param dados Lista de arrays de strings com os dados do relatório
+     * @param dataInicio Data inicial no formato YYYY-MM-DD
+     * @param dataFim Data final no formato YYYY-MM-DD
      * @param nome Nome do usuário/empresa
      * @param documento CPF/CNPJ do usuário/empresa
      * @param empresa Nome da empresa
-     * @return Arquivo PDF gerado ou null em caso de erro
+     * @param cancelado Sinal de cancelamento, verificado a cada linha
+     * @param progresso Progresso entregue na thread principal (pode ser null)
+     * @return Arquivo PDF gerado
+     * @throws IOException Se o arquivo não puder ser gravado
+     * @throws CancellationException Se a exportação foi cancelada (o arquivo parcial é apagado)
      */
-    public static File exportarPDF(Context context, List<String[]> dados, String nome, String documento, String empresa) {
+    public static File exportarPDF(Context context, String dataInicio, String dataFim, String nome,
+                                   String documento, String empresa, AtomicBoolean cancelado,
+                                   ProgressoCallback progresso) throws IOException {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            throw new IOException("Usuário não autenticado");
+        }
+        if (!DatabaseManager.isInitialized()) {
+            throw new IOException("DatabaseManager não inicializado");
+        }
+
         File diretorio = context.getExternalFilesDir(null);
         File arquivoPDF = new File(diretorio, "relatorio_vendas.pdf");
+        boolean concluido = false;
+
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            // Progresso por mês, calculado das datas: contar as linhas repetiria a agregação
+            int primeiroMes = numeroMes(dataInicio.substring(0, 4), dataInicio.substring(5, 7));
+            int total = numeroMes(dataFim.substring(0, 4), dataFim.substring(5, 7)) - primeiroMes + 1;
+            notificarProgresso(progresso, 0, total);
 
-        try {
             PdfWriter writer = new PdfWriter(new FileOutputStream(arquivoPDF));
             PdfDocument pdfDoc = new PdfDocument(writer);
             pdfDoc.setTagged();
@@ -304,108 +464,154 @@ public class RelatorioDAO {
             info.setAuthor("SyncroManage");
             info.setSubject("Relatório de Vendas");
 
-            Document document = new Document(pdfDoc);
-            PdfFont fontTitulo = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
-            PdfFont fontNormal = PdfFontFactory.createFont(StandardFonts.HELVETICA);
-
-            // Cabeçalho do documento
-            Paragraph titulo = new Paragraph("Relatório de Vendas Agrupado")
-                    .setFont(fontTitulo)
-                    .setFontSize(16)
-                    .setTextAlignment(TextAlignment.CENTER);
-            document.add(titulo);
-            document.add(new Paragraph("\n"));
-            document.add(new Paragraph("Nome: " + nome).setFont(fontNormal).setFontSize(12));
-            document.add(new Paragraph("CPF/CNPJ: " + documento).setFont(fontNormal).setFontSize(12));
-            document.add(new Paragraph("Empresa: " + empresa).setFont(fontNormal).setFontSize(12));
-            document.add(new Paragraph("\n"));
-
-            // Criação da tabela com 8 colunas
-            Table table = new Table(UnitValue.createPercentArray(new float[]{10,10,20,10,15,10,10,15}))
-                    .setWidth(UnitValue.createPercentValue(100));
-
-            String[] headers = {"Mês", "Tipo", "Item", "Qtd", "Total Valor", "Método", "Custo Unit", "Lucro"};
-            for(String h : headers) {
-                table.addHeaderCell(new Cell()
-                        .add(new Paragraph(h).setFont(fontTitulo).setFontSize(12))
-                        .setTextAlignment(TextAlignment.CENTER)
-                        .setBackgroundColor(ColorConstants.LIGHT_GRAY));
-            }
+            try (Document document = new Document(pdfDoc)) {
+                PdfFont fontTitulo = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+                PdfFont fontNormal = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+
+                // Cabeçalho do documento
+                Paragraph titulo = new Paragraph("Relatório de Vendas Agrupado")
+                        .setFont(fontTitulo)
+                        .setFontSize(16)
+                        .setTextAlignment(TextAlignment.CENTER);
+                document.add(titulo);
+                document.add(new Paragraph("\n"));
+                document.add(new Paragraph("Nome: " + nome).setFont(fontNormal).setFontSize(12));
+                document.add(new Paragraph("CPF/CNPJ: " + documento).setFont(fontNormal).setFontSize(12));
+                document.add(new Paragraph("Empresa: " + empresa).setFont(fontNormal).setFontSize(12));
+                document.add(new Paragraph("\n"));
+
+                // Tabela grande com 8 colunas: adicionada ao documento antes das linhas
+                Table table = new Table(UnitValue.createPercentArray(new float[]{10,10,20,10,15,10,10,15}), true)
+                        .setWidth(UnitValue.createPercentValue(100));
+
+                String[] headers = {"Mês", "Tipo", "Item", "Qtd", "Total Valor", "Método", "Custo Unit", "Lucro"};
+                for(String h : headers) {
+                    table.addHeaderCell(new Cell()
+                            .add(new Paragraph(h).setFont(fontTitulo).setFontSize(12))
+                            .setTextAlignment(TextAlignment.CENTER)
+                            .setBackgroundColor(ColorConstants.LIGHT_GRAY));
+                }
+                document.add(table);
+
+                double somaBruto = 0;
+                double somaLiquido = 0;
+                int linhas = 0;
+                int mesesConcluidos = 0;
+                try (Rows rows = consultarVendasAgrupadas(conn, user.getUid(), dataInicio, dataFim)) {
+                    Object[] row;
+                    while ((row = rows.nextRow()) != null) {
+                        if (cancelado != null && cancelado.get()) {
+                            throw new CancellationException("Exportação cancelada");
+                        }
+                        // Mês da linha (MM/yyyy): os meses anteriores já foram gravados
+                        String mes = texto(row[0]);
+                        int anteriores = mes.length() == 7
+                                ? numeroMes(mes.substring(3, 7), mes.substring(0, 2)) - primeiroMes
+                                : mesesConcluidos;
+                        if (anteriores > mesesConcluidos) {
+                            mesesConcluidos = anteriores;
+                            notificarProgresso(progresso, mesesConcluidos, total);
+                        }
+
+                        double qtd = row[3] != null ? ((Number) row[3]).doubleValue() : 0;
+                        double totalValor = row[4] != null ? ((Number) row[4]).doubleValue() : 0;
+                        double custoTotal = row[6] != null ? ((Number) row[6]).doubleValue() : 0;
+                        double lucro = totalValor - custoTotal;
+
+                        table.addCell(new Cell().add(new Paragraph(texto(row[0])).setFont(fontNormal)).setTextAlignment(TextAlignment.CENTER));
+                        table.addCell(new Cell().add(new Paragraph(texto(row[1])).setFont(fontNormal)).setTextAlignment(TextAlignment.CENTER));
+                        table.addCell(new Cell().add(new Paragraph(texto(row[2])).setFont(fontNormal)));
+                        table.addCell(new Cell().add(new Paragraph(formatarNumero(qtd)).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
+                        table.addCell(new Cell().add(new Paragraph(String.format("%.2f", totalValor)).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
+                        table.addCell(new Cell().add(new Paragraph(texto(row[5])).setFont(fontNormal)).setTextAlignment(TextAlignment.CENTER));
+                        table.addCell(new Cell().add(new Paragraph(String.format("%.2f", qtd > 0 ? custoTotal / qtd : 0)).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
+                        table.addCell(new Cell().add(new Paragraph(String.format("%.2f", lucro)).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
+
+                        somaBruto += totalValor;
+                        somaLiquido += lucro;
+                        linhas++;
+                        if (linhas % LINHAS_POR_FLUSH == 0) {
+                            // Diagrama e grava as linhas prontas, liberando-as da memória
+                            table.flush();
+                        }
+                    }
+                }
+                table.complete();
+                notificarProgresso(progresso, total, total);
 
-            double somaBruto = 0;
-            for(String[] row : dados) {
-                table.addCell(new Cell().add(new Paragraph(row[0]).setFont(fontNormal)).setTextAlignment(TextAlignment.CENTER));
-                table.addCell(new Cell().add(new Paragraph(row[1]).setFont(fontNormal)).setTextAlignment(TextAlignment.CENTER));
-                table.addCell(new Cell().add(new Paragraph(row[2]).setFont(fontNormal)));
-                table.addCell(new Cell().add(new Paragraph(row[3]).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
-                table.addCell(new Cell().add(new Paragraph(row[4]).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
-                table.addCell(new Cell().add(new Paragraph(row[5]).setFont(fontNormal)).setTextAlignment(TextAlignment.CENTER));
-                table.addCell(new Cell().add(new Paragraph(row[6]).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
-                table.addCell(new Cell().add(new Paragraph(row[7]).setFont(fontNormal)).setTextAlignment(TextAlignment.RIGHT));
-
-                try {
-                    somaBruto += Double.parseDouble(row[4]);
-                } catch(Exception e){
-                    Log.w(TAG, "Erro ao converter valor para cálculo de soma bruta: " + e.getMessage());
+                if (linhas == 0) {
+                    document.add(new Paragraph("Nenhuma venda no período.").setFont(fontNormal));
                 }
+                document.add(new Paragraph("\n"));
+                document.add(new Paragraph("Valor Bruto: " + String.format("%.2f", somaBruto)).setFont(fontNormal));
+                document.add(new Paragraph("Valor Líquido: " + String.format("%.2f", somaLiquido)).setFont(fontNormal));
+                document.add(new Paragraph("\n"));
+                document.add(new Paragraph("Documento gerado por SyncroManage em " +
+                        new SimpleDateFormat("dd/MM/yyyy HH:mm").format(new Date()))
+                        .setFont(fontNormal)
+                        .setFontSize(8)
+                        .setTextAlignment(TextAlignment.RIGHT));
+                concluido = true;
+                Log.i(TAG, "Relatório PDF gerado com sucesso (" + linhas + " linhas)");
             }
-
-            document.add(table);
-            document.add(new Paragraph("\n"));
-            document.add(new Paragraph("Valor Bruto: " + String.format("%.2f", somaBruto)).setFont(fontNormal));
-            document.add(new Paragraph("Valor Líquido: " + calculateTotalNet(dados)).setFont(fontNormal));
-            document.add(new Paragraph("\n"));
-            document.add(new Paragraph("Documento gerado por SyncroManage em " +
-                    new SimpleDateFormat("dd/MM/yyyy HH:mm").format(new Date()))
-                    .setFont(fontNormal)
-                    .setFontSize(8)
-                    .setTextAlignment(TextAlignment.RIGHT));
-
-            document.close();
-            Log.i(TAG, "Relatório PDF gerado com sucesso!");
             return arquivoPDF;
-        } catch (IOException e) {
-            Log.e(TAG, "Erro ao criar arquivo PDF", e);
-            Toast.makeText(context, "Erro ao gerar PDF: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            return null;
+        } finally {
+            if (!concluido && arquivoPDF.exists() && !arquivoPDF.delete()) {
+                Log.w(TAG, "Não foi possível apagar o PDF incompleto");
+            }
         }
     }
 
     /**
-     * Exporta os dados do relatório para um arquivo PDF de forma assíncrona.
+     * Exporta o relatório do período para um arquivo PDF de forma assíncrona.
      *
      * @param context Contexto da aplicação
-     * @param dados Lista de arrays de strings com os dados do relatório
+     * @param dataInicio Data inicial no formato YYYY-MM-DD
+     * @param dataFim Data final no formato YYYY-MM-DD
      * @param nome Nome do usuário/empresa
      * @param documento CPF/CNPJ do usuário/empresa
      * @param empresa Nome da empresa
+     * @param cancelado Sinal de cancelamento; quando marcado, o callback recebe falha
+     * @param progresso Progresso (linhas escritas e total), na thread principal
      * @param callback Callback para retornar o resultado
      */
-    public static void exportarPDFAsync(Context context, List<String[]> dados, String nome,
-                                        String documento, String empresa, RelatorioCallback<File> callback) {
-        executor.execute(() -> {
-            File arquivo = exportarPDF(context, dados, nome, documento, empresa);
-            mainHandler.post(() -> callback.onResult(arquivo, arquivo != null,
-                    arquivo != null ? "PDF gerado com sucesso" : "Erro ao gerar PDF"));
+    public static void exportarPDFAsync(Context context, String dataInicio, String dataFim, String nome,
+                                        String documento, String empresa, AtomicBoolean cancelado,
+                                        ProgressoCallback progresso, RelatorioCallback<File> callback) {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.EXPORTACAO, () -> {
+            try {
+                File arquivo = exportarPDF(context, dataInicio, dataFim, nome, documento, empresa, cancelado, progresso);
+                mainHandler.post(() -> callback.onResult(arquivo, true, "PDF gerado com sucesso"));
+            } catch (CancellationException e) {
+                Log.i(TAG, "Exportação do PDF cancelada");
+                mainHandler.post(() -> callback.onResult(null, false, "Exportação cancelada"));
+            } catch (Exception e) {
+                Log.e(TAG, "Erro ao criar arquivo PDF", e);
+                String errorMsg = "Erro ao gerar PDF: " + e.getMessage();
+                mainHandler.post(() -> callback.onResult(null, false, errorMsg));
+            }
         });
     }
 
     /**
-     * Método auxiliar para calcular o total líquido a partir do lucro de cada linha.
-     *
-     * @param dados Lista de arrays de strings com os dados do relatório
-     * @return String formatada com o valor líquido total
+     * Número sequencial do mês (ano * 12 + mês), para contar meses entre datas
      */
-    private static String calculateTotalNet(List<String[]> dados) {
-        double totalNet = 0;
-        for(String[] row : dados) {
-            try {
-                totalNet += Double.parseDouble(row[7]); // Campo "Lucro"
-            } catch(Exception e) {
-                Log.w(TAG, "Erro ao converter valor para cálculo de lucro: " + e.getMessage());
-            }
+    private static int numeroMes(String ano, String mes) {
+        try {
+            return Integer.parseInt(ano) * 12 + Integer.parseInt(mes) - 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Mês inválido: " + mes + "/" + ano, e);
+        }
+    }
+
+    private static void notificarProgresso(ProgressoCallback progresso, int mesesConcluidos, int totalMeses) {
+        if (progresso != null) {
+            mainHandler.post(() -> progresso.onProgresso(mesesConcluidos, totalMeses));
         }
-        return String.format("%.2f", totalNet);
+    }
+
+    private static String texto(Object valor) {
+        return valor != null ? valor.toString() : "";
     }
 
     /**
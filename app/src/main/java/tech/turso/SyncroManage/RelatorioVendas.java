@@ -0,0 +1,179 @@
+package tech.turso.SyncroManage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resultado do relatório de vendas agrupado, em colunas.
+ * <ul>
+ *     <li>Valores numéricos ficam em arrays primitivos, sem conversões de texto;
+ *     a formatação acontece apenas na exibição ou exportação.</li>
+ *     <li>Mês, tipo, item e método de pagamento se repetem muito entre as linhas,
+ *     então cada valor distinto é guardado uma única vez.</li>
+ *     <li>Os totais são somados durante a leitura, na mesma passada.</li>
+ * </ul>
+ * Preenchido por {@link RelatorioDAO}; somente leitura depois de entregue.
+ */
+public class RelatorioVendas {
+
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private int tamanho = 0;
+
+    // Dimensões (grupo)
+    private String[] meses = new String[CAPACIDADE_INICIAL];
+    private String[] tipos = new String[CAPACIDADE_INICIAL];
+    private String[] itens = new String[CAPACIDADE_INICIAL];
+    private String[] metodos = new String[CAPACIDADE_INICIAL];
+
+    // Medidas
+    private long[] quantidades = new long[CAPACIDADE_INICIAL];
+    private double[] valores = new double[CAPACIDADE_INICIAL];
+    private double[] custos = new double[CAPACIDADE_INICIAL];
+
+    // Totais do relatório
+    private long totalQuantidade = 0;
+    private double totalValor = 0;
+    private double totalCusto = 0;
+
+    // Valores distintos das dimensões, usado apenas durante o preenchimento
+    private Map<String, String> distintos = new HashMap<>();
+    // Memória estimada dos textos distintos
+    private long bytesTexto = 0;
+
+    /**
+     * Acrescenta uma linha e soma seus valores aos totais
+     *
+     * @param custoTotal Custo de todas as unidades do grupo (quantidade x custo de cada venda)
+     */
+    void adicionar(String mes, String tipo, String item, String metodo,
+                   long quantidade, double valorTotal, double custoTotal) {
+        if (tamanho == quantidades.length) {
+            crescer();
+        }
+        meses[tamanho] = unico(mes);
+        tipos[tamanho] = unico(tipo);
+        itens[tamanho] = unico(item);
+        metodos[tamanho] = unico(metodo);
+        quantidades[tamanho] = quantidade;
+        valores[tamanho] = valorTotal;
+        custos[tamanho] = custoTotal;
+        tamanho++;
+
+        totalQuantidade += quantidade;
+        totalValor += valorTotal;
+        totalCusto += custoTotal;
+    }
+
+    /**
+     * Encerra o preenchimento: libera a tabela de valores distintos e o espaço
+     * não usado das colunas
+     */
+    void concluir() {
+        distintos = null;
+        if (tamanho < quantidades.length) {
+            redimensionar(tamanho);
+        }
+    }
+
+    /**
+     * Memória aproximada ocupada pelo relatório, usada pelo {@link RelatorioCache}
+     */
+    long estimarBytes() {
+        // 4 referências + long + 2 double por linha, mais os textos e os cabeçalhos dos arrays
+        return (long) quantidades.length * (4 * 4 + 8 + 2 * 8) + bytesTexto + 7 * 16 + 64;
+    }
+
+    private String unico(String valor) {
+        if (valor == null) return "";
+        String existente = distintos.get(valor);
+        if (existente == null) {
+            distintos.put(valor, valor);
+            bytesTexto += 40 + 2L * valor.length();
+            return valor;
+        }
+        return existente;
+    }
+
+    private void crescer() {
+        redimensionar(quantidades.length * 2);
+    }
+
+    private void redimensionar(int capacidade) {
+        meses = Arrays.copyOf(meses, capacidade);
+        tipos = Arrays.copyOf(tipos, capacidade);
+        itens = Arrays.copyOf(itens, capacidade);
+        metodos = Arrays.copyOf(metodos, capacidade);
+        quantidades = Arrays.copyOf(quantidades, capacidade);
+        valores = Arrays.copyOf(valores, capacidade);
+        custos = Arrays.copyOf(custos, capacidade);
+    }
+
+    // Linhas
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public String getMes(int linha) {
+        return meses[linha];
+    }
+
+    public String getTipo(int linha) {
+        return tipos[linha];
+    }
+
+    public String getItem(int linha) {
+        return itens[linha];
+    }
+
+    public String getMetodoPagamento(int linha) {
+        return metodos[linha];
+    }
+
+    public long getQuantidade(int linha) {
+        return quantidades[linha];
+    }
+
+    public double getValorTotal(int linha) {
+        return valores[linha];
+    }
+
+    public double getCustoTotal(int linha) {
+        return custos[linha];
+    }
+
+    /**
+     * Custo unitário médio do grupo (as vendas podem ter custos diferentes)
+     */
+    public double getCustoUnitario(int linha) {
+        return quantidades[linha] > 0 ? custos[linha] / quantidades[linha] : 0;
+    }
+
+    public double getLucro(int linha) {
+        return valores[linha] - custos[linha];
+    }
+
+    // Totais
+
+    public long getTotalQuantidade() {
+        return totalQuantidade;
+    }
+
+    public double getTotalValor() {
+        return totalValor;
+    }
+
+    public double getTotalCusto() {
+        return totalCusto;
+    }
+
+    public double getTotalLucro() {
+        return totalValor - totalCusto;
+    }
+}
@@ -2,6 +2,7 @@ package tech.turso.SyncroManage;
 
 import android.app.AlertDialog;
 import android.app.ProgressDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
@@ -25,14 +26,13 @@ import com.google.android.material.snackbar.Snackbar;
 import java.io.File;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Relatorios extends BaseActivity implements DatabaseManager.DataChangeListener {
 
@@ -59,7 +59,7 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
     private RecyclerView.Adapter<?> adapter;
 
     // Dados do relatório
-    private List<String[]> dadosRelatorio;
+    private RelatorioVendas dadosRelatorio;
 
     // Datas selecionadas (formato para BD: "yyyy-MM-dd")
     private String dataInicioStr, dataFimStr;
@@ -73,6 +73,10 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
     private int currentRetryCount = 0;
     private Runnable timeoutRunnable;
 
+    // Exportação de PDF em andamento: sinal de cancelamento e diálogo de progresso
+    private AtomicBoolean exportacaoCancelada;
+    private ProgressDialog progressoExportacao;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -137,7 +141,7 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
         if (DatabaseManager.isInitialized()) {
             Log.d(TAG, "Banco de dados já inicializado.");
             // Registra o listener se o banco já estiver inicializado
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS);
             return;
         }
 
@@ -180,7 +184,7 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
                 hideLoading();
 
                 // Registra o listener após inicialização bem-sucedida
-                DatabaseManager.addDataChangeListener(this);
+                DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS);
 
                 // Operações após sucesso na inicialização podem ser adicionadas aqui
             } else {
@@ -283,6 +287,14 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
 
         isInitializingDatabase = false;
         hideLoading();
+
+        // Interrompe a exportação de PDF; o arquivo incompleto é descartado pelo DAO
+        if (exportacaoCancelada != null) {
+            exportacaoCancelada.set(true);
+        }
+        if (progressoExportacao != null && progressoExportacao.isShowing()) {
+            progressoExportacao.dismiss();
+        }
     }
 
     /**
@@ -312,7 +324,7 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
     private void configurarRecyclerView() {
         rvPreview.setLayoutManager(new LinearLayoutManager(this));
         rvPreview.setHasFixedSize(true); // Otimização quando sabemos que o tamanho não vai mudar
-        adapter = new RelatorioAdapter(new ArrayList<>());
+        adapter = new RelatorioAdapter(new RelatorioVendas());
         rvPreview.setAdapter(adapter);
     }
 
@@ -431,9 +443,9 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
         showLoading(true);
 
         // Chamar o DAO para obter os dados do relatório de forma assíncrona
-        RelatorioDAO.getRelatorioVendasAgrupadoAsync(dataInicioStr, dataFimStr, new RelatorioDAO.RelatorioCallback<List<String[]>>() {
+        RelatorioDAO.getRelatorioVendasAgrupadoAsync(dataInicioStr, dataFimStr, new RelatorioDAO.RelatorioCallback<RelatorioVendas>() {
             @Override
-            public void onResult(List<String[]> dados, boolean success, String message) {
+            public void onResult(RelatorioVendas dados, boolean success, String message) {
                 hideLoading();
 
                 if (success && dados != null) {
@@ -463,37 +475,19 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
     }
 
     /**
-     * Atualiza o resumo do relatório
+     * Atualiza o resumo do relatório com os totais calculados na leitura
      */
-    private void atualizarResumo(List<String[]> dados) {
+    private void atualizarResumo(RelatorioVendas dados) {
         if (dados == null || dados.isEmpty()) {
-            tvResultadoSummary.setText("Nenhum dado encontrado");
+            tvResultadoSummary.setText("Nenhuma venda no período");
             return;
         }
 
-        // Calcular totais
-        int totalVendas = dados.size();
-        double valorTotal = 0;
-
-        // Pular a linha de cabeçalho (índice 0)
-        for (int i = 1; i < dados.size(); i++) {
-            String[] linha = dados.get(i);
-            if (linha.length >= 4) { // Garantir que há uma coluna de valor
-                try {
-                    // Assumindo que o valor está na coluna 3 (índice 3)
-                    String valorStr = linha[3].replace("R$", "").replace(".", "").replace(",", ".");
-                    valorTotal += Double.parseDouble(valorStr);
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-                    Log.e(TAG, "Erro ao processar valor: " + e.getMessage());
-                }
-            }
-        }
-
-        // Formatar e exibir o resumo
         String resumo = String.format(
-                "Total de vendas: %d | Valor total: %s",
-                totalVendas - 1, // Subtrair 1 para não contar o cabeçalho
-                CURRENCY_FORMAT.format(valorTotal)
+                "Itens vendidos: %d | Valor total: %s | Lucro: %s",
+                dados.getTotalQuantidade(),
+                CURRENCY_FORMAT.format(dados.getTotalValor()),
+                CURRENCY_FORMAT.format(dados.getTotalLucro())
         );
 
         tvResultadoSummary.setText(resumo);
@@ -503,19 +497,15 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
      * Exporta o relatório para Excel
      */
     private void exportarExcel() {
-        if (dadosRelatorio == null || dadosRelatorio.isEmpty()) {
+        if (dadosRelatorio == null) {
             mostrarFeedback(btnExportarExcel, "Nenhum dado para exportar. Gere o relatório primeiro.", true);
             return;
         }
 
-        String nome = edtNome.getText().toString().trim();
-        String documento = edtDocumento.getText().toString().trim();
-        String empresa = edtEmpresa.getText().toString().trim();
-
         showLoading(true);
 
-        // Usar o RelatorioDAO para exportar para Excel de forma assíncrona
-        RelatorioDAO.exportarExcelAsync(this, dadosRelatorio, new RelatorioDAO.RelatorioCallback<File>() {
+        // A planilha é gerada direto da consulta do período, sem passar pela lista em memória
+        RelatorioDAO.exportarExcelAsync(this, dataInicioStr, dataFimStr, new RelatorioDAO.RelatorioCallback<File>() {
             @Override
             public void onResult(File arquivo, boolean success, String message) {
                 hideLoading();
@@ -535,7 +525,7 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
      * Exporta o relatório para PDF
      */
     private void exportarPDF() {
-        if (dadosRelatorio == null || dadosRelatorio.isEmpty()) {
+        if (dadosRelatorio == null) {
             mostrarFeedback(btnGerarPDF, "Nenhum dado para exportar. Gere o relatório primeiro.", true);
             return;
         }
@@ -544,32 +534,61 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
         String documento = edtDocumento.getText().toString().trim();
         String empresa = edtEmpresa.getText().toString().trim();
 
-        showLoading(true);
-
-        // Usar o RelatorioDAO para exportar para PDF de forma assíncrona
-        RelatorioDAO.exportarPDFAsync(this, dadosRelatorio, nome, documento, empresa, new RelatorioDAO.RelatorioCallback<File>() {
-            @Override
-            public void onResult(File arquivo, boolean success, String message) {
-                hideLoading();
+        if (exportacaoCancelada != null) {
+            mostrarFeedback(btnGerarPDF, "Já existe uma exportação em andamento.", false);
+            return;
+        }
 
-                if (success && arquivo != null) {
-                    // Compartilhar o arquivo gerado
-                    RelatorioDAO.compartilharArquivo(Relatorios.this, arquivo, "application/pdf");
-                    mostrarFeedback(btnGerarPDF, "PDF gerado com sucesso!", false);
-                } else {
-                    mostrarFeedback(btnGerarPDF, "Erro ao gerar PDF: " + message, true);
-                }
-            }
-        });
+        AtomicBoolean cancelado = new AtomicBoolean(false);
+        exportacaoCancelada = cancelado;
+        progressoExportacao = new ProgressDialog(this);
+        progressoExportacao.setTitle("Gerando PDF");
+        progressoExportacao.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        progressoExportacao.setIndeterminate(true);
+        progressoExportacao.setCancelable(false);
+        progressoExportacao.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancelar",
+                (dialog, which) -> cancelOperations());
+        progressoExportacao.show();
+
+        // As linhas vêm direto da consulta do período, em páginas gravadas à medida que ficam prontas
+        RelatorioDAO.exportarPDFAsync(this, dataInicioStr, dataFimStr, nome, documento, empresa, cancelado,
+                (meses, total) -> {
+                    if (progressoExportacao != null && exportacaoCancelada == cancelado && total > 0) {
+                        progressoExportacao.setIndeterminate(false);
+                        progressoExportacao.setMax(total);
+                        progressoExportacao.setProgress(meses);
+                    }
+                },
+                (arquivo, success, message) -> {
+                    if (exportacaoCancelada == cancelado) {
+                        exportacaoCancelada = null;
+                        if (progressoExportacao != null && progressoExportacao.isShowing()) {
+                            progressoExportacao.dismiss();
+                        }
+                        progressoExportacao = null;
+                    }
+                    if (isFinishing() || isDestroyed()) return;
+
+                    if (success && arquivo != null) {
+                        // Compartilhar o arquivo gerado
+                        RelatorioDAO.compartilharArquivo(Relatorios.this, arquivo, "application/pdf");
+                        mostrarFeedback(btnGerarPDF, "PDF gerado com sucesso!", false);
+                    } else if (cancelado.get()) {
+                        mostrarFeedback(btnGerarPDF, "Exportação cancelada.", false);
+                    } else {
+                        mostrarFeedback(btnGerarPDF, message, true);
+                    }
+                });
     }
 
     // Implementação do método da interface DataChangeListener
     @Override
-    public void onDataChanged() {
-        Log.d(TAG, "Notificação de alteração de dados recebida, verificando necessidade de atualizar relatório");
+    public void onDataChanged(DataChangeEvent evento) {
+        // Inscrito apenas em VENDAS: alterações de catálogo não regeram o relatório
+        Log.d(TAG, "Alteração de dados recebida (" + evento + "), verificando necessidade de atualizar relatório");
 
         // Se já tiver um relatório gerado, atualiza automaticamente
-        if (dadosRelatorio != null && !dadosRelatorio.isEmpty()) {
+        if (dadosRelatorio != null) {
             gerarRelatorio();
         }
     }
@@ -580,7 +599,7 @@ public class Relatorios extends BaseActivity implements DatabaseManager.DataChan
 
         // Registra o listener ao retornar à tela
         if (DatabaseManager.isInitialized()) {
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.VENDAS);
         }
     }
 
@@ -0,0 +1,126 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * Cache do esquema do banco (tabelas e índices existentes).
+ * O sqlite_master é consultado uma única vez por época; a época muda quando
+ * o banco é reaberto, sincronizado ou migrado, e só então o esquema é relido.
+ * Evita que cada listagem faça uma ida ao servidor apenas para confirmar que
+ * a tabela existe. A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class SchemaCache {
+    private static final String TAG = "SchemaCache";
+
+    private final AtomicInteger epoch = new AtomicInteger();
+
+    // Esquema validado e a época em que foi lido; null enquanto não validado
+    private volatile Set<String> objetos = null;
+    private volatile int epochValidada = -1;
+
+    // Colunas por tabela, lidas sob demanda; descartadas junto com o esquema
+    private final Map<String, Set<String>> colunas = new ConcurrentHashMap<>();
+
+    /**
+     * Verifica se a tabela existe, consultando o banco apenas se o esquema
+     * ainda não foi validado na época atual
+     * @param conn Conexão emprestada usada caso seja necessário ler o esquema
+     * @param tabela Nome da tabela
+     * @return true se a tabela existe
+     */
+    public boolean hasTable(ConnectionLease conn, String tabela) {
+        return getObjects(conn).contains(tabela);
+    }
+
+    /**
+     * Verifica se a coluna existe na tabela. As colunas de cada tabela são lidas
+     * uma única vez por época.
+     * @param conn Conexão emprestada usada caso seja necessário ler o esquema
+     * @param tabela Nome da tabela
+     * @param coluna Nome da coluna
+     * @return true se a coluna existe
+     */
+    public boolean hasColumn(ConnectionLease conn, String tabela, String coluna) {
+        int epochAtual = epoch.get();
+        Set<String> cache = colunas.get(tabela);
+        if (cache == null) {
+            Set<String> lidas = new HashSet<>();
+            try (Rows rows = conn.prepare("SELECT name FROM pragma_table_info(?)").bindText(1, tabela).query()) {
+                Object[] row;
+                while ((row = rows.nextRow()) != null) {
+                    lidas.add((String) row[0]);
+                }
+            }
+            cache = Collections.unmodifiableSet(lidas);
+            synchronized (this) {
+                if (epoch.get() == epochAtual) {
+                    colunas.put(tabela, cache);
+                }
+            }
+        }
+        return cache.contains(coluna);
+    }
+
+    /**
+     * Obtém os nomes das tabelas e índices do banco, lendo o sqlite_master
+     * apenas na primeira chamada de cada época
+     * @param conn Conexão emprestada usada caso seja necessário ler o esquema
+     * @return Conjunto imutável com os nomes
+     */
+    public Set<String> getObjects(ConnectionLease conn) {
+        int epochAtual = epoch.get();
+        Set<String> cache = objetos;
+        if (cache != null && epochValidada == epochAtual) {
+            return cache;
+        }
+
+        Set<String> lidos = new HashSet<>();
+        try (Rows rows = conn.query("SELECT name FROM sqlite_master WHERE type IN ('table', 'index')")) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                lidos.add((String) row[0]);
+            }
+        }
+        Set<String> resultado = Collections.unmodifiableSet(lidos);
+
+        // Só publica se nenhuma invalidação ocorreu durante a leitura
+        synchronized (this) {
+            if (epoch.get() == epochAtual) {
+                objetos = resultado;
+                epochValidada = epochAtual;
+            }
+        }
+        Log.d(TAG, "Esquema validado (época " + epochAtual + "): " + lidos.size() + " objetos");
+        return resultado;
+    }
+
+    /**
+     * Descarta o esquema em cache; a próxima consulta relê o sqlite_master.
+     * Deve ser chamado quando o banco é reaberto, sincronizado ou migrado.
+     * @param motivo Descrição do evento, para o log
+     */
+    public void invalidate(String motivo) {
+        synchronized (this) {
+            int nova = epoch.incrementAndGet();
+            objetos = null;
+            colunas.clear();
+            Log.d(TAG, "Cache de esquema invalidado (" + motivo + "), época " + nova);
+        }
+    }
+
+    /**
+     * Época atual do esquema
+     */
+    public int getEpoch() {
+        return epoch.get();
+    }
+}
@@ -0,0 +1,102 @@
+package tech.turso.SyncroManage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Migrações de esquema do aplicativo, em ordem de versão.
+ * Uma migração publicada não deve ser alterada: mudanças novas entram
+ * como uma nova versão no fim da lista.
+ */
+public final class SchemaMigrations {
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Lista completa de migrações
+     */
+    public static List<SchemaMigrator.Migracao> todas() {
+        return Collections.unmodifiableList(Arrays.asList(
+                // Esquema original (cloud/schema-DB.txt); não altera bancos já criados
+                new SchemaMigrator.Migracao(1, "Esquema base")
+                        .sql("CREATE TABLE IF NOT EXISTS estoque (" +
+                                "id_estoque INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                                "id_usuario TEXT NOT NULL, " +
+                                "nome_produto TEXT NOT NULL, " +
+                                "custo_unitario REAL NOT NULL CHECK (custo_unitario >= 0), " +
+                                "valor_unitario REAL NOT NULL CHECK (valor_unitario >= 0), " +
+                                "quantidade INTEGER NOT NULL CHECK (quantidade >= 0))")
+                        .sql("CREATE TABLE IF NOT EXISTS servicos (" +
+                                "id_servico INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                                "id_usuario TEXT NOT NULL, " +
+                                "nome TEXT NOT NULL, " +
+                                "custo_unitario REAL NOT NULL CHECK (custo_unitario >= 0), " +
+                                "valor_unitario REAL NOT NULL CHECK (valor_unitario >= 0))")
+                        .sql("CREATE TABLE IF NOT EXISTS vendas (" +
+                                "id_venda INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                                "id_usuario TEXT NOT NULL, " +
+                                "tipo_item TEXT NOT NULL CHECK (tipo_item IN ('produto', 'servico')), " +
+                                "id_servico_vendido INTEGER NULL, " +
+                                "nome_item_vendido TEXT NOT NULL, " +
+                                "valor_unitario_vendido REAL NOT NULL, " +
+                                "quantidade INTEGER NOT NULL CHECK (quantidade > 0), " +
+                                "valor_total_venda REAL NOT NULL CHECK (valor_total_venda >= 0), " +
+                                "data_hora_venda TEXT NOT NULL, " +
+                                "metodo_pagamento TEXT NOT NULL, " +
+                                "FOREIGN KEY (id_servico_vendido) REFERENCES servicos(id_servico) ON DELETE SET NULL, " +
+                                "CONSTRAINT chk_venda_tipo_servico CHECK (" +
+                                "(tipo_item = 'produto' AND id_servico_vendido IS NULL) OR " +
+                                "(tipo_item = 'servico' AND id_servico_vendido IS NOT NULL)))")
+                        .indice("idx_estoque_id_usuario",
+                                "CREATE INDEX IF NOT EXISTS idx_estoque_id_usuario ON estoque(id_usuario)")
+                        .indice("idx_estoque_usuario_nome",
+                                "CREATE INDEX IF NOT EXISTS idx_estoque_usuario_nome ON estoque(id_usuario, nome_produto)")
+                        .indice("idx_servicos_id_usuario",
+                                "CREATE INDEX IF NOT EXISTS idx_servicos_id_usuario ON servicos(id_usuario)")
+                        .indice("idx_vendas_data",
+                                "CREATE INDEX IF NOT EXISTS idx_vendas_data ON vendas(data_hora_venda)")
+                        .indice("idx_vendas_id_servico",
+                                "CREATE INDEX IF NOT EXISTS idx_vendas_id_servico ON vendas(id_servico_vendido)")
+                        .indice("idx_vendas_id_usuario",
+                                "CREATE INDEX IF NOT EXISTS idx_vendas_id_usuario ON vendas(id_usuario)")
+                        .indice("idx_vendas_tipo_item",
+                                "CREATE INDEX IF NOT EXISTS idx_vendas_tipo_item ON vendas(tipo_item)"),
+
+                // Paginação por chave na tela de vendas
+                new SchemaMigrator.Migracao(2, "Índice de vendas por usuário e data")
+                        .indice("idx_vendas_usuario_data",
+                                "CREATE INDEX IF NOT EXISTS idx_vendas_usuario_data " +
+                                        "ON vendas(id_usuario, data_hora_venda, id_venda)"),
+
+                // Resumo diário lido pela Home; o preenchimento só roda se a tabela ainda não existia
+                new SchemaMigrator.Migracao(VendasDiariasDAO.VERSAO_ESQUEMA, "Resumo diário de vendas")
+                        .lotes("preenchimento de " + VendasDiariasDAO.TABELA, "vendas",
+                                VendasDiariasDAO.INSERT_LOTE_VENDAS,
+                                conn -> !DatabaseManager.hasTable(conn, VendasDiariasDAO.TABELA))
+                        .sql(VendasDiariasDAO.CREATE_TABLE),
+
+                // Custo unitário registrado na venda, usado pelo relatório
+                new SchemaMigrator.Migracao(4, "Custo unitário na venda")
+                        .coluna("vendas", "custo_unitario_vendido", "REAL")
+                        .lotes("preenchimento de vendas.custo_unitario_vendido", "vendas",
+                                VendaDAO.BACKFILL_CUSTO_LOTE),
+
+                // Chaves das operações reenviadas pela fila de escritas offline (reenvio idempotente)
+                new SchemaMigrator.Migracao(5, "Operações aplicadas da fila offline")
+                        .sql("CREATE TABLE IF NOT EXISTS operacoes_aplicadas (" +
+                                "chave TEXT PRIMARY KEY, " +
+                                "id_usuario TEXT NOT NULL, " +
+                                "tipo TEXT NOT NULL, " +
+                                "aplicada_em TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP) WITHOUT ROWID"),
+
+                // Resumo mensal lido pelo relatório agrupado; o preenchimento só roda se a tabela ainda não existia
+                new SchemaMigrator.Migracao(VendasMensalDAO.VERSAO_ESQUEMA, "Resumo mensal de vendas")
+                        .lotes("preenchimento de " + VendasMensalDAO.TABELA, "vendas",
+                                VendasMensalDAO.INSERT_LOTE_VENDAS,
+                                conn -> !DatabaseManager.hasTable(conn, VendasMensalDAO.TABELA))
+                        .sql(VendasMensalDAO.CREATE_TABLE)
+        ));
+    }
+}
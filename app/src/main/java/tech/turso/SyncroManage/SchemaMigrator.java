@@ -0,0 +1,499 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * Aplica as migrações de esquema registradas em {@link SchemaMigrations}.
+ * A versão do esquema fica na tabela schema_version (uma linha por migração
+ * aplicada); na inicialização, as migrações com versão maior que a atual são
+ * executadas em ordem.
+ *
+ * Cada migração é executada em fases:
+ * <ol>
+ *     <li>comandos estruturais (tabelas, colunas), todos em uma única transação,
+ *     junto com o registro dos preenchimentos em lotes que a migração exige;</li>
+ *     <li>índices, cada um em sua própria transação curta, para não manter a
+ *     transação estrutural aberta durante a construção;</li>
+ *     <li>registro da versão.</li>
+ * </ol>
+ * Os preenchimentos em lotes por rowid não fazem parte da abertura do banco: são
+ * executados depois por {@link #preencherPendentes}, um lote por transação, com o
+ * progresso gravado junto com o lote — se o aplicativo for encerrado no meio, a
+ * próxima execução continua do último lote confirmado. Enquanto houver progresso
+ * registrado para uma versão, quem lê o que ela preenche deve consultar
+ * schema_migracao_lotes (ver {@link #preenchimentoPendente}).
+ * Todas as etapas devem ser idempotentes (IF NOT EXISTS, verificação de coluna,
+ * filtros do tipo "IS NULL"), pois outro aparelho pode migrar o mesmo banco.
+ */
+public class SchemaMigrator {
+    private static final String TAG = "SchemaMigrator";
+
+    private static final int TAMANHO_LOTE_PADRAO = 500;
+
+    private static final String CREATE_SCHEMA_VERSION =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "versao INTEGER PRIMARY KEY, " +
+                    "descricao TEXT NOT NULL, " +
+                    "aplicada_em TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "duracao_ms INTEGER NOT NULL DEFAULT 0)";
+
+    // Progresso dos preenchimentos em lotes: último rowid processado e rowid máximo a processar
+    private static final String CREATE_PROGRESSO =
+            "CREATE TABLE IF NOT EXISTS schema_migracao_lotes (" +
+                    "versao INTEGER NOT NULL, " +
+                    "etapa INTEGER NOT NULL, " +
+                    "cursor INTEGER NOT NULL, " +
+                    "limite INTEGER NOT NULL, " +
+                    "PRIMARY KEY (versao, etapa))";
+
+    /**
+     * Uma migração: versão, descrição e etapas, montadas de forma encadeada
+     */
+    public static final class Migracao {
+        final int versao;
+        final String descricao;
+        final List<String> estruturais = new ArrayList<>();
+        final List<Coluna> colunas = new ArrayList<>();
+        final List<Indice> indices = new ArrayList<>();
+        final List<Lote> lotes = new ArrayList<>();
+
+        public Migracao(int versao, String descricao) {
+            this.versao = versao;
+            this.descricao = descricao;
+        }
+
+        /**
+         * Comando estrutural idempotente (ex.: CREATE TABLE IF NOT EXISTS)
+         */
+        public Migracao sql(String comando) {
+            estruturais.add(comando);
+            return this;
+        }
+
+        /**
+         * Adiciona uma coluna, caso ela ainda não exista
+         * @param definicao Tipo e restrições da coluna (ex.: "REAL")
+         */
+        public Migracao coluna(String tabela, String coluna, String definicao) {
+            colunas.add(new Coluna(tabela, coluna, definicao));
+            return this;
+        }
+
+        /**
+         * Cria um índice em transação própria, caso ele ainda não exista
+         * @param comando CREATE INDEX IF NOT EXISTS ...
+         */
+        public Migracao indice(String nome, String comando) {
+            indices.add(new Indice(nome, comando));
+            return this;
+        }
+
+        /**
+         * Preenchimento em lotes sobre o rowid da tabela, retomável
+         * @param comando SQL com dois parâmetros: rowid inicial (exclusivo) e final (inclusivo)
+         */
+        public Migracao lotes(String descricao, String tabela, String comando) {
+            return lotes(descricao, tabela, comando, null);
+        }
+
+        /**
+         * Preenchimento em lotes executado apenas se a condição for verdadeira.
+         * A condição é avaliada antes dos comandos estruturais (ex.: "a tabela ainda
+         * não existia") e não é reavaliada ao retomar um preenchimento já iniciado.
+         */
+        public Migracao lotes(String descricao, String tabela, String comando,
+                              Predicate<ConnectionLease> condicao) {
+            lotes.add(new Lote(descricao, tabela, comando, condicao));
+            return this;
+        }
+    }
+
+    private static final class Coluna {
+        final String tabela;
+        final String coluna;
+        final String definicao;
+
+        Coluna(String tabela, String coluna, String definicao) {
+            this.tabela = tabela;
+            this.coluna = coluna;
+            this.definicao = definicao;
+        }
+    }
+
+    private static final class Indice {
+        final String nome;
+        final String comando;
+
+        Indice(String nome, String comando) {
+            this.nome = nome;
+            this.comando = comando;
+        }
+    }
+
+    private static final class Lote {
+        final String descricao;
+        final String tabela;
+        final String comando;
+        final Predicate<ConnectionLease> condicao;
+
+        Lote(String descricao, String tabela, String comando, Predicate<ConnectionLease> condicao) {
+            this.descricao = descricao;
+            this.tabela = tabela;
+            this.comando = comando;
+            this.condicao = condicao;
+        }
+    }
+
+    /**
+     * Tempo gasto em uma etapa de migração
+     */
+    public static final class TempoEtapa {
+        public final int versao;
+        public final String etapa;
+        public final long duracaoMs;
+
+        TempoEtapa(int versao, String etapa, long duracaoMs) {
+            this.versao = versao;
+            this.etapa = etapa;
+            this.duracaoMs = duracaoMs;
+        }
+
+        @Override
+        public String toString() {
+            return "v" + versao + " " + etapa + ": " + duracaoMs + "ms";
+        }
+    }
+
+    /**
+     * Resultado de uma execução do migrador
+     */
+    public static final class Resultado {
+        public final int versaoInicial;
+        public final int versaoFinal;
+        public final boolean sucesso;
+        public final String mensagem;
+        public final List<TempoEtapa> tempos;
+
+        Resultado(int versaoInicial, int versaoFinal, boolean sucesso, String mensagem, List<TempoEtapa> tempos) {
+            this.versaoInicial = versaoInicial;
+            this.versaoFinal = versaoFinal;
+            this.sucesso = sucesso;
+            this.mensagem = mensagem;
+            this.tempos = Collections.unmodifiableList(tempos);
+        }
+    }
+
+    private final List<Migracao> migracoes;
+    private final int tamanhoLote;
+
+    public SchemaMigrator(List<Migracao> migracoes) {
+        this(migracoes, TAMANHO_LOTE_PADRAO);
+    }
+
+    public SchemaMigrator(List<Migracao> migracoes, int tamanhoLote) {
+        List<Migracao> ordenadas = new ArrayList<>(migracoes);
+        Collections.sort(ordenadas, (a, b) -> Integer.compare(a.versao, b.versao));
+        for (int i = 1; i < ordenadas.size(); i++) {
+            if (ordenadas.get(i).versao == ordenadas.get(i - 1).versao) {
+                throw new IllegalArgumentException("Versão de migração duplicada: " + ordenadas.get(i).versao);
+            }
+        }
+        this.migracoes = ordenadas;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Versão mais recente conhecida pelo aplicativo
+     */
+    public int getVersaoAlvo() {
+        return migracoes.isEmpty() ? 0 : migracoes.get(migracoes.size() - 1).versao;
+    }
+
+    /**
+     * Lê a versão atual do esquema no banco
+     */
+    public int getVersaoAtual(ConnectionLease conn) {
+        conn.execute(CREATE_SCHEMA_VERSION);
+        try (Rows rows = conn.query("SELECT COALESCE(MAX(versao), 0) FROM schema_version")) {
+            Object[] row = rows.nextRow();
+            return row != null && row[0] != null ? ((Number) row[0]).intValue() : 0;
+        }
+    }
+
+    /**
+     * Aplica as migrações pendentes, em ordem, sem os preenchimentos em lotes. Para na
+     * primeira falha; as migrações já concluídas permanecem registradas e a que falhou
+     * é retomada na próxima execução.
+     */
+    public Resultado migrar(ConnectionLease conn) {
+        List<TempoEtapa> tempos = new ArrayList<>();
+        int versaoInicial;
+        try {
+            versaoInicial = getVersaoAtual(conn);
+            conn.execute(CREATE_PROGRESSO);
+        } catch (Exception e) {
+            String mensagem = "Erro ao ler a versão do esquema: " + e.getMessage();
+            Log.e(TAG, mensagem, e);
+            return new Resultado(0, 0, false, mensagem, tempos);
+        }
+
+        int versaoAtual = versaoInicial;
+        if (versaoAtual >= getVersaoAlvo()) {
+            Log.d(TAG, "Esquema atualizado (versão " + versaoAtual + ")");
+            return new Resultado(versaoInicial, versaoAtual, true, "Esquema atualizado", tempos);
+        }
+
+        long inicioTotal = System.currentTimeMillis();
+        for (Migracao migracao : migracoes) {
+            if (migracao.versao <= versaoAtual) continue;
+            try {
+                aplicar(conn, migracao, tempos);
+                versaoAtual = migracao.versao;
+            } catch (Exception e) {
+                String mensagem = "Erro na migração " + migracao.versao + " (" + migracao.descricao + "): " + e.getMessage();
+                Log.e(TAG, mensagem, e);
+                return new Resultado(versaoInicial, versaoAtual, false, mensagem, tempos);
+            }
+        }
+
+        String mensagem = "Esquema migrado da versão " + versaoInicial + " para " + versaoAtual +
+                " em " + (System.currentTimeMillis() - inicioTotal) + "ms";
+        Log.i(TAG, mensagem);
+        return new Resultado(versaoInicial, versaoAtual, true, mensagem, tempos);
+    }
+
+    private void aplicar(ConnectionLease conn, Migracao migracao, List<TempoEtapa> tempos) {
+        Log.i(TAG, "Aplicando migração " + migracao.versao + ": " + migracao.descricao);
+        long inicioMigracao = System.currentTimeMillis();
+
+        // Fase 1: estrutura e registro dos lotes, na mesma transação. O limite de cada
+        // preenchimento é o maior rowid no momento em que a estrutura passa a existir;
+        // linhas posteriores já são gravadas pelos DAOs no formato novo, e alterações em
+        // linhas ainda pendentes ficam para o lote que chegar a elas (ver preenchimentoPendente).
+        // Os lotes em si são processados depois, por preencherPendentes.
+        long inicio = System.currentTimeMillis();
+        conn.execute("BEGIN TRANSACTION");
+        List<Boolean> lotesNecessarios = new ArrayList<>();
+        for (int i = 0; i < migracao.lotes.size(); i++) {
+            Lote lote = migracao.lotes.get(i);
+            lotesNecessarios.add(existeProgresso(conn, migracao.versao, i)
+                    || lote.condicao == null || lote.condicao.test(conn));
+        }
+        for (String comando : migracao.estruturais) {
+            conn.execute(comando);
+        }
+        for (Coluna coluna : migracao.colunas) {
+            if (!DatabaseManager.hasColumn(conn, coluna.tabela, coluna.coluna)) {
+                conn.execute("ALTER TABLE " + coluna.tabela + " ADD COLUMN " + coluna.coluna + " " + coluna.definicao);
+            }
+        }
+        for (int i = 0; i < migracao.lotes.size(); i++) {
+            if (lotesNecessarios.get(i)) {
+                registrarLote(conn, migracao.versao, i, migracao.lotes.get(i).tabela);
+            }
+        }
+        conn.execute("COMMIT");
+        if (!migracao.estruturais.isEmpty() || !migracao.colunas.isEmpty()) {
+            DatabaseManager.invalidateSchemaCache("migração " + migracao.versao);
+            registrarTempo(tempos, migracao.versao, "estrutura", inicio);
+        }
+
+        // Fase 2: índices, um por transação
+        for (Indice indice : migracao.indices) {
+            inicio = System.currentTimeMillis();
+            if (existeIndice(conn, indice.nome)) {
+                continue;
+            }
+            conn.execute("BEGIN TRANSACTION");
+            conn.execute(indice.comando);
+            conn.execute("COMMIT");
+            DatabaseManager.invalidateSchemaCache("índice " + indice.nome);
+            registrarTempo(tempos, migracao.versao, "índice " + indice.nome, inicio);
+        }
+
+        // Fase 3: registro da versão; o progresso dos lotes é apagado por preencherPendentes
+        long duracao = System.currentTimeMillis() - inicioMigracao;
+        conn.prepare("INSERT OR IGNORE INTO schema_version (versao, descricao, duracao_ms) VALUES (?, ?, ?)")
+                .bindInt(1, migracao.versao)
+                .bindText(2, migracao.descricao)
+                .bindLong(3, duracao)
+                .execute();
+        Log.i(TAG, "Migração " + migracao.versao + " concluída em " + duracao + "ms" +
+                (lotesNecessarios.contains(true) ? "; preenchimento em lotes pendente" : ""));
+    }
+
+    /**
+     * Indica se há preenchimentos em lotes registrados e ainda não concluídos
+     */
+    public boolean temPreenchimentosPendentes(ConnectionLease conn) {
+        if (!DatabaseManager.hasTable(conn, "schema_migracao_lotes")) {
+            return false;
+        }
+        try (Rows rows = conn.query("SELECT 1 FROM schema_migracao_lotes LIMIT 1")) {
+            return rows.nextRow() != null;
+        }
+    }
+
+    /**
+     * Processa os preenchimentos em lotes pendentes, em ordem de versão e etapa (um
+     * preenchimento pode ler o que o de uma versão anterior grava), até o prazo.
+     * O lote em andamento quando o prazo vence é concluído; o restante fica para a
+     * próxima chamada. Falhas são propagadas e o lote que falhou é refeito depois.
+     *
+     * @param orcamentoMs Tempo máximo desta chamada, verificado entre lotes
+     * @param tempos      Recebe o tempo gasto em cada preenchimento
+     * @return true se não restam preenchimentos conhecidos por este aplicativo
+     */
+    public boolean preencherPendentes(ConnectionLease conn, long orcamentoMs, List<TempoEtapa> tempos) {
+        if (!DatabaseManager.hasTable(conn, "schema_migracao_lotes")) {
+            return true;
+        }
+        List<int[]> pendentes = new ArrayList<>();
+        try (Rows rows = conn.query("SELECT versao, etapa FROM schema_migracao_lotes ORDER BY versao, etapa")) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                pendentes.add(new int[]{((Number) row[0]).intValue(), ((Number) row[1]).intValue()});
+            }
+        }
+
+        long prazo = System.currentTimeMillis() + orcamentoMs;
+        for (int[] pendente : pendentes) {
+            Lote lote = buscarLote(pendente[0], pendente[1]);
+            if (lote == null) {
+                // Registrado por uma versão mais nova do aplicativo em outro aparelho
+                Log.w(TAG, "Preenchimento desconhecido: versão " + pendente[0] + ", etapa " + pendente[1]);
+                continue;
+            }
+            long inicio = System.currentTimeMillis();
+            int processados = preencher(conn, pendente[0], pendente[1], lote, prazo);
+            registrarTempo(tempos, pendente[0], lote.descricao + " (" + processados + " lotes)", inicio);
+            if (existeProgresso(conn, pendente[0], pendente[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Lote buscarLote(int versao, int etapa) {
+        for (Migracao migracao : migracoes) {
+            if (migracao.versao == versao) {
+                return etapa < migracao.lotes.size() ? migracao.lotes.get(etapa) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica se a linha ainda será processada por um preenchimento em lotes da migração.
+     * Os DAOs que mantêm tabelas de resumo não aplicam variações a essas linhas: o lote
+     * lê o estado da linha quando chegar a ela, então uma variação aplicada antes seria
+     * contada duas vezes (alteração) ou nunca compensada (exclusão).
+     * Deve ser chamado na transação que altera a linha.
+     *
+     * @param versao Versão da migração que preenche o resumo
+     * @param rowid  rowid da linha na tabela de origem
+     */
+    static boolean preenchimentoPendente(ConnectionLease conn, int versao, long rowid) {
+        if (!DatabaseManager.hasTable(conn, "schema_migracao_lotes")) {
+            return false;
+        }
+        try (Rows rows = conn.prepare("SELECT 1 FROM schema_migracao_lotes " +
+                        "WHERE versao = ? AND cursor < ? AND limite >= ? LIMIT 1")
+                .bindInt(1, versao)
+                .bindLong(2, rowid)
+                .bindLong(3, rowid)
+                .query()) {
+            return rows.nextRow() != null;
+        }
+    }
+
+    private static boolean existeIndice(ConnectionLease conn, String nome) {
+        try (Rows rows = conn.prepare("SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = ?")
+                .bindText(1, nome)
+                .query()) {
+            return rows.nextRow() != null;
+        }
+    }
+
+    private static boolean existeProgresso(ConnectionLease conn, int versao, int etapa) {
+        try (Rows rows = conn.prepare("SELECT 1 FROM schema_migracao_lotes WHERE versao = ? AND etapa = ?")
+                .bindInt(1, versao)
+                .bindInt(2, etapa)
+                .query()) {
+            return rows.nextRow() != null;
+        }
+    }
+
+    private static void registrarLote(ConnectionLease conn, int versao, int etapa, String tabela) {
+        conn.prepare("INSERT OR IGNORE INTO schema_migracao_lotes (versao, etapa, cursor, limite) " +
+                        "SELECT ?, ?, 0, COALESCE(MAX(rowid), 0) FROM " + tabela)
+                .bindInt(1, versao)
+                .bindInt(2, etapa)
+                .execute();
+    }
+
+    /**
+     * Processa os lotes restantes de um preenchimento, até concluí-lo ou vencer o prazo.
+     * Ao concluir, o progresso é apagado: a partir daí os leitores usam o resultado.
+     * @return Número de lotes processados nesta execução
+     */
+    private int preencher(ConnectionLease conn, int versao, int etapa, Lote lote, long prazo) {
+        int processados = 0;
+        while (processados == 0 || System.currentTimeMillis() < prazo) {
+            conn.execute("BEGIN TRANSACTION");
+            long cursor;
+            long limite;
+            // O progresso é lido dentro da transação do lote para que dois aparelhos
+            // migrando ao mesmo tempo não processem o mesmo intervalo
+            try (Rows rows = conn.prepare("SELECT cursor, limite FROM schema_migracao_lotes WHERE versao = ? AND etapa = ?")
+                    .bindInt(1, versao)
+                    .bindInt(2, etapa)
+                    .query()) {
+                Object[] row = rows.nextRow();
+                if (row == null) {
+                    conn.execute("COMMIT");
+                    return processados;
+                }
+                cursor = ((Number) row[0]).longValue();
+                limite = ((Number) row[1]).longValue();
+            }
+            if (cursor >= limite) {
+                conn.prepare("DELETE FROM schema_migracao_lotes WHERE versao = ? AND etapa = ?")
+                        .bindInt(1, versao)
+                        .bindInt(2, etapa)
+                        .execute();
+                conn.execute("COMMIT");
+                Log.i(TAG, lote.descricao + " concluído");
+                return processados;
+            }
+
+            long fim = Math.min(cursor + tamanhoLote, limite);
+            conn.prepare(lote.comando)
+                    .bindLong(1, cursor)
+                    .bindLong(2, fim)
+                    .execute();
+            conn.prepare("UPDATE schema_migracao_lotes SET cursor = ? WHERE versao = ? AND etapa = ?")
+                    .bindLong(1, fim)
+                    .bindInt(2, versao)
+                    .bindInt(3, etapa)
+                    .execute();
+            conn.execute("COMMIT");
+            processados++;
+            Log.d(TAG, lote.descricao + ": rowid " + fim + " de " + limite);
+        }
+        return processados;
+    }
+
+    private static void registrarTempo(List<TempoEtapa> tempos, int versao, String etapa, long inicio) {
+        TempoEtapa tempo = new TempoEtapa(versao, etapa, System.currentTimeMillis() - inicio);
+        tempos.add(tempo);
+        Log.i(TAG, "Etapa concluída: " + tempo);
+    }
+}
@@ -9,16 +9,11 @@ import com.google.firebase.auth.FirebaseUser;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-import tech.turso.libsql.Connection;
-import tech.turso.libsql.Database;
 import tech.turso.libsql.Rows;
 
 public class ServicoDAO {
     private static final String TAG = "ServicoDAO";
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
@@ -29,12 +24,13 @@ public class ServicoDAO {
     }
 
     /**
-     * Lista os serviços de forma assíncrona usando _string formatting_.
+     * Lista os serviços de forma assíncrona.
+     * Servido pelo {@link CatalogCache}; o banco só é consultado na primeira carga.
      *
      * @param callback Callback para receber o resultado da operação.
      */
     public static void listarServicosAsync(ServicoCallback<List<Servico>> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             List<Servico> servicos = new ArrayList<>();
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
@@ -55,26 +51,18 @@ public class ServicoDAO {
                 return;
             }
 
+            // Catálogo já em memória: nenhuma ida ao banco
+            List<Servico> emCache = CatalogCache.getServicos(userId);
+            if (emCache != null) {
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onResult(emCache, true, "Serviços listados com sucesso"));
+                }
+                return;
+            }
+
             try {
-                Database db = DatabaseManager.getDatabase();
-                try (Connection conn = db.connect()) {
-                    String query = String.format(
-                            "SELECT id_servico, id_usuario, nome, custo_unitario, valor_unitario " +
-                                    "FROM servicos WHERE id_usuario = '%s'", userId);
-
-                    try (Rows rows = conn.query(query)) {
-                        Object[] row;
-                        while ((row = rows.nextRow()) != null) {
-                            int id_servico = ((Number) row[0]).intValue();
-                            String id_usuario = (String) row[1];
-                            String nome = (String) row[2];
-                            double custo_unitario = ((Number) row[3]).doubleValue();
-                            double valor_unitario = ((Number) row[4]).doubleValue();
-
-                            Servico servico = new Servico(id_servico, id_usuario, nome, custo_unitario, valor_unitario);
-                            servicos.add(servico);
-                        }
-                    }
+                try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                    servicos.addAll(CatalogCache.carregarServicos(conn, userId));
 
                     if (callback != null) {
                         mainHandler.post(() -> callback.onResult(servicos, true, "Serviços listados com sucesso"));
@@ -90,7 +78,8 @@ public class ServicoDAO {
     }
 
     /**
-     * Lista os serviços de forma síncrona usando _string formatting_.
+     * Lista os serviços de forma síncrona.
+     * Servido pelo {@link CatalogCache}; o banco só é consultado na primeira carga.
      *
      * @return Lista de serviços.
      */
@@ -110,26 +99,15 @@ public class ServicoDAO {
         }
 
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
-
-        try (Connection conn = db.connect()) {
-            String query = String.format(
-                    "SELECT id_servico, id_usuario, nome, custo_unitario, valor_unitario " +
-                            "FROM servicos WHERE id_usuario = '%s'", userId);
-
-            try (Rows rows = conn.query(query)) {
-                Object[] row;
-                while ((row = rows.nextRow()) != null) {
-                    int id_servico = ((Number) row[0]).intValue();
-                    String id_usuario = (String) row[1];
-                    String nome = (String) row[2];
-                    double custo_unitario = ((Number) row[3]).doubleValue();
-                    double valor_unitario = ((Number) row[4]).doubleValue();
-
-                    Servico servico = new Servico(id_servico, id_usuario, nome, custo_unitario, valor_unitario);
-                    servicos.add(servico);
-                }
-            }
+
+        // Catálogo já em memória: nenhuma ida ao banco
+        List<Servico> emCache = CatalogCache.getServicos(userId);
+        if (emCache != null) {
+            return emCache;
+        }
+
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            servicos.addAll(CatalogCache.carregarServicos(conn, userId));
         } catch (Exception e) {
             Log.e(TAG, "Erro ao listar serviços", e);
         }
@@ -144,7 +122,7 @@ public class ServicoDAO {
      * @param callback Callback para receber o resultado da operação.
      */
     public static void inserirServicoAsync(Servico servico, ServicoCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
 
             if (user == null) {
@@ -166,16 +144,15 @@ public class ServicoDAO {
             servico.setId_usuario(userId);
 
             try {
-                Database db = DatabaseManager.getDatabase();
-                try (Connection conn = db.connect()) {
-                    String insertQuery = String.format(
+                try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                    SqlStatement insertQuery = conn.prepare(
                             "INSERT INTO servicos (id_usuario, nome, custo_unitario, valor_unitario) " +
-                                    "VALUES ('%s', '%s', %f, %f)",
-                            userId,
-                            servico.getNome().replace("'", "''"),
-                            servico.getCusto_unitario(),
-                            servico.getValor_unitario());
-                    conn.execute(insertQuery);
+                                    "VALUES (?, ?, ?, ?)")
+                            .bindText(1, userId)
+                            .bindText(2, servico.getNome())
+                            .bindDouble(3, servico.getCusto_unitario())
+                            .bindDouble(4, servico.getValor_unitario());
+                    insertQuery.execute();
 
                     // Recupera o último ID inserido
                     String lastIdQuery = "SELECT last_insert_rowid()";
@@ -183,6 +160,8 @@ public class ServicoDAO {
                         Object[] row = rows.nextRow();
                         if (row != null) {
                             servico.setId_servico(((Number) row[0]).intValue());
+                            CatalogCache.upsertServico(userId, servico);
+                            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.INSERCAO, servico.getId_servico());
                             if (callback != null) {
                                 mainHandler.post(() -> callback.onResult(true, true, "Serviço inserido com sucesso"));
                             }
@@ -223,23 +202,24 @@ public class ServicoDAO {
 
         String userId = user.getUid();
         servico.setId_usuario(userId);
-        Database db = DatabaseManager.getDatabase();
 
-        try (Connection conn = db.connect()) {
-            String insertQuery = String.format(
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement insertQuery = conn.prepare(
                     "INSERT INTO servicos (id_usuario, nome, custo_unitario, valor_unitario) " +
-                            "VALUES ('%s', '%s', %f, %f)",
-                    userId,
-                    servico.getNome().replace("'", "''"),
-                    servico.getCusto_unitario(),
-                    servico.getValor_unitario());
-            conn.execute(insertQuery);
+                            "VALUES (?, ?, ?, ?)")
+                    .bindText(1, userId)
+                    .bindText(2, servico.getNome())
+                    .bindDouble(3, servico.getCusto_unitario())
+                    .bindDouble(4, servico.getValor_unitario());
+            insertQuery.execute();
 
             String lastIdQuery = "SELECT last_insert_rowid()";
             try (Rows rows = conn.query(lastIdQuery)) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     servico.setId_servico(((Number) row[0]).intValue());
+                    CatalogCache.upsertServico(userId, servico);
+                    DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.INSERCAO, servico.getId_servico());
                     return true;
                 }
             }
@@ -257,7 +237,7 @@ public class ServicoDAO {
      * @param callback Callback para receber o resultado da operação.
      */
     public static void atualizarServicoAsync(Servico servico, ServicoCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
             if (user == null) {
                 Log.e(TAG, "Usuário não autenticado");
@@ -273,49 +253,102 @@ public class ServicoDAO {
                 return;
             }
             String userId = user.getUid();
+            // Mesma chave na tentativa online e na fila: a edição nunca é reaplicada
+            String chave = WriteOutbox.novaChave();
 
-            try {
-                Database db = DatabaseManager.getDatabase();
-                try (Connection conn = db.connect()) {
-                    String updateQuery = String.format(
-                            "UPDATE servicos SET nome = '%s', custo_unitario = %f, valor_unitario = %f " +
-                                    "WHERE id_servico = %d AND id_usuario = '%s'",
-                            servico.getNome().replace("'", "''"),
-                            servico.getCusto_unitario(),
-                            servico.getValor_unitario(),
-                            servico.getId_servico(),
-                            userId);
-                    conn.execute(updateQuery);
-
-                    String checkQuery = String.format(
-                            "SELECT COUNT(*) FROM servicos WHERE id_servico = %d AND id_usuario = '%s'",
-                            servico.getId_servico(),
-                            userId);
-                    try (Rows rows = conn.query(checkQuery)) {
-                        Object[] row = rows.nextRow();
-                        if (row != null) {
-                            int count = ((Number) row[0]).intValue();
-                            boolean success = count > 0;
-                            if (callback != null) {
-                                mainHandler.post(() -> callback.onResult(success, true,
-                                        success ? "Serviço atualizado com sucesso" : "Serviço não encontrado após atualização"));
-                            }
-                            return;
-                        }
-                    }
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onResult(false, false, "Não foi possível verificar a atualização"));
-                    }
+            if (DatabaseManager.shouldQueueWrites()) {
+                enfileirarAtualizacao(userId, servico, chave, callback);
+                return;
+            }
+
+            boolean success;
+            boolean commitEnviado = false;
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                conn.execute("BEGIN TRANSACTION");
+                WriteOutbox.registrarOperacao(conn, chave, userId, WriteOutbox.TIPO_SERVICO);
+                success = gravarServico(conn, userId, servico);
+                if (success) {
+                    commitEnviado = true;
+                    conn.execute("COMMIT");
+                } else {
+                    conn.execute("ROLLBACK");
                 }
             } catch (Exception e) {
+                // O ROLLBACK é feito ao devolver a conexão com a transação aberta
                 Log.e(TAG, "Erro ao atualizar serviço", e);
+                // A conexão caiu antes do COMMIT: guarda na fila
+                if (!commitEnviado && DatabaseManager.shouldQueueWrites(e)) {
+                    enfileirarAtualizacao(userId, servico, chave, callback);
+                    return;
+                }
                 if (callback != null) {
                     mainHandler.post(() -> callback.onResult(false, false, "Erro ao atualizar serviço: " + e.getMessage()));
                 }
+                return;
+            }
+
+            if (success) {
+                CatalogCache.upsertServico(userId, servico);
+                DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.ATUALIZACAO, servico.getId_servico());
+            }
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(success, true,
+                        success ? "Serviço atualizado com sucesso" : "Serviço não encontrado após atualização"));
             }
         });
     }
 
+    /**
+     * Grava os dados do serviço no banco. Usado pela atualização normal e pela
+     * reprodução das edições feitas offline.
+     *
+     * @return true se o serviço existe
+     */
+    static boolean gravarServico(ConnectionLease conn, String userId, Servico servico) {
+        SqlStatement updateQuery = conn.prepare(
+                "UPDATE servicos SET nome = ?, custo_unitario = ?, valor_unitario = ? " +
+                        "WHERE id_servico = ? AND id_usuario = ?")
+                .bindText(1, servico.getNome())
+                .bindDouble(2, servico.getCusto_unitario())
+                .bindDouble(3, servico.getValor_unitario())
+                .bindInt(4, servico.getId_servico())
+                .bindText(5, userId);
+        updateQuery.execute();
+
+        SqlStatement checkQuery = conn.prepare(
+                "SELECT COUNT(*) FROM servicos WHERE id_servico = ? AND id_usuario = ?")
+                .bindInt(1, servico.getId_servico())
+                .bindText(2, userId);
+        try (Rows rows = checkQuery.query()) {
+            Object[] row = rows.nextRow();
+            return row != null && ((Number) row[0]).intValue() > 0;
+        }
+    }
+
+    /**
+     * Guarda a edição na fila de escritas ({@link WriteOutbox}) e aplica ao catálogo em memória
+     */
+    private static void enfileirarAtualizacao(String userId, Servico servico, String chave,
+                                              ServicoCallback<Boolean> callback) {
+        boolean success = false;
+        String message;
+        try {
+            DatabaseManager.getWriteOutbox().enfileirarServico(userId, servico, chave);
+            CatalogCache.upsertServico(userId, servico);
+            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.ATUALIZACAO, servico.getId_servico());
+            success = true;
+            message = "Serviço atualizado offline; será enviado quando a conexão voltar";
+        } catch (Exception e) {
+            message = "Erro ao registrar atualização offline: " + e.getMessage();
+            Log.e(TAG, message, e);
+        }
+        if (callback != null) {
+            final boolean finalSuccess = success;
+            final String finalMessage = message;
+            mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
+        }
+    }
+
     /**
      * Atualiza um serviço de forma síncrona utilizando _string formatting_.
      *
@@ -333,27 +366,30 @@ public class ServicoDAO {
             return false;
         }
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
-
-        try (Connection conn = db.connect()) {
-            String updateQuery = String.format(
-                    "UPDATE servicos SET nome = '%s', custo_unitario = %f, valor_unitario = %f " +
-                            "WHERE id_servico = %d AND id_usuario = '%s'",
-                    servico.getNome().replace("'", "''"),
-                    servico.getCusto_unitario(),
-                    servico.getValor_unitario(),
-                    servico.getId_servico(),
-                    userId);
-            conn.execute(updateQuery);
-
-            String checkQuery = String.format(
-                    "SELECT COUNT(*) FROM servicos WHERE id_servico = %d AND id_usuario = '%s'",
-                    servico.getId_servico(),
-                    userId);
-            try (Rows rows = conn.query(checkQuery)) {
+
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement updateQuery = conn.prepare(
+                    "UPDATE servicos SET nome = ?, custo_unitario = ?, valor_unitario = ? " +
+                            "WHERE id_servico = ? AND id_usuario = ?")
+                    .bindText(1, servico.getNome())
+                    .bindDouble(2, servico.getCusto_unitario())
+                    .bindDouble(3, servico.getValor_unitario())
+                    .bindInt(4, servico.getId_servico())
+                    .bindText(5, userId);
+            updateQuery.execute();
+
+            SqlStatement checkQuery = conn.prepare(
+                    "SELECT COUNT(*) FROM servicos WHERE id_servico = ? AND id_usuario = ?")
+                    .bindInt(1, servico.getId_servico())
+                    .bindText(2, userId);
+            try (Rows rows = checkQuery.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
+                    if (count > 0) {
+                        CatalogCache.upsertServico(userId, servico);
+                        DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.ATUALIZACAO, servico.getId_servico());
+                    }
                     return count > 0;
                 }
             }
@@ -371,7 +407,7 @@ public class ServicoDAO {
      * @param callback  Callback para receber o resultado da operação.
      */
     public static void excluirServicoAsync(int idServico, ServicoCallback<Boolean> callback) {
-        executor.execute(() -> {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
             FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
             if (user == null) {
                 Log.e(TAG, "Usuário não autenticado");
@@ -389,12 +425,12 @@ public class ServicoDAO {
             String userId = user.getUid();
 
             try {
-                Database db = DatabaseManager.getDatabase();
-                try (Connection conn = db.connect()) {
-                    String checkVendasQuery = String.format(
-                            "SELECT COUNT(*) FROM vendas WHERE id_servico_vendido = %d AND id_usuario = '%s'",
-                            idServico, userId);
-                    try (Rows rows = conn.query(checkVendasQuery)) {
+                try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                    SqlStatement checkVendasQuery = conn.prepare(
+                            "SELECT COUNT(*) FROM vendas WHERE id_servico_vendido = ? AND id_usuario = ?")
+                            .bindInt(1, idServico)
+                            .bindText(2, userId);
+                    try (Rows rows = checkVendasQuery.query()) {
                         Object[] row = rows.nextRow();
                         if (row != null) {
                             int count = ((Number) row[0]).intValue();
@@ -409,19 +445,25 @@ public class ServicoDAO {
                         }
                     }
 
-                    String deleteQuery = String.format(
-                            "DELETE FROM servicos WHERE id_servico = %d AND id_usuario = '%s'",
-                            idServico, userId);
-                    conn.execute(deleteQuery);
-
-                    String checkQuery = String.format(
-                            "SELECT COUNT(*) FROM servicos WHERE id_servico = %d AND id_usuario = '%s'",
-                            idServico, userId);
-                    try (Rows rows = conn.query(checkQuery)) {
+                    SqlStatement deleteQuery = conn.prepare(
+                            "DELETE FROM servicos WHERE id_servico = ? AND id_usuario = ?")
+                            .bindInt(1, idServico)
+                            .bindText(2, userId);
+                    deleteQuery.execute();
+
+                    SqlStatement checkQuery = conn.prepare(
+                            "SELECT COUNT(*) FROM servicos WHERE id_servico = ? AND id_usuario = ?")
+                            .bindInt(1, idServico)
+                            .bindText(2, userId);
+                    try (Rows rows = checkQuery.query()) {
                         Object[] row = rows.nextRow();
                         if (row != null) {
                             int count = ((Number) row[0]).intValue();
                             boolean success = count == 0;
+                            if (success) {
+                                CatalogCache.removeServico(userId, idServico);
+                                DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.EXCLUSAO, idServico);
+                            }
                             if (callback != null) {
                                 mainHandler.post(() -> callback.onResult(success, true,
                                         success ? "Serviço excluído com sucesso" : "Falha ao excluir serviço"));
@@ -459,13 +501,13 @@ public class ServicoDAO {
             return false;
         }
         String userId = user.getUid();
-        Database db = DatabaseManager.getDatabase();
 
-        try (Connection conn = db.connect()) {
-            String checkVendasQuery = String.format(
-                    "SELECT COUNT(*) FROM vendas WHERE id_servico_vendido = %d AND id_usuario = '%s'",
-                    idServico, userId);
-            try (Rows rows = conn.query(checkVendasQuery)) {
+        try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+            SqlStatement checkVendasQuery = conn.prepare(
+                    "SELECT COUNT(*) FROM vendas WHERE id_servico_vendido = ? AND id_usuario = ?")
+                    .bindInt(1, idServico)
+                    .bindText(2, userId);
+            try (Rows rows = checkVendasQuery.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
@@ -476,18 +518,24 @@ public class ServicoDAO {
                 }
             }
 
-            String deleteQuery = String.format(
-                    "DELETE FROM servicos WHERE id_servico = %d AND id_usuario = '%s'",
-                    idServico, userId);
-            conn.execute(deleteQuery);
-
-            String checkQuery = String.format(
-                    "SELECT COUNT(*) FROM servicos WHERE id_servico = %d AND id_usuario = '%s'",
-                    idServico, userId);
-            try (Rows rows = conn.query(checkQuery)) {
+            SqlStatement deleteQuery = conn.prepare(
+                    "DELETE FROM servicos WHERE id_servico = ? AND id_usuario = ?")
+                    .bindInt(1, idServico)
+                    .bindText(2, userId);
+            deleteQuery.execute();
+
+            SqlStatement checkQuery = conn.prepare(
+                    "SELECT COUNT(*) FROM servicos WHERE id_servico = ? AND id_usuario = ?")
+                    .bindInt(1, idServico)
+                    .bindText(2, userId);
+            try (Rows rows = checkQuery.query()) {
                 Object[] row = rows.nextRow();
                 if (row != null) {
                     int count = ((Number) row[0]).intValue();
+                    if (count == 0) {
+                        CatalogCache.removeServico(userId, idServico);
+                        DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.SERVICOS, DataChangeEvent.Operacao.EXCLUSAO, idServico);
+                    }
                     return count == 0;
                 }
             }
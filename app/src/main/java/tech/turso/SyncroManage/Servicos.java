@@ -168,7 +168,7 @@ public class Servicos extends BaseActivity implements DatabaseManager.Connection
                     retryCount.set(0); // Resetar contador em caso de sucesso
 
                     // Registra o listener de alteração de dados após inicialização bem-sucedida
-                    DatabaseManager.addDataChangeListener(this);
+                    DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.SERVICOS);
 
                     carregarServicos();
                 } else {
@@ -180,7 +180,7 @@ public class Servicos extends BaseActivity implements DatabaseManager.Connection
             cancelTimeout(); // Não precisamos do timeout neste caso
 
             // Registra o listener de alteração de dados se o banco já estiver inicializado
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.SERVICOS);
 
             carregarServicos();
         }
@@ -291,7 +291,7 @@ public class Servicos extends BaseActivity implements DatabaseManager.Connection
 
         // Registra o listener de alteração de dados quando a tela volta a ficar visível
         if (DatabaseManager.isInitialized()) {
-            DatabaseManager.addDataChangeListener(this);
+            DatabaseManager.addDataChangeListener(this, DataChangeEvent.Tabela.SERVICOS);
         }
     }
 
@@ -530,8 +530,8 @@ public class Servicos extends BaseActivity implements DatabaseManager.Connection
 
     // Implementação do método da interface DataChangeListener
     @Override
-    public void onDataChanged() {
-        Log.d(TAG, "Notificação de alteração de dados recebida, recarregando serviços");
+    public void onDataChanged(DataChangeEvent evento) {
+        Log.d(TAG, "Alteração de dados recebida (" + evento + "), recarregando serviços");
 
         // Recarrega os serviços quando houver alterações no banco de dados
         if (!isLoading) {
@@ -15,12 +15,20 @@ import android.view.View;
 import android.view.animation.AlphaAnimation;
 import androidx.appcompat.app.AppCompatActivity;
 import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import tech.turso.SyncroManage.databinding.ActivitySplashSyncroDbBinding;
 
 public class SplashSyncroDB extends BaseActivity {
     private ActivitySplashSyncroDbBinding binding;
     private static final String TAG = "SplashSyncroDB";
 
+    // Verificações paralelas ainda em andamento e seus resultados (thread principal)
+    private int etapasPendentes = 0;
+    private boolean online = false;
+    private boolean servicoDisponivel = false;
+    private boolean bancoAberto = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -36,7 +44,9 @@ public class SplashSyncroDB extends BaseActivity {
 
         animarElementos();
 
-        new Handler(Looper.getMainLooper()).postDelayed(this::verificarConexaoInternet, 1500);
+        // A animação é só visual: as verificações começam junto com ela
+        StartupMetrics.iniciar();
+        iniciarVerificacoes();
     }
 
     private void animarElementos() {
@@ -55,63 +65,118 @@ public class SplashSyncroDB extends BaseActivity {
         binding.cardView.setVisibility(View.VISIBLE);
     }
 
-    private void verificarConexaoInternet() {
+    /**
+     * Verificações da abertura. Conexão e Firebase são verificados na hora; a
+     * disponibilidade do serviço e o aquecimento do banco (token + abertura)
+     * rodam em paralelo, e a próxima tela abre quando os dois terminam.
+     * Sem internet, um usuário já logado com réplica local segue para a Home
+     * lendo os dados locais; só o login exige conexão.
+     */
+    private void iniciarVerificacoes() {
         binding.textoStatus.setText("Verificando conexão com a internet...");
         atualizarProgresso(10);
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            if (temConexaoInternet()) {
-                Log.i(TAG, "Conexão com a internet OK.");
-                atualizarProgresso(33);
-                verificarServicosNaNuvem();
-            } else {
-                Log.w(TAG, "Sem conexão com a internet.");
-                mostrarErro("Não foi possível conectar à internet. Verifique sua conexão e tente novamente.");
-            }
-        }, 1000);
-    }
 
-    private void verificarServicosNaNuvem() {
+        long inicio = StartupMetrics.agora();
+        online = temConexaoInternet();
+        Log.i(TAG, online ? "Conexão com a internet OK." : "Sem conexão com a internet.");
+        StartupMetrics.registrarFase("conexao", inicio);
+
         binding.textoStatus.setText("Conectando aos serviços na nuvem...");
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            try {
-                FirebaseApp defaultApp = FirebaseApp.getInstance();
-                Log.i(TAG, "FirebaseApp inicializado com sucesso: " + defaultApp.getName());
-                atualizarProgresso(66);
-                verificarBancoDeDados();
-
-            } catch (IllegalStateException e) {
-                Log.e(TAG, "Falha ao obter instância FirebaseApp. VERIFIQUE A CONFIGURAÇÃO (google-services.json, SHA keys, package name)!", e);
-                mostrarErro("Falha ao inicializar os serviços na nuvem. Verifique a configuração do Firebase no seu projeto (google-services.json, chaves SHA, nome do pacote).");
-
-            } catch (Exception e) {
-                Log.e(TAG, "Erro inesperado durante a verificação de serviços na nuvem.", e);
-                mostrarErro("Ocorreu um erro inesperado durante a inicialização.");
-            }
-        }, 1000);
-    }
+        inicio = StartupMetrics.agora();
+        FirebaseUser usuario;
+        try {
+            FirebaseApp defaultApp = FirebaseApp.getInstance();
+            Log.i(TAG, "FirebaseApp inicializado com sucesso: " + defaultApp.getName());
+            // Sessão restaurada do disco; com usuário logado o banco já pode ser aberto
+            usuario = FirebaseAuth.getInstance().getCurrentUser();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Falha ao obter instância FirebaseApp. VERIFIQUE A CONFIGURAÇÃO (google-services.json, SHA keys, package name)!", e);
+            mostrarErro("Falha ao inicializar os serviços na nuvem. Verifique a configuração do Firebase no seu projeto (google-services.json, chaves SHA, nome do pacote).");
+            return;
+        } catch (Exception e) {
+            Log.e(TAG, "Erro inesperado durante a verificação de serviços na nuvem.", e);
+            mostrarErro("Ocorreu um erro inesperado durante a inicialização.");
+            return;
+        }
+        StartupMetrics.registrarFase("firebase", inicio);
+        atualizarProgresso(33);
+
+        boolean abrirOffline = !online && usuario != null && DatabaseManager.hasLocalReplica(getApplicationContext());
+        if (!online && !abrirOffline) {
+            // Sem sessão ou sem réplica local, o próximo passo é o login, que precisa de rede
+            mostrarErro("Não foi possível conectar à internet. Verifique sua conexão e tente novamente.");
+            return;
+        }
+
+        binding.textoStatus.setText(abrirOffline
+                ? "Sem conexão. Abrindo dados salvos no aparelho..."
+                : "Verificando disponibilidade do banco de dados...");
+        servicoDisponivel = false;
+        bancoAberto = false;
+        if (abrirOffline) {
+            // Offline o serviço é inacessível de qualquer forma: só a abertura do banco importa
+            etapasPendentes = 1;
+        } else {
+            etapasPendentes = usuario != null ? 2 : 1;
+            verificarServico();
+        }
 
-    private void verificarBancoDeDados() {
-        binding.textoStatus.setText("Verificando disponibilidade do banco de dados...");
+        if (usuario != null) {
+            long inicioBanco = StartupMetrics.agora();
+            DatabaseManager.initializeAsync(getApplicationContext(), (success, message) -> {
+                StartupMetrics.registrarFase("banco", inicioBanco);
+                bancoAberto = success;
+                if (!success) {
+                    // A tela de login tenta de novo e trata o erro
+                    Log.w(TAG, "Banco não aberto durante a abertura: " + message);
+                }
+                concluirEtapa();
+            });
+        }
+    }
 
-        // Executar a verificação em uma thread separada
+    /**
+     * Disponibilidade do serviço, em paralelo com a abertura do banco
+     */
+    private void verificarServico() {
+        long inicioServico = StartupMetrics.agora();
         new Thread(() -> {
             final boolean isAvailable = DatabaseManager.verifyServiceAvailability();
-
             runOnUiThread(() -> {
+                StartupMetrics.registrarFase("servico", inicioServico);
+                servicoDisponivel = isAvailable;
                 if (isAvailable) {
                     Log.i(TAG, "Serviço de banco de dados (Turso) está acessível.");
-                    atualizarProgresso(100);
-                    new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                        startActivity(new Intent(SplashSyncroDB.this, Login.class));
-                        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-                        finish();
-                    }, 500);
                 } else {
                     Log.e(TAG, "Falha ao acessar o serviço de banco de dados (Turso).");
-                    mostrarErro("Não foi possível conectar ao banco de dados. Verifique sua conexão ou tente novamente mais tarde.");
                 }
+                concluirEtapa();
             });
-        }).start();
+        }, "SplashServico").start();
+    }
+
+    /**
+     * Chamado na thread principal ao fim de cada verificação paralela
+     */
+    private void concluirEtapa() {
+        if (isFinishing() || --etapasPendentes > 0) return;
+        atualizarProgresso(100);
+
+        // Banco aberto (inclusive pela réplica local, sem rede): a Home carrega os dados locais
+        if (!bancoAberto && !online) {
+            mostrarErro("Não foi possível abrir os dados salvos sem internet. Verifique sua conexão e tente novamente.");
+            return;
+        }
+        if (!servicoDisponivel && !bancoAberto) {
+            mostrarErro("Não foi possível conectar ao banco de dados. Verifique sua conexão ou tente novamente mais tarde.");
+            return;
+        }
+
+        // Com o banco já aberto a Home carrega direto; senão o login obtém o acesso
+        Class<?> destino = bancoAberto ? Home.class : Login.class;
+        startActivity(new Intent(SplashSyncroDB.this, destino));
+        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+        finish();
     }
 
     private void atualizarProgresso(int progresso) {
@@ -150,7 +215,8 @@ public class SplashSyncroDB extends BaseActivity {
             binding.botaoTentarNovamente.setVisibility(View.GONE);
             binding.botaoSair.setVisibility(View.GONE);
             binding.progressBar.setProgress(0);
-            verificarConexaoInternet();
+            StartupMetrics.iniciar();
+            iniciarVerificacoes();
         });
 
         binding.botaoSair.setOnClickListener(v -> {
@@ -0,0 +1,255 @@
+package tech.turso.SyncroManage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * Comando SQL com parâmetros posicionais ({@code ?}) e binds tipados.
+ * Obtido via {@link ConnectionLease#prepare(String)}; as DAOs usam sempre o
+ * mesmo texto por consulta em vez de montar SQL com String.format.
+ *
+ * A biblioteca libsql empacotada no app ainda não expõe binding nativo, então
+ * os valores são convertidos em literais SQL seguros no momento da execução
+ * (textos escapados, números sempre com ponto decimal, independentemente do
+ * Locale do aparelho). Por isso o banco recebe um texto diferente a cada
+ * execução e o analisa de novo: o cache LRU da conexão guarda apenas a divisão
+ * do texto nos marcadores {@code ?}, feita em Java.
+ */
+public class SqlStatement {
+
+    private final ConnectionLease lease;
+    private final Template template;
+    private final String[] literais;
+
+    SqlStatement(ConnectionLease lease, Template template) {
+        this.lease = lease;
+        this.template = template;
+        this.literais = new String[template.getParameterCount()];
+    }
+
+    /**
+     * Associa um texto ao parâmetro (índice a partir de 1). Null vira NULL.
+     */
+    public SqlStatement bindText(int index, String value) {
+        literais[checkIndex(index)] = value == null ? "NULL" : quote(value);
+        return this;
+    }
+
+    /**
+     * Associa um inteiro ao parâmetro (índice a partir de 1)
+     */
+    public SqlStatement bindInt(int index, int value) {
+        literais[checkIndex(index)] = Integer.toString(value);
+        return this;
+    }
+
+    /**
+     * Associa um inteiro longo ao parâmetro (índice a partir de 1)
+     */
+    public SqlStatement bindLong(int index, long value) {
+        literais[checkIndex(index)] = Long.toString(value);
+        return this;
+    }
+
+    /**
+     * Associa um inteiro opcional ao parâmetro (índice a partir de 1). Null vira NULL.
+     */
+    public SqlStatement bindInteger(int index, Integer value) {
+        literais[checkIndex(index)] = value == null ? "NULL" : value.toString();
+        return this;
+    }
+
+    /**
+     * Associa um número real ao parâmetro (índice a partir de 1)
+     */
+    public SqlStatement bindDouble(int index, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Valor numérico inválido para o parâmetro " + index + ": " + value);
+        }
+        literais[checkIndex(index)] = Double.toString(value);
+        return this;
+    }
+
+    /**
+     * Associa NULL ao parâmetro (índice a partir de 1)
+     */
+    public SqlStatement bindNull(int index) {
+        literais[checkIndex(index)] = "NULL";
+        return this;
+    }
+
+    /**
+     * Limpa os valores associados, permitindo reutilizar o comando
+     */
+    public SqlStatement clearBindings() {
+        Arrays.fill(literais, null);
+        return this;
+    }
+
+    /**
+     * Executa o comando como consulta
+     * @return Linhas resultantes (devem ser fechadas pelo chamador)
+     */
+    public Rows query() {
+        return lease.query(render());
+    }
+
+    /**
+     * Executa o comando sem retorno de linhas
+     */
+    public void execute() {
+        lease.execute(render());
+    }
+
+    /**
+     * Texto SQL final, com os parâmetros já substituídos
+     */
+    String render() {
+        String[] partes = template.fragments;
+        StringBuilder sb = new StringBuilder(template.estimatedLength);
+        for (int i = 0; i < literais.length; i++) {
+            if (literais[i] == null) {
+                throw new IllegalStateException("Parâmetro " + (i + 1) + " sem valor em: " + template.sql);
+            }
+            sb.append(partes[i]).append(literais[i]);
+        }
+        sb.append(partes[partes.length - 1]);
+        return sb.toString();
+    }
+
+    /**
+     * Texto SQL para logs: o comando final, ou o SQL original se faltar algum parâmetro
+     */
+    @Override
+    public String toString() {
+        for (String literal : literais) {
+            if (literal == null) {
+                return template.sql;
+            }
+        }
+        return render();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 1 || index > literais.length) {
+            throw new IndexOutOfBoundsException("Parâmetro " + index + " inexistente (total: " + literais.length + ")");
+        }
+        return index - 1;
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                sb.append("''");
+            } else if (c != '\0') {
+                sb.append(c);
+            }
+        }
+        sb.append('\'');
+        return sb.toString();
+    }
+
+    /**
+     * SQL analisado: fragmentos de texto entre os marcadores {@code ?}.
+     * Marcadores dentro de literais, identificadores entre aspas e comentários são ignorados.
+     */
+    static final class Template {
+        final String sql;
+        final String[] fragments;
+        final int estimatedLength;
+
+        Template(String sql) {
+            this.sql = sql;
+            List<String> partes = new ArrayList<>();
+            int inicio = 0;
+            int i = 0;
+            int n = sql.length();
+            while (i < n) {
+                char c = sql.charAt(i);
+                if (c == '\'' || c == '"') {
+                    i = skipQuoted(sql, i, c);
+                } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                    int fim = sql.indexOf('\n', i);
+                    i = fim < 0 ? n : fim + 1;
+                } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                    int fim = sql.indexOf("*/", i + 2);
+                    i = fim < 0 ? n : fim + 2;
+                } else if (c == '?') {
+                    partes.add(sql.substring(inicio, i));
+                    inicio = ++i;
+                } else {
+                    i++;
+                }
+            }
+            partes.add(sql.substring(inicio));
+            this.fragments = partes.toArray(new String[0]);
+            this.estimatedLength = sql.length() + 16 * (fragments.length - 1);
+        }
+
+        int getParameterCount() {
+            return fragments.length - 1;
+        }
+
+        private static int skipQuoted(String sql, int inicio, char aspas) {
+            int i = inicio + 1;
+            while (i < sql.length()) {
+                if (sql.charAt(i) == aspas) {
+                    // Aspas duplicadas são escape dentro do literal
+                    if (i + 1 < sql.length() && sql.charAt(i + 1) == aspas) {
+                        i += 2;
+                        continue;
+                    }
+                    return i + 1;
+                }
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Cache LRU dos textos SQL já divididos nos marcadores, mantido por conexão do pool
+     */
+    static final class Cache {
+        private final Map<String, Template> templates;
+        private long hits = 0;
+        private long misses = 0;
+
+        Cache(final int capacidade) {
+            this.templates = new LinkedHashMap<String, Template>(capacidade, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                    return size() > capacidade;
+                }
+            };
+        }
+
+        Template get(String sql) {
+            Template template = templates.get(sql);
+            if (template == null) {
+                misses++;
+                template = new Template(sql);
+                templates.put(sql, template);
+            } else {
+                hits++;
+            }
+            return template;
+        }
+
+        long getHits() {
+            return hits;
+        }
+
+        long getMisses() {
+            return misses;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package tech.turso.SyncroManage;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tempos das fases da abertura do aplicativo, do início do processo até a Home
+ * exibir os dados. Cada abertura gera uma linha em startup_metrics.csv (pasta de
+ * arquivos do app) com a versão, o tempo total e a duração de cada fase, para
+ * comparar o tempo até a tela ficar utilizável entre versões.
+ */
+public final class StartupMetrics {
+    private static final String TAG = "StartupMetrics";
+    private static final String ARQUIVO = "startup_metrics.csv";
+
+    // Aberturas mantidas no arquivo
+    private static final int MAX_LINHAS = 200;
+
+    private static final Map<String, Long> fases = new LinkedHashMap<>();
+    private static long inicioProcesso = 0;
+    private static boolean emAndamento = false;
+
+    private StartupMetrics() {
+    }
+
+    /**
+     * Marca o início de uma abertura (chamado pela splash). O tempo entre o início
+     * do processo e a splash é registrado como a primeira fase.
+     */
+    public static synchronized void iniciar() {
+        fases.clear();
+        inicioProcesso = Process.getStartElapsedRealtime();
+        emAndamento = true;
+        fases.put("processo", agora() - inicioProcesso);
+    }
+
+    /**
+     * Instante atual no relógio usado pelas fases
+     */
+    public static long agora() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Registra a duração de uma fase iniciada em {@code inicio} (obtido por {@link #agora()})
+     * @param fase Nome da fase
+     * @param inicio Início da fase
+     */
+    public static synchronized void registrarFase(String fase, long inicio) {
+        if (!emAndamento) return;
+        long duracao = agora() - inicio;
+        fases.put(fase, duracao);
+        Log.d(TAG, "Fase " + fase + ": " + duracao + "ms");
+    }
+
+    /**
+     * Encerra a abertura em andamento quando a primeira tela de dados fica utilizável
+     * e grava a linha no arquivo. Chamadas fora de uma abertura são ignoradas.
+     */
+    public static void marcarInterativo(Context context) {
+        final long total;
+        final Map<String, Long> registradas;
+        synchronized (StartupMetrics.class) {
+            if (!emAndamento) return;
+            emAndamento = false;
+            total = agora() - inicioProcesso;
+            registradas = new LinkedHashMap<>(fases);
+        }
+
+        String versao;
+        try {
+            versao = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            versao = "?";
+        }
+
+        StringBuilder linha = new StringBuilder();
+        linha.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()))
+                .append(';').append(versao)
+                .append(';').append(total);
+        for (Map.Entry<String, Long> fase : registradas.entrySet()) {
+            linha.append(';').append(fase.getKey()).append('=').append(fase.getValue());
+        }
+        Log.i(TAG, "Aplicativo utilizável em " + total + "ms: " + registradas);
+
+        File arquivo = new File(context.getApplicationContext().getFilesDir(), ARQUIVO);
+        String registro = linha.toString();
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.EXPORTACAO, () -> gravar(arquivo, registro));
+    }
+
+    /**
+     * Acrescenta a linha ao arquivo, descartando as aberturas mais antigas
+     */
+    private static synchronized void gravar(File arquivo, String registro) {
+        try {
+            List<String> linhas = arquivo.exists()
+                    ? new ArrayList<>(Files.readAllLines(arquivo.toPath(), StandardCharsets.UTF_8))
+                    : new ArrayList<>();
+            if (linhas.isEmpty()) {
+                linhas.add("data;versao;total_ms;fases");
+            }
+            linhas.add(registro);
+            while (linhas.size() > MAX_LINHAS + 1) {
+                linhas.remove(1);
+            }
+            Files.write(arquivo.toPath(), linhas, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.w(TAG, "Erro ao gravar tempos de abertura: " + e.getMessage());
+        }
+    }
+}
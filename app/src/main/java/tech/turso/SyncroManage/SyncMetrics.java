@@ -0,0 +1,242 @@
+package tech.turso.SyncroManage;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Métricas das sincronizações da réplica local e da obtenção do token Turso.
+ * O binding libsql não informa quantos frames foram replicados, então o volume
+ * é medido pela variação de tamanho do arquivo local (banco + WAL), o que é uma
+ * aproximação: páginas reescritas no lugar não alteram o tamanho.
+ * A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class SyncMetrics {
+
+    // Sincronizações mantidas no histórico
+    private static final int HISTORICO_MAX = 20;
+
+    /**
+     * Registro de uma sincronização
+     */
+    public static final class Registro {
+        public final long inicio;       // milissegundos desde a época
+        public final long duracaoMs;
+        public final boolean sucesso;
+        public final long bytesAlterados; // variação do arquivo local; -1 se não medida
+        public final String erro;
+
+        Registro(long inicio, long duracaoMs, boolean sucesso, long bytesAlterados, String erro) {
+            this.inicio = inicio;
+            this.duracaoMs = duracaoMs;
+            this.sucesso = sucesso;
+            this.bytesAlterados = bytesAlterados;
+            this.erro = erro;
+        }
+
+        @Override
+        public String toString() {
+            return formatarData(inicio) + " " + (sucesso ? "OK" : "FALHA") + " " + duracaoMs + "ms" +
+                    (bytesAlterados >= 0 ? ", " + bytesAlterados + " bytes" : "") +
+                    (erro != null ? " - " + erro : "");
+        }
+    }
+
+    /**
+     * Valores das métricas em um instante (horários em milissegundos desde a época; 0 = nunca)
+     */
+    public static final class Snapshot {
+        public final int sincronizacoes;
+        public final int falhas;
+        public final int falhasConsecutivas;
+        public final long ultimaDuracaoMs;
+        public final long duracaoMediaMs;
+        public final long duracaoMaximaMs;
+        public final long ultimosBytes;
+        public final long bytesTotais;
+        public final long ultimoSucesso;
+        public final long ultimaFalha;
+        public final String ultimoErro;
+        public final long atrasoMs;     // tempo desde a última sincronização bem-sucedida; -1 se nunca
+        public final int tokens;
+        public final int falhasToken;
+        public final long ultimaLatenciaTokenMs;
+        public final long latenciaMediaTokenMs;
+        public final long latenciaMaximaTokenMs;
+        public final List<Registro> historico;
+
+        Snapshot(SyncMetrics m, long agora) {
+            sincronizacoes = m.sincronizacoes;
+            falhas = m.falhas;
+            falhasConsecutivas = m.falhasConsecutivas;
+            ultimaDuracaoMs = m.ultimaDuracaoMs;
+            duracaoMediaMs = m.sincronizacoes == 0 ? 0 : m.duracaoTotalMs / m.sincronizacoes;
+            duracaoMaximaMs = m.duracaoMaximaMs;
+            ultimosBytes = m.ultimosBytes;
+            bytesTotais = m.bytesTotais;
+            ultimoSucesso = m.ultimoSucesso;
+            ultimaFalha = m.ultimaFalha;
+            ultimoErro = m.ultimoErro;
+            atrasoMs = m.ultimoSucesso == 0 ? -1 : agora - m.ultimoSucesso;
+            tokens = m.tokens;
+            falhasToken = m.falhasToken;
+            ultimaLatenciaTokenMs = m.ultimaLatenciaTokenMs;
+            latenciaMediaTokenMs = m.tokens == 0 ? 0 : m.latenciaTotalTokenMs / m.tokens;
+            latenciaMaximaTokenMs = m.latenciaMaximaTokenMs;
+            historico = new ArrayList<>(m.historico);
+        }
+    }
+
+    // Estado protegido por "this"
+    private int sincronizacoes = 0;
+    private int falhas = 0;
+    private int falhasConsecutivas = 0;
+    private long ultimaDuracaoMs = 0;
+    private long duracaoTotalMs = 0;
+    private long duracaoMaximaMs = 0;
+    private long ultimosBytes = -1;
+    private long bytesTotais = 0;
+    private long ultimoSucesso = 0;
+    private long ultimaFalha = 0;
+    private String ultimoErro = null;
+    private int tokens = 0;
+    private int falhasToken = 0;
+    private long ultimaLatenciaTokenMs = 0;
+    private long latenciaTotalTokenMs = 0;
+    private long latenciaMaximaTokenMs = 0;
+    private final ArrayDeque<Registro> historico = new ArrayDeque<>(HISTORICO_MAX);
+
+    /**
+     * Registra o resultado de uma sincronização
+     * @param inicio Início em milissegundos desde a época
+     * @param duracaoMs Duração total
+     * @param sucesso Se a sincronização foi concluída
+     * @param bytesAlterados Variação do arquivo local, ou -1 se não medida
+     * @param erro Mensagem de erro, se houver
+     */
+    public synchronized void registrarSincronizacao(long inicio, long duracaoMs, boolean sucesso,
+                                                    long bytesAlterados, String erro) {
+        sincronizacoes++;
+        ultimaDuracaoMs = duracaoMs;
+        duracaoTotalMs += duracaoMs;
+        duracaoMaximaMs = Math.max(duracaoMaximaMs, duracaoMs);
+        if (sucesso) {
+            falhasConsecutivas = 0;
+            ultimoSucesso = inicio + duracaoMs;
+            ultimosBytes = bytesAlterados;
+            if (bytesAlterados > 0) {
+                bytesTotais += bytesAlterados;
+            }
+        } else {
+            falhas++;
+            falhasConsecutivas++;
+            ultimaFalha = inicio + duracaoMs;
+            ultimoErro = erro;
+        }
+        if (historico.size() == HISTORICO_MAX) {
+            historico.removeFirst();
+        }
+        historico.addLast(new Registro(inicio, duracaoMs, sucesso, bytesAlterados, erro));
+    }
+
+    /**
+     * Registra a obtenção de um token Turso (Firebase + Cloud Function)
+     * @param latenciaMs Tempo total da obtenção
+     * @param sucesso Se o token foi obtido
+     */
+    public synchronized void registrarToken(long latenciaMs, boolean sucesso) {
+        tokens++;
+        ultimaLatenciaTokenMs = latenciaMs;
+        latenciaTotalTokenMs += latenciaMs;
+        latenciaMaximaTokenMs = Math.max(latenciaMaximaTokenMs, latenciaMs);
+        if (!sucesso) {
+            falhasToken++;
+        }
+    }
+
+    /**
+     * Valores atuais das métricas
+     */
+    public synchronized Snapshot getSnapshot() {
+        return new Snapshot(this, System.currentTimeMillis());
+    }
+
+    /**
+     * Retorna um resumo textual das métricas
+     */
+    public String getMetricsSummary() {
+        Snapshot s = getSnapshot();
+        return String.format(Locale.US,
+                "sincronizações=%d, falhas=%d (%d seguidas), última=%dms, média=%dms, máx=%dms, " +
+                        "últimos bytes=%d, bytes totais=%d, atraso=%s, " +
+                        "tokens=%d, falhas de token=%d, latência do token=%dms (média=%dms, máx=%dms)",
+                s.sincronizacoes, s.falhas, s.falhasConsecutivas, s.ultimaDuracaoMs, s.duracaoMediaMs,
+                s.duracaoMaximaMs, s.ultimosBytes, s.bytesTotais,
+                s.atrasoMs < 0 ? "nunca sincronizado" : s.atrasoMs + "ms",
+                s.tokens, s.falhasToken, s.ultimaLatenciaTokenMs, s.latenciaMediaTokenMs, s.latenciaMaximaTokenMs);
+    }
+
+    /**
+     * Grava as métricas e o histórico em um arquivo de texto, para diagnóstico em campo
+     * @param arquivo Arquivo de destino (sobrescrito)
+     * @param extras Linhas adicionais (ex.: estado do agendador e do pool)
+     */
+    public void exportar(File arquivo, List<String> extras) throws IOException {
+        Snapshot s = getSnapshot();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(arquivo), StandardCharsets.UTF_8))) {
+            writer.write("Métricas de sincronização - " + formatarData(System.currentTimeMillis()) + "\n");
+            writer.write(getMetricsSummary() + "\n");
+            writer.write("Último sucesso: " + formatarData(s.ultimoSucesso) + "\n");
+            writer.write("Última falha: " + formatarData(s.ultimaFalha) +
+                    (s.ultimoErro != null ? " - " + s.ultimoErro : "") + "\n");
+            if (extras != null) {
+                for (String linha : extras) {
+                    writer.write(linha + "\n");
+                }
+            }
+            writer.write("\nHistórico (mais antiga primeiro):\n");
+            for (Registro registro : s.historico) {
+                writer.write(registro + "\n");
+            }
+        }
+    }
+
+    /**
+     * Zera as métricas acumuladas
+     */
+    public synchronized void reset() {
+        sincronizacoes = falhas = falhasConsecutivas = tokens = falhasToken = 0;
+        ultimaDuracaoMs = duracaoTotalMs = duracaoMaximaMs = bytesTotais = 0;
+        ultimaLatenciaTokenMs = latenciaTotalTokenMs = latenciaMaximaTokenMs = 0;
+        ultimosBytes = -1;
+        ultimoSucesso = ultimaFalha = 0;
+        ultimoErro = null;
+        historico.clear();
+    }
+
+    /**
+     * Tamanho atual do banco local e do seu WAL, para medir o volume de uma sincronização
+     * @param banco Arquivo do banco local
+     * @return Soma dos tamanhos em bytes
+     */
+    static long tamanhoArquivos(File banco) {
+        File wal = new File(banco.getPath() + "-wal");
+        return banco.length() + wal.length();
+    }
+
+    private static String formatarData(long millis) {
+        if (millis == 0) return "nunca";
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date(millis));
+    }
+}
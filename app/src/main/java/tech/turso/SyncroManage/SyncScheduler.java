@@ -0,0 +1,332 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agenda as sincronizações da réplica local em uma thread própria.
+ * <ul>
+ *     <li>Escritas locais disparam uma sincronização pouco depois da última
+ *     escrita (agrupando rajadas), com atraso máximo a partir da primeira.</li>
+ *     <li>A sincronização periódica adapta o intervalo: fica mais curto enquanto
+ *     há escritas e dobra a cada rodada sem atividade, até o máximo.</li>
+ *     <li>Sem rede, ou com o aplicativo ocioso (nenhuma tela observando dados),
+ *     a rodada periódica é pulada sem contar como falha.</li>
+ *     <li>Falhas aumentam a espera exponencialmente até o próximo teste.</li>
+ *     <li>Enquanto o banco aberto for a leitura antecipada da réplica, as tentativas
+ *     continuam no intervalo mínimo (inclusive sem rede), pois só uma sincronização
+ *     reabre a réplica e libera as escritas.</li>
+ * </ul>
+ * Apenas uma sincronização fica em andamento por vez; escritas feitas durante
+ * ela geram uma nova rodada ao final. A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class SyncScheduler {
+    private static final String TAG = "SyncScheduler";
+
+    // Espera após a última escrita e atraso máximo desde a primeira escrita pendente
+    private static final long DEBOUNCE_ESCRITA_MS = 3000;
+    private static final long MAX_ATRASO_ESCRITA_MS = 15000;
+
+    // Limites do intervalo da sincronização periódica
+    private static final long INTERVALO_MIN_MS = 60000;        // 1 minuto
+    private static final long INTERVALO_INICIAL_MS = 300000;   // 5 minutos
+    private static final long INTERVALO_MAX_MS = 1800000;      // 30 minutos
+
+    // Espera após falhas: base * 2^(falhas - 1), limitada ao máximo
+    private static final long BACKOFF_BASE_MS = 15000;
+    private static final long BACKOFF_MAX_MS = 1800000;
+
+    /**
+     * Acesso ao banco e ao estado do aplicativo usado pelo agendador
+     */
+    public interface Ambiente {
+        /** Indica se há réplica local inicializada ou escritas enfileiradas para enviar */
+        boolean podeSincronizar();
+
+        /** Indica se há conexão de rede */
+        boolean isOnline();
+
+        /** Indica que nenhuma tela está exibindo dados */
+        boolean isOcioso();
+
+        /** Indica que o banco aberto é a leitura antecipada, à espera da réplica sincronizável */
+        boolean aguardandoReplica();
+
+        /** Executa a sincronização, informando o resultado pelo callback */
+        void sincronizar(DatabaseManager.SyncCallback callback);
+    }
+
+    /**
+     * Estado do agendador em um instante (horários em milissegundos desde a época; 0 = nunca)
+     */
+    public static final class Estado {
+        public final long proximaExecucao;
+        public final String motivoProximaExecucao;
+        public final long ultimaExecucao;
+        public final long ultimoSucesso;
+        public final String ultimoErro;
+        public final int falhasConsecutivas;
+        public final long intervaloMs;
+        public final int escritasPendentes;
+        public final boolean emExecucao;
+
+        Estado(long proximaExecucao, String motivoProximaExecucao, long ultimaExecucao, long ultimoSucesso,
+               String ultimoErro, int falhasConsecutivas, long intervaloMs, int escritasPendentes, boolean emExecucao) {
+            this.proximaExecucao = proximaExecucao;
+            this.motivoProximaExecucao = motivoProximaExecucao;
+            this.ultimaExecucao = ultimaExecucao;
+            this.ultimoSucesso = ultimoSucesso;
+            this.ultimoErro = ultimoErro;
+            this.falhasConsecutivas = falhasConsecutivas;
+            this.intervaloMs = intervaloMs;
+            this.escritasPendentes = escritasPendentes;
+            this.emExecucao = emExecucao;
+        }
+
+        @Override
+        public String toString() {
+            return "SyncScheduler.Estado{próxima=" + proximaExecucao + " (" + motivoProximaExecucao + ")" +
+                    ", última=" + ultimaExecucao + ", sucesso=" + ultimoSucesso +
+                    ", falhas=" + falhasConsecutivas + ", intervalo=" + intervaloMs + "ms" +
+                    ", escritasPendentes=" + escritasPendentes + ", emExecucao=" + emExecucao + "}";
+        }
+    }
+
+    private final Ambiente ambiente;
+
+    // Estado protegido por "this"
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> agendada;
+    private long proximaExecucao = 0;
+    private String motivoProximaExecucao = null;
+    private long ultimaExecucao = 0;
+    private long ultimoSucesso = 0;
+    private String ultimoErro = null;
+    private int falhas = 0;
+    private long intervalo = INTERVALO_INICIAL_MS;
+    private boolean periodicaHabilitada = false;
+    private int escritasPendentes = 0;
+    private long primeiraEscritaPendente = 0;
+    private boolean emExecucao = false;
+
+    public SyncScheduler(Ambiente ambiente) {
+        this.ambiente = ambiente;
+    }
+
+    /**
+     * Inicia o agendador (chamado quando a réplica local é aberta)
+     */
+    public synchronized void iniciar() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SyncScheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        intervalo = INTERVALO_INICIAL_MS;
+        falhas = 0;
+        Log.d(TAG, "Agendador iniciado (periódica " + (periodicaHabilitada ? "habilitada" : "desabilitada") + ")");
+        if (periodicaHabilitada) {
+            agendar(intervalo, "periódica");
+        }
+    }
+
+    /**
+     * Para o agendador e descarta a execução agendada
+     */
+    public synchronized void parar() {
+        if (executor == null) return;
+        cancelarAgendada();
+        executor.shutdownNow();
+        executor = null;
+        emExecucao = false;
+        Log.d(TAG, "Agendador parado");
+    }
+
+    /**
+     * Habilita ou desabilita a sincronização periódica. As sincronizações
+     * disparadas por escritas locais continuam ativas.
+     */
+    public synchronized void setPeriodica(boolean habilitada) {
+        periodicaHabilitada = habilitada;
+        if (executor == null || emExecucao) return;
+        if (habilitada && agendada == null) {
+            agendar(intervalo, "periódica");
+        } else if (!habilitada && escritasPendentes == 0) {
+            cancelarAgendada();
+        }
+    }
+
+    /**
+     * Informa uma escrita local; agenda a sincronização após o intervalo de agrupamento
+     */
+    public synchronized void registrarEscrita() {
+        if (executor == null) return;
+        long agora = System.currentTimeMillis();
+        if (escritasPendentes == 0) {
+            primeiraEscritaPendente = agora;
+        }
+        escritasPendentes++;
+
+        // Em execução: a nova rodada é agendada ao final. Em espera após falha: mantém a espera.
+        if (emExecucao || falhas > 0) return;
+
+        long alvo = Math.min(agora + DEBOUNCE_ESCRITA_MS, primeiraEscritaPendente + MAX_ATRASO_ESCRITA_MS);
+        agendar(Math.max(0, alvo - agora), "escrita local");
+    }
+
+    /**
+     * Antecipa a próxima sincronização para agora, ignorando a espera de falhas
+     */
+    public synchronized void sincronizarAgora() {
+        if (executor == null) return;
+        agendar(0, "manual");
+    }
+
+    /**
+     * Estado atual do agendador
+     */
+    public synchronized Estado getEstado() {
+        return new Estado(proximaExecucao, motivoProximaExecucao, ultimaExecucao, ultimoSucesso, ultimoErro,
+                falhas, intervalo, escritasPendentes, emExecucao);
+    }
+
+    private void agendar(long atrasoMs, String motivo) {
+        cancelarAgendada();
+        try {
+            agendada = executor.schedule(() -> executar(motivo), atrasoMs, TimeUnit.MILLISECONDS);
+            proximaExecucao = System.currentTimeMillis() + atrasoMs;
+            motivoProximaExecucao = motivo;
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Agendamento recusado: " + e.getMessage());
+        }
+    }
+
+    private void cancelarAgendada() {
+        if (agendada != null) {
+            agendada.cancel(false);
+            agendada = null;
+        }
+        proximaExecucao = 0;
+        motivoProximaExecucao = null;
+    }
+
+    /**
+     * Agenda a próxima rodada após uma execução ou um pulo
+     */
+    private void agendarProxima() {
+        if (executor == null) return;
+        if (falhas > 0) {
+            agendar(backoff(), "nova tentativa");
+        } else if (escritasPendentes > 0) {
+            agendar(DEBOUNCE_ESCRITA_MS, "escrita local");
+        } else if (ambiente.aguardandoReplica()) {
+            agendar(INTERVALO_MIN_MS, "aguardando réplica");
+        } else if (periodicaHabilitada) {
+            agendar(intervalo, "periódica");
+        } else {
+            cancelarAgendada();
+        }
+    }
+
+    private long backoff() {
+        long espera = BACKOFF_BASE_MS << Math.min(falhas - 1, 16);
+        espera = Math.min(espera, BACKOFF_MAX_MS);
+        // Variação de até 20% para que vários aparelhos não tentem ao mesmo tempo
+        return espera - ThreadLocalRandom.current().nextLong(espera / 5 + 1);
+    }
+
+    private void executar(String motivo) {
+        final int escritasDaRodada;
+        synchronized (this) {
+            agendada = null;
+            proximaExecucao = 0;
+            motivoProximaExecucao = null;
+            if (executor == null || emExecucao) return;
+
+            if (!ambiente.podeSincronizar()) {
+                Log.d(TAG, "Sincronização pulada: réplica local indisponível");
+                // Nada a enviar neste modo; sem isso a rodada de escrita se repetiria indefinidamente
+                escritasPendentes = 0;
+                primeiraEscritaPendente = 0;
+                agendarProxima();
+                return;
+            }
+            if (!ambiente.isOnline()) {
+                // Sem rede não conta como falha; tenta de novo no intervalo mínimo se houver
+                // escritas ou se a réplica ainda não foi reaberta
+                Log.d(TAG, "Sincronização pulada (" + motivo + "): sem conexão");
+                boolean urgente = escritasPendentes > 0 || ambiente.aguardandoReplica();
+                if (urgente || periodicaHabilitada) {
+                    agendar(urgente ? INTERVALO_MIN_MS : intervalo, "aguardando conexão");
+                }
+                return;
+            }
+            if (escritasPendentes == 0 && !"manual".equals(motivo) && ambiente.isOcioso()
+                    && !ambiente.aguardandoReplica()) {
+                intervalo = Math.min(INTERVALO_MAX_MS, intervalo * 2);
+                Log.d(TAG, "Sincronização periódica pulada: aplicativo ocioso; intervalo " + intervalo + "ms");
+                agendarProxima();
+                return;
+            }
+
+            emExecucao = true;
+            escritasDaRodada = escritasPendentes;
+            escritasPendentes = 0;
+            primeiraEscritaPendente = 0;
+            ultimaExecucao = System.currentTimeMillis();
+        }
+
+        Log.d(TAG, "Sincronizando (" + motivo + ", " + escritasDaRodada + " escritas)");
+        try {
+            ambiente.sincronizar((success, message) -> {
+                synchronized (this) {
+                    if (executor == null) {
+                        emExecucao = false;
+                        return;
+                    }
+                    try {
+                        executor.execute(() -> concluir(success, message, escritasDaRodada));
+                    } catch (RejectedExecutionException e) {
+                        emExecucao = false;
+                    }
+                }
+            });
+        } catch (Exception e) {
+            concluir(false, e.getMessage(), escritasDaRodada);
+        }
+    }
+
+    private synchronized void concluir(boolean sucesso, String mensagem, int escritasDaRodada) {
+        emExecucao = false;
+        if (sucesso) {
+            falhas = 0;
+            ultimoErro = null;
+            ultimoSucesso = System.currentTimeMillis();
+            if (escritasDaRodada > 0 || escritasPendentes > 0) {
+                intervalo = Math.max(INTERVALO_MIN_MS, intervalo / 2);
+            } else {
+                intervalo = Math.min(INTERVALO_MAX_MS, intervalo * 2);
+            }
+        } else {
+            falhas++;
+            ultimoErro = mensagem;
+            // As escritas da rodada continuam pendentes até uma sincronização bem-sucedida
+            if (escritasDaRodada > 0) {
+                if (escritasPendentes == 0) {
+                    primeiraEscritaPendente = System.currentTimeMillis();
+                }
+                escritasPendentes += escritasDaRodada;
+            }
+            Log.w(TAG, "Falha na sincronização (" + falhas + " seguidas): " + mensagem);
+        }
+        agendarProxima();
+        Log.d(TAG, "Próxima sincronização: " + getEstado());
+    }
+}
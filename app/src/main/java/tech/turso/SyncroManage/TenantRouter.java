@@ -0,0 +1,82 @@
+package tech.turso.SyncroManage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Roteamento de cada usuário (UID do Firebase) para o seu banco Turso.
+ * A Cloud Function informa a URL do banco do usuário junto com o token; a rota
+ * é guardada para que a réplica local possa ser aberta antes do token na próxima
+ * abertura. Cada banco tem o seu arquivo de réplica, então a réplica só recebe
+ * os dados do próprio usuário. Sem rota (banco compartilhado), valem a URL
+ * padrão e o arquivo de réplica original.
+ */
+public final class TenantRouter {
+
+    private static final String PREFS = "SyncroManagePrefs";
+    private static final String CHAVE_ROTA = "db_url_";
+
+    private TenantRouter() {
+    }
+
+    /**
+     * URL do banco guardada para o usuário
+     * @param padrao URL do banco compartilhado
+     * @return URL guardada, ou a padrão se o usuário não tem rota
+     */
+    public static String urlPara(Context context, String uid, String padrao) {
+        if (uid == null) return padrao;
+        return prefs(context).getString(CHAVE_ROTA + uid, padrao);
+    }
+
+    /**
+     * Guarda a URL do banco do usuário; null remove a rota (banco compartilhado)
+     */
+    public static void lembrar(Context context, String uid, String url) {
+        if (uid == null) return;
+        SharedPreferences.Editor editor = prefs(context).edit();
+        if (url == null) {
+            editor.remove(CHAVE_ROTA + uid);
+        } else {
+            editor.putString(CHAVE_ROTA + uid, url);
+        }
+        editor.apply();
+    }
+
+    /**
+     * Nome do arquivo de réplica local para o banco
+     * @param url URL do banco
+     * @param urlPadrao URL do banco compartilhado
+     * @param arquivoPadrao Arquivo de réplica do banco compartilhado
+     */
+    public static String arquivoReplica(String url, String urlPadrao, String arquivoPadrao) {
+        if (url == null || url.equals(urlPadrao)) {
+            return arquivoPadrao;
+        }
+        return "syncromanage_" + resumo(url) + ".db";
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Prefixo do SHA-1 da URL, estável e seguro para nome de arquivo
+     */
+    private static String resumo(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+}
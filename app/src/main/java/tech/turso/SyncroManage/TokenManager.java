@@ -0,0 +1,361 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Mantém o token Turso obtido pela Cloud Function a partir do token Firebase.
+ * <ul>
+ *     <li>Chamadas concorrentes durante uma renovação aguardam a mesma requisição
+ *     em vez de disparar outra.</li>
+ *     <li>Com token válido, o callback é entregue sem nenhuma requisição.</li>
+ *     <li>O token é renovado em segundo plano antes de expirar, então quem pede
+ *     um token normalmente não espera pela rede.</li>
+ * </ul>
+ * Todas as requisições HTTP do aplicativo usam o mesmo {@link OkHttpClient}, que
+ * reaproveita conexões (HTTP/2 quando o servidor oferece).
+ * A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class TokenManager {
+    private static final String TAG = "TokenManager";
+
+    // Token Turso expira em 2h; consideramos 1h45min para margem de segurança
+    private static final long VALIDADE_MS = 6300000;
+    // Abaixo desta folga o token não é mais entregue sem renovação
+    private static final long MARGEM_MS = 60000;
+    // Renovação em segundo plano começa este tempo antes da expiração
+    private static final long ANTECEDENCIA_MS = 600000;
+    // Espera entre tentativas da renovação em segundo plano
+    private static final long NOVA_TENTATIVA_MIN_MS = 30000;
+    private static final long NOVA_TENTATIVA_MAX_MS = 300000;
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    // Cliente HTTP compartilhado: um único pool de conexões e dispatcher para o aplicativo
+    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .build();
+
+    private volatile String url;
+    private final SyncMetrics metricas;
+    private final Executor entrega;
+    private final Runnable aoAtualizar;
+
+    private volatile String token = null;
+    private volatile long expiraEm = 0;
+    // Usuário dono do token e URL do seu banco (null = banco compartilhado)
+    private volatile String uid = null;
+    private volatile String dbUrl = null;
+
+    // Estado protegido por "this"
+    private final List<DatabaseManager.TokenCallback> aguardando = new ArrayList<>();
+    private boolean emAndamento = false;
+    private ScheduledExecutorService agendador;
+    private ScheduledFuture<?> renovacao;
+    private long esperaNovaTentativa = NOVA_TENTATIVA_MIN_MS;
+
+    /**
+     * @param url Endereço da Cloud Function que troca o token Firebase pelo token Turso
+     * @param metricas Métricas onde a latência de cada obtenção é registrada
+     * @param entrega Executor dos callbacks (thread principal)
+     * @param aoAtualizar Chamado após cada novo token, na thread da requisição
+     */
+    public TokenManager(String url, SyncMetrics metricas, Executor entrega, Runnable aoAtualizar) {
+        this.url = url;
+        this.metricas = metricas;
+        this.entrega = entrega;
+        this.aoAtualizar = aoAtualizar;
+    }
+
+    /**
+     * Cliente HTTP compartilhado. Para outros tempos limite use {@code newBuilder()},
+     * que mantém o mesmo pool de conexões.
+     */
+    public static OkHttpClient httpClient() {
+        return HTTP_CLIENT;
+    }
+
+    /**
+     * Troca o endereço da Cloud Function; o token atual é descartado
+     */
+    public synchronized void setUrl(String url) {
+        this.url = url;
+        token = null;
+        expiraEm = 0;
+    }
+
+    /**
+     * Token atual, mesmo que próximo de expirar
+     * @return Token ou null se nenhum foi obtido
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Indica se o token atual pode ser usado sem renovação. O token de outro
+     * usuário (troca de conta) nunca é válido.
+     */
+    public boolean isValido() {
+        if (token == null || expiraEm <= System.currentTimeMillis() + MARGEM_MS) {
+            return false;
+        }
+        FirebaseUser atual = FirebaseAuth.getInstance().getCurrentUser();
+        return atual != null && atual.getUid().equals(uid);
+    }
+
+    /**
+     * URL do banco do usuário informada junto com o token
+     * @return URL ou null se o usuário usa o banco compartilhado
+     */
+    public String getDbUrl() {
+        return dbUrl;
+    }
+
+    /**
+     * UID do usuário dono do token atual
+     */
+    public String getUid() {
+        return uid;
+    }
+
+    /**
+     * Horário de expiração considerado para o token atual (0 se não houver token)
+     */
+    public long getExpiraEm() {
+        return expiraEm;
+    }
+
+    /**
+     * Entrega um token válido. Com o token atual ainda válido não há requisição;
+     * caso contrário aguarda a renovação em andamento ou inicia uma.
+     * @param callback Callback entregue pelo executor de entrega
+     */
+    public void obter(DatabaseManager.TokenCallback callback) {
+        String atual = token;
+        if (isValido()) {
+            entrega.execute(() -> callback.onTokenResult(atual, true, ""));
+            return;
+        }
+        synchronized (this) {
+            aguardando.add(callback);
+            if (emAndamento) {
+                Log.d(TAG, "Renovação já em andamento; aguardando o mesmo resultado");
+                return;
+            }
+            emAndamento = true;
+        }
+        buscar(false);
+    }
+
+    /**
+     * Descarta o token atual e obtém um novo, renovando também o token Firebase
+     * @param callback Callback entregue pelo executor de entrega
+     */
+    public void forcarAtualizacao(DatabaseManager.TokenCallback callback) {
+        synchronized (this) {
+            token = null;
+            expiraEm = 0;
+            aguardando.add(callback);
+            if (emAndamento) return;
+            emAndamento = true;
+        }
+        buscar(true);
+    }
+
+    /**
+     * Para a renovação em segundo plano; o token atual é mantido
+     */
+    public synchronized void parar() {
+        if (agendador == null) return;
+        agendador.shutdownNow();
+        agendador = null;
+        renovacao = null;
+    }
+
+    /**
+     * Descarta o token, o dono e a rota do banco (saída da conta)
+     */
+    public synchronized void descartar() {
+        token = null;
+        expiraEm = 0;
+        uid = null;
+        dbUrl = null;
+    }
+
+    private void buscar(boolean forcarFirebase) {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null) {
+            String errorMsg = "Nenhum usuário Firebase logado";
+            Log.e(TAG, errorMsg);
+            concluir(null, false, errorMsg);
+            return;
+        }
+
+        // Mede a obtenção completa (Firebase + Cloud Function)
+        long inicioNanos = System.nanoTime();
+        // Sem forçar, o Firebase só vai à rede se o próprio token estiver perto de expirar
+        currentUser.getIdToken(forcarFirebase).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                trocarToken(task.getResult().getToken(), currentUser.getUid(), inicioNanos);
+            } else {
+                String errorMsg = "Falha ao obter token Firebase: " +
+                        (task.getException() != null ? task.getException().getMessage() : "erro desconhecido");
+                Log.e(TAG, errorMsg, task.getException());
+                metricas.registrarToken(decorrido(inicioNanos), false);
+                concluir(null, false, errorMsg);
+            }
+        });
+    }
+
+    /**
+     * Troca o token Firebase pelo token Turso na Cloud Function
+     */
+    private void trocarToken(String firebaseIdToken, String dono, long inicioNanos) {
+        JSONObject requestBody = new JSONObject();
+        try {
+            requestBody.put("idToken", firebaseIdToken);
+        } catch (JSONException e) {
+            String errorMsg = "Erro ao criar JSON para requisição";
+            Log.e(TAG, errorMsg, e);
+            concluir(null, false, errorMsg);
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON, requestBody.toString()))
+                .build();
+
+        HTTP_CLIENT.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                String errorMsg = "Falha na requisição HTTP: " + e.getMessage();
+                Log.e(TAG, errorMsg, e);
+                metricas.registrarToken(decorrido(inicioNanos), false);
+                concluir(null, false, errorMsg);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (r.isSuccessful()) {
+                        JSONObject json = new JSONObject(r.body().string());
+                        String novo = json.getString("tursoToken");
+                        // Banco por usuário: a função informa a URL do banco para o qual o token vale
+                        String url = json.has("dbUrl") ? json.optString("dbUrl", null) : null;
+                        metricas.registrarToken(decorrido(inicioNanos), true);
+                        Log.i(TAG, "Token Turso obtido com sucesso em " + decorrido(inicioNanos) + "ms" +
+                                (url != null ? " (banco próprio do usuário)" : ""));
+                        synchronized (TokenManager.this) {
+                            uid = dono;
+                            dbUrl = url;
+                        }
+                        concluir(novo, true, "");
+                    } else {
+                        String errorMsg = "Erro na resposta HTTP: " + r.code();
+                        try {
+                            errorMsg += " - " + r.body().string();
+                        } catch (Exception e) {
+                            // Ignorar erro ao ler o corpo da resposta
+                        }
+                        Log.e(TAG, errorMsg);
+                        metricas.registrarToken(decorrido(inicioNanos), false);
+                        concluir(null, false, errorMsg);
+                    }
+                } catch (JSONException | IOException e) {
+                    String errorMsg = "Erro ao processar resposta JSON: " + e.getMessage();
+                    Log.e(TAG, errorMsg, e);
+                    metricas.registrarToken(decorrido(inicioNanos), false);
+                    concluir(null, false, errorMsg);
+                }
+            }
+        });
+    }
+
+    /**
+     * Encerra a renovação em andamento, entrega o resultado a todos que aguardavam
+     * e agenda a próxima renovação em segundo plano
+     */
+    private void concluir(String novo, boolean sucesso, String erro) {
+        List<DatabaseManager.TokenCallback> callbacks;
+        synchronized (this) {
+            if (sucesso) {
+                token = novo;
+                expiraEm = System.currentTimeMillis() + VALIDADE_MS;
+                esperaNovaTentativa = NOVA_TENTATIVA_MIN_MS;
+                agendarRenovacao(expiraEm - ANTECEDENCIA_MS - System.currentTimeMillis());
+            } else if (token != null) {
+                // Token anterior ainda em uso: tenta de novo antes que expire
+                agendarRenovacao(esperaNovaTentativa);
+                esperaNovaTentativa = Math.min(NOVA_TENTATIVA_MAX_MS, esperaNovaTentativa * 2);
+            }
+            callbacks = new ArrayList<>(aguardando);
+            aguardando.clear();
+            emAndamento = false;
+        }
+        if (sucesso && aoAtualizar != null) {
+            aoAtualizar.run();
+        }
+        String entregue = sucesso ? novo : null;
+        for (DatabaseManager.TokenCallback callback : callbacks) {
+            entrega.execute(() -> callback.onTokenResult(entregue, sucesso, erro));
+        }
+    }
+
+    private void agendarRenovacao(long atrasoMs) {
+        if (agendador == null) {
+            agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "TokenManager");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (renovacao != null) {
+            renovacao.cancel(false);
+        }
+        try {
+            renovacao = agendador.schedule(this::renovarEmSegundoPlano, Math.max(0, atrasoMs), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Renovação recusada: " + e.getMessage());
+        }
+    }
+
+    private void renovarEmSegundoPlano() {
+        synchronized (this) {
+            renovacao = null;
+            if (emAndamento) return;
+            emAndamento = true;
+        }
+        Log.d(TAG, "Renovando token Turso antes da expiração");
+        buscar(false);
+    }
+
+    private static long decorrido(long inicioNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioNanos);
+    }
+}
@@ -29,6 +29,11 @@ public class VendaAdapter extends RecyclerView.Adapter<VendaAdapter.VendaViewHol
     private List<Venda> vendaList;
     private List<Venda> vendaListFull;
     private OnVendaClickListener onVendaClickListener;
+    private OnCarregarMaisListener onCarregarMaisListener;
+    private boolean filtroAtivo = false;
+
+    // Distância (em itens) das bordas da lista a partir da qual a próxima página é solicitada
+    private static final int LIMIAR_CARREGAMENTO = 10;
 
     // Cache formatadores para reutilização (não precisam ser recreados a cada bind)
     private final NumberFormat formatoMoeda;
@@ -62,6 +67,19 @@ public class VendaAdapter extends RecyclerView.Adapter<VendaAdapter.VendaViewHol
         this.onVendaClickListener = onVendaClickListener;
     }
 
+    /**
+     * Listener acionado quando a rolagem se aproxima das bordas da lista carregada,
+     * permitindo carregar a próxima página de vendas sob demanda.
+     */
+    public interface OnCarregarMaisListener {
+        void onCarregarAnteriores(Venda ultimaVenda);  // Fim da lista: vendas mais antigas
+        void onCarregarRecentes(Venda primeiraVenda);  // Início da lista: vendas mais recentes
+    }
+
+    public void setOnCarregarMaisListener(OnCarregarMaisListener onCarregarMaisListener) {
+        this.onCarregarMaisListener = onCarregarMaisListener;
+    }
+
     @NonNull
     @Override
     public VendaViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -74,6 +92,16 @@ public class VendaAdapter extends RecyclerView.Adapter<VendaAdapter.VendaViewHol
     public void onBindViewHolder(@NonNull VendaViewHolder holder, int position) {
         Venda venda = vendaList.get(position);
         holder.bind(venda);
+
+        // A paginação fica suspensa enquanto há um filtro aplicado à lista carregada
+        if (onCarregarMaisListener != null && !filtroAtivo) {
+            int total = vendaList.size();
+            if (position >= total - LIMIAR_CARREGAMENTO) {
+                onCarregarMaisListener.onCarregarAnteriores(vendaList.get(total - 1));
+            } else if (position < LIMIAR_CARREGAMENTO) {
+                onCarregarMaisListener.onCarregarRecentes(vendaList.get(0));
+            }
+        }
     }
 
     @Override
@@ -89,6 +117,14 @@ public class VendaAdapter extends RecyclerView.Adapter<VendaAdapter.VendaViewHol
             newList = new ArrayList<>();
         }
 
+        vendaListFull = new ArrayList<>(newList);
+        aplicarLista(newList);
+    }
+
+    /**
+     * Exibe a lista informada sem alterar a lista completa usada pelo filtro
+     */
+    private void aplicarLista(List<Venda> newList) {
         // Usa DiffUtil para calcular as diferenças e aplicar apenas as mudanças necessárias
         final List<Venda> oldList = new ArrayList<>(vendaList);
         final List<Venda> updatedList = new ArrayList<>(newList);
@@ -126,9 +162,8 @@ public class VendaAdapter extends RecyclerView.Adapter<VendaAdapter.VendaViewHol
             }
         });
 
-        // Atualiza as listas em memória
+        // Atualiza a lista exibida
         vendaList = updatedList;
-        vendaListFull = new ArrayList<>(updatedList);
 
         // Aplica as atualizações calculadas
         diffResult.dispatchUpdatesTo(this);
@@ -172,7 +207,8 @@ public class VendaAdapter extends RecyclerView.Adapter<VendaAdapter.VendaViewHol
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
             List<Venda> filteredList = (List<Venda>) results.values;
-            updateList(filteredList);
+            filtroAtivo = constraint != null && constraint.toString().trim().length() > 0;
+            aplicarLista(filteredList != null ? filteredList : new ArrayList<>());
         }
     };
 
@@ -10,27 +10,37 @@ import com.google.firebase.auth.FirebaseUser;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Objects;
 
-import tech.turso.libsql.Connection;
-import tech.turso.libsql.Database;
 import tech.turso.libsql.Rows;
 
 /**
  * DAO para operações relacionadas a vendas.
  * Adaptado para utilizar o sistema de callbacks do DatabaseManager.
  * Mantém métodos síncronos e assíncronos.
- * Nota: As queries SQL são montadas usando String.format, conforme exigido pela biblioteca Turso em seu estágio atual.
+ * Nota: As queries SQL usam SqlStatement com parâmetros tipados; como a biblioteca Turso ainda não
+ * expõe binding nativo, os valores são convertidos em literais seguros pela própria SqlStatement.
  */
 public class VendaDAO {
     private static final String TAG = "VendaDAO";
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
+    // Tamanho padrão das páginas da listagem de vendas
+    public static final int TAMANHO_PAGINA_PADRAO = 50;
+
+    // Colunas lidas pela listagem de vendas, na ordem esperada por lerVenda()
+    private static final String SELECT_VENDAS =
+            "SELECT id_venda, id_usuario, tipo_item, id_servico_vendido, " +
+                    "nome_item_vendido, valor_unitario_vendido, quantidade, valor_total_venda, " +
+                    "data_hora_venda, metodo_pagamento " +
+                    "FROM vendas ";
+
     /**
      * Interface de callback para operações com vendas.
      */
@@ -56,7 +66,7 @@ public class VendaDAO {
 
     /**
      * Lista todos os produtos do usuário autenticado de forma assíncrona.
-     * Acessa diretamente a tabela de estoque.
+     * Servido pelo {@link CatalogCache}; a tabela de estoque só é lida na primeira carga.
      */
     public static void listarProdutosAsync(ProdutoCallback<List<Estoque>> callback) {
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
@@ -77,87 +87,34 @@ public class VendaDAO {
         final String userId = user.getUid();
         Log.d(TAG, "Iniciando consulta de produtos para usuário: " + userId);
 
-        executor.execute(() -> {
+        // Catálogo já em memória: nenhuma ida ao banco
+        List<Estoque> emCache = CatalogCache.getEstoque(userId);
+        if (emCache != null) {
+            String mensagem = emCache.isEmpty() ? "Nenhum produto encontrado" : "Produtos carregados do cache";
+            mainHandler.post(() -> callback.onResult(emCache, true, mensagem));
+            return;
+        }
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             List<Estoque> produtos = new ArrayList<>();
-            Connection conn = null;
+            ConnectionLease conn = null;
             try {
-                Database db = DatabaseManager.getDatabase();
-                if (db == null) {
-                    throw new IllegalStateException("DatabaseManager.getDatabase() retornou null apesar de inicializado.");
-                }
-
                 Log.d(TAG, "Obteve instância do banco de dados, executando query de produtos");
 
-                conn = db.connect();
-                // Primeiro, verifica se a tabela existe e tem dados
-                String checkTableQuery = "SELECT name FROM sqlite_master WHERE type='table' AND name='estoque'";
-                boolean tabelaExiste = false;
-
-                try (Rows checkRows = conn.query(checkTableQuery)) {
-                    tabelaExiste = checkRows.nextRow() != null;
-                }
-
-                if (!tabelaExiste) {
+                conn = DatabaseManager.leaseConnection();
+                // Existência da tabela vem do esquema em cache, sem consultar o sqlite_master a cada listagem
+                if (!DatabaseManager.hasTable(conn, "estoque")) {
                     Log.e(TAG, "Tabela 'estoque' não existe no banco de dados");
                     mainHandler.post(() -> callback.onResult(produtos, true, "Nenhum produto encontrado"));
                     return;
                 }
 
-                // Verifica se há produtos para este usuário
-                String countQuery = String.format(
-                        "SELECT COUNT(*) FROM estoque WHERE id_usuario = '%s'",
-                        userId
-                );
-
-                int count = 0;
-                try (Rows countRows = conn.query(countQuery)) {
-                    Object[] countRow = countRows.nextRow();
-                    if (countRow != null) {
-                        count = ((Number) countRow[0]).intValue();
-                    }
-                }
-
-                Log.d(TAG, "Contagem de produtos para o usuário " + userId + ": " + count);
-
-                // Se não houver produtos, retorna lista vazia com sucesso
-                if (count == 0) {
-                    Log.i(TAG, "Nenhum produto encontrado para o usuário: " + userId);
-                    mainHandler.post(() -> callback.onResult(produtos, true, "Nenhum produto encontrado"));
-                    return;
-                }
-
-                // Se houver produtos, busca os dados
-                String query = String.format(
-                        "SELECT id_estoque, id_usuario, nome_produto, custo_unitario, valor_unitario, quantidade " +
-                                "FROM estoque WHERE id_usuario = '%s' ORDER BY nome_produto",
-                        userId
-                );
-
-                Log.d(TAG, "Executando query de produtos: " + query);
-
-                try (Rows rows = conn.query(query)) {
-                    Object[] row;
-                    while ((row = rows.nextRow()) != null) {
-                        try {
-                            int idEstoque = ((Number) row[0]).intValue();
-                            String idUsuario = (String) row[1];
-                            String nomeProduto = (String) row[2];
-                            double custoUnitario = ((Number) row[3]).doubleValue();
-                            double valorUnitario = ((Number) row[4]).doubleValue();
-                            int quantidade = ((Number) row[5]).intValue();
-
-                            Estoque produto = new Estoque(idEstoque, idUsuario, nomeProduto, custoUnitario, valorUnitario, quantidade);
-                            produtos.add(produto);
-                            Log.d(TAG, "Produto adicionado: ID=" + idEstoque + ", Nome=" + nomeProduto);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Erro ao processar linha de produto: " + e.getMessage(), e);
-                            // Continua processando outras linhas
-                        }
-                    }
-                }
+                // Carrega a tabela e popula o cache para as próximas aberturas
+                produtos.addAll(CatalogCache.carregarEstoque(conn, userId));
 
                 Log.i(TAG, "Produtos carregados com sucesso: " + produtos.size() + " registros");
-                mainHandler.post(() -> callback.onResult(produtos, true, "Produtos carregados com sucesso"));
+                String mensagem = produtos.isEmpty() ? "Nenhum produto encontrado" : "Produtos carregados com sucesso";
+                mainHandler.post(() -> callback.onResult(produtos, true, mensagem));
             } catch (Exception e) {
                 String errorMsg = "Erro ao listar produtos: " + e.getMessage();
                 Log.e(TAG, errorMsg, e);
@@ -179,7 +136,7 @@ public class VendaDAO {
 
     /**
      * Lista todos os serviços do usuário autenticado de forma assíncrona.
-     * Acessa diretamente a tabela de serviços.
+     * Servido pelo {@link CatalogCache}; a tabela de serviços só é lida na primeira carga.
      */
     public static void listarServicosAsync(ServicoCallback<List<Servico>> callback) {
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
@@ -200,86 +157,34 @@ public class VendaDAO {
         final String userId = user.getUid();
         Log.d(TAG, "Iniciando consulta de serviços para usuário: " + userId);
 
-        executor.execute(() -> {
+        // Catálogo já em memória: nenhuma ida ao banco
+        List<Servico> emCache = CatalogCache.getServicos(userId);
+        if (emCache != null) {
+            String mensagem = emCache.isEmpty() ? "Nenhum serviço encontrado" : "Serviços carregados do cache";
+            mainHandler.post(() -> callback.onResult(emCache, true, mensagem));
+            return;
+        }
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
             List<Servico> servicos = new ArrayList<>();
-            Connection conn = null;
+            ConnectionLease conn = null;
             try {
-                Database db = DatabaseManager.getDatabase();
-                if (db == null) {
-                    throw new IllegalStateException("DatabaseManager.getDatabase() retornou null apesar de inicializado.");
-                }
-
                 Log.d(TAG, "Obteve instância do banco de dados, executando query de serviços");
 
-                conn = db.connect();
-                // Primeiro, verifica se a tabela existe e tem dados
-                String checkTableQuery = "SELECT name FROM sqlite_master WHERE type='table' AND name='servicos'";
-                boolean tabelaExiste = false;
-
-                try (Rows checkRows = conn.query(checkTableQuery)) {
-                    tabelaExiste = checkRows.nextRow() != null;
-                }
-
-                if (!tabelaExiste) {
+                conn = DatabaseManager.leaseConnection();
+                // Existência da tabela vem do esquema em cache, sem consultar o sqlite_master a cada listagem
+                if (!DatabaseManager.hasTable(conn, "servicos")) {
                     Log.e(TAG, "Tabela 'servicos' não existe no banco de dados");
                     mainHandler.post(() -> callback.onResult(servicos, true, "Nenhum serviço encontrado"));
                     return;
                 }
 
-                // Verifica se há serviços para este usuário
-                String countQuery = String.format(
-                        "SELECT COUNT(*) FROM servicos WHERE id_usuario = '%s'",
-                        userId
-                );
-
-                int count = 0;
-                try (Rows countRows = conn.query(countQuery)) {
-                    Object[] countRow = countRows.nextRow();
-                    if (countRow != null) {
-                        count = ((Number) countRow[0]).intValue();
-                    }
-                }
-
-                Log.d(TAG, "Contagem de serviços para o usuário " + userId + ": " + count);
-
-                // Se não houver serviços, retorna lista vazia com sucesso
-                if (count == 0) {
-                    Log.i(TAG, "Nenhum serviço encontrado para o usuário: " + userId);
-                    mainHandler.post(() -> callback.onResult(servicos, true, "Nenhum serviço encontrado"));
-                    return;
-                }
-
-                // Se houver serviços, busca os dados
-                String query = String.format(
-                        "SELECT id_servico, id_usuario, nome, custo_unitario, valor_unitario " +
-                                "FROM servicos WHERE id_usuario = '%s' ORDER BY nome",
-                        userId
-                );
-
-                Log.d(TAG, "Executando query de serviços: " + query);
-
-                try (Rows rows = conn.query(query)) {
-                    Object[] row;
-                    while ((row = rows.nextRow()) != null) {
-                        try {
-                            int idServico = ((Number) row[0]).intValue();
-                            String idUsuario = (String) row[1];
-                            String nome = (String) row[2];
-                            double custoUnitario = ((Number) row[3]).doubleValue();
-                            double valorUnitario = ((Number) row[4]).doubleValue();
-
-                            Servico servico = new Servico(idServico, idUsuario, nome, custoUnitario, valorUnitario);
-                            servicos.add(servico);
-                            Log.d(TAG, "Serviço adicionado: ID=" + idServico + ", Nome=" + nome);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Erro ao processar linha de serviço: " + e.getMessage(), e);
-                            // Continua processando outras linhas
-                        }
-                    }
-                }
+                // Carrega a tabela e popula o cache para as próximas aberturas
+                servicos.addAll(CatalogCache.carregarServicos(conn, userId));
 
                 Log.i(TAG, "Serviços carregados com sucesso: " + servicos.size() + " registros");
-                mainHandler.post(() -> callback.onResult(servicos, true, "Serviços carregados com sucesso"));
+                String mensagem = servicos.isEmpty() ? "Nenhum serviço encontrado" : "Serviços carregados com sucesso";
+                mainHandler.post(() -> callback.onResult(servicos, true, mensagem));
             } catch (Exception e) {
                 String errorMsg = "Erro ao listar serviços: " + e.getMessage();
                 Log.e(TAG, errorMsg, e);
@@ -300,110 +205,142 @@ public class VendaDAO {
     // --- MÉTODOS ASSÍNCRONOS PARA VENDAS ---
 
     /**
-     * Lista todas as vendas do usuário autenticado de forma assíncrona.
+     * Posição na listagem de vendas, usada como chave de paginação.
+     * A ordenação é por (data_hora_venda, id_venda), o que torna a chave única
+     * mesmo para vendas registradas no mesmo segundo.
+     */
+    public static class CursorVenda {
+        public final String dataHoraVenda;
+        public final int idVenda;
+
+        public CursorVenda(String dataHoraVenda, int idVenda) {
+            this.dataHoraVenda = dataHoraVenda;
+            this.idVenda = idVenda;
+        }
+
+        public static CursorVenda de(Venda venda) {
+            return new CursorVenda(venda.getData_hora_venda(), venda.getId_venda());
+        }
+    }
+
+    /**
+     * Página de vendas retornada por {@link #listarVendasPaginaAsync}.
+     * As vendas vêm sempre da mais recente para a mais antiga.
+     */
+    public static class PaginaVendas {
+        public final List<Venda> vendas;
+        public final boolean temMais; // Há mais vendas na direção consultada
+
+        public PaginaVendas(List<Venda> vendas, boolean temMais) {
+            this.vendas = vendas;
+            this.temMais = temMais;
+        }
+    }
+
+    /**
+     * Pedido com vários itens (carrinho), registrado de uma vez por {@link #inserirPedidoAsync}.
+     * Cada item é uma venda; a data e a forma de pagamento são do pedido e valem para todos.
      */
-    public static void listarVendasAsync(VendaCallback<List<Venda>> callback) {
+    public static class Pedido {
+        public final List<Venda> itens = new ArrayList<>();
+        public String dataHoraVenda;     // null = momento do registro
+        public String metodoPagamento;
+
+        public Pedido(String dataHoraVenda, String metodoPagamento) {
+            this.dataHoraVenda = dataHoraVenda;
+            this.metodoPagamento = metodoPagamento;
+        }
+
+        public void adicionar(Venda item) {
+            itens.add(item);
+        }
+
+        public boolean isVazio() {
+            return itens.isEmpty();
+        }
+
+        public double getValorTotal() {
+            double total = 0;
+            for (Venda item : itens) {
+                total += item.getValor_total_venda();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Lista uma página de vendas do usuário autenticado de forma assíncrona,
+     * usando paginação por chave (keyset) em (data_hora_venda, id_venda).
+     * O custo de cada página independe de quantas vendas já foram carregadas.
+     *
+     * @param referencia Venda de referência; null carrega a primeira página (mais recentes)
+     * @param anteriores true para buscar vendas mais antigas que a referência,
+     *                   false para buscar as mais recentes que ela
+     * @param tamanhoPagina Quantidade máxima de vendas na página
+     * @param callback Callback com a página carregada
+     */
+    public static void listarVendasPaginaAsync(CursorVenda referencia, boolean anteriores, int tamanhoPagina,
+                                               VendaCallback<PaginaVendas> callback) {
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
         if (user == null) {
             String errorMsg = "Usuário não autenticado";
             Log.e(TAG, errorMsg);
-            mainHandler.post(() -> callback.onResult(new ArrayList<>(), false, errorMsg));
+            mainHandler.post(() -> callback.onResult(new PaginaVendas(new ArrayList<>(), false), false, errorMsg));
             return;
         }
 
         if (!DatabaseManager.isInitialized()) {
             String errorMsg = "DatabaseManager não inicializado. Tente novamente mais tarde.";
             Log.w(TAG, errorMsg);
-            mainHandler.post(() -> callback.onResult(new ArrayList<>(), false, errorMsg));
+            mainHandler.post(() -> callback.onResult(new PaginaVendas(new ArrayList<>(), false), false, errorMsg));
             return;
         }
 
         final String userId = user.getUid();
-        Log.d(TAG, "Iniciando consulta de vendas para usuário: " + userId);
-
-        executor.execute(() -> {
-            List<Venda> vendas = new ArrayList<>();
-            Connection conn = null;
-            try {
-                Database db = DatabaseManager.getDatabase();
-                if (db == null) {
-                    throw new IllegalStateException("DatabaseManager.getDatabase() retornou null apesar de inicializado.");
-                }
-
-                Log.d(TAG, "Obteve instância do banco de dados, executando query");
-
-                conn = db.connect();
-                // Primeiro, verifica se a tabela existe e tem dados
-                String checkTableQuery = "SELECT name FROM sqlite_master WHERE type='table' AND name='vendas'";
-                boolean tabelaExiste = false;
-
-                try (Rows checkRows = conn.query(checkTableQuery)) {
-                    tabelaExiste = checkRows.nextRow() != null;
-                }
+        final int limite = tamanhoPagina > 0 ? tamanhoPagina : TAMANHO_PAGINA_PADRAO;
 
-                if (!tabelaExiste) {
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.LEITURA, () -> {
+            List<Venda> vendas = new ArrayList<>(limite + 1);
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                if (!DatabaseManager.hasTable(conn, "vendas")) {
                     Log.e(TAG, "Tabela 'vendas' não existe no banco de dados");
-                    mainHandler.post(() -> callback.onResult(vendas, true, "Nenhuma venda encontrada"));
+                    mainHandler.post(() -> callback.onResult(new PaginaVendas(vendas, false), true, "Nenhuma venda encontrada"));
                     return;
                 }
 
-                // Verifica se há vendas para este usuário
-                String countQuery = String.format(
-                        "SELECT COUNT(*) FROM vendas WHERE id_usuario = '%s'",
-                        userId
-                );
-
-                int count = 0;
-                try (Rows countRows = conn.query(countQuery)) {
-                    Object[] countRow = countRows.nextRow();
-                    if (countRow != null) {
-                        count = ((Number) countRow[0]).intValue();
-                    }
-                }
-
-                Log.d(TAG, "Contagem de vendas para o usuário " + userId + ": " + count);
-
-                // Se não houver vendas, retorna lista vazia com sucesso
-                if (count == 0) {
-                    Log.i(TAG, "Nenhuma venda encontrada para o usuário: " + userId);
-                    mainHandler.post(() -> callback.onResult(vendas, true, "Nenhuma venda encontrada"));
-                    return;
+                SqlStatement query;
+                if (referencia == null) {
+                    query = conn.prepare(SELECT_VENDAS +
+                            "WHERE id_usuario = ? " +
+                            "ORDER BY data_hora_venda DESC, id_venda DESC LIMIT ?")
+                            .bindText(1, userId)
+                            .bindInt(2, limite + 1);
+                } else if (anteriores) {
+                    query = conn.prepare(SELECT_VENDAS +
+                            "WHERE id_usuario = ? AND (data_hora_venda < ? OR (data_hora_venda = ? AND id_venda < ?)) " +
+                            "ORDER BY data_hora_venda DESC, id_venda DESC LIMIT ?")
+                            .bindText(1, userId)
+                            .bindText(2, referencia.dataHoraVenda)
+                            .bindText(3, referencia.dataHoraVenda)
+                            .bindInt(4, referencia.idVenda)
+                            .bindInt(5, limite + 1);
+                } else {
+                    // Vendas mais recentes que a referência: lidas em ordem crescente e invertidas abaixo
+                    query = conn.prepare(SELECT_VENDAS +
+                            "WHERE id_usuario = ? AND (data_hora_venda > ? OR (data_hora_venda = ? AND id_venda > ?)) " +
+                            "ORDER BY data_hora_venda ASC, id_venda ASC LIMIT ?")
+                            .bindText(1, userId)
+                            .bindText(2, referencia.dataHoraVenda)
+                            .bindText(3, referencia.dataHoraVenda)
+                            .bindInt(4, referencia.idVenda)
+                            .bindInt(5, limite + 1);
                 }
 
-                // Se houver vendas, busca os dados
-                String query = String.format(
-                        "SELECT id_venda, id_usuario, tipo_item, id_servico_vendido, " +
-                                "nome_item_vendido, valor_unitario_vendido, quantidade, valor_total_venda, " +
-                                "data_hora_venda, metodo_pagamento " +
-                                "FROM vendas WHERE id_usuario = '%s' " +
-                                "ORDER BY data_hora_venda DESC",
-                        userId
-                );
-
-                Log.d(TAG, "Executando query: " + query);
-
-                try (Rows rows = conn.query(query)) {
+                try (Rows rows = query.query()) {
                     Object[] row;
                     while ((row = rows.nextRow()) != null) {
                         try {
-                            int id_venda = ((Number) row[0]).intValue();
-                            String id_usuario_db = (String) row[1];
-                            String tipo_item = (String) row[2];
-                            Integer id_servico_vendido = (row[3] == null) ? null : ((Number) row[3]).intValue();
-                            String nome_item_vendido = (String) row[4];
-                            double valor_unitario_vendido = ((Number) row[5]).doubleValue();
-                            int quantidade = ((Number) row[6]).intValue();
-                            double valor_total_venda = ((Number) row[7]).doubleValue();
-                            String data_hora_venda = (String) row[8];
-                            String metodo_pagamento = (String) row[9];
-
-                            Venda venda = new Venda(
-                                    id_venda, id_usuario_db, tipo_item, id_servico_vendido,
-                                    nome_item_vendido, valor_unitario_vendido, quantidade,
-                                    valor_total_venda, data_hora_venda, metodo_pagamento
-                            );
-                            vendas.add(venda);
-                            Log.d(TAG, "Venda adicionada: ID=" + id_venda + ", Item=" + nome_item_vendido);
+                            vendas.add(lerVenda(row));
                         } catch (Exception e) {
                             Log.e(TAG, "Erro ao processar linha de venda: " + e.getMessage(), e);
                             // Continua processando outras linhas
@@ -411,27 +348,185 @@ public class VendaDAO {
                     }
                 }
 
-                Log.i(TAG, "Vendas carregadas com sucesso: " + vendas.size() + " registros");
-                mainHandler.post(() -> callback.onResult(vendas, true, "Vendas carregadas com sucesso"));
+                // A linha extra apenas indica que existe uma próxima página
+                boolean temMais = vendas.size() > limite;
+                if (temMais) {
+                    vendas.remove(vendas.size() - 1);
+                }
+                if (referencia != null && !anteriores) {
+                    Collections.reverse(vendas);
+                }
+                if (referencia == null) {
+                    // Vendas feitas offline e ainda não enviadas aparecem no topo da primeira página
+                    vendas.addAll(0, DatabaseManager.getWriteOutbox().listarVendasPendentes(userId));
+                }
+
+                Log.d(TAG, "Página de vendas carregada: " + vendas.size() + " registros, temMais=" + temMais);
+                PaginaVendas pagina = new PaginaVendas(vendas, temMais);
+                mainHandler.post(() -> callback.onResult(pagina, true, "Vendas carregadas com sucesso"));
             } catch (Exception e) {
                 String errorMsg = "Erro ao listar vendas: " + e.getMessage();
                 Log.e(TAG, errorMsg, e);
-                mainHandler.post(() -> callback.onResult(vendas, false, errorMsg));
-            } finally {
-                // Garantir que a conexão seja fechada
-                if (conn != null) {
-                    try {
-                        conn.close();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Erro ao fechar conexão: " + e.getMessage());
+                mainHandler.post(() -> callback.onResult(new PaginaVendas(vendas, false), false, errorMsg));
+            }
+        });
+    }
+
+    /**
+     * Converte uma linha de {@link #SELECT_VENDAS} em uma Venda.
+     */
+    private static Venda lerVenda(Object[] row) {
+        int id_venda = ((Number) row[0]).intValue();
+        String id_usuario_db = (String) row[1];
+        String tipo_item = (String) row[2];
+        Integer id_servico_vendido = (row[3] == null) ? null : ((Number) row[3]).intValue();
+        String nome_item_vendido = (String) row[4];
+        double valor_unitario_vendido = ((Number) row[5]).doubleValue();
+        int quantidade = ((Number) row[6]).intValue();
+        double valor_total_venda = ((Number) row[7]).doubleValue();
+        String data_hora_venda = (String) row[8];
+        String metodo_pagamento = (String) row[9];
+
+        return new Venda(
+                id_venda, id_usuario_db, tipo_item, id_servico_vendido,
+                nome_item_vendido, valor_unitario_vendido, quantidade,
+                valor_total_venda, data_hora_venda, metodo_pagamento
+        );
+    }
+
+    // Custo atual do item no catálogo do usuário; produtos pelo nome, serviços pelo ID.
+    // Parâmetros: tipo_item, id_usuario, nome_item_vendido, id_usuario, id_servico_vendido
+    private static final String CUSTO_ATUAL_ITEM =
+            "COALESCE(CASE ? WHEN 'produto' " +
+                    "THEN (SELECT custo_unitario FROM estoque WHERE id_usuario = ? AND nome_produto = ? LIMIT 1) " +
+                    "ELSE (SELECT custo_unitario FROM servicos WHERE id_usuario = ? AND id_servico = ? LIMIT 1) END, 0)";
+
+    // Preenchimento (em lotes de rowid, pela migração) do custo das vendas registradas antes
+    // da coluna existir, usando o custo atual do catálogo (único disponível para vendas antigas)
+    static final String BACKFILL_CUSTO_LOTE =
+            "UPDATE vendas SET custo_unitario_vendido = COALESCE(CASE tipo_item WHEN 'produto' " +
+                    "THEN (SELECT e.custo_unitario FROM estoque e WHERE e.id_usuario = vendas.id_usuario " +
+                    "AND e.nome_produto = vendas.nome_item_vendido LIMIT 1) " +
+                    "ELSE (SELECT s.custo_unitario FROM servicos s WHERE s.id_usuario = vendas.id_usuario " +
+                    "AND (s.id_servico = vendas.id_servico_vendido OR s.nome = vendas.nome_item_vendido) LIMIT 1) END, 0) " +
+                    "WHERE rowid > ? AND rowid <= ? AND custo_unitario_vendido IS NULL";
+
+    /**
+     * Variação de estoque feita dentro de uma transação de venda, aplicada ao
+     * {@link CatalogCache} somente após o COMMIT.
+     */
+    static final class AjusteEstoque {
+        final String nomeProduto;
+        final int delta;
+
+        AjusteEstoque(String nomeProduto, int delta) {
+            this.nomeProduto = nomeProduto;
+            this.delta = delta;
+        }
+    }
+
+    static void aplicarAjustesCatalogo(String userId, List<AjusteEstoque> ajustes) {
+        for (AjusteEstoque ajuste : ajustes) {
+            CatalogCache.ajustarQuantidade(userId, ajuste.nomeProduto, ajuste.delta);
+        }
+    }
+
+    /**
+     * Publica a alteração da venda e, se houve movimentação, do estoque.
+     * Chamado somente após o COMMIT.
+     */
+    private static void notificarAlteracao(DataChangeEvent.Operacao operacao, int idVenda, List<AjusteEstoque> ajustes) {
+        notificarAlteracao(operacao, new int[]{idVenda}, ajustes);
+    }
+
+    private static void notificarAlteracao(DataChangeEvent.Operacao operacao, int[] idsVenda, List<AjusteEstoque> ajustes) {
+        DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.VENDAS, operacao, idsVenda);
+        if (!ajustes.isEmpty()) {
+            // Ajustes são feitos por nome de produto; as linhas exatas não são conhecidas aqui
+            DatabaseManager.notifyDataChanged(DataChangeEvent.Tabela.ESTOQUE, DataChangeEvent.Operacao.ATUALIZACAO);
+        }
+    }
+
+    /**
+     * Registra a venda na transação aberta: baixa o estoque (produtos), insere a
+     * venda com o custo atual do item e atualiza o resumo diário.
+     * Usado pela inserção normal e pela reprodução das vendas feitas offline.
+     *
+     * @param exigirEstoque true para recusar a venda sem estoque suficiente; false na
+     *                      reprodução de vendas offline, que já aconteceram e são sempre
+     *                      registradas (a baixa para em zero)
+     * @param ajustes Recebe as variações de estoque feitas, para o cache após o COMMIT
+     * @return ID da venda inserida, ou -1 se o estoque for insuficiente
+     */
+    static int registrarVenda(ConnectionLease conn, String userId, Venda venda, boolean exigirEstoque,
+                              List<AjusteEstoque> ajustes) {
+        if ("produto".equals(venda.getTipo_item())) {
+            if (exigirEstoque) {
+                SqlStatement checkEstoqueQuery = conn.prepare(
+                        "SELECT quantidade FROM estoque " +
+                                "WHERE id_usuario = ? AND nome_produto = ? AND quantidade >= ?")
+                        .bindText(1, userId)
+                        .bindText(2, venda.getNome_item_vendido())
+                        .bindInt(3, venda.getQuantidade());
+                try (Rows rows = checkEstoqueQuery.query()) {
+                    if (rows.nextRow() == null) {
+                        return -1;
                     }
                 }
             }
-        });
+            SqlStatement updateEstoqueQuery = conn.prepare(
+                    "UPDATE estoque SET quantidade = MAX(quantidade - ?, 0) " +
+                            "WHERE id_usuario = ? AND nome_produto = ?")
+                    .bindInt(1, venda.getQuantidade())
+                    .bindText(2, userId)
+                    .bindText(3, venda.getNome_item_vendido());
+            updateEstoqueQuery.execute();
+            ajustes.add(new AjusteEstoque(venda.getNome_item_vendido(), -venda.getQuantidade()));
+        }
+
+        // id_servico_vendido é NULL para produtos; o custo é registrado como estava no momento da venda
+        SqlStatement insertQuery = conn.prepare(
+                "INSERT INTO vendas (id_usuario, tipo_item, id_servico_vendido, nome_item_vendido, " +
+                        "valor_unitario_vendido, quantidade, valor_total_venda, data_hora_venda, metodo_pagamento, " +
+                        "custo_unitario_vendido) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, " + CUSTO_ATUAL_ITEM + ")")
+                .bindText(1, userId)
+                .bindText(2, venda.getTipo_item())
+                .bindInteger(3, venda.getId_servico_vendido())
+                .bindText(4, venda.getNome_item_vendido())
+                .bindDouble(5, venda.getValor_unitario_vendido())
+                .bindInt(6, venda.getQuantidade())
+                .bindDouble(7, venda.getValor_total_venda())
+                .bindText(8, venda.getData_hora_venda())
+                .bindText(9, venda.getMetodo_pagamento())
+                .bindText(10, venda.getTipo_item())
+                .bindText(11, userId)
+                .bindText(12, venda.getNome_item_vendido())
+                .bindText(13, userId)
+                .bindInteger(14, venda.getId_servico_vendido());
+        insertQuery.execute();
+
+        int idVenda;
+        try (Rows rowsId = conn.query("SELECT last_insert_rowid()")) {
+            Object[] rowIdData = rowsId.nextRow();
+            if (rowIdData == null) {
+                throw new IllegalStateException("Não foi possível obter o ID da venda");
+            }
+            idVenda = ((Number) rowIdData[0]).intValue();
+        }
+
+        // Resumo diário atualizado na mesma transação
+        VendasDiariasDAO.aplicar(conn, userId, idVenda, venda.getData_hora_venda(), venda.getTipo_item(),
+                venda.getMetodo_pagamento(), +1, venda.getQuantidade(), venda.getValor_total_venda());
+        // Resumo mensal do relatório, lido da venda gravada (inclui o custo calculado no INSERT)
+        VendasMensalDAO.aplicarVenda(conn, userId, idVenda, +1);
+        return idVenda;
     }
 
     /**
      * Insere uma nova venda no banco de dados de forma assíncrona.
+     * Sem conexão com o servidor, a venda é guardada na fila de escritas
+     * ({@link WriteOutbox}) e enviada quando a conexão voltar.
      */
     public static void inserirVendaAsync(final Venda venda, VendaCallback<Boolean> callback) {
         FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
@@ -450,115 +545,269 @@ public class VendaDAO {
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
             venda.setData_hora_venda(sdf.format(new Date()));
         }
+        // Mesma chave na tentativa online e na fila: a venda nunca é aplicada duas vezes
+        final String chave = WriteOutbox.novaChave();
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
+            if (DatabaseManager.shouldQueueWrites()) {
+                enfileirarVenda(userId, venda, chave, callback);
+                return;
+            }
 
-        executor.execute(() -> {
-            Connection conn = null;
+            ConnectionLease conn = null;
             boolean success = false;
-            String message = "";
+            boolean commitEnviado = false;
+            String message;
+            List<AjusteEstoque> ajustes = new ArrayList<>();
             try {
-                Database db = DatabaseManager.getDatabase();
-                if (db == null) {
-                    throw new IllegalStateException("DatabaseManager.getDatabase() retornou null apesar de inicializado.");
-                }
-                conn = db.connect();
+                conn = DatabaseManager.leaseConnection();
                 conn.execute("BEGIN TRANSACTION"); // Inicia a transação
+                WriteOutbox.registrarOperacao(conn, chave, userId, WriteOutbox.TIPO_VENDA);
+
+                int idVenda = registrarVenda(conn, userId, venda, true, ajustes);
+                if (idVenda < 0) {
+                    message = "Estoque insuficiente para realizar a venda";
+                    Log.w(TAG, message);
+                    conn.execute("ROLLBACK");
+                } else {
+                    venda.setId_venda(idVenda);
+                    commitEnviado = true;
+                    conn.execute("COMMIT");
+                    success = true;
+                    message = "Venda inserida com sucesso";
+                }
+            } catch (Exception e) {
+                message = "Erro ao inserir venda: " + e.getMessage();
+                Log.e(TAG, message, e);
+                if (conn != null) {
+                    try { conn.execute("ROLLBACK"); } catch (Exception re) { Log.e(TAG, "Erro no rollback", re); }
+                    try { conn.close(); } catch (Exception ce) { Log.e(TAG, "Erro ao fechar conexão", ce); }
+                    conn = null;
+                }
+                if (!commitEnviado && DatabaseManager.shouldQueueWrites(e)) {
+                    // A conexão caiu antes do COMMIT: guarda na fila em vez de perder a venda
+                    enfileirarVenda(userId, venda, chave, callback);
+                    return;
+                }
+                if (commitEnviado) {
+                    // O servidor pode ter aplicado o COMMIT; reenviar pela fila duplicaria a venda
+                    message = "Não foi possível confirmar a venda: " + e.getMessage() +
+                            ". Confira a lista de vendas antes de registrá-la novamente";
+                }
+            } finally {
+                if (conn != null) {
+                    try { conn.close(); } catch (Exception ce) { Log.e(TAG, "Erro ao fechar conexão", ce); }
+                }
+            }
+            if (success) {
+                aplicarAjustesCatalogo(userId, ajustes);
+                RelatorioCache.vendasAlteradas(userId, venda.getData_hora_venda());
+                notificarAlteracao(DataChangeEvent.Operacao.INSERCAO, venda.getId_venda(), ajustes);
+            }
+            final boolean finalSuccess = success;
+            final String finalMessage = message;
+            mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
+        });
+    }
 
+    /**
+     * Guarda a venda na fila de escritas e aplica o efeito no catálogo em memória,
+     * para que o balcão continue vendendo sem conexão
+     */
+    private static void enfileirarVenda(String userId, Venda venda, String chave, VendaCallback<Boolean> callback) {
+        String message;
+        boolean success = false;
+        if ("produto".equals(venda.getTipo_item())
+                && !CatalogCache.temQuantidade(userId, venda.getNome_item_vendido(), venda.getQuantidade())) {
+            message = "Estoque insuficiente para realizar a venda";
+        } else {
+            try {
+                long idFila = DatabaseManager.getWriteOutbox().enfileirarVenda(userId, venda, chave);
+                venda.setId_venda(WriteOutbox.idVendaPendente(idFila));
+                List<AjusteEstoque> ajustes = new ArrayList<>();
                 if ("produto".equals(venda.getTipo_item())) {
-                    String checkEstoqueQuery = String.format(
-                            "SELECT quantidade FROM estoque " +
-                                    "WHERE id_usuario = '%s' AND nome_produto = '%s' AND quantidade >= %d",
-                            userId,
-                            venda.getNome_item_vendido().replace("'", "''"),
-                            venda.getQuantidade()
-                    );
-                    boolean estoqueSuficiente = false;
-                    try (Rows rows = conn.query(checkEstoqueQuery)) {
-                        if (rows.nextRow() != null) {
-                            estoqueSuficiente = true;
-                        }
-                    }
-                    if (!estoqueSuficiente) {
-                        message = "Estoque insuficiente para realizar a venda";
-                        Log.w(TAG, message);
-                        conn.execute("ROLLBACK");
-                        String finalMessage1 = message;
-                        mainHandler.post(() -> callback.onResult(false, false, finalMessage1));
-                        return;
+                    ajustes.add(new AjusteEstoque(venda.getNome_item_vendido(), -venda.getQuantidade()));
+                }
+                aplicarAjustesCatalogo(userId, ajustes);
+                notificarAlteracao(DataChangeEvent.Operacao.INSERCAO, venda.getId_venda(), ajustes);
+                success = true;
+                message = "Venda registrada offline; será enviada quando a conexão voltar";
+            } catch (Exception e) {
+                message = "Erro ao registrar venda offline: " + e.getMessage();
+                Log.e(TAG, message, e);
+            }
+        }
+        final boolean finalSuccess = success;
+        final String finalMessage = message;
+        mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
+    }
+
+    /**
+     * Registra um pedido com vários itens de forma assíncrona, em uma única transação:
+     * o estoque de todos os produtos é conferido e baixado e todas as vendas são inseridas,
+     * ou nada é gravado. Uma única notificação de alteração é publicada ao final.
+     * Sem conexão com o servidor, o pedido inteiro vai para a fila de escritas.
+     *
+     * @param pedido Pedido com ao menos um item; os IDs das vendas são preenchidos no sucesso
+     * @param callback Callback com o pedido registrado
+     */
+    public static void inserirPedidoAsync(final Pedido pedido, VendaCallback<Pedido> callback) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            mainHandler.post(() -> callback.onResult(pedido, false, "Usuário não autenticado"));
+            return;
+        }
+        if (!DatabaseManager.isInitialized()) {
+            mainHandler.post(() -> callback.onResult(pedido, false, "DatabaseManager não inicializado. Tente novamente mais tarde."));
+            return;
+        }
+        if (pedido.isVazio()) {
+            mainHandler.post(() -> callback.onResult(pedido, false, "Pedido sem itens"));
+            return;
+        }
+
+        final String userId = user.getUid();
+        if (pedido.dataHoraVenda == null || pedido.dataHoraVenda.isEmpty()) {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+            pedido.dataHoraVenda = sdf.format(new Date());
+        }
+        for (Venda item : pedido.itens) {
+            item.setId_usuario(userId);
+            item.setData_hora_venda(pedido.dataHoraVenda);
+            item.setMetodo_pagamento(pedido.metodoPagamento);
+        }
+        // Uma chave por venda do pedido, as mesmas na tentativa online e na fila
+        final String[] chaves = new String[pedido.itens.size()];
+        for (int i = 0; i < chaves.length; i++) {
+            chaves[i] = WriteOutbox.novaChave();
+        }
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
+            if (DatabaseManager.shouldQueueWrites()) {
+                enfileirarPedido(userId, pedido, chaves, callback);
+                return;
+            }
+
+            ConnectionLease conn = null;
+            boolean success = false;
+            boolean commitEnviado = false;
+            int[] ids = new int[pedido.itens.size()];
+            String message;
+            List<AjusteEstoque> ajustes = new ArrayList<>();
+            try {
+                conn = DatabaseManager.leaseConnection();
+                conn.execute("BEGIN TRANSACTION");
+                for (String chave : chaves) {
+                    WriteOutbox.registrarOperacao(conn, chave, userId, WriteOutbox.TIPO_VENDA);
+                }
+
+                // Itens do mesmo produto são conferidos contra o estoque já baixado pelos anteriores
+                Venda semEstoque = null;
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = registrarVenda(conn, userId, pedido.itens.get(i), true, ajustes);
+                    if (ids[i] < 0) {
+                        semEstoque = pedido.itens.get(i);
+                        break;
                     }
-                    String updateEstoqueQuery = String.format(
-                            "UPDATE estoque SET quantidade = quantidade - %d " +
-                                    "WHERE id_usuario = '%s' AND nome_produto = '%s'",
-                            venda.getQuantidade(),
-                            userId,
-                            venda.getNome_item_vendido().replace("'", "''")
-                    );
-                    conn.execute(updateEstoqueQuery);
-                }
-
-                String insertQuery;
-                if (venda.getId_servico_vendido() == null) {
-                    insertQuery = String.format(
-                            "INSERT INTO vendas (id_usuario, tipo_item, id_servico_vendido, nome_item_vendido, " +
-                                    "valor_unitario_vendido, quantidade, valor_total_venda, data_hora_venda, metodo_pagamento) " +
-                                    "VALUES ('%s', '%s', NULL, '%s', %f, %d, %f, '%s', '%s')",
-                            userId,
-                            venda.getTipo_item(),
-                            venda.getNome_item_vendido().replace("'", "''"),
-                            venda.getValor_unitario_vendido(),
-                            venda.getQuantidade(),
-                            venda.getValor_total_venda(),
-                            venda.getData_hora_venda(),
-                            venda.getMetodo_pagamento().replace("'", "''")
-                    );
+                }
+
+                if (semEstoque != null) {
+                    message = "Estoque insuficiente para " + semEstoque.getNome_item_vendido();
+                    Log.w(TAG, message);
+                    conn.execute("ROLLBACK");
                 } else {
-                    insertQuery = String.format(
-                            "INSERT INTO vendas (id_usuario, tipo_item, id_servico_vendido, nome_item_vendido, " +
-                                    "valor_unitario_vendido, quantidade, valor_total_venda, data_hora_venda, metodo_pagamento) " +
-                                    "VALUES ('%s', '%s', %d, '%s', %f, %d, %f, '%s', '%s')",
-                            userId,
-                            venda.getTipo_item(),
-                            venda.getId_servico_vendido(),
-                            venda.getNome_item_vendido().replace("'", "''"),
-                            venda.getValor_unitario_vendido(),
-                            venda.getQuantidade(),
-                            venda.getValor_total_venda(),
-                            venda.getData_hora_venda(),
-                            venda.getMetodo_pagamento().replace("'", "''")
-                    );
-                }
-                conn.execute(insertQuery);
-
-                try (Rows rowsId = conn.query("SELECT last_insert_rowid()")) {
-                    Object[] rowIdData = rowsId.nextRow();
-                    if (rowIdData != null) {
-                        venda.setId_venda(((Number) rowIdData[0]).intValue());
-                        success = true;
-                        message = "Venda inserida com sucesso";
-                        conn.execute("COMMIT");
-                    } else {
-                        success = false;
-                        message = "Não foi possível obter o ID da venda";
-                        conn.execute("ROLLBACK");
+                    commitEnviado = true;
+                    conn.execute("COMMIT");
+                    for (int i = 0; i < ids.length; i++) {
+                        pedido.itens.get(i).setId_venda(ids[i]);
                     }
+                    success = true;
+                    message = "Pedido registrado com " + ids.length + " itens";
+                    Log.i(TAG, message);
                 }
             } catch (Exception e) {
-                success = false;
-                message = "Erro ao inserir venda: " + e.getMessage();
+                message = "Erro ao registrar pedido: " + e.getMessage();
                 Log.e(TAG, message, e);
                 if (conn != null) {
                     try { conn.execute("ROLLBACK"); } catch (Exception re) { Log.e(TAG, "Erro no rollback", re); }
+                    try { conn.close(); } catch (Exception ce) { Log.e(TAG, "Erro ao fechar conexão", ce); }
+                    conn = null;
+                }
+                if (!commitEnviado && DatabaseManager.shouldQueueWrites(e)) {
+                    // A conexão caiu antes do COMMIT: guarda na fila em vez de perder a venda
+                    enfileirarPedido(userId, pedido, chaves, callback);
+                    return;
+                }
+                if (commitEnviado) {
+                    // O servidor pode ter aplicado o COMMIT; reenviar pela fila duplicaria o pedido
+                    message = "Não foi possível confirmar o pedido: " + e.getMessage() +
+                            ". Confira a lista de vendas antes de registrá-lo novamente";
                 }
             } finally {
                 if (conn != null) {
                     try { conn.close(); } catch (Exception ce) { Log.e(TAG, "Erro ao fechar conexão", ce); }
                 }
-                final boolean finalSuccess = success;
-                final String finalMessage = message;
-                mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
             }
+            if (success) {
+                aplicarAjustesCatalogo(userId, ajustes);
+                RelatorioCache.vendasAlteradas(userId, pedido.dataHoraVenda);
+                notificarAlteracao(DataChangeEvent.Operacao.INSERCAO, ids, ajustes);
+            }
+            final boolean finalSuccess = success;
+            final String finalMessage = message;
+            mainHandler.post(() -> callback.onResult(pedido, finalSuccess, finalMessage));
         });
     }
 
+    /**
+     * Guarda o pedido inteiro na fila de escritas, conferindo o estoque de cada
+     * produto pela soma das quantidades no pedido
+     */
+    private static void enfileirarPedido(String userId, Pedido pedido, String[] chaves,
+                                         VendaCallback<Pedido> callback) {
+        String message = null;
+        boolean success = false;
+        Map<String, Integer> porProduto = new HashMap<>();
+        for (Venda item : pedido.itens) {
+            if ("produto".equals(item.getTipo_item())) {
+                Integer atual = porProduto.get(item.getNome_item_vendido());
+                porProduto.put(item.getNome_item_vendido(), (atual != null ? atual : 0) + item.getQuantidade());
+            }
+        }
+        for (Map.Entry<String, Integer> produto : porProduto.entrySet()) {
+            if (!CatalogCache.temQuantidade(userId, produto.getKey(), produto.getValue())) {
+                message = "Estoque insuficiente para " + produto.getKey();
+                break;
+            }
+        }
+
+        if (message == null) {
+            try {
+                long[] idsFila = DatabaseManager.getWriteOutbox().enfileirarVendas(userId, pedido.itens, chaves);
+                int[] ids = new int[idsFila.length];
+                List<AjusteEstoque> ajustes = new ArrayList<>();
+                for (int i = 0; i < idsFila.length; i++) {
+                    Venda item = pedido.itens.get(i);
+                    ids[i] = WriteOutbox.idVendaPendente(idsFila[i]);
+                    item.setId_venda(ids[i]);
+                    if ("produto".equals(item.getTipo_item())) {
+                        ajustes.add(new AjusteEstoque(item.getNome_item_vendido(), -item.getQuantidade()));
+                    }
+                }
+                aplicarAjustesCatalogo(userId, ajustes);
+                notificarAlteracao(DataChangeEvent.Operacao.INSERCAO, ids, ajustes);
+                success = true;
+                message = "Pedido registrado offline; será enviado quando a conexão voltar";
+            } catch (Exception e) {
+                message = "Erro ao registrar pedido offline: " + e.getMessage();
+                Log.e(TAG, message, e);
+            }
+        }
+        final boolean finalSuccess = success;
+        final String finalMessage = message;
+        mainHandler.post(() -> callback.onResult(pedido, finalSuccess, finalMessage));
+    }
+
     /**
      * Atualiza uma venda existente de forma assíncrona.
      */
@@ -573,40 +822,48 @@ public class VendaDAO {
             return;
         }
 
+        if (WriteOutbox.isVendaPendente(venda.getId_venda())) {
+            mainHandler.post(() -> callback.onResult(false, false,
+                    "Venda aguardando sincronização; edite-a depois que a conexão voltar"));
+            return;
+        }
+
         final String userId = user.getUid();
         Log.d(TAG, "Iniciando atualização da venda ID: " + venda.getId_venda());
 
-        executor.execute(() -> {
-            Connection conn = null;
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
+            ConnectionLease conn = null;
             boolean success = false;
             String message = "";
+            List<AjusteEstoque> ajustes = new ArrayList<>();
             try {
-                Database db = DatabaseManager.getDatabase();
-                if (db == null) {
-                    throw new IllegalStateException("DatabaseManager.getDatabase() retornou null apesar de inicializado.");
-                }
-                conn = db.connect();
+                conn = DatabaseManager.leaseConnection();
 
                 // Inicia a transação antes de qualquer operação
                 conn.execute("BEGIN TRANSACTION");
 
-                // Recupera a venda original para comparar e ajustar o estoque, se necessário.
+                // Recupera a venda original para comparar e ajustar o estoque e o resumo diário.
                 Venda vendaOriginal = null;
-                String getVendaQuery = String.format(
-                        "SELECT tipo_item, nome_item_vendido, quantidade FROM vendas " +
-                                "WHERE id_venda = %d AND id_usuario = '%s'",
-                        venda.getId_venda(), userId
-                );
+                SqlStatement getVendaQuery = conn.prepare(
+                        "SELECT tipo_item, nome_item_vendido, quantidade, valor_total_venda, " +
+                                "data_hora_venda, metodo_pagamento, id_servico_vendido FROM vendas " +
+                                "WHERE id_venda = ? AND id_usuario = ?")
+                        .bindInt(1, venda.getId_venda())
+                        .bindText(2, userId);
 
                 Log.d(TAG, "Verificando venda original: " + getVendaQuery);
 
-                try (Rows rows = conn.query(getVendaQuery)) {
+                try (Rows rows = getVendaQuery.query()) {
                     Object[] rowData = rows.nextRow();
                     if (rowData != null) {
                         vendaOriginal = new Venda();
                         vendaOriginal.setTipo_item((String) rowData[0]);
                         vendaOriginal.setNome_item_vendido((String) rowData[1]);
                         vendaOriginal.setQuantidade(((Number) rowData[2]).intValue());
+                        vendaOriginal.setValor_total_venda(((Number) rowData[3]).doubleValue());
+                        vendaOriginal.setData_hora_venda((String) rowData[4]);
+                        vendaOriginal.setMetodo_pagamento((String) rowData[5]);
+                        vendaOriginal.setId_servico_vendido(rowData[6] != null ? ((Number) rowData[6]).intValue() : null);
                         Log.d(TAG, "Venda original encontrada: " + vendaOriginal.getNome_item_vendido() +
                                 ", Tipo: " + vendaOriginal.getTipo_item() +
                                 ", Qtd: " + vendaOriginal.getQuantidade());
@@ -629,13 +886,14 @@ public class VendaDAO {
                     Log.d(TAG, "Diferença de quantidade: " + diferencaQuantidade);
 
                     if (diferencaQuantidade > 0) {
-                        String checkEstoqueQuery = String.format(
-                                "SELECT quantidade FROM estoque WHERE id_usuario = '%s' AND nome_produto = '%s' AND quantidade >= %d",
-                                userId, venda.getNome_item_vendido().replace("'", "''"), diferencaQuantidade
-                        );
+                        SqlStatement checkEstoqueQuery = conn.prepare(
+                                "SELECT quantidade FROM estoque WHERE id_usuario = ? AND nome_produto = ? AND quantidade >= ?")
+                                .bindText(1, userId)
+                                .bindText(2, venda.getNome_item_vendido())
+                                .bindInt(3, diferencaQuantidade);
                         Log.d(TAG, "Verificando estoque disponível: " + checkEstoqueQuery);
 
-                        try (Rows rowsCheck = conn.query(checkEstoqueQuery)) {
+                        try (Rows rowsCheck = checkEstoqueQuery.query()) {
                             if (rowsCheck.nextRow() == null) {
                                 estoqueOk = false;
                                 Log.w(TAG, "Estoque insuficiente para atualização");
@@ -644,30 +902,35 @@ public class VendaDAO {
                     }
 
                     if (estoqueOk && diferencaQuantidade != 0) {
-                        String updateEstoqueQuery = String.format(
-                                "UPDATE estoque SET quantidade = quantidade - %d WHERE id_usuario = '%s' AND nome_produto = '%s'",
-                                diferencaQuantidade, userId, venda.getNome_item_vendido().replace("'", "''")
-                        );
+                        SqlStatement updateEstoqueQuery = conn.prepare(
+                                "UPDATE estoque SET quantidade = quantidade - ? WHERE id_usuario = ? AND nome_produto = ?")
+                                .bindInt(1, diferencaQuantidade)
+                                .bindText(2, userId)
+                                .bindText(3, venda.getNome_item_vendido());
                         Log.d(TAG, "Atualizando estoque: " + updateEstoqueQuery);
-                        conn.execute(updateEstoqueQuery);
+                        updateEstoqueQuery.execute();
+                        ajustes.add(new AjusteEstoque(venda.getNome_item_vendido(), -diferencaQuantidade));
                     }
                 } else if ("produto".equals(vendaOriginal.getTipo_item()) && !"produto".equals(venda.getTipo_item())) {
                     // Produto -> Serviço: devolver ao estoque
-                    String updateEstoqueQuery = String.format(
-                            "UPDATE estoque SET quantidade = quantidade + %d WHERE id_usuario = '%s' AND nome_produto = '%s'",
-                            vendaOriginal.getQuantidade(), userId, vendaOriginal.getNome_item_vendido().replace("'", "''")
-                    );
+                    SqlStatement updateEstoqueQuery = conn.prepare(
+                            "UPDATE estoque SET quantidade = quantidade + ? WHERE id_usuario = ? AND nome_produto = ?")
+                            .bindInt(1, vendaOriginal.getQuantidade())
+                            .bindText(2, userId)
+                            .bindText(3, vendaOriginal.getNome_item_vendido());
                     Log.d(TAG, "Devolvendo ao estoque (mudança para serviço): " + updateEstoqueQuery);
-                    conn.execute(updateEstoqueQuery);
+                    updateEstoqueQuery.execute();
+                    ajustes.add(new AjusteEstoque(vendaOriginal.getNome_item_vendido(), vendaOriginal.getQuantidade()));
                 } else if (!"produto".equals(vendaOriginal.getTipo_item()) && "produto".equals(venda.getTipo_item())) {
                     // Serviço -> Produto: verificar estoque
-                    String checkEstoqueQuery = String.format(
-                            "SELECT quantidade FROM estoque WHERE id_usuario = '%s' AND nome_produto = '%s' AND quantidade >= %d",
-                            userId, venda.getNome_item_vendido().replace("'", "''"), venda.getQuantidade()
-                    );
+                    SqlStatement checkEstoqueQuery = conn.prepare(
+                            "SELECT quantidade FROM estoque WHERE id_usuario = ? AND nome_produto = ? AND quantidade >= ?")
+                            .bindText(1, userId)
+                            .bindText(2, venda.getNome_item_vendido())
+                            .bindInt(3, venda.getQuantidade());
                     Log.d(TAG, "Verificando estoque (mudança de serviço para produto): " + checkEstoqueQuery);
 
-                    try (Rows rowsCheck = conn.query(checkEstoqueQuery)) {
+                    try (Rows rowsCheck = checkEstoqueQuery.query()) {
                         if (rowsCheck.nextRow() == null) {
                             estoqueOk = false;
                             Log.w(TAG, "Estoque insuficiente para mudança de serviço para produto");
@@ -675,12 +938,14 @@ public class VendaDAO {
                     }
 
                     if (estoqueOk) {
-                        String updateEstoqueQuery = String.format(
-                                "UPDATE estoque SET quantidade = quantidade - %d WHERE id_usuario = '%s' AND nome_produto = '%s'",
-                                venda.getQuantidade(), userId, venda.getNome_item_vendido().replace("'", "''")
-                        );
+                        SqlStatement updateEstoqueQuery = conn.prepare(
+                                "UPDATE estoque SET quantidade = quantidade - ? WHERE id_usuario = ? AND nome_produto = ?")
+                                .bindInt(1, venda.getQuantidade())
+                                .bindText(2, userId)
+                                .bindText(3, venda.getNome_item_vendido());
                         Log.d(TAG, "Atualizando estoque (mudança de serviço para produto): " + updateEstoqueQuery);
-                        conn.execute(updateEstoqueQuery);
+                        updateEstoqueQuery.execute();
+                        ajustes.add(new AjusteEstoque(venda.getNome_item_vendido(), -venda.getQuantidade()));
                     }
                 }
 
@@ -693,69 +958,71 @@ public class VendaDAO {
                     return;
                 }
 
+                // O custo registrado só é substituído pelo custo atual quando o item vendido muda;
+                // editar quantidade, valor ou data preserva o custo da época da venda
+                boolean itemAlterado = !Objects.equals(vendaOriginal.getTipo_item(), venda.getTipo_item())
+                        || !Objects.equals(vendaOriginal.getNome_item_vendido(), venda.getNome_item_vendido())
+                        || !Objects.equals(vendaOriginal.getId_servico_vendido(), venda.getId_servico_vendido());
+
                 // Atualiza a venda
-                String updateQuery;
-                if (venda.getId_servico_vendido() == null) {
-                    updateQuery = String.format(
-                            "UPDATE vendas SET " +
-                                    "tipo_item = '%s', " +
-                                    "id_servico_vendido = NULL, " +
-                                    "nome_item_vendido = '%s', " +
-                                    "valor_unitario_vendido = %f, " +
-                                    "quantidade = %d, " +
-                                    "valor_total_venda = %f, " +
-                                    "data_hora_venda = '%s', " +
-                                    "metodo_pagamento = '%s' " +
-                                    "WHERE id_venda = %d AND id_usuario = '%s'",
-                            venda.getTipo_item(),
-                            venda.getNome_item_vendido().replace("'", "''"),
-                            venda.getValor_unitario_vendido(),
-                            venda.getQuantidade(),
-                            venda.getValor_total_venda(),
-                            venda.getData_hora_venda(),
-                            venda.getMetodo_pagamento().replace("'", "''"),
-                            venda.getId_venda(),
-                            userId
-                    );
-                } else {
-                    updateQuery = String.format(
-                            "UPDATE vendas SET " +
-                                    "tipo_item = '%s', " +
-                                    "id_servico_vendido = %d, " +
-                                    "nome_item_vendido = '%s', " +
-                                    "valor_unitario_vendido = %f, " +
-                                    "quantidade = %d, " +
-                                    "valor_total_venda = %f, " +
-                                    "data_hora_venda = '%s', " +
-                                    "metodo_pagamento = '%s' " +
-                                    "WHERE id_venda = %d AND id_usuario = '%s'",
-                            venda.getTipo_item(),
-                            venda.getId_servico_vendido(),
-                            venda.getNome_item_vendido().replace("'", "''"),
-                            venda.getValor_unitario_vendido(),
-                            venda.getQuantidade(),
-                            venda.getValor_total_venda(),
-                            venda.getData_hora_venda(),
-                            venda.getMetodo_pagamento().replace("'", "''"),
-                            venda.getId_venda(),
-                            userId
-                    );
-                }
-
-                Log.d(TAG, "Executando atualização: " + updateQuery);
-                conn.execute(updateQuery);
+                // id_servico_vendido é NULL para produtos
+                SqlStatement updateQuery = conn.prepare(
+                        "UPDATE vendas SET " +
+                                "tipo_item = ?, " +
+                                "id_servico_vendido = ?, " +
+                                "nome_item_vendido = ?, " +
+                                "valor_unitario_vendido = ?, " +
+                                "quantidade = ?, " +
+                                "valor_total_venda = ?, " +
+                                "data_hora_venda = ?, " +
+                                "metodo_pagamento = ?, " +
+                                "custo_unitario_vendido = " +
+                                (itemAlterado ? CUSTO_ATUAL_ITEM : "COALESCE(custo_unitario_vendido, " + CUSTO_ATUAL_ITEM + ")") + " " +
+                                "WHERE id_venda = ? AND id_usuario = ?")
+                        .bindText(1, venda.getTipo_item())
+                        .bindInteger(2, venda.getId_servico_vendido())
+                        .bindText(3, venda.getNome_item_vendido())
+                        .bindDouble(4, venda.getValor_unitario_vendido())
+                        .bindInt(5, venda.getQuantidade())
+                        .bindDouble(6, venda.getValor_total_venda())
+                        .bindText(7, venda.getData_hora_venda())
+                        .bindText(8, venda.getMetodo_pagamento())
+                        .bindText(9, venda.getTipo_item())
+                        .bindText(10, userId)
+                        .bindText(11, venda.getNome_item_vendido())
+                        .bindText(12, userId)
+                        .bindInteger(13, venda.getId_servico_vendido())
+                        .bindInt(14, venda.getId_venda())
+                        .bindText(15, userId);
+
+                // Retira a venda original do resumo mensal antes de alterá-la
+                VendasMensalDAO.aplicarVenda(conn, userId, venda.getId_venda(), -1);
+
+                Log.d(TAG, "Executando atualização da venda " + venda.getId_venda());
+                updateQuery.execute();
+                VendasMensalDAO.aplicarVenda(conn, userId, venda.getId_venda(), +1);
+
+                // Move a venda no resumo diário: retira os valores originais e soma os novos
+                VendasDiariasDAO.aplicar(conn, userId, venda.getId_venda(), vendaOriginal.getData_hora_venda(), vendaOriginal.getTipo_item(),
+                        vendaOriginal.getMetodo_pagamento(), -1, vendaOriginal.getQuantidade(), vendaOriginal.getValor_total_venda());
+                VendasDiariasDAO.aplicar(conn, userId, venda.getId_venda(), venda.getData_hora_venda(), venda.getTipo_item(),
+                        venda.getMetodo_pagamento(), +1, venda.getQuantidade(), venda.getValor_total_venda());
 
                 // Verifica se a atualização foi bem-sucedida
-                String checkQuery = String.format(
-                        "SELECT COUNT(*) FROM vendas WHERE id_venda = %d AND id_usuario = '%s'",
-                        venda.getId_venda(), userId
-                );
-                try (Rows rows = conn.query(checkQuery)) {
+                SqlStatement checkQuery = conn.prepare(
+                        "SELECT COUNT(*) FROM vendas WHERE id_venda = ? AND id_usuario = ?")
+                        .bindInt(1, venda.getId_venda())
+                        .bindText(2, userId);
+                try (Rows rows = checkQuery.query()) {
                     Object[] rowData = rows.nextRow();
                     if (rowData != null && ((Number) rowData[0]).intValue() > 0) {
                         success = true;
                         message = "Venda atualizada com sucesso";
                         conn.execute("COMMIT");
+                        aplicarAjustesCatalogo(userId, ajustes);
+                        // A venda sai do período da data original e entra no da nova
+                        RelatorioCache.vendasAlteradas(userId, vendaOriginal.getData_hora_venda(), venda.getData_hora_venda());
+                        notificarAlteracao(DataChangeEvent.Operacao.ATUALIZACAO, venda.getId_venda(), ajustes);
                     } else {
                         success = false;
                         message = "Falha ao atualizar venda";
@@ -780,6 +1047,36 @@ public class VendaDAO {
         });
     }
 
+    /**
+     * Remove da fila de escritas uma venda feita offline e ainda não enviada,
+     * devolvendo ao catálogo em memória o estoque baixado por ela
+     */
+    private static void cancelarVendaPendente(String userId, int idVenda, VendaCallback<Boolean> callback) {
+        boolean success = false;
+        String message;
+        try {
+            Venda venda = DatabaseManager.getWriteOutbox().cancelarVenda(userId, idVenda);
+            if (venda == null) {
+                message = "Venda pendente não encontrada; ela pode já ter sido enviada";
+            } else {
+                List<AjusteEstoque> ajustes = new ArrayList<>();
+                if ("produto".equals(venda.getTipo_item())) {
+                    ajustes.add(new AjusteEstoque(venda.getNome_item_vendido(), venda.getQuantidade()));
+                }
+                aplicarAjustesCatalogo(userId, ajustes);
+                notificarAlteracao(DataChangeEvent.Operacao.EXCLUSAO, idVenda, ajustes);
+                success = true;
+                message = "Venda pendente cancelada";
+            }
+        } catch (Exception e) {
+            message = "Erro ao cancelar venda pendente: " + e.getMessage();
+            Log.e(TAG, message, e);
+        }
+        final boolean finalSuccess = success;
+        final String finalMessage = message;
+        mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
+    }
+
     /**
      * Exclui uma venda do banco de dados de forma assíncrona.
      */
@@ -797,32 +1094,38 @@ public class VendaDAO {
         final String userId = user.getUid();
         Log.d(TAG, "Iniciando exclusão da venda ID: " + idVenda);
 
-        executor.execute(() -> {
-            Connection conn = null;
+        if (WriteOutbox.isVendaPendente(idVenda)) {
+            DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> cancelarVendaPendente(userId, idVenda, callback));
+            return;
+        }
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.ESCRITA, () -> {
+            ConnectionLease conn = null;
             boolean success = false;
             String message = "";
+            List<AjusteEstoque> ajustes = new ArrayList<>();
             try {
-                Database db = DatabaseManager.getDatabase();
-                if (db == null) {
-                    throw new IllegalStateException("DatabaseManager.getDatabase() retornou null apesar de inicializado.");
-                }
-                conn = db.connect();
+                conn = DatabaseManager.leaseConnection();
                 conn.execute("BEGIN TRANSACTION");
 
-                // Primeiro, recupera informações da venda para possível ajuste de estoque
+                // Primeiro, recupera informações da venda para ajuste de estoque e do resumo diário
                 Venda venda = null;
-                String getVendaQuery = String.format(
-                        "SELECT tipo_item, nome_item_vendido, quantidade FROM vendas " +
-                                "WHERE id_venda = %d AND id_usuario = '%s'",
-                        idVenda, userId
-                );
-                try (Rows rows = conn.query(getVendaQuery)) {
+                SqlStatement getVendaQuery = conn.prepare(
+                        "SELECT tipo_item, nome_item_vendido, quantidade, valor_total_venda, " +
+                                "data_hora_venda, metodo_pagamento FROM vendas " +
+                                "WHERE id_venda = ? AND id_usuario = ?")
+                        .bindInt(1, idVenda)
+                        .bindText(2, userId);
+                try (Rows rows = getVendaQuery.query()) {
                     Object[] rowData = rows.nextRow();
                     if (rowData != null) {
                         venda = new Venda();
                         venda.setTipo_item((String) rowData[0]);
                         venda.setNome_item_vendido((String) rowData[1]);
                         venda.setQuantidade(((Number) rowData[2]).intValue());
+                        venda.setValor_total_venda(((Number) rowData[3]).doubleValue());
+                        venda.setData_hora_venda((String) rowData[4]);
+                        venda.setMetodo_pagamento((String) rowData[5]);
                     }
                 }
 
@@ -837,36 +1140,45 @@ public class VendaDAO {
 
                 // Se for produto, devolve ao estoque
                 if ("produto".equals(venda.getTipo_item())) {
-                    String updateEstoqueQuery = String.format(
-                            "UPDATE estoque SET quantidade = quantidade + %d " +
-                                    "WHERE id_usuario = '%s' AND nome_produto = '%s'",
-                            venda.getQuantidade(),
-                            userId,
-                            venda.getNome_item_vendido().replace("'", "''")
-                    );
+                    SqlStatement updateEstoqueQuery = conn.prepare(
+                            "UPDATE estoque SET quantidade = quantidade + ? " +
+                                    "WHERE id_usuario = ? AND nome_produto = ?")
+                            .bindInt(1, venda.getQuantidade())
+                            .bindText(2, userId)
+                            .bindText(3, venda.getNome_item_vendido());
                     Log.d(TAG, "Devolvendo ao estoque: " + updateEstoqueQuery);
-                    conn.execute(updateEstoqueQuery);
+                    updateEstoqueQuery.execute();
+                    ajustes.add(new AjusteEstoque(venda.getNome_item_vendido(), venda.getQuantidade()));
                 }
 
+                // Retira a venda do resumo mensal enquanto ela ainda existe
+                VendasMensalDAO.aplicarVenda(conn, userId, idVenda, -1);
+
                 // Exclui a venda
-                String deleteQuery = String.format(
-                        "DELETE FROM vendas WHERE id_venda = %d AND id_usuario = '%s'",
-                        idVenda, userId
-                );
+                SqlStatement deleteQuery = conn.prepare(
+                        "DELETE FROM vendas WHERE id_venda = ? AND id_usuario = ?")
+                        .bindInt(1, idVenda)
+                        .bindText(2, userId);
                 Log.d(TAG, "Executando exclusão: " + deleteQuery);
-                conn.execute(deleteQuery);
+                deleteQuery.execute();
+
+                VendasDiariasDAO.aplicar(conn, userId, idVenda, venda.getData_hora_venda(), venda.getTipo_item(),
+                        venda.getMetodo_pagamento(), -1, venda.getQuantidade(), venda.getValor_total_venda());
 
                 // Verifica se a exclusão foi bem-sucedida
-                String checkQuery = String.format(
-                        "SELECT COUNT(*) FROM vendas WHERE id_venda = %d AND id_usuario = '%s'",
-                        idVenda, userId
-                );
-                try (Rows rows = conn.query(checkQuery)) {
+                SqlStatement checkQuery = conn.prepare(
+                        "SELECT COUNT(*) FROM vendas WHERE id_venda = ? AND id_usuario = ?")
+                        .bindInt(1, idVenda)
+                        .bindText(2, userId);
+                try (Rows rows = checkQuery.query()) {
                     Object[] rowData = rows.nextRow();
                     if (rowData != null && ((Number) rowData[0]).intValue() == 0) {
                         success = true;
                         message = "Venda excluída com sucesso";
                         conn.execute("COMMIT");
+                        aplicarAjustesCatalogo(userId, ajustes);
+                        RelatorioCache.vendasAlteradas(userId, venda.getData_hora_venda());
+                        notificarAlteracao(DataChangeEvent.Operacao.EXCLUSAO, idVenda, ajustes);
                     } else {
                         success = false;
                         message = "Falha ao excluir venda";
@@ -29,13 +29,18 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickListener {
+public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickListener,
+        VendaAdapter.OnCarregarMaisListener {
 
     private static final String TAG = "VendasActivity";
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long TIMEOUT_DURATION = 30000; // 30 segundos
     private static final long RETRY_DELAY = 2000; // 2 segundos
 
+    // Paginação: vendas por página e janela máxima mantida em memória
+    private static final int TAMANHO_PAGINA = VendaDAO.TAMANHO_PAGINA_PADRAO;
+    private static final int MAX_VENDAS_EM_MEMORIA = TAMANHO_PAGINA * 4;
+
     private RecyclerView recyclerViewVendas;
     private VendaAdapter vendaAdapter;
     private List<Venda> listaDeVendas = new ArrayList<>();
@@ -56,6 +61,12 @@ public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickLis
     private AtomicBoolean isLoading = new AtomicBoolean(false);
     private AtomicBoolean databaseInitialized = new AtomicBoolean(false);
 
+    // Estado da paginação (acessado apenas na thread principal, exceto a flag)
+    private final AtomicBoolean carregandoPagina = new AtomicBoolean(false);
+    private boolean temVendasAnteriores = false; // Há vendas mais antigas abaixo da janela
+    private boolean temVendasRecentes = false;   // Há vendas mais recentes descartadas acima da janela
+    private int geracaoListagem = 0;             // Descarta páginas de uma listagem já recarregada
+
     private ActivityResultLauncher<Intent> formVendaLauncher;
 
     @Override
@@ -112,6 +123,7 @@ public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickLis
         // Inicializa o adapter com a lista vazia
         vendaAdapter = new VendaAdapter(this, new ArrayList<>());
         vendaAdapter.setOnVendaClickListener(this);
+        vendaAdapter.setOnCarregarMaisListener(this);
         recyclerViewVendas.setAdapter(vendaAdapter);
     }
 
@@ -332,7 +344,10 @@ public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickLis
         mostrarProgresso(true);
         Log.d(TAG, "Iniciando carregamento de vendas");
 
-        VendaDAO.listarVendasAsync((result, success, message) -> {
+        // Reinicia a listagem a partir da venda mais recente
+        final int geracao = ++geracaoListagem;
+
+        VendaDAO.listarVendasPaginaAsync(null, true, TAMANHO_PAGINA, (pagina, success, message) -> {
             // Garante que o callback é processado na thread principal
             mainHandler.post(() -> {
                 try {
@@ -342,20 +357,27 @@ public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickLis
                         return;
                     }
 
-                    Log.d(TAG, "Callback de listarVendasAsync recebido. Success: " + success +
+                    List<Venda> result = pagina != null ? pagina.vendas : null;
+                    Log.d(TAG, "Callback de listarVendasPaginaAsync recebido. Success: " + success +
                             ", Resultados: " + (result != null ? result.size() : "null"));
 
+                    if (geracao != geracaoListagem) return;
+
                     mostrarProgresso(false);
                     listaDeVendas.clear();
+                    temVendasRecentes = false;
+                    temVendasAnteriores = false;
 
                     if (success && result != null) {
                         listaDeVendas.addAll(result);
+                        temVendasAnteriores = pagina.temMais;
                         atualizarInterface(result.isEmpty());
 
                         if (result.isEmpty()) {
                             Log.i(TAG, "Nenhuma venda encontrada");
                         } else {
-                            Log.i(TAG, "Vendas carregadas: " + result.size());
+                            Log.i(TAG, "Vendas carregadas: " + result.size() +
+                                    (pagina.temMais ? " (há mais páginas)" : ""));
                         }
                     } else {
                         atualizarInterface(true);
@@ -373,6 +395,72 @@ public class Vendas extends BaseActivity implements VendaAdapter.OnVendaClickLis
         });
     }
 
+    @Override
+    public void onCarregarAnteriores(Venda ultimaVenda) {
+        if (temVendasAnteriores) {
+            carregarPagina(ultimaVenda, true);
+        }
+    }
+
+    @Override
+    public void onCarregarRecentes(Venda primeiraVenda) {
+        if (temVendasRecentes) {
+            carregarPagina(primeiraVenda, false);
+        }
+    }
+
+    /**
+     * Carrega a página vizinha à venda de referência e desliza a janela em memória,
+     * descartando as vendas do lado oposto quando o limite é ultrapassado.
+     * @param referencia Venda na borda da janela atual
+     * @param anteriores true para vendas mais antigas (fim da lista), false para mais recentes (início)
+     */
+    private void carregarPagina(Venda referencia, boolean anteriores) {
+        if (!isActivityActive() || isLoading.get() || !carregandoPagina.compareAndSet(false, true)) {
+            return;
+        }
+
+        final int geracao = geracaoListagem;
+        VendaDAO.listarVendasPaginaAsync(VendaDAO.CursorVenda.de(referencia), anteriores, TAMANHO_PAGINA,
+                (pagina, success, message) -> mainHandler.post(() -> {
+                    try {
+                        if (!isActivityActive() || geracao != geracaoListagem) return;
+
+                        if (!success || pagina == null) {
+                            Log.w(TAG, "Erro ao carregar página de vendas: " + message);
+                            return;
+                        }
+
+                        if (anteriores) {
+                            listaDeVendas.addAll(pagina.vendas);
+                            temVendasAnteriores = pagina.temMais;
+                            int excedente = listaDeVendas.size() - MAX_VENDAS_EM_MEMORIA;
+                            if (excedente > 0) {
+                                listaDeVendas.subList(0, excedente).clear();
+                                temVendasRecentes = true;
+                            }
+                        } else {
+                            listaDeVendas.addAll(0, pagina.vendas);
+                            temVendasRecentes = pagina.temMais;
+                            int excedente = listaDeVendas.size() - MAX_VENDAS_EM_MEMORIA;
+                            if (excedente > 0) {
+                                listaDeVendas.subList(listaDeVendas.size() - excedente, listaDeVendas.size()).clear();
+                                temVendasAnteriores = true;
+                            }
+                        }
+
+                        Log.d(TAG, "Página de vendas carregada: " + pagina.vendas.size() +
+                                " itens, " + listaDeVendas.size() + " em memória");
+
+                        if (vendaAdapter != null && !pagina.vendas.isEmpty()) {
+                            vendaAdapter.updateList(new ArrayList<>(listaDeVendas));
+                        }
+                    } finally {
+                        carregandoPagina.set(false);
+                    }
+                }));
+    }
+
     private void atualizarInterface(boolean mostrarEstadoVazio) {
         // Prote contra chamadas inválidas fora do ciclo de vida
         if (!isActivityActive()) return;
@@ -0,0 +1,181 @@
+package tech.turso.SyncroManage;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * DAO da tabela de resumo diário de vendas (vendas_diarias).
+ * Cada linha acumula, por usuário, dia, tipo de item e método de pagamento,
+ * o número de vendas, a quantidade vendida e a receita. A tabela é mantida
+ * pelo {@link VendaDAO} dentro das mesmas transações que alteram a tabela
+ * vendas, e permite que a Home some dias em vez de varrer todas as vendas.
+ * A tabela é criada e preenchida pela migração de esquema (ver {@link SchemaMigrations}).
+ */
+public class VendasDiariasDAO {
+    private static final String TAG = "VendasDiariasDAO";
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    static final String TABELA = "vendas_diarias";
+
+    // Versão da migração que cria e preenche a tabela (ver SchemaMigrations)
+    static final int VERSAO_ESQUEMA = 3;
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS vendas_diarias (" +
+                    "id_usuario TEXT NOT NULL, " +
+                    "dia TEXT NOT NULL, " +                       // yyyy-MM-dd
+                    "tipo_item TEXT NOT NULL, " +
+                    "metodo_pagamento TEXT NOT NULL DEFAULT '', " +
+                    "total_vendas INTEGER NOT NULL DEFAULT 0, " +
+                    "quantidade INTEGER NOT NULL DEFAULT 0, " +
+                    "receita REAL NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (id_usuario, dia, tipo_item, metodo_pagamento)" +
+                    ") WITHOUT ROWID";
+
+    // Recalcula o resumo a partir da tabela vendas; o filtro de usuário é acrescentado quando necessário
+    private static final String INSERT_A_PARTIR_DE_VENDAS =
+            "INSERT INTO vendas_diarias " +
+                    "(id_usuario, dia, tipo_item, metodo_pagamento, total_vendas, quantidade, receita) " +
+                    "SELECT id_usuario, date(data_hora_venda), tipo_item, COALESCE(metodo_pagamento, ''), " +
+                    "COUNT(*), SUM(quantidade), SUM(valor_total_venda) FROM vendas ";
+    private static final String AGRUPAMENTO =
+            "GROUP BY id_usuario, date(data_hora_venda), tipo_item, COALESCE(metodo_pagamento, '')";
+
+    // Preenchimento em lotes usado pela migração: soma um intervalo de rowid de vendas ao resumo
+    static final String INSERT_LOTE_VENDAS =
+            INSERT_A_PARTIR_DE_VENDAS + "WHERE rowid > ? AND rowid <= ? " + AGRUPAMENTO + " " +
+                    "ON CONFLICT (id_usuario, dia, tipo_item, metodo_pagamento) DO UPDATE SET " +
+                    "total_vendas = total_vendas + excluded.total_vendas, " +
+                    "quantidade = quantidade + excluded.quantidade, " +
+                    "receita = receita + excluded.receita";
+
+    /**
+     * Interface de callback para a reconstrução do resumo.
+     */
+    public interface VendasDiariasCallback<T> {
+        void onResult(T result, boolean success, String message);
+    }
+
+    /**
+     * Soma uma variação ao resumo do dia da venda.
+     * Deve ser chamado na mesma transação que altera a tabela vendas. Vendas que o
+     * preenchimento da migração ainda não somou são ignoradas; o lote as lê depois.
+     *
+     * @param idVenda       ID (rowid) da venda
+     * @param dataHoraVenda Data/hora da venda (yyyy-MM-dd HH:mm:ss)
+     * @param deltaVendas   +1 ao registrar uma venda, -1 ao removê-la
+     * @param quantidade    Quantidade da venda (sinal aplicado por deltaVendas)
+     * @param valorTotal    Valor total da venda (sinal aplicado por deltaVendas)
+     */
+    static void aplicar(ConnectionLease conn, String userId, int idVenda, String dataHoraVenda, String tipoItem,
+                        String metodoPagamento, int deltaVendas, int quantidade, double valorTotal) {
+        if (SchemaMigrator.preenchimentoPendente(conn, VERSAO_ESQUEMA, idVenda)) {
+            return;
+        }
+        conn.prepare(
+                "INSERT INTO vendas_diarias " +
+                        "(id_usuario, dia, tipo_item, metodo_pagamento, total_vendas, quantidade, receita) " +
+                        "VALUES (?, date(?), ?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (id_usuario, dia, tipo_item, metodo_pagamento) DO UPDATE SET " +
+                        "total_vendas = total_vendas + excluded.total_vendas, " +
+                        "quantidade = quantidade + excluded.quantidade, " +
+                        "receita = receita + excluded.receita")
+                .bindText(1, userId)
+                .bindText(2, dataHoraVenda)
+                .bindText(3, tipoItem)
+                .bindText(4, metodoPagamento != null ? metodoPagamento : "")
+                .bindInt(5, deltaVendas)
+                .bindInt(6, deltaVendas * quantidade)
+                .bindDouble(7, deltaVendas * valorTotal)
+                .execute();
+
+        if (deltaVendas < 0) {
+            // Remove o grupo quando a última venda dele é desfeita
+            conn.prepare(
+                    "DELETE FROM vendas_diarias WHERE id_usuario = ? AND dia = date(?) " +
+                            "AND tipo_item = ? AND metodo_pagamento = ? AND total_vendas <= 0")
+                    .bindText(1, userId)
+                    .bindText(2, dataHoraVenda)
+                    .bindText(3, tipoItem)
+                    .bindText(4, metodoPagamento != null ? metodoPagamento : "")
+                    .execute();
+        }
+    }
+
+    /**
+     * Verifica se o resumo pode ser lido: a tabela existe e o preenchimento da
+     * migração já terminou (enquanto houver lotes pendentes, vendas antigas ainda
+     * não foram somadas)
+     */
+    static boolean disponivel(ConnectionLease conn) {
+        if (!DatabaseManager.hasTable(conn, TABELA)) {
+            return false;
+        }
+        if (!DatabaseManager.hasTable(conn, "schema_migracao_lotes")) {
+            return true;
+        }
+        try (Rows rows = conn.prepare("SELECT 1 FROM schema_migracao_lotes WHERE versao = ? LIMIT 1")
+                .bindInt(1, VERSAO_ESQUEMA)
+                .query()) {
+            return rows.nextRow() == null;
+        }
+    }
+
+    /**
+     * Recalcula o resumo diário do usuário a partir da tabela vendas.
+     * Deve ser executado dentro de uma transação.
+     */
+    static void reconstruir(ConnectionLease conn, String userId) {
+        conn.prepare("DELETE FROM vendas_diarias WHERE id_usuario = ?")
+                .bindText(1, userId)
+                .execute();
+        conn.prepare(INSERT_A_PARTIR_DE_VENDAS + "WHERE id_usuario = ? " + AGRUPAMENTO)
+                .bindText(1, userId)
+                .execute();
+    }
+
+    /**
+     * Reconstrói o resumo diário do usuário autenticado de forma assíncrona.
+     * Útil caso o resumo tenha sido alterado por fora do aplicativo.
+     */
+    public static void reconstruirAsync(VendasDiariasCallback<Boolean> callback) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            mainHandler.post(() -> callback.onResult(false, false, "Usuário não autenticado"));
+            return;
+        }
+        if (!DatabaseManager.isInitialized()) {
+            mainHandler.post(() -> callback.onResult(false, false, "DatabaseManager não inicializado. Tente novamente mais tarde."));
+            return;
+        }
+
+        final String userId = user.getUid();
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.SYNC, () -> {
+            boolean success = false;
+            String message;
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                long inicio = System.currentTimeMillis();
+                conn.execute("BEGIN TRANSACTION");
+                reconstruir(conn, userId);
+                conn.execute("COMMIT");
+                success = true;
+                message = "Resumo diário reconstruído com sucesso";
+                Log.i(TAG, message + " em " + (System.currentTimeMillis() - inicio) + "ms");
+            } catch (Exception e) {
+                // O ROLLBACK é feito ao devolver a conexão com a transação aberta
+                message = "Erro ao reconstruir resumo diário: " + e.getMessage();
+                Log.e(TAG, message, e);
+            }
+            final boolean finalSuccess = success;
+            final String finalMessage = message;
+            mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
+        });
+    }
+}
@@ -0,0 +1,188 @@
+package tech.turso.SyncroManage;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import tech.turso.libsql.Rows;
+
+/**
+ * DAO da tabela de resumo mensal de vendas (vendas_mensal).
+ * Cada linha acumula, por usuário, mês, tipo de item, item e método de pagamento,
+ * o número de vendas, a quantidade vendida, a receita e o custo. A tabela é mantida
+ * pelo {@link VendaDAO} dentro das mesmas transações que alteram a tabela vendas,
+ * e permite que o relatório agrupado ({@link RelatorioDAO}) leia meses inteiros sem
+ * varrer as vendas. A tabela é criada e preenchida pela migração de esquema
+ * (ver {@link SchemaMigrations}).
+ */
+public class VendasMensalDAO {
+    private static final String TAG = "VendasMensalDAO";
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    static final String TABELA = "vendas_mensal";
+
+    // Versão da migração que cria e preenche a tabela (ver SchemaMigrations)
+    static final int VERSAO_ESQUEMA = 6;
+
+    static final String CREATE_TABLE =
+            "CREATE TABLE IF NOT EXISTS vendas_mensal (" +
+                    "id_usuario TEXT NOT NULL, " +
+                    "mes TEXT NOT NULL, " +                       // yyyy-MM
+                    "tipo_item TEXT NOT NULL, " +
+                    "nome_item TEXT NOT NULL, " +
+                    "metodo_pagamento TEXT NOT NULL DEFAULT '', " +
+                    "total_vendas INTEGER NOT NULL DEFAULT 0, " +
+                    "quantidade INTEGER NOT NULL DEFAULT 0, " +
+                    "receita REAL NOT NULL DEFAULT 0, " +
+                    "custo REAL NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (id_usuario, mes, tipo_item, nome_item, metodo_pagamento)" +
+                    ") WITHOUT ROWID";
+
+    private static final String INSERT_COLUNAS =
+            "INSERT INTO vendas_mensal " +
+                    "(id_usuario, mes, tipo_item, nome_item, metodo_pagamento, total_vendas, quantidade, receita, custo) ";
+    private static final String SOMA_EM_CONFLITO =
+            "ON CONFLICT (id_usuario, mes, tipo_item, nome_item, metodo_pagamento) DO UPDATE SET " +
+                    "total_vendas = total_vendas + excluded.total_vendas, " +
+                    "quantidade = quantidade + excluded.quantidade, " +
+                    "receita = receita + excluded.receita, " +
+                    "custo = custo + excluded.custo";
+
+    // Recalcula o resumo a partir da tabela vendas; o filtro é acrescentado quando necessário
+    private static final String INSERT_A_PARTIR_DE_VENDAS =
+            INSERT_COLUNAS +
+                    "SELECT id_usuario, strftime('%Y-%m', data_hora_venda), tipo_item, nome_item_vendido, " +
+                    "COALESCE(metodo_pagamento, ''), COUNT(*), SUM(quantidade), SUM(valor_total_venda), " +
+                    "SUM(quantidade * COALESCE(custo_unitario_vendido, 0)) FROM vendas ";
+    private static final String AGRUPAMENTO =
+            "GROUP BY id_usuario, strftime('%Y-%m', data_hora_venda), tipo_item, nome_item_vendido, " +
+                    "COALESCE(metodo_pagamento, '')";
+
+    // Preenchimento em lotes usado pela migração: soma um intervalo de rowid de vendas ao resumo
+    static final String INSERT_LOTE_VENDAS =
+            INSERT_A_PARTIR_DE_VENDAS + "WHERE rowid > ? AND rowid <= ? " + AGRUPAMENTO + " " +
+                    SOMA_EM_CONFLITO;
+
+    /**
+     * Interface de callback para a reconstrução do resumo.
+     */
+    public interface VendasMensalCallback<T> {
+        void onResult(T result, boolean success, String message);
+    }
+
+    /**
+     * Soma (ou subtrai) uma venda ao resumo do seu mês, lendo os valores gravados na
+     * tabela vendas — o custo unitário é calculado pelo próprio INSERT/UPDATE da venda.
+     * Deve ser chamado na mesma transação que altera a tabela vendas: depois de gravar
+     * a venda com delta +1, ou antes de alterá-la ou excluí-la com delta -1. Vendas que o
+     * preenchimento da migração ainda não somou são ignoradas; o lote as lê depois.
+     *
+     * @param deltaVendas +1 ao registrar uma venda, -1 ao removê-la
+     */
+    static void aplicarVenda(ConnectionLease conn, String userId, int idVenda, int deltaVendas) {
+        if (SchemaMigrator.preenchimentoPendente(conn, VERSAO_ESQUEMA, idVenda)) {
+            return;
+        }
+        conn.prepare(
+                INSERT_COLUNAS +
+                        "SELECT id_usuario, strftime('%Y-%m', data_hora_venda), tipo_item, nome_item_vendido, " +
+                        "COALESCE(metodo_pagamento, ''), ?, ? * quantidade, ? * valor_total_venda, " +
+                        "? * quantidade * COALESCE(custo_unitario_vendido, 0) " +
+                        "FROM vendas WHERE id_venda = ? AND id_usuario = ? " + SOMA_EM_CONFLITO)
+                .bindInt(1, deltaVendas)
+                .bindInt(2, deltaVendas)
+                .bindInt(3, deltaVendas)
+                .bindInt(4, deltaVendas)
+                .bindInt(5, idVenda)
+                .bindText(6, userId)
+                .execute();
+
+        if (deltaVendas < 0) {
+            // Remove o grupo quando a última venda dele é desfeita
+            conn.prepare(
+                    "DELETE FROM vendas_mensal WHERE (id_usuario, mes, tipo_item, nome_item, metodo_pagamento) IN (" +
+                            "SELECT id_usuario, strftime('%Y-%m', data_hora_venda), tipo_item, nome_item_vendido, " +
+                            "COALESCE(metodo_pagamento, '') FROM vendas WHERE id_venda = ? AND id_usuario = ?) " +
+                            "AND total_vendas <= 0")
+                    .bindInt(1, idVenda)
+                    .bindText(2, userId)
+                    .execute();
+        }
+    }
+
+    /**
+     * Verifica se o resumo pode ser lido: a tabela existe e o preenchimento da
+     * migração já terminou (enquanto houver lotes pendentes, vendas antigas ainda
+     * não foram somadas)
+     */
+    static boolean disponivel(ConnectionLease conn) {
+        if (!DatabaseManager.hasTable(conn, TABELA)) {
+            return false;
+        }
+        if (!DatabaseManager.hasTable(conn, "schema_migracao_lotes")) {
+            return true;
+        }
+        try (Rows rows = conn.prepare("SELECT 1 FROM schema_migracao_lotes WHERE versao = ? LIMIT 1")
+                .bindInt(1, VERSAO_ESQUEMA)
+                .query()) {
+            return rows.nextRow() == null;
+        }
+    }
+
+    /**
+     * Recalcula o resumo mensal do usuário a partir da tabela vendas.
+     * Deve ser executado dentro de uma transação.
+     */
+    static void reconstruir(ConnectionLease conn, String userId) {
+        conn.prepare("DELETE FROM vendas_mensal WHERE id_usuario = ?")
+                .bindText(1, userId)
+                .execute();
+        conn.prepare(INSERT_A_PARTIR_DE_VENDAS + "WHERE id_usuario = ? " + AGRUPAMENTO)
+                .bindText(1, userId)
+                .execute();
+    }
+
+    /**
+     * Reconstrói o resumo mensal do usuário autenticado de forma assíncrona.
+     * Útil caso o resumo tenha sido alterado por fora do aplicativo.
+     */
+    public static void reconstruirAsync(VendasMensalCallback<Boolean> callback) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            mainHandler.post(() -> callback.onResult(false, false, "Usuário não autenticado"));
+            return;
+        }
+        if (!DatabaseManager.isInitialized()) {
+            mainHandler.post(() -> callback.onResult(false, false, "DatabaseManager não inicializado. Tente novamente mais tarde."));
+            return;
+        }
+
+        final String userId = user.getUid();
+
+        DatabaseManager.execute(DatabaseExecutor.Prioridade.SYNC, () -> {
+            boolean success = false;
+            String message;
+            try (ConnectionLease conn = DatabaseManager.leaseConnection()) {
+                long inicio = System.currentTimeMillis();
+                conn.execute("BEGIN TRANSACTION");
+                reconstruir(conn, userId);
+                conn.execute("COMMIT");
+                success = true;
+                message = "Resumo mensal reconstruído com sucesso";
+                Log.i(TAG, message + " em " + (System.currentTimeMillis() - inicio) + "ms");
+                // Relatórios em cache foram calculados com o resumo anterior
+                RelatorioCache.invalidateAll();
+            } catch (Exception e) {
+                // O ROLLBACK é feito ao devolver a conexão com a transação aberta
+                message = "Erro ao reconstruir resumo mensal: " + e.getMessage();
+                Log.e(TAG, message, e);
+            }
+            final boolean finalSuccess = success;
+            final String finalMessage = message;
+            mainHandler.post(() -> callback.onResult(finalSuccess, finalSuccess, finalMessage));
+        });
+    }
+}
@@ -0,0 +1,514 @@
+package tech.turso.SyncroManage;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import tech.turso.libsql.Database;
+import tech.turso.libsql.Libsql;
+import tech.turso.libsql.Rows;
+
+/**
+ * Fila persistente de escritas feitas sem conexão com o servidor.
+ * As operações (venda, edição de estoque, edição de serviço) são gravadas em
+ * um banco SQLite local separado, já que a réplica só aceita escritas com o
+ * servidor acessível. Os DAOs aplicam o efeito no {@link CatalogCache} e as
+ * vendas pendentes aparecem na listagem de vendas com ID negativo.
+ *
+ * Ao reconectar, a fila é reenviada em lotes, cada lote em uma transação no
+ * servidor. Cada operação tem uma chave única registrada na tabela
+ * operacoes_aplicadas dentro da mesma transação, então um lote reenviado após
+ * uma falha entre o COMMIT remoto e a limpeza local não é aplicado duas vezes.
+ * Os DAOs geram a chave antes da tentativa online e a registram na mesma
+ * transação; se a tentativa falhar antes do COMMIT, a operação entra na fila
+ * com a mesma chave.
+ * A instância é mantida pelo {@link DatabaseManager}.
+ */
+public class WriteOutbox {
+    private static final String TAG = "WriteOutbox";
+
+    static final String TIPO_VENDA = "venda_insercao";
+    static final String TIPO_ESTOQUE = "estoque_atualizacao";
+    static final String TIPO_SERVICO = "servico_atualizacao";
+
+    private static final int TAMANHO_LOTE = 50;
+    // Operações que falham individualmente com a rede disponível são descartadas após este limite
+    private static final int MAX_TENTATIVAS = 5;
+
+    private static final String CREATE_OUTBOX =
+            "CREATE TABLE IF NOT EXISTS outbox (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "chave TEXT NOT NULL UNIQUE, " +
+                    "id_usuario TEXT NOT NULL, " +
+                    "tipo TEXT NOT NULL, " +
+                    "payload TEXT NOT NULL, " +
+                    "criado_em TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "tentativas INTEGER NOT NULL DEFAULT 0, " +
+                    "ultimo_erro TEXT, " +
+                    "rejeitada INTEGER NOT NULL DEFAULT 0)";
+
+    /**
+     * Operação lida da fila
+     */
+    private static final class Operacao {
+        final long id;
+        final String chave;
+        final String userId;
+        final String tipo;
+        final String payload;
+        final int tentativas;
+
+        Operacao(long id, String chave, String userId, String tipo, String payload, int tentativas) {
+            this.id = id;
+            this.chave = chave;
+            this.userId = userId;
+            this.tipo = tipo;
+            this.payload = payload;
+            this.tentativas = tentativas;
+        }
+    }
+
+    private Database banco;
+    private ConnectionPool pool;
+    private volatile int pendentes = 0;
+
+    /**
+     * Abre (ou cria) o arquivo da fila
+     */
+    public synchronized void abrir(File arquivo) {
+        if (pool != null) return;
+        if (arquivo.getParentFile() != null && !arquivo.getParentFile().exists()) {
+            arquivo.getParentFile().mkdirs();
+        }
+        banco = Libsql.openLocal(arquivo.getAbsolutePath());
+        pool = new ConnectionPool(banco, 1, 60000, 10000);
+        try (ConnectionLease conn = pool.acquire()) {
+            conn.execute(CREATE_OUTBOX);
+            pendentes = contar(conn);
+        }
+        Log.i(TAG, "Fila de escritas aberta: " + pendentes + " operações pendentes");
+    }
+
+    /**
+     * Fecha o arquivo da fila; as operações pendentes permanecem gravadas
+     */
+    public synchronized void fechar() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        banco = null;
+    }
+
+    public synchronized boolean isAberta() {
+        return pool != null;
+    }
+
+    /**
+     * Indica se há operações aguardando envio
+     */
+    public boolean temPendentes() {
+        return pendentes > 0;
+    }
+
+    /**
+     * Número de operações aguardando envio
+     */
+    public int getPendentes() {
+        return pendentes;
+    }
+
+    /**
+     * ID (negativo) com que uma venda pendente aparece nas listagens
+     */
+    static int idVendaPendente(long idFila) {
+        return (int) -idFila;
+    }
+
+    /**
+     * Indica se o ID é de uma venda ainda na fila
+     */
+    public static boolean isVendaPendente(int idVenda) {
+        return idVenda < 0;
+    }
+
+    // --- CHAVES ---
+
+    /**
+     * Nova chave de operação, gerada antes da primeira tentativa de escrita
+     */
+    static String novaChave() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Registra a chave da operação no servidor; deve ser chamado na mesma
+     * transação que aplica a operação
+     * @return true se a chave é nova; false se a operação já foi aplicada
+     */
+    static boolean registrarOperacao(ConnectionLease remoto, String chave, String userId, String tipo) {
+        remoto.prepare("INSERT OR IGNORE INTO operacoes_aplicadas (chave, id_usuario, tipo) VALUES (?, ?, ?)")
+                .bindText(1, chave)
+                .bindText(2, userId)
+                .bindText(3, tipo)
+                .execute();
+        try (Rows rows = remoto.query("SELECT changes()")) {
+            Object[] row = rows.nextRow();
+            return row != null && ((Number) row[0]).intValue() > 0;
+        }
+    }
+
+    // --- ENFILEIRAMENTO ---
+
+    /**
+     * Grava uma venda na fila
+     * @param chave Chave da operação (a mesma da tentativa online, se houve)
+     * @return ID da operação na fila
+     */
+    synchronized long enfileirarVenda(String userId, Venda venda, String chave) throws JSONException {
+        return enfileirar(userId, TIPO_VENDA, payloadVenda(venda), chave);
+    }
+
+    /**
+     * Grava as vendas de um pedido na fila em uma única transação local:
+     * ou o pedido inteiro fica na fila, ou nenhuma venda dele
+     * @param chaves Chaves das operações, na ordem das vendas
+     * @return IDs das operações na fila, na ordem das vendas
+     */
+    synchronized long[] enfileirarVendas(String userId, List<Venda> vendas, String[] chaves) throws JSONException {
+        List<JSONObject> payloads = new ArrayList<>(vendas.size());
+        for (Venda venda : vendas) {
+            payloads.add(payloadVenda(venda));
+        }
+        long[] ids = new long[payloads.size()];
+        try (ConnectionLease conn = lease()) {
+            conn.execute("BEGIN TRANSACTION");
+            try {
+                for (int i = 0; i < payloads.size(); i++) {
+                    ids[i] = inserir(conn, userId, TIPO_VENDA, payloads.get(i), chaves[i]);
+                }
+                conn.execute("COMMIT");
+            } catch (RuntimeException e) {
+                try { conn.execute("ROLLBACK"); } catch (Exception re) { Log.e(TAG, "Erro no rollback", re); }
+                throw e;
+            }
+            pendentes = contar(conn);
+            Log.i(TAG, "Pedido enfileirado: " + ids.length + " vendas (" + pendentes + " pendentes)");
+            return ids;
+        }
+    }
+
+    private static JSONObject payloadVenda(Venda venda) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("tipo_item", venda.getTipo_item());
+        json.put("id_servico_vendido", venda.getId_servico_vendido() != null ? venda.getId_servico_vendido() : JSONObject.NULL);
+        json.put("nome_item_vendido", venda.getNome_item_vendido());
+        json.put("valor_unitario_vendido", venda.getValor_unitario_vendido());
+        json.put("quantidade", venda.getQuantidade());
+        json.put("valor_total_venda", venda.getValor_total_venda());
+        json.put("data_hora_venda", venda.getData_hora_venda());
+        json.put("metodo_pagamento", venda.getMetodo_pagamento());
+        return json;
+    }
+
+    /**
+     * Grava a edição de um item de estoque na fila
+     * @param chave Chave da operação (a mesma da tentativa online, se houve)
+     */
+    synchronized void enfileirarEstoque(String userId, Estoque item, String chave) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("id_estoque", item.getId_estoque());
+        json.put("nome_produto", item.getNome_produto());
+        json.put("custo_unitario", item.getCusto_unitario());
+        json.put("valor_unitario", item.getValor_unitario());
+        json.put("quantidade", item.getQuantidade());
+        enfileirar(userId, TIPO_ESTOQUE, json, chave);
+    }
+
+    /**
+     * Grava a edição de um serviço na fila
+     * @param chave Chave da operação (a mesma da tentativa online, se houve)
+     */
+    synchronized void enfileirarServico(String userId, Servico servico, String chave) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("id_servico", servico.getId_servico());
+        json.put("nome", servico.getNome());
+        json.put("custo_unitario", servico.getCusto_unitario());
+        json.put("valor_unitario", servico.getValor_unitario());
+        enfileirar(userId, TIPO_SERVICO, json, chave);
+    }
+
+    private long enfileirar(String userId, String tipo, JSONObject payload, String chave) {
+        try (ConnectionLease conn = lease()) {
+            long id = inserir(conn, userId, tipo, payload, chave);
+            pendentes = contar(conn);
+            Log.i(TAG, "Operação enfileirada: " + tipo + " #" + id + " (" + pendentes + " pendentes)");
+            return id;
+        }
+    }
+
+    private static long inserir(ConnectionLease conn, String userId, String tipo, JSONObject payload,
+                                String chave) {
+        conn.prepare("INSERT INTO outbox (chave, id_usuario, tipo, payload) VALUES (?, ?, ?, ?)")
+                .bindText(1, chave)
+                .bindText(2, userId)
+                .bindText(3, tipo)
+                .bindText(4, payload.toString())
+                .execute();
+        try (Rows rows = conn.query("SELECT last_insert_rowid()")) {
+            return ((Number) rows.nextRow()[0]).longValue();
+        }
+    }
+
+    // --- VISÃO OTIMISTA ---
+
+    /**
+     * Vendas do usuário ainda na fila, mais recentes primeiro, com ID negativo
+     */
+    synchronized List<Venda> listarVendasPendentes(String userId) {
+        List<Venda> vendas = new ArrayList<>();
+        if (pool == null || pendentes == 0) return vendas;
+        try (ConnectionLease conn = lease();
+             Rows rows = conn.prepare("SELECT id, payload FROM outbox " +
+                             "WHERE id_usuario = ? AND tipo = ? AND rejeitada = 0 ORDER BY id DESC")
+                     .bindText(1, userId)
+                     .bindText(2, TIPO_VENDA)
+                     .query()) {
+            Object[] row;
+            while ((row = rows.nextRow()) != null) {
+                long id = ((Number) row[0]).longValue();
+                try {
+                    Venda venda = lerVenda(new JSONObject((String) row[1]));
+                    venda.setId_venda(idVendaPendente(id));
+                    venda.setId_usuario(userId);
+                    vendas.add(venda);
+                } catch (JSONException e) {
+                    Log.e(TAG, "Venda pendente #" + id + " ilegível: " + e.getMessage());
+                }
+            }
+        }
+        return vendas;
+    }
+
+    /**
+     * Remove uma venda pendente da fila
+     * @return A venda removida, ou null se ela não está mais na fila
+     */
+    synchronized Venda cancelarVenda(String userId, int idVenda) throws JSONException {
+        long id = -(long) idVenda;
+        try (ConnectionLease conn = lease()) {
+            String payload;
+            try (Rows rows = conn.prepare("SELECT payload FROM outbox WHERE id = ? AND id_usuario = ? AND tipo = ?")
+                    .bindLong(1, id)
+                    .bindText(2, userId)
+                    .bindText(3, TIPO_VENDA)
+                    .query()) {
+                Object[] row = rows.nextRow();
+                if (row == null) return null;
+                payload = (String) row[0];
+            }
+            conn.prepare("DELETE FROM outbox WHERE id = ?").bindLong(1, id).execute();
+            pendentes = contar(conn);
+            Venda venda = lerVenda(new JSONObject(payload));
+            venda.setId_venda(idVenda);
+            return venda;
+        }
+    }
+
+    // --- REENVIO ---
+
+    /**
+     * Envia as operações pendentes ao servidor, em lotes transacionais e na ordem
+     * em que foram feitas. Para na primeira operação que não puder ser enviada,
+     * para não aplicar operações posteriores antes dela.
+     * @param remoto Conexão com o banco principal (réplica ou remoto)
+     * @param userId Envia só as operações deste usuário (banco próprio do usuário); null envia todas
+     * @return Número de operações enviadas
+     */
+    public int reenviar(ConnectionLease remoto, String userId) {
+        int enviadas = 0;
+        long inicio = System.currentTimeMillis();
+        while (true) {
+            synchronized (this) {
+                if (pool == null) break;
+                List<Operacao> lote = lerLote(userId);
+                if (lote.isEmpty()) break;
+                try {
+                    aplicarLote(remoto, lote);
+                    remover(lote);
+                    enviadas += lote.size();
+                    continue;
+                } catch (Exception e) {
+                    desfazer(remoto);
+                    Log.w(TAG, "Falha no lote de " + lote.size() + " operações; reenviando uma a uma: " + e.getMessage());
+                }
+
+                // Isola a operação com problema
+                boolean interromper = false;
+                for (Operacao operacao : lote) {
+                    try {
+                        List<Operacao> unica = new ArrayList<>(1);
+                        unica.add(operacao);
+                        aplicarLote(remoto, unica);
+                        remover(unica);
+                        enviadas++;
+                    } catch (Exception e) {
+                        desfazer(remoto);
+                        if (!registrarFalha(operacao, e)) {
+                            interromper = true;
+                            break;
+                        }
+                    }
+                }
+                if (interromper) break;
+            }
+        }
+        if (enviadas > 0) {
+            Log.i(TAG, enviadas + " operações enviadas em " + (System.currentTimeMillis() - inicio) +
+                    "ms (" + pendentes + " pendentes)");
+        }
+        return enviadas;
+    }
+
+    private void aplicarLote(ConnectionLease remoto, List<Operacao> lote) throws JSONException {
+        remoto.execute("BEGIN TRANSACTION");
+        for (Operacao operacao : lote) {
+            if (!registrarOperacao(remoto, operacao.chave, operacao.userId, operacao.tipo)) {
+                Log.d(TAG, "Operação " + operacao.chave + " já aplicada; ignorada");
+                continue;
+            }
+            aplicar(remoto, operacao);
+        }
+        remoto.execute("COMMIT");
+    }
+
+    private static void aplicar(ConnectionLease remoto, Operacao operacao) throws JSONException {
+        JSONObject json = new JSONObject(operacao.payload);
+        switch (operacao.tipo) {
+            case TIPO_VENDA:
+                // A venda já aconteceu: é registrada mesmo que o estoque no servidor não baste.
+                // O catálogo em memória já refletiu a baixa ao enfileirar.
+                VendaDAO.registrarVenda(remoto, operacao.userId, lerVenda(json), false,
+                        new ArrayList<VendaDAO.AjusteEstoque>());
+                break;
+            case TIPO_ESTOQUE:
+                EstoqueDAO.gravarItemEstoque(remoto, operacao.userId, new Estoque(
+                        json.getInt("id_estoque"), operacao.userId, json.getString("nome_produto"),
+                        json.getDouble("custo_unitario"), json.getDouble("valor_unitario"),
+                        json.getInt("quantidade")));
+                break;
+            case TIPO_SERVICO:
+                ServicoDAO.gravarServico(remoto, operacao.userId, new Servico(
+                        json.getInt("id_servico"), operacao.userId, json.getString("nome"),
+                        json.getDouble("custo_unitario"), json.getDouble("valor_unitario")));
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de operação desconhecido: " + operacao.tipo);
+        }
+    }
+
+    private static void desfazer(ConnectionLease remoto) {
+        try {
+            remoto.execute("ROLLBACK");
+        } catch (Exception re) {
+            Log.w(TAG, "Erro no rollback do lote: " + re.getMessage());
+        }
+    }
+
+    /**
+     * Registra a falha de uma operação enviada isoladamente
+     * @return true se a operação foi descartada e o envio pode seguir para as próximas
+     */
+    private boolean registrarFalha(Operacao operacao, Exception erro) {
+        if (!DatabaseManager.isNetworkAvailable()) {
+            // Sem rede a falha não é da operação; tenta de novo na próxima sincronização
+            Log.w(TAG, "Envio interrompido: sem conexão");
+            return false;
+        }
+        int tentativas = operacao.tentativas + 1;
+        boolean rejeitar = tentativas >= MAX_TENTATIVAS;
+        try (ConnectionLease conn = lease()) {
+            conn.prepare("UPDATE outbox SET tentativas = ?, ultimo_erro = ?, rejeitada = ? WHERE id = ?")
+                    .bindInt(1, tentativas)
+                    .bindText(2, erro.getMessage())
+                    .bindInt(3, rejeitar ? 1 : 0)
+                    .bindLong(4, operacao.id)
+                    .execute();
+            pendentes = contar(conn);
+        }
+        if (rejeitar) {
+            Log.e(TAG, "Operação " + operacao.tipo + " #" + operacao.id + " descartada após " + tentativas +
+                    " tentativas: " + erro.getMessage());
+        } else {
+            Log.w(TAG, "Falha ao enviar " + operacao.tipo + " #" + operacao.id + " (tentativa " + tentativas +
+                    "): " + erro.getMessage());
+        }
+        return rejeitar;
+    }
+
+    private List<Operacao> lerLote(String userId) {
+        List<Operacao> lote = new ArrayList<>(TAMANHO_LOTE);
+        try (ConnectionLease conn = lease()) {
+            SqlStatement consulta = userId == null
+                    ? conn.prepare("SELECT id, chave, id_usuario, tipo, payload, tentativas FROM outbox " +
+                            "WHERE rejeitada = 0 ORDER BY id LIMIT ?")
+                    .bindInt(1, TAMANHO_LOTE)
+                    : conn.prepare("SELECT id, chave, id_usuario, tipo, payload, tentativas FROM outbox " +
+                            "WHERE rejeitada = 0 AND id_usuario = ? ORDER BY id LIMIT ?")
+                    .bindText(1, userId)
+                    .bindInt(2, TAMANHO_LOTE);
+            try (Rows rows = consulta.query()) {
+                Object[] row;
+                while ((row = rows.nextRow()) != null) {
+                    lote.add(new Operacao(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                            (String) row[3], (String) row[4], ((Number) row[5]).intValue()));
+                }
+            }
+        }
+        return lote;
+    }
+
+    private void remover(List<Operacao> lote) {
+        try (ConnectionLease conn = lease()) {
+            conn.execute("BEGIN TRANSACTION");
+            for (Operacao operacao : lote) {
+                conn.prepare("DELETE FROM outbox WHERE id = ?").bindLong(1, operacao.id).execute();
+            }
+            conn.execute("COMMIT");
+            pendentes = contar(conn);
+        }
+    }
+
+    private static int contar(ConnectionLease conn) {
+        try (Rows rows = conn.query("SELECT COUNT(*) FROM outbox WHERE rejeitada = 0")) {
+            Object[] row = rows.nextRow();
+            return row != null ? ((Number) row[0]).intValue() : 0;
+        }
+    }
+
+    private ConnectionLease lease() {
+        if (pool == null) {
+            throw new IllegalStateException("Fila de escritas não aberta");
+        }
+        return pool.acquire();
+    }
+
+    private static Venda lerVenda(JSONObject json) throws JSONException {
+        Venda venda = new Venda();
+        venda.setTipo_item(json.getString("tipo_item"));
+        venda.setId_servico_vendido(json.isNull("id_servico_vendido") ? null : json.getInt("id_servico_vendido"));
+        venda.setNome_item_vendido(json.getString("nome_item_vendido"));
+        venda.setValor_unitario_vendido(json.getDouble("valor_unitario_vendido"));
+        venda.setQuantidade(json.getInt("quantidade"));
+        venda.setValor_total_venda(json.getDouble("valor_total_venda"));
+        venda.setData_hora_venda(json.getString("data_hora_venda"));
+        venda.setMetodo_pagamento(json.optString("metodo_pagamento", null));
+        return venda;
+    }
+}